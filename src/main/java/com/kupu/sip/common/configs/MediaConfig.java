@@ -0,0 +1,164 @@
+package com.kupu.sip.common.configs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kupu.sip.modules.media.srtp.SrtpPolicy;
+import com.kupu.sip.modules.media.stream.HandoffBackpressure;
+import com.kupu.sip.modules.media.stream.UtteranceOverflowPolicy;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 媒体面配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "media")
+public class MediaConfig {
+
+    // 媒体事件循环数量，0表示按CPU核数
+    private int eventLoops = 0;
+
+    // 距媒体节拍不足该时长时事件循环自旋等待，提高出向RTP的发送间隔精度(微秒)，0表示不自旋
+    private int clockSpinMicros = 300;
+
+    // RTP/RTCP socket接收缓冲区大小(字节)
+    private int socketReceiveBufferSize = 256 * 1024;
+
+    // 对称RTP：按实际收到的RTP源地址发送(穿透对端NAT)，关闭时始终发往SDP地址
+    private boolean rtpLatching = true;
+
+    // 锁定或切换对端媒体地址所需的连续有效包数(同源、同SSRC、序列号连续)
+    private int rtpLatchPackets = 2;
+
+    // SRTP策略：DISABLED不加密，OPTIONAL对端offer加密时应答加密，REQUIRED只建立加密媒体
+    private SrtpPolicy srtpPolicy = SrtpPolicy.OPTIONAL;
+
+    // 单个通道每轮最多连续读取的包数，保证同一事件循环上各通话的公平性
+    private int maxReadsPerChannel = 16;
+
+    // 堆外媒体帧大小(字节)，需容纳RTP头、最大负载及SRTP认证标签
+    private int frameSize = 2048;
+
+    // 堆外媒体帧池容量(帧)
+    private int framePoolSize = 4096;
+
+    // 抖动缓冲容量(包)，须为2的幂
+    private int jitterCapacity = 32;
+
+    // 抖动缓冲最小目标时延(毫秒)
+    private int jitterMinDelayMs = 40;
+
+    // 抖动缓冲最大目标时延(毫秒)
+    private int jitterMaxDelayMs = 300;
+
+    // 目标时延 = 帧长 + 该系数 * 到达间隔抖动；调大可用少量时延换取更少的迟到丢包
+    private int jitterFactor = 3;
+
+    // 提示音缓存上限(字节)，按LRU淘汰
+    private long promptCacheMaxBytes = 64L * 1024 * 1024;
+
+    // 提示音文件变化检查间隔(毫秒)，只对之后的新放音生效；更新提示音须写临时文件后原子重命名覆盖
+    private int promptCheckIntervalMs = 1000;
+
+    // 启动时预加载的提示音文件
+    private List<String> promptPreload = new ArrayList<>();
+
+    // 媒体端口范围，RTP使用其中的偶数端口，RTCP使用其后的奇数端口
+    private int portMin = 20000;
+
+    private int portMax = 39999;
+
+    // 归还的端口在该时间内不再分配，避免上一通话的迟到包串入新通话(毫秒)
+    private int portQuarantineMs = 2000;
+
+    // 归还端口时保留已绑定的socket供下次分配复用
+    private boolean portSocketReuse = true;
+
+    // 保留最近结束通话的质量统计条数，供挂机后查询
+    private int qualityHistorySize = 1000;
+
+    // VAD起始门限：帧能量高于自适应噪声底的dB数
+    private double vadOnsetDb = 9;
+
+    // VAD结束门限：低于噪声底加该dB数视为静音，小于起始门限以形成滞回
+    private double vadOffsetDb = 5;
+
+    // 持续超过起始门限该时长后判定语音开始(毫秒)
+    private int vadOnsetMs = 40;
+
+    // 持续静音该时长后判定语音结束(毫秒)，可按通话单独调整
+    private int vadEndOfSpeechMs = 800;
+
+    // 语音起始前保留的音频时长，避免首音节被截断(毫秒)
+    private int vadPreRollMs = 300;
+
+    // 丢包补偿的最长合成时长(毫秒)，更长的连续丢包淡出为静音；0表示关闭补偿
+    private int plcMaxMs = 60;
+
+    // 放音期间检测到主叫说话时立即停止放音(打断)，可按通话单独开关
+    private boolean bargeIn = true;
+
+    // 打断的起始判定时长(毫秒)。G.711在包到达时判定，不经抖动缓冲，
+    // 主叫开口到停止放音约为该时长加至多一个20ms节拍(默认不超过40ms，不含网络时延)；
+    // 线路噪声大、误打断多时可调到40，代价是时延增加一帧
+    private int bargeInOnsetMs = 20;
+
+    // 流式放音(如分块TTS)开始播放前的缓冲时长，吸收分块到达抖动(毫秒)
+    private int playoutStreamPrebufferMs = 60;
+
+    // 流式音频交付的批长度(毫秒)，20即逐帧交付
+    private int streamBatchMs = 20;
+
+    // 整段语音回调的单段缓冲上限(毫秒)，缓冲在堆外按通话预分配，决定每路通话的内存上限
+    private int maxUtteranceMs = 15000;
+
+    // 单段语音超过上限时的处理：ENDPOINT强制断句，DROP_OLDEST丢弃最旧音频，EVENT仅上报事件并丢弃后续音频
+    private UtteranceOverflowPolicy utteranceOverflowPolicy = UtteranceOverflowPolicy.ENDPOINT;
+
+    // 异步音频消费者工作线程数，慢消费者(如同步HTTP调用ASR)会占住线程，按并发通话数估算
+    private int audioConsumerThreads = 16;
+
+    // 媒体循环与异步消费者之间交接环的槽位数，须为2的幂
+    private int handoffCapacity = 64;
+
+    // 交接环每个槽位可容纳的音频时长(毫秒)，合并模式下消费者积压时帧合并到该长度
+    private int handoffChunkMs = 200;
+
+    // 交接环满时的处理：DROP丢弃新音频，COALESCE合并后仍满才丢弃，BLOCK媒体循环限时等待
+    private HandoffBackpressure handoffBackpressure = HandoffBackpressure.COALESCE;
+
+    // BLOCK策略下媒体循环每次最多等待的时长(毫秒)
+    private int handoffBlockTimeoutMs = 5;
+
+    // 是否录制每路通话(收发双向的原始负载)，关闭时仍可按通话开启
+    private boolean recordingEnabled = false;
+
+    // 录音根目录，每路通话一个子目录
+    private String recordingDir = "recordings";
+
+    // 录音分段时长(秒)，长通话按段滚动新文件
+    private int recordingSegmentSeconds = 300;
+
+    // 录音写盘块大小(KB)，块满后交给写盘线程
+    private int recordingChunkKb = 32;
+
+    // 所有通话录音在途缓冲的上限(MB)，磁盘跟不上超出时丢帧而不阻塞媒体循环
+    private int recordingBufferMb = 256;
+
+    // 录音结束后导出立体声WAV(左入向、右出向)
+    private boolean recordingWavExport = true;
+
+    // 会议混音采样率，编码采样率不同的成员进出混音时重采样
+    private int conferenceSampleRate = 8000;
+
+    // 会议噪声门(RMS)，低于该值的语音帧不参与混音
+    private int conferenceGateRms = 64;
+
+    // 单个会议的成员上限
+    private int conferenceMaxParticipants = 16;
+
+}
@@ -2,6 +2,7 @@ package com.kupu.sip.modules.call.client;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -42,7 +43,10 @@ import javax.sip.message.Request;
 
 import org.slf4j.MDC;
 
-import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
+import com.kupu.sip.modules.media.sdp.SdpMediaNegotiator;
+import com.kupu.sip.modules.media.srtp.SdesCrypto;
+import com.kupu.sip.modules.media.srtp.SrtpPolicy;
 import com.kupu.sip.modules.session.SessionKeepAlive;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
@@ -60,7 +64,7 @@ public class JainSipClient {
     private final String uasHost;
     private final ExecutorService executorService;
     private final SessionManager sessionManager;
-    private final RtpMediaManager rtpMediaManager;
+    private final MediaSessionRegistry mediaSessionRegistry;
     private SipFactory sipFactory;
     private AddressFactory addressFactory;
     private HeaderFactory headerFactory;
@@ -70,13 +74,13 @@ public class JainSipClient {
     private SipListener sipListener; // 存储 SipListener 引用
 
     public JainSipClient(String clientId, String ip, int port, String uasHost, SessionManager sessionManager,
-            RtpMediaManager rtpMediaManager) {
+            MediaSessionRegistry mediaSessionRegistry) {
         this.clientId = clientId; // 当前外呼客户端ID
         this.ip = ip; // 客户端IP
         this.port = port; // 客户端端口
         this.uasHost = uasHost;
         this.sessionManager = sessionManager; // 会话管理器
-        this.rtpMediaManager = rtpMediaManager;
+        this.mediaSessionRegistry = mediaSessionRegistry;
         this.executorService = new ThreadPoolExecutor(5, 20, 60L, TimeUnit.SECONDS,
                 new LinkedBlockingQueue<>(500),
                 new ThreadFactoryBuilder().setNamePrefix("sip-client-" + clientId + "-%d").build(),
@@ -107,7 +111,7 @@ public class JainSipClient {
         sipProvider = sipStack.createSipProvider(udpListeningPoint);
         sessionKeepAlive = new SessionKeepAlive(sipProvider, headerFactory);
         sipListener = new SipListenerImpl(clientId, sessionManager, headerFactory, addressFactory, sipFactory,
-                messageFactory, sipProvider, sessionKeepAlive, rtpMediaManager);
+                messageFactory, sipProvider, sessionKeepAlive, mediaSessionRegistry);
         sipProvider.addSipListener(sipListener);
         log.info("[{}] SIP客户端初始化完成，监听地址: {}:{}", clientId, ip, port);
     }
@@ -117,7 +121,7 @@ public class JainSipClient {
             try {
                 String sessionId = String.valueOf(System.currentTimeMillis());
                 SipSession session = sessionManager.createSession(clientId, sessionId);
-                session.setSdpPort(sdpPort);
+                session.setSdpPort(sdpPort == null ? 0 : sdpPort); // 未指定时由媒体端口分配器分配
                 session.setFromUser(fromUser);
                 session.setFromDomain(fromDomain);
                 session.setToUser(toUser);
@@ -136,7 +140,7 @@ public class JainSipClient {
         try {
             String sessionId = String.valueOf(System.currentTimeMillis());
             SipSession session = sessionManager.createSession(clientId, sessionId);
-            session.setSdpPort(sdpPort);
+            session.setSdpPort(sdpPort == null ? 0 : sdpPort); // 未指定时由媒体端口分配器分配
             session.setFromUser(fromUser);
             session.setFromDomain(fromDomain);
             session.setToUser(toUser);
@@ -212,6 +216,13 @@ public class JainSipClient {
             // 创建其他必要头部
             CallIdHeader callIdHeader = sipProvider.getNewCallId();
             session.setCallId(callIdHeader.getCallId());
+            if (session.getSdpPort() <= 0) {
+                // 发送offer前预先租用媒体端口，应答到达后直接复用已绑定的通道
+                session.setSdpPort(mediaSessionRegistry.getOrCreateSession(session.getCallId()).allocatePorts());
+            }
+            if (mediaSessionRegistry.getMediaConfig().getSrtpPolicy() == SrtpPolicy.REQUIRED) {
+                session.setOfferedCryptos(SdesCrypto.offer());
+            }
             CSeqHeader cSeqHeader = headerFactory.createCSeqHeader(1L, Request.INVITE);
             MaxForwardsHeader maxForwardsHeader = headerFactory.createMaxForwardsHeader(70);
             // 创建INVITE请求
@@ -231,7 +242,8 @@ public class JainSipClient {
             javax.sip.header.Header supportedHeader = headerFactory.createHeader("Supported", "timer");
             request.addHeader(supportedHeader);
             // 添加SDP消息体
-            String sdpDescribe = this.sdpDescribe(session.getSdpPort(), fromDomain, session.getSessionId());
+            String sdpDescribe = this.sdpDescribe(session.getSdpPort(), fromDomain, session.getSessionId(),
+                    session.getOfferedCryptos());
             byte[] contents = sdpDescribe.getBytes();
             ContentTypeHeader contentTypeHeader = headerFactory.createContentTypeHeader("application", "sdp");
             request.setContent(contents, contentTypeHeader);
@@ -243,21 +255,18 @@ public class JainSipClient {
             log.info("[{}] 发送INVITE请求: {}", clientId, request);
         } catch (Exception e) {
             log.error("[{}] 发送INVITE请求失败", clientId, e);
+            mediaSessionRegistry.releaseSession(session.getCallId());
             throw new RuntimeException(e);
         }
     }
 
-    private String sdpDescribe(int sdpPort, String fromDomain, String sessionId) {
+    private String sdpDescribe(int sdpPort, String fromDomain, String sessionId, List<SdesCrypto> cryptos) {
         return "v=0\r\n" +
                 "o=- " + sessionId + " " + sessionId + " IN IP4 " + fromDomain + "\r\n" +
                 "s=" + "VOS3000" + "\r\n" +
                 "c=IN IP4 " + fromDomain + "\r\n" +
                 "t=0 0\r\n" +
-                "m=audio " + sdpPort + " RTP/AVP 8 0 101\r\n" +
-                "a=rtpmap:8 PCMA/8000\r\n" +
-                "a=rtpmap:0 PCMU/8000\r\n" +
-                "a=rtpmap:101 telephone-event/8000\r\n" +
-                "a=fmtp:101 0-15\r\n" +
+                SdpMediaNegotiator.offerMedia(sdpPort, cryptos == null ? Collections.emptyList() : cryptos) +
                 "a=ptime:20\r\n" +
                 "a=sendrecv\r\n";
     }
@@ -280,6 +289,10 @@ public class JainSipClient {
                         session.updateStatus(SipSession.SessionStatus.DISCONNECTED);
                     } catch (Exception e) {
                         log.error("[{}] 关闭会话失败 sessionId: {}", clientId, session.getSessionId(), e);
+                    } finally {
+                        // 通过注册表释放该通话的媒体会话
+                        mediaSessionRegistry.releaseSession(session.getCallId());
+                        session.setMediaManager(null);
                     }
                 }
             }
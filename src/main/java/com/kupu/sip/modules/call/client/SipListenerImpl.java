@@ -2,7 +2,7 @@ package com.kupu.sip.modules.call.client;
 
 import com.kupu.sip.modules.call.request.RequestProcessorProxy;
 import com.kupu.sip.modules.call.response.ResponseProcessorProxy;
-import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.session.SessionKeepAlive;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
@@ -23,16 +23,16 @@ public class SipListenerImpl implements SipListener {
 
     private final String clientId;
     private final SessionManager sessionManager;
-    private final RtpMediaManager rtpMediaManager;
+    private final MediaSessionRegistry mediaSessionRegistry;
     private final RequestProcessorProxy requestProcessorProxy;
     private final ResponseProcessorProxy responseProcessorProxy;
 
-    public SipListenerImpl(String clientId, SessionManager sessionManager, HeaderFactory headerFactory, AddressFactory addressFactory, SipFactory sipFactory, MessageFactory messageFactory, SipProvider sipProvider, SessionKeepAlive sessionKeepAlive, RtpMediaManager rtpMediaManager) {
+    public SipListenerImpl(String clientId, SessionManager sessionManager, HeaderFactory headerFactory, AddressFactory addressFactory, SipFactory sipFactory, MessageFactory messageFactory, SipProvider sipProvider, SessionKeepAlive sessionKeepAlive, MediaSessionRegistry mediaSessionRegistry) {
         this.clientId = clientId;
         this.sessionManager = sessionManager;
-        this.rtpMediaManager = rtpMediaManager;
-        this.requestProcessorProxy = new RequestProcessorProxy(sessionManager, headerFactory, addressFactory, sipFactory, messageFactory, sipProvider, sessionKeepAlive, rtpMediaManager);
-        this.responseProcessorProxy = new ResponseProcessorProxy(sessionManager, headerFactory, addressFactory, sipFactory, messageFactory, sipProvider, sessionKeepAlive, rtpMediaManager);
+        this.mediaSessionRegistry = mediaSessionRegistry;
+        this.requestProcessorProxy = new RequestProcessorProxy(sessionManager, headerFactory, addressFactory, sipFactory, messageFactory, sipProvider, sessionKeepAlive, mediaSessionRegistry);
+        this.responseProcessorProxy = new ResponseProcessorProxy(sessionManager, headerFactory, addressFactory, sipFactory, messageFactory, sipProvider, sessionKeepAlive, mediaSessionRegistry);
     }
 
     /**
@@ -127,6 +127,9 @@ public class SipListenerImpl implements SipListener {
                     // 更新会话状态
                     session.updateStatus(SipSession.SessionStatus.DISCONNECTED);
                     session.setDialog(null);
+                    // 释放媒体会话
+                    mediaSessionRegistry.releaseSession(callId);
+                    session.setMediaManager(null);
                     // 移除会话
                     sessionManager.removeSession(clientId, session.getSessionId());
                 });
@@ -141,6 +144,8 @@ public class SipListenerImpl implements SipListener {
                 // 如果是INVITE事务超时，更新会话状态
                 if (transaction instanceof ClientTransaction && transaction.getRequest().getMethod().equals(Request.INVITE)) {
                     session.updateStatus(SipSession.SessionStatus.FAILED);
+                    mediaSessionRegistry.releaseSession(callId);
+                    session.setMediaManager(null);
                     sessionManager.removeSession(clientId, session.getSessionId());
                 }
             }
@@ -1,7 +1,7 @@
 package com.kupu.sip.modules.call.request;
 
 import com.kupu.sip.modules.call.request.impl.*;
-import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.session.SessionKeepAlive;
 import com.kupu.sip.modules.session.SessionManager;
 import lombok.extern.slf4j.Slf4j;
@@ -27,11 +27,11 @@ public class RequestProcessorProxy implements ISipRequestProcessor {
     private final MessageFactory messageFactory;
     private final SipProvider sipProvider;
     private final SipFactory sipFactory;
-    private final RtpMediaManager rtpMediaManager;
+    private final MediaSessionRegistry mediaSessionRegistry;
     private final SessionKeepAlive sessionKeepAlive;
 
     public RequestProcessorProxy(SessionManager sessionManager, HeaderFactory headerFactory, AddressFactory addressFactory
-            , SipFactory sipFactory, MessageFactory messageFactory, SipProvider sipProvider, SessionKeepAlive sessionKeepAlive, RtpMediaManager rtpMediaManager) {
+            , SipFactory sipFactory, MessageFactory messageFactory, SipProvider sipProvider, SessionKeepAlive sessionKeepAlive, MediaSessionRegistry mediaSessionRegistry) {
         this.sessionManager = sessionManager;
         this.headerFactory = headerFactory;
         this.addressFactory = addressFactory;
@@ -40,16 +40,16 @@ public class RequestProcessorProxy implements ISipRequestProcessor {
         this.sipFactory = sipFactory;
         this.processors = new HashMap<>();
         this.sessionKeepAlive = sessionKeepAlive;
-        this.rtpMediaManager = rtpMediaManager;
+        this.mediaSessionRegistry = mediaSessionRegistry;
         initProcessors();
     }
 
     private void initProcessors() {
-        processors.put(Request.INVITE, new InviteRequestProcessor(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory));
-        processors.put(Request.BYE, new ByeRequestProcessor(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory,sessionKeepAlive, rtpMediaManager));
-        processors.put(Request.CANCEL, new CancelRequestProcessor(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory));
+        processors.put(Request.INVITE, new InviteRequestProcessor(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory, mediaSessionRegistry));
+        processors.put(Request.BYE, new ByeRequestProcessor(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory,sessionKeepAlive, mediaSessionRegistry));
+        processors.put(Request.CANCEL, new CancelRequestProcessor(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory, mediaSessionRegistry));
         processors.put(Request.ACK, new AckRequestProcessor(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory));
-        processors.put(Request.INFO, new InfoRequestProcessor(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory));
+        processors.put(Request.INFO, new InfoRequestProcessor(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory, mediaSessionRegistry));
         processors.put(Request.MESSAGE, new MessageRequestProcessor(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory));
         processors.put(Request.REGISTER, new RegisterRequestProcessor(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory));
         processors.put(Request.SUBSCRIBE, new SubscribeRequestProcessor(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory));
@@ -3,7 +3,7 @@ package com.kupu.sip.modules.call.request.impl;
 import cn.hutool.http.HttpUtil;
 import cn.hutool.json.JSONUtil;
 import com.kupu.sip.modules.call.request.AbstractRequestProcessor;
-import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.session.SessionKeepAlive;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
@@ -22,12 +22,12 @@ import java.util.Map;
 @Slf4j
 public class ByeRequestProcessor extends AbstractRequestProcessor {
     private final SessionKeepAlive keepAlive;
-    private final RtpMediaManager rtpMediaManager;
+    private final MediaSessionRegistry mediaSessionRegistry;
     public ByeRequestProcessor(SessionManager sessionManager, HeaderFactory headerFactory, AddressFactory addressFactory,
-                               MessageFactory messageFactory, SipProvider sipProvider, SipFactory sipFactory, SessionKeepAlive keepAlive, RtpMediaManager rtpMediaManager) {
+                               MessageFactory messageFactory, SipProvider sipProvider, SipFactory sipFactory, SessionKeepAlive keepAlive, MediaSessionRegistry mediaSessionRegistry) {
         super(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory);
         this.keepAlive = keepAlive;
-        this.rtpMediaManager = rtpMediaManager;
+        this.mediaSessionRegistry = mediaSessionRegistry;
     }
 
     @Override
@@ -45,15 +45,14 @@ public class ByeRequestProcessor extends AbstractRequestProcessor {
         if (session != null) {
              // 发送200 OK响应
             sendResponse(evt, Response.OK);
-            // 停止媒体会话
-            session.stopMediaSession();
+            // 通过注册表释放该通话的媒体会话
+            mediaSessionRegistry.releaseSession(callId);
+            session.setMediaManager(null);
             // 移除会话
             sessionManager.removeSession(clientId, session.getSessionId());
             // 更新会话状态
             session.updateStatus(SipSession.SessionStatus.DISCONNECTED);
             // 停止 rtp 服务
-            rtpMediaManager.stopMediaSession();
-            // 停止 rtp 服务
             stopRTPSvr(callId);
             log.info("[{}] 会话已终止 callId: {}", clientId, callId);
         } else {
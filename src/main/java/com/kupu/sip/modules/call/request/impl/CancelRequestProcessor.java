@@ -13,6 +13,7 @@ import javax.sip.message.Request;
 import javax.sip.message.Response;
 
 import com.kupu.sip.modules.call.request.AbstractRequestProcessor;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
 
@@ -21,10 +22,13 @@ import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class CancelRequestProcessor extends AbstractRequestProcessor {
+    private final MediaSessionRegistry mediaSessionRegistry;
 
     public CancelRequestProcessor(SessionManager sessionManager, HeaderFactory headerFactory, AddressFactory addressFactory,
-                                  MessageFactory messageFactory, SipProvider sipProvider, SipFactory sipFactory) {
+                                  MessageFactory messageFactory, SipProvider sipProvider, SipFactory sipFactory,
+                                  MediaSessionRegistry mediaSessionRegistry) {
         super(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory);
+        this.mediaSessionRegistry = mediaSessionRegistry;
     }
 
     @Override
@@ -61,6 +65,8 @@ public class CancelRequestProcessor extends AbstractRequestProcessor {
                 }
 
                 // 清理会话资源
+                mediaSessionRegistry.releaseSession(callId);
+                session.setMediaManager(null);
                 sessionManager.removeSession(clientId, callId);
             }
         }
@@ -1,23 +1,33 @@
 package com.kupu.sip.modules.call.request.impl;
 
 import com.kupu.sip.modules.call.request.AbstractRequestProcessor;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
+import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.dtmf.DtmfDigits;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.sip.*;
 import javax.sip.address.AddressFactory;
+import javax.sip.header.ContentTypeHeader;
 import javax.sip.header.HeaderFactory;
 import javax.sip.message.MessageFactory;
 import javax.sip.message.Request;
 import javax.sip.message.Response;
+import java.nio.charset.StandardCharsets;
 
 @Slf4j
 public class InfoRequestProcessor extends AbstractRequestProcessor {
+    private static final int DEFAULT_DTMF_DURATION_MS = 100;
+
+    private final MediaSessionRegistry mediaSessionRegistry;
 
     public InfoRequestProcessor(SessionManager sessionManager, HeaderFactory headerFactory, AddressFactory addressFactory,
-                                MessageFactory messageFactory, SipProvider sipProvider, SipFactory sipFactory) {
+                                MessageFactory messageFactory, SipProvider sipProvider, SipFactory sipFactory,
+                                MediaSessionRegistry mediaSessionRegistry) {
         super(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory);
+        this.mediaSessionRegistry = mediaSessionRegistry;
     }
 
     @Override
@@ -38,7 +48,7 @@ public class InfoRequestProcessor extends AbstractRequestProcessor {
             SipSession session = sessionManager.getSession(clientId, callId);
             if (session != null) {
                 // 处理INFO请求内容
-                processInfoContent(request);
+                processInfoContent(callId, request);
                 // 发送200 OK响应
                 Response response = messageFactory.createResponse(Response.OK, request);
                 serverTransaction.sendResponse(response);
@@ -50,8 +60,54 @@ public class InfoRequestProcessor extends AbstractRequestProcessor {
         }
     }
 
-    private void processInfoContent(Request request) {
-        // 处理INFO请求中的具体内容
-        // 例如DTMF信息等
+    /**
+     * 处理INFO请求内容，目前支持application/dtmf-relay与application/dtmf按键
+     */
+    private void processInfoContent(String callId, Request request) {
+        ContentTypeHeader contentType = (ContentTypeHeader) request.getHeader(ContentTypeHeader.NAME);
+        byte[] content = request.getRawContent();
+        if (contentType == null || content == null || !"application".equalsIgnoreCase(contentType.getContentType())) {
+            return;
+        }
+        String subType = contentType.getContentSubType();
+        String body = new String(content, StandardCharsets.UTF_8).trim();
+        char digit = 0;
+        int durationMs = DEFAULT_DTMF_DURATION_MS;
+        if ("dtmf-relay".equalsIgnoreCase(subType)) {
+            // Signal=5\r\nDuration=160
+            for (String line : body.split("\\r?\\n")) {
+                int eq = line.indexOf('=');
+                if (eq < 0) {
+                    continue;
+                }
+                String name = line.substring(0, eq).trim();
+                String value = line.substring(eq + 1).trim();
+                if ("Signal".equalsIgnoreCase(name) && !value.isEmpty()) {
+                    // 部分终端以事件码表示*#A-D，如Signal=11
+                    digit = value.length() == 2 && value.matches("1[0-5]")
+                            ? DtmfDigits.toDigit(Integer.parseInt(value)) : value.charAt(0);
+                } else if ("Duration".equalsIgnoreCase(name)) {
+                    try {
+                        durationMs = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        log.debug("DTMF时长格式错误: {}", value);
+                    }
+                }
+            }
+        } else if ("dtmf".equalsIgnoreCase(subType) && !body.isEmpty()) {
+            digit = body.charAt(0);
+        } else {
+            return;
+        }
+        if (DtmfDigits.toEvent(digit) < 0) {
+            log.warn("INFO中的DTMF按键无法识别 callId: {}, 内容: {}", callId, body);
+            return;
+        }
+        RtpMediaManager mediaSession = mediaSessionRegistry.getSession(callId);
+        if (mediaSession == null) {
+            log.warn("媒体会话不存在，丢弃INFO按键 callId: {}", callId);
+            return;
+        }
+        mediaSession.onSipInfoDtmf(Character.toUpperCase(digit), durationMs);
     }
 }
\ No newline at end of file
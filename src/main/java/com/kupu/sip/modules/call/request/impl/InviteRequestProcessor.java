@@ -2,11 +2,15 @@ package com.kupu.sip.modules.call.request.impl;
 
 
 import com.kupu.sip.modules.call.request.AbstractRequestProcessor;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
+import com.kupu.sip.modules.media.sdp.NegotiatedMedia;
+import com.kupu.sip.modules.media.sdp.SdpMediaNegotiator;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.sdp.MediaDescription;
+import javax.sdp.SdpException;
 import javax.sdp.SdpFactory;
 import javax.sdp.SessionDescription;
 import javax.sip.*;
@@ -18,10 +22,12 @@ import javax.sip.message.Response;
 
 @Slf4j
 public class InviteRequestProcessor extends AbstractRequestProcessor {
+    private final MediaSessionRegistry mediaSessionRegistry;
 
     public InviteRequestProcessor(SessionManager sessionManager, HeaderFactory headerFactory, AddressFactory addressFactory,
-                                  MessageFactory messageFactory, SipProvider sipProvider, SipFactory sipFactory) {
+                                  MessageFactory messageFactory, SipProvider sipProvider, SipFactory sipFactory, MediaSessionRegistry mediaSessionRegistry) {
         super(sessionManager, headerFactory, addressFactory, messageFactory, sipProvider, sipFactory);
+        this.mediaSessionRegistry = mediaSessionRegistry;
     }
 
     @Override
@@ -43,6 +49,15 @@ public class InviteRequestProcessor extends AbstractRequestProcessor {
         // 获取远端媒体信息
         MediaDescription audioMedia = (MediaDescription) remoteSdp.getMediaDescriptions(false).get(0);
         int remoteRtpPort = audioMedia.getMedia().getMediaPort();
+        NegotiatedMedia negotiatedMedia;
+        try {
+            negotiatedMedia = SdpMediaNegotiator.negotiate(audioMedia);
+            SdpMediaNegotiator.acceptOffer(negotiatedMedia, mediaSessionRegistry.getMediaConfig().getSrtpPolicy());
+        } catch (SdpException e) {
+            log.warn("[{}] 媒体协商失败: {}", clientId, e.getMessage());
+            serverTransaction.sendResponse(messageFactory.createResponse(Response.NOT_ACCEPTABLE_HERE, request));
+            return;
+        }
         String remoteAddress = remoteSdp.getConnection().getAddress();
         log.info("[{}] 远端媒体信息: {}", clientId, remoteAddress);     
         // 检查会话状态
@@ -54,9 +69,10 @@ public class InviteRequestProcessor extends AbstractRequestProcessor {
                 session.setRemoteAddress(remoteAddress);
                 session.setRemotePort(remoteRtpPort);
                 session.setLocalAddress(sipProvider.getListeningPoint("udp").getIPAddress());
-                session.setLocalPort(49170); // 使用配置的端口
-                // 初始化媒体会话
-                session.initializeMediaSession();
+                session.setLocalPort(0);
+                session.setNegotiatedMedia(negotiatedMedia);
+                // 初始化媒体会话，本地端口由媒体端口分配器分配
+                session.initializeMediaSession(mediaSessionRegistry);
                 // 发送180 Ringing
                 Response ringingResponse = messageFactory.createResponse(Response.RINGING, request);
                 serverTransaction.sendResponse(ringingResponse);
@@ -85,11 +101,7 @@ public class InviteRequestProcessor extends AbstractRequestProcessor {
                 "s=Voice Call\r\n" +
                 "c=IN IP4 " + session.getLocalAddress() + "\r\n" +
                 "t=0 0\r\n" +
-                "m=audio " + session.getLocalPort() + " RTP/AVP 0 8 101\r\n" +
-                "a=rtpmap:0 PCMU/8000\r\n" +
-                "a=rtpmap:8 PCMA/8000\r\n" +
-                "a=rtpmap:101 telephone-event/8000\r\n" +
-                "a=fmtp:101 0-15\r\n" +
+                SdpMediaNegotiator.answerMedia(session.getLocalPort(), session.getNegotiatedMedia()) +
                 "a=ptime:20\r\n" +
                 "a=sendrecv\r\n";
     }
@@ -1,6 +1,6 @@
 package com.kupu.sip.modules.call.response;
 
-import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
 import lombok.extern.slf4j.Slf4j;
@@ -14,11 +14,11 @@ import javax.sip.message.Response;
 public abstract class AbstractResponseProcessor implements ISipResponseProcessor {
 
     protected final SessionManager sessionManager;
-    protected final RtpMediaManager rtpMediaManager;    
+    protected final MediaSessionRegistry mediaSessionRegistry;    
 
-    protected AbstractResponseProcessor(SessionManager sessionManager, RtpMediaManager rtpMediaManager) {
+    protected AbstractResponseProcessor(SessionManager sessionManager, MediaSessionRegistry mediaSessionRegistry) {
         this.sessionManager = sessionManager;
-        this.rtpMediaManager = rtpMediaManager;
+        this.mediaSessionRegistry = mediaSessionRegistry;
     }
 
     protected void updateSessionStatus(String clientId, ResponseEvent responseEvent) {
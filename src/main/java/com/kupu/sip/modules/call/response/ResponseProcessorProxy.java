@@ -1,7 +1,7 @@
 package com.kupu.sip.modules.call.response;
 
 import com.kupu.sip.modules.call.response.impl.*;
-import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.session.SessionKeepAlive;
 import com.kupu.sip.modules.session.SessionManager;
 import lombok.extern.slf4j.Slf4j;
@@ -31,11 +31,11 @@ public class ResponseProcessorProxy implements ISipResponseProcessor {
     private final MessageFactory messageFactory;
     private final SipProvider sipProvider;
     private final SessionKeepAlive sessionKeepAlive;
-    private final RtpMediaManager rtpMediaManager;
+    private final MediaSessionRegistry mediaSessionRegistry;
 
     public ResponseProcessorProxy(SessionManager sessionManager, HeaderFactory headerFactory,
             AddressFactory addressFactory, SipFactory sipFactory, MessageFactory messageFactory,
-            SipProvider sipProvider, SessionKeepAlive sessionKeepAlive, RtpMediaManager rtpMediaManager) {
+            SipProvider sipProvider, SessionKeepAlive sessionKeepAlive, MediaSessionRegistry mediaSessionRegistry) {
         this.sessionManager = sessionManager;
         this.headerFactory = headerFactory;
         this.addressFactory = addressFactory;
@@ -43,20 +43,20 @@ public class ResponseProcessorProxy implements ISipResponseProcessor {
         this.messageFactory = messageFactory;
         this.sipProvider = sipProvider;
         this.sessionKeepAlive = sessionKeepAlive;
-        this.rtpMediaManager = rtpMediaManager;
+        this.mediaSessionRegistry = mediaSessionRegistry;
         this.processors = new HashMap<>();
         initProcessors();
     }
 
     private void initProcessors() {
-        processors.put(Request.BYE, new ByeResponseProcessor(sessionManager, rtpMediaManager));
-        processors.put(Request.CANCEL, new CancelResponseProcessor(sessionManager, rtpMediaManager));
-        processors.put(Request.INFO, new InfoResponseProcessor(sessionManager, rtpMediaManager));
-        processors.put(Request.UPDATE, new UpdateResponseProcessor(sessionManager, sessionKeepAlive, rtpMediaManager));
+        processors.put(Request.BYE, new ByeResponseProcessor(sessionManager, mediaSessionRegistry));
+        processors.put(Request.CANCEL, new CancelResponseProcessor(sessionManager, mediaSessionRegistry));
+        processors.put(Request.INFO, new InfoResponseProcessor(sessionManager, mediaSessionRegistry));
+        processors.put(Request.UPDATE, new UpdateResponseProcessor(sessionManager, sessionKeepAlive, mediaSessionRegistry));
         processors.put(Request.INVITE, new InviteResponseProcessor(sessionManager, headerFactory, addressFactory, sipProvider,
-                        sipFactory, messageFactory, sessionKeepAlive, rtpMediaManager));
+                        sipFactory, messageFactory, sessionKeepAlive, mediaSessionRegistry));
         processors.put(Request.REGISTER, new RegisterResponseProcessor(sessionManager, headerFactory, addressFactory,
-                sipProvider, sipFactory, messageFactory, rtpMediaManager));
+                sipProvider, sipFactory, messageFactory, mediaSessionRegistry));
     }
 
     @Override
@@ -101,7 +101,7 @@ public class ResponseProcessorProxy implements ISipResponseProcessor {
         log.info("[{}] 收到最终响应: {} {}", clientId, statusCode, method);
         try {
             ISipResponseProcessor processor = processors.getOrDefault(method,
-                    new OtherResponseProcessor(sessionManager, rtpMediaManager));
+                    new OtherResponseProcessor(sessionManager, mediaSessionRegistry));
             processor.process(evt);
         } catch (Exception e) {
             log.error("[{}] 处理最终响应异常: {} {}", clientId, statusCode, method, e);
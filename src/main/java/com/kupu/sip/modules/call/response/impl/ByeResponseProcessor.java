@@ -7,7 +7,7 @@ import javax.sip.Dialog;
 import org.springframework.stereotype.Component;
 
 import com.kupu.sip.modules.call.response.AbstractResponseProcessor;
-import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
 
@@ -17,8 +17,8 @@ import lombok.extern.slf4j.Slf4j;
 @Component
 public class ByeResponseProcessor extends AbstractResponseProcessor {
 
-    public ByeResponseProcessor(SessionManager sessionManager, RtpMediaManager rtpMediaManager) {
-        super(sessionManager, rtpMediaManager);
+    public ByeResponseProcessor(SessionManager sessionManager, MediaSessionRegistry mediaSessionRegistry) {
+        super(sessionManager, mediaSessionRegistry);
     }
 
     @Override
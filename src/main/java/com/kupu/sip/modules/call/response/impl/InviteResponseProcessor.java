@@ -32,7 +32,10 @@ import com.kupu.sip.modules.call.response.AbstractResponseProcessor;
 import com.kupu.sip.modules.session.SessionKeepAlive;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.sdp.NegotiatedMedia;
+import com.kupu.sip.modules.media.sdp.SdpMediaNegotiator;
 
 import cn.hutool.core.lang.UUID;
 import lombok.extern.slf4j.Slf4j;
@@ -46,8 +49,8 @@ public class InviteResponseProcessor extends AbstractResponseProcessor {
 
     public InviteResponseProcessor(SessionManager sessionManager, HeaderFactory headerFactory,
                                    AddressFactory addressFactory, SipProvider sipProvider, SipFactory sipFactory,
-                                   MessageFactory messageFactory, SessionKeepAlive keepAlive, RtpMediaManager rtpMediaManager) {
-        super(sessionManager, rtpMediaManager);
+                                   MessageFactory messageFactory, SessionKeepAlive keepAlive, MediaSessionRegistry mediaSessionRegistry) {
+        super(sessionManager, mediaSessionRegistry);
         this.headerFactory = headerFactory;
         this.addressFactory = addressFactory;
         this.sipProvider = sipProvider;
@@ -214,6 +217,8 @@ public class InviteResponseProcessor extends AbstractResponseProcessor {
                     .ifPresent(session -> {
                         session.updateStatus(SipSession.SessionStatus.FAILED);  // 更新会话状态
                         session.setDialog(null);
+                        mediaSessionRegistry.releaseSession(callId); // 归还预先租用的媒体端口
+                        session.setMediaManager(null);
                         sessionManager.removeSession(clientId, session.getSessionId());// 移除会话
                     });
         }
@@ -253,6 +258,7 @@ public class InviteResponseProcessor extends AbstractResponseProcessor {
             }
             int remotePort = audioMedia.getMedia().getMediaPort();
             log.info("远端sdp协商地址信息 remoteAddress: {}, remotePort: {}", remoteAddress, remotePort);
+            NegotiatedMedia negotiatedMedia = SdpMediaNegotiator.negotiate(audioMedia); // 按answer选定编码
             Map<String, SipSession> sessions = sessionManager.getClientSessions(clientId);
             if (sessions == null) {
                 log.error("No sessions found for clientId: {}", clientId);
@@ -262,12 +268,15 @@ public class InviteResponseProcessor extends AbstractResponseProcessor {
                     .filter(s -> callId.equals(s.getCallId()))
                     .findFirst()
                     .orElseThrow(() -> new Exception("Session not found for callId: " + callId));
+            SdpMediaNegotiator.acceptAnswer(negotiatedMedia, session.getOfferedCryptos(),
+                    mediaSessionRegistry.getMediaConfig().getSrtpPolicy());
+            session.setNegotiatedMedia(negotiatedMedia);
             // 初始化RTP会话
             String localAddress = session.getFromDomain();
             int sdpPort = session.getSdpPort();
             // startRTPSvr(remoteAddress, remotePort, callId, localAddress); //
             // http通知rtp服务启动
-            initRTP(localAddress, sdpPort, remoteAddress, remotePort, clientId, callId);
+            initRTP(session, localAddress, sdpPort, remoteAddress, remotePort, clientId, callId);
         } catch (Exception e) {
             log.error("处理SDP应答失败", e);
         }
@@ -318,12 +327,16 @@ public class InviteResponseProcessor extends AbstractResponseProcessor {
         log.info("通知rtp服务启动响应参数:{}", result);
     }
 
-    private void initRTP(String localAddress, int sdpPort, String remoteAddress, int remotePort, String clientId,
-                         String callId) {
-        rtpMediaManager.initializeRtpSession(localAddress, sdpPort, remoteAddress, remotePort);
-        rtpMediaManager.startMediaSession();
+    private void initRTP(SipSession session, String localAddress, int sdpPort, String remoteAddress, int remotePort,
+                         String clientId, String callId) {
+        session.setLocalAddress(localAddress);
+        session.setLocalPort(sdpPort);
+        session.setRemoteAddress(remoteAddress);
+        session.setRemotePort(remotePort);
+        RtpMediaManager mediaManager = session.initializeMediaSession(mediaSessionRegistry); // 每路通话独立的媒体会话
+        session.startMediaSession();
         log.info("[{}] 媒体会话已建立 本地: {}:{}, 远程: {}:{}, callId: {}", clientId, localAddress, sdpPort, remoteAddress,
                 remotePort, callId);
-        rtpMediaManager.playAudioFile("/data/test/tt.wav"); // 播放欢迎语
+        mediaManager.playAudioFile("/data/test/tt.wav"); // 播放欢迎语
     }
 }
@@ -1,7 +1,7 @@
 package com.kupu.sip.modules.call.response.impl;
 
 import com.kupu.sip.modules.call.response.AbstractResponseProcessor;
-import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
 import lombok.extern.slf4j.Slf4j;
@@ -16,8 +16,8 @@ import javax.sip.message.Response;
 @Component
 public class OtherResponseProcessor extends AbstractResponseProcessor {
 
-    public OtherResponseProcessor(SessionManager sessionManager, RtpMediaManager rtpMediaManager) {
-        super(sessionManager, rtpMediaManager);
+    public OtherResponseProcessor(SessionManager sessionManager, MediaSessionRegistry mediaSessionRegistry) {
+        super(sessionManager, mediaSessionRegistry);
     }
 
     @Override
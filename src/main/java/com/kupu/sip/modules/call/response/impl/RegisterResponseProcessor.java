@@ -1,7 +1,7 @@
 package com.kupu.sip.modules.call.response.impl;
 
 import com.kupu.sip.modules.call.response.AbstractResponseProcessor;
-import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
 import lombok.extern.slf4j.Slf4j;
@@ -24,8 +24,8 @@ public class RegisterResponseProcessor extends AbstractResponseProcessor {
     private final MessageFactory messageFactory;
     private final SipProvider sipProvider;
 
-    public RegisterResponseProcessor(SessionManager sessionManager, HeaderFactory headerFactory, AddressFactory addressFactory, SipProvider sipProvider, SipFactory sipFactory, MessageFactory messageFactory, RtpMediaManager rtpMediaManager) {
-        super(sessionManager, rtpMediaManager);
+    public RegisterResponseProcessor(SessionManager sessionManager, HeaderFactory headerFactory, AddressFactory addressFactory, SipProvider sipProvider, SipFactory sipFactory, MessageFactory messageFactory, MediaSessionRegistry mediaSessionRegistry) {
+        super(sessionManager, mediaSessionRegistry);
         this.headerFactory = headerFactory;
         this.addressFactory = addressFactory;
         this.messageFactory = messageFactory;
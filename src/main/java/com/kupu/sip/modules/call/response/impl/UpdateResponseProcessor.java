@@ -6,7 +6,7 @@ import javax.sip.header.Header;
 import javax.sip.message.Response;
 
 import com.kupu.sip.modules.call.response.AbstractResponseProcessor;
-import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
 import com.kupu.sip.modules.session.SessionKeepAlive;
@@ -19,8 +19,8 @@ public class UpdateResponseProcessor extends AbstractResponseProcessor {
     private static final String SESSION_EXPIRES_HEADER = "Session-Expires";
     private final SessionKeepAlive keepAlive;
 
-    public UpdateResponseProcessor(SessionManager sessionManager, SessionKeepAlive keepAlive, RtpMediaManager rtpMediaManager) {
-        super(sessionManager, rtpMediaManager);
+    public UpdateResponseProcessor(SessionManager sessionManager, SessionKeepAlive keepAlive, MediaSessionRegistry mediaSessionRegistry) {
+        super(sessionManager, mediaSessionRegistry);
         this.keepAlive = keepAlive;
     }
 
@@ -1,7 +1,7 @@
 package com.kupu.sip.modules.call.service;
 
 import com.kupu.sip.modules.call.client.JainSipClient;
-import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.session.SessionManager;
 import com.kupu.sip.modules.session.SipSession;
 import lombok.extern.slf4j.Slf4j;
@@ -12,15 +12,15 @@ import org.springframework.stereotype.Service;
 public class SipService {
 
     private final SessionManager sessionManager;
-    private final RtpMediaManager rtpMediaManager;
+    private final MediaSessionRegistry mediaSessionRegistry;
 
-    public SipService(SessionManager sessionManager, RtpMediaManager rtpMediaManager) {
+    public SipService(SessionManager sessionManager, MediaSessionRegistry mediaSessionRegistry) {
         this.sessionManager = sessionManager;
-        this.rtpMediaManager = rtpMediaManager;
+        this.mediaSessionRegistry = mediaSessionRegistry;
     }
 
     public JainSipClient createSipClient(String clientId, String ip, int port, String uasHost) throws Exception {
-        JainSipClient client = new JainSipClient(clientId, ip, port, uasHost, sessionManager, rtpMediaManager);
+        JainSipClient client = new JainSipClient(clientId, ip, port, uasHost, sessionManager, mediaSessionRegistry);
         try {
             client.init(clientId);
             sessionManager.registerSipClient(clientId, client);
@@ -0,0 +1,327 @@
+package com.kupu.sip.modules.media;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.kupu.sip.common.configs.MediaConfig;
+import com.kupu.sip.modules.media.buffer.FramePool;
+import com.kupu.sip.modules.media.conference.ConferenceBridge;
+import com.kupu.sip.modules.media.conference.ConferenceRole;
+import com.kupu.sip.modules.media.conference.ConferenceStats;
+import com.kupu.sip.modules.media.port.MediaPortAllocator;
+import com.kupu.sip.modules.media.prompt.PromptCache;
+import com.kupu.sip.modules.media.reactor.MediaReactor;
+import com.kupu.sip.modules.media.record.RecordingWriter;
+import com.kupu.sip.modules.media.relay.RelayMode;
+import com.kupu.sip.modules.media.relay.RtpRelay;
+import com.kupu.sip.modules.media.rtcp.CallQualityStats;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 媒体会话注册表
+ * 按Call-ID为每路通话维护独立的RTP媒体上下文，所有媒体会话的创建与释放都经由此处
+ */
+@Slf4j
+@Component
+public class MediaSessionRegistry {
+    // 关闭时等待所有会话回收资源的最长时间
+    private static final long RELEASE_TIMEOUT_SECONDS = 5;
+    // callId -> 媒体会话
+    private final Map<String, RtpMediaManager> mediaSessions = new ConcurrentHashMap<>(4096);
+    private final MediaReactor mediaReactor;
+    private final MediaConfig mediaConfig;
+    private final MediaPortAllocator portAllocator;
+    private final PromptCache promptCache;
+    // 所有媒体会话共享的堆外帧池
+    private final FramePool framePool;
+    // 最近结束通话的最终质量统计，按结束顺序保留
+    private final Map<String, CallQualityStats> recentQuality;
+    // 异步音频消费者的工作线程池，每个交接环同一时刻只占用一个线程
+    private final ExecutorService consumerExecutor;
+    // 所有通话共用的录音写盘线程，首次录音时启动
+    private final RecordingWriter recordingWriter;
+    // conferenceId -> 会议桥，最后一个成员退出时移除
+    private final Map<String, ConferenceBridge> conferences = new ConcurrentHashMap<>();
+
+    public MediaSessionRegistry(MediaReactor mediaReactor, MediaPortAllocator portAllocator, PromptCache promptCache,
+                                MediaConfig mediaConfig) {
+        this.promptCache = promptCache;
+        this.mediaReactor = mediaReactor;
+        this.portAllocator = portAllocator;
+        this.mediaConfig = mediaConfig;
+        this.framePool = new FramePool(mediaConfig.getFrameSize(), mediaConfig.getFramePoolSize());
+        this.consumerExecutor = new ThreadPoolExecutor(mediaConfig.getAudioConsumerThreads(),
+                mediaConfig.getAudioConsumerThreads(), 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNamePrefix("media-consumer-").setDaemon(true).build());
+        this.recordingWriter = new RecordingWriter(mediaConfig);
+        int historySize = mediaConfig.getQualityHistorySize();
+        this.recentQuality = Collections.synchronizedMap(new LinkedHashMap<String, CallQualityStats>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CallQualityStats> eldest) {
+                return size() > historySize;
+            }
+        });
+    }
+
+    /**
+     * 获取或创建指定通话的媒体会话
+     *
+     * @param callId SIP Call-ID
+     * @return 该通话独占的媒体会话
+     */
+    public RtpMediaManager getOrCreateSession(String callId) {
+        if (callId == null) {
+            throw new IllegalArgumentException("callId不能为空");
+        }
+        return mediaSessions.computeIfAbsent(callId, id -> {
+            log.info("创建媒体会话 callId: {}", id);
+            return new RtpMediaManager(id, this, mediaReactor.nextLoop(), framePool, portAllocator, promptCache, mediaConfig);
+        });
+    }
+
+    public RtpMediaManager getSession(String callId) {
+        return callId == null ? null : mediaSessions.get(callId);
+    }
+
+    /**
+     * 停止并移除指定通话的媒体会话
+     *
+     * @param callId SIP Call-ID
+     * @return 会话资源在事件循环上回收完毕时完成
+     */
+    public CompletableFuture<Void> releaseSession(String callId) {
+        RtpMediaManager mediaSession = callId == null ? null : mediaSessions.remove(callId);
+        if (mediaSession == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> released = mediaSession.stopMediaSession();
+        log.info("释放媒体会话 callId: {}, 剩余: {}", callId, mediaSessions.size());
+        return released;
+    }
+
+    /**
+     * 媒体会话自行停止时回调，仅移除仍指向该实例的映射
+     */
+    void onSessionStopped(String callId, RtpMediaManager mediaSession) {
+        mediaSessions.remove(callId, mediaSession);
+    }
+
+    /**
+     * 媒体会话结束时记录最终质量统计
+     */
+    void recordQuality(CallQualityStats stats) {
+        if (stats != null) {
+            recentQuality.put(stats.getCallId(), stats);
+        }
+    }
+
+    /**
+     * 通话质量统计：进行中的通话返回实时值，已结束的返回挂机时的最终值
+     */
+    public CallQualityStats getQualityStats(String callId) {
+        RtpMediaManager mediaSession = getSession(callId);
+        CallQualityStats stats = mediaSession == null ? null : mediaSession.getQualityStats();
+        return stats != null ? stats : recentQuality.get(callId);
+    }
+
+    /**
+     * 所有进行中通话的实时质量统计
+     */
+    public List<CallQualityStats> getActiveQualityStats() {
+        List<CallQualityStats> result = new ArrayList<>(mediaSessions.size());
+        for (RtpMediaManager mediaSession : mediaSessions.values()) {
+            CallQualityStats stats = mediaSession.getQualityStats();
+            if (stats != null) {
+                result.add(stats);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 最近结束通话的最终质量统计
+     */
+    public List<CallQualityStats> getRecentQualityStats() {
+        synchronized (recentQuality) {
+            return new ArrayList<>(recentQuality.values());
+        }
+    }
+
+    /**
+     * 通话加入会议，会议不存在时创建并绑定到下一个事件循环
+     *
+     * @return 通话不存在或未在进行中时返回false
+     * @throws IllegalStateException 会议人数已满
+     */
+    public boolean joinConference(String conferenceId, String callId, ConferenceRole role) {
+        RtpMediaManager mediaSession = getSession(callId);
+        if (mediaSession == null || !mediaSession.isActive()) {
+            return false;
+        }
+        while (true) {
+            ConferenceBridge bridge = conferences.computeIfAbsent(conferenceId, id -> new ConferenceBridge(id,
+                    mediaReactor.nextLoop(), mediaConfig.getConferenceSampleRate(), mediaConfig.getConferenceGateRms(),
+                    mediaConfig.getConferenceMaxParticipants(), this::onConferenceClosed));
+            if (mediaSession.joinConference(bridge, role)) {
+                return true;
+            }
+            if (!mediaSession.isActive()) {
+                bridge.closeIfEmpty(); // 本次新建的会议不留空壳
+                return false;
+            }
+            // 会议恰好随最后一个成员退出而关闭，重新创建
+            conferences.remove(conferenceId, bridge);
+        }
+    }
+
+    /**
+     * 通话退出所在会议
+     *
+     * @return 通话不存在时返回false
+     */
+    public boolean leaveConference(String callId) {
+        RtpMediaManager mediaSession = getSession(callId);
+        if (mediaSession == null) {
+            return false;
+        }
+        mediaSession.leaveConference();
+        return true;
+    }
+
+    /**
+     * 两条通话腿组成媒体中继，本服务作为两条腿之间的媒体锚点(如AI转人工)。已在中继中的腿先结束原中继。
+     * 编码一致时把对端迁移到本通话的事件循环，入向RTP只改写SSRC、序列号与时间戳后从另一条腿发出；
+     * 编码不同时两条腿加入一个不设噪声门的两方会议，解码后按各自编码重新编码
+     *
+     * @return 中继建立后完成，值为采用的中继方式；任一通话不存在、未在进行中或配对在完成前被结束时为null
+     */
+    public CompletableFuture<RelayMode> startRelay(String callId, String peerCallId) {
+        RtpMediaManager mediaSession = getSession(callId);
+        RtpMediaManager peer = getSession(peerCallId);
+        if (mediaSession == null || peer == null || mediaSession == peer || !mediaSession.isActive() || !peer.isActive()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        stopRelay(callId);
+        stopRelay(peerCallId);
+        if (RtpRelay.canForward(mediaSession.getCodec(), peer.getCodec())) {
+            return mediaSession.pairRelay(peer).thenApply(paired -> paired ? RelayMode.FORWARD : null);
+        }
+        String conferenceId = "relay-" + callId + "-" + peerCallId;
+        ConferenceBridge bridge = new ConferenceBridge(conferenceId, mediaReactor.nextLoop(),
+                Math.min(mediaSession.getCodec().getSampleRate(), peer.getCodec().getSampleRate()), 0, 2,
+                this::onConferenceClosed);
+        conferences.put(conferenceId, bridge);
+        boolean joined = mediaSession.joinTranscodingRelay(bridge, peerCallId);
+        if (!joined || !peer.joinTranscodingRelay(bridge, callId)) {
+            stopRelay(callId);
+            // 已加入的一方退出后会议随之关闭；双方都未加入时在此关闭
+            bridge.closeIfEmpty();
+            return CompletableFuture.completedFuture(null);
+        }
+        log.info("媒体中继已建立 callId: {} <-> {}, 方式: {}, 编码: {} / {}", callId, peerCallId, RelayMode.TRANSCODE,
+                mediaSession.getCodec().getEncodingName(), peer.getCodec().getEncodingName());
+        return CompletableFuture.completedFuture(RelayMode.TRANSCODE);
+    }
+
+    /**
+     * 结束通话所在的媒体中继，两条腿恢复各自的放音；尚未完成的同编码配对随之取消
+     *
+     * @return 通话不存在时返回false
+     */
+    public boolean stopRelay(String callId) {
+        RtpMediaManager mediaSession = getSession(callId);
+        if (mediaSession == null) {
+            return false;
+        }
+        String peerCallId = mediaSession.getRelayPeerCallId();
+        mediaSession.stopRelay();
+        RtpMediaManager peer = getSession(peerCallId);
+        if (peer != null) {
+            peer.stopRelay();
+        }
+        return true;
+    }
+
+    private void onConferenceClosed(ConferenceBridge bridge) {
+        conferences.remove(bridge.getConferenceId(), bridge);
+    }
+
+    public List<ConferenceStats> getConferenceStats() {
+        List<ConferenceStats> result = new ArrayList<>(conferences.size());
+        for (ConferenceBridge bridge : conferences.values()) {
+            result.add(bridge.getStats());
+        }
+        return result;
+    }
+
+    public Collection<RtpMediaManager> getSessions() {
+        return Collections.unmodifiableCollection(mediaSessions.values());
+    }
+
+    public MediaPortAllocator getPortAllocator() {
+        return portAllocator;
+    }
+
+    public MediaConfig getMediaConfig() {
+        return mediaConfig;
+    }
+
+    public RecordingWriter getRecordingWriter() {
+        return recordingWriter;
+    }
+
+    public ExecutorService getConsumerExecutor() {
+        return consumerExecutor;
+    }
+
+    public FramePool getFramePool() {
+        return framePool;
+    }
+
+    public int size() {
+        return mediaSessions.size();
+    }
+
+    /**
+     * 释放所有媒体会话，等待各会话在事件循环上回收完毕后返回，之后端口分配器和事件循环才能关闭
+     */
+    @PreDestroy
+    public void releaseAll() {
+        List<String> callIds = new ArrayList<>(mediaSessions.keySet());
+        log.info("开始释放所有媒体会话，共 {} 个", callIds.size());
+        List<CompletableFuture<Void>> releases = new ArrayList<>(callIds.size());
+        for (String callId : callIds) {
+            try {
+                releases.add(releaseSession(callId));
+            } catch (Exception e) {
+                log.error("释放媒体会话失败 callId: {}", callId, e);
+            }
+        }
+        try {
+            CompletableFuture.allOf(releases.toArray(new CompletableFuture[0]))
+                    .get(RELEASE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("等待媒体会话释放超时或失败，未完成: {}", releases.stream().filter(f -> !f.isDone()).count(), e);
+        }
+        consumerExecutor.shutdown();
+        recordingWriter.shutdown();
+    }
+}
@@ -1,479 +1,1481 @@
 package com.kupu.sip.modules.media;
 
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-
-import org.springframework.stereotype.Component;
+import com.kupu.sip.common.configs.MediaConfig;
+import com.kupu.sip.modules.media.buffer.FramePool;
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.codec.AudioCodecs;
+import com.kupu.sip.modules.media.codec.G711ALawCodec;
+import com.kupu.sip.modules.media.codec.G711ULawCodec;
+import com.kupu.sip.modules.media.conference.ConferenceBridge;
+import com.kupu.sip.modules.media.conference.ConferenceParticipant;
+import com.kupu.sip.modules.media.conference.ConferenceRole;
+import com.kupu.sip.modules.media.dtmf.DtmfDigits;
+import com.kupu.sip.modules.media.dtmf.DtmfEvent;
+import com.kupu.sip.modules.media.dtmf.DtmfListener;
+import com.kupu.sip.modules.media.dtmf.Rfc4733Decoder;
+import com.kupu.sip.modules.media.dtmf.Rfc4733Sender;
+import com.kupu.sip.modules.media.jitter.JitterBuffer;
+import com.kupu.sip.modules.media.jitter.JitterBufferStats;
+import com.kupu.sip.modules.media.nat.RtpLatch;
+import com.kupu.sip.modules.media.playout.BargeInEvent;
+import com.kupu.sip.modules.media.plc.PacketLossConcealer;
+import com.kupu.sip.modules.media.playout.BargeInListener;
+import com.kupu.sip.modules.media.playout.PcmPlayoutSource;
+import com.kupu.sip.modules.media.playout.PlayoutItem;
+import com.kupu.sip.modules.media.playout.PlayoutPriority;
+import com.kupu.sip.modules.media.playout.PlayoutResult;
+import com.kupu.sip.modules.media.playout.PlayoutSource;
+import com.kupu.sip.modules.media.playout.StreamingPcmSource;
+import com.kupu.sip.modules.media.port.MediaPortAllocator;
+import com.kupu.sip.modules.media.port.MediaPortPair;
+import com.kupu.sip.modules.media.prompt.Prompt;
+import com.kupu.sip.modules.media.prompt.PromptCache;
+import com.kupu.sip.modules.media.prompt.PromptPlayoutSource;
+import com.kupu.sip.modules.media.reactor.MediaEventLoop;
+import com.kupu.sip.modules.media.reactor.MediaTickHandler;
+import com.kupu.sip.modules.media.record.CallRecorder;
+import com.kupu.sip.modules.media.record.RecordingFormat;
+import com.kupu.sip.modules.media.record.RecordingResult;
+import com.kupu.sip.modules.media.relay.RelayMode;
+import com.kupu.sip.modules.media.relay.RtpRelay;
+import com.kupu.sip.modules.media.rtcp.CallQualityStats;
+import com.kupu.sip.modules.media.rtcp.EModel;
+import com.kupu.sip.modules.media.rtcp.RtcpSession;
+import com.kupu.sip.modules.media.sdp.NegotiatedMedia;
+import com.kupu.sip.modules.media.srtp.SrtpSession;
+import com.kupu.sip.modules.media.stream.AsyncAudioFrameConsumer;
+import com.kupu.sip.modules.media.stream.AudioFrameConsumer;
+import com.kupu.sip.modules.media.stream.HandoffStats;
+import com.kupu.sip.modules.media.stream.UtteranceCollector;
+import com.kupu.sip.modules.media.stream.UtteranceOverflowListener;
+import com.kupu.sip.modules.media.vad.EnergyVad;
+import com.kupu.sip.modules.media.vad.FrameEnergy;
+import com.kupu.sip.modules.media.vad.PcmPreRoll;
+import com.kupu.sip.modules.media.vad.VoiceActivityDetector;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * 单路通话的RTP媒体会话
+ * 由{@link MediaSessionRegistry}按Call-ID创建和管理，每路通话独占socket、序列号、时间戳和SSRC；
+ * 收包由所属的{@link MediaEventLoop}复用驱动，不再为每路通话单独起接收线程
+ */
 @Slf4j
-@Component
 public class RtpMediaManager {
+    private final String callId;
+    private final MediaSessionRegistry registry;
+    // 同编码中继配对时迁移到对端所在的循环
+    private volatile MediaEventLoop eventLoop;
     private final AtomicBoolean isActive = new AtomicBoolean(false);
-    private DatagramSocket rtpSocket;
-    private DatagramSocket rtcpSocket;
-    private InetAddress remoteAddress;
-    private int remoteRtpPort;
-    private Thread receiveThread;
+    private final AtomicBoolean isReleased = new AtomicBoolean(false);
+    // 资源在事件循环线程上回收完毕后完成
+    private final CompletableFuture<Void> released = new CompletableFuture<>();
+    private DatagramChannel rtpChannel;
+    private DatagramChannel rtcpChannel;
+    private InetSocketAddress remoteRtpAddress;
+    private InetSocketAddress remoteRtcpAddress;
+    // 对称RTP锁定，媒体会话启动时创建；未开启时为null
+    private RtpLatch rtpLatch;
+    // RTCP发送地址已按对端RTCP包的源地址学习
+    private boolean rtcpLatched;
+    // SRTP/SRTCP变换，协商启用加密时随协商结果创建；明文RTP时为null
+    private SrtpSession srtp;
+    // 通话录音，只在事件循环线程访问；未录音时为null
+    private CallRecorder recorder;
+    // 加入会议后入向语音与本地放音送往会议混音，出向改发会议输出
+    private volatile ConferenceParticipant conference;
+    // 同编码中继的对端：入向RTP改写头部后直接从对端发出，两条腿在同一循环上，只在循环线程上访问
+    private RtpMediaManager relayPeer;
+    private RtpRelay relay;
+    // 中继对端的Call-ID及中继方式，未中继时为null
+    private volatile String relayPeerCallId;
+    private volatile RelayMode relayMode;
+    // 尚未完成的同编码中继配对，两条腿持有同一标记；结束中继时置空即取消配对
+    private volatile Object relayPairing;
+    private final MediaConfig mediaConfig;
+    private final MediaPortAllocator portAllocator;
+    private final PromptCache promptCache;
+    // 从分配器租用的端口对，会话结束时归还
+    private MediaPortPair portPair;
 
     private static final int RTP_HEADER_SIZE = 12;
-    private static final int PAYLOAD_TYPE_PCMA = 8; // G.711 A-law
+    private static final int PTIME_MS = 20;
+    private static final int MAX_FRAME_SAMPLES = 960; // 最大支持60ms@16kHz的单包负载
+    private static final int MAX_PAYLOAD_SIZE = 480; // 抖动缓冲单包负载上限(60ms G.711)
+    // 估算RTCP间隔用的会话带宽(字节/秒)：64kbit/s负载 + 每包IP/UDP/RTP头
+    private static final int SESSION_BANDWIDTH = 64000 / 8 + 40 * 1000 / PTIME_MS;
+    // 协商的编码及线路负载类型，媒体会话启动前确定
+    private AudioCodec codec = AudioCodecs.defaultCodec();
+    private int payloadType = codec.getPayloadType();
+    private int samplesPerFrame = codec.getSampleRate() * PTIME_MS / 1000;
+    private int timestampStep = codec.getRtpClockRate() * PTIME_MS / 1000;
+    // 对端telephone-event负载类型，未协商时为-1，不收发RFC 4733事件
+    private int telephoneEventPayloadType = -1;
+    private Rfc4733Decoder dtmfDecoder = new Rfc4733Decoder(codec.getRtpClockRate());
+    private Rfc4733Sender dtmfSender = new Rfc4733Sender(codec.getRtpClockRate());
+    private volatile DtmfListener dtmfListener;
+    private final FramePool framePool;
+    // 解码输出，仅在事件循环线程使用
+    private final short[] decodeFrame = new short[MAX_FRAME_SAMPLES];
+    private final short[] decodeScratch = new short[MAX_FRAME_SAMPLES];
+    // 发送帧，从帧池借出，会话结束时归还；发送状态只在事件循环线程访问
+    private ByteBuffer sendFrame;
     private int sequenceNumber = 0;
-    private long timestamp = 0;
+    private int timestamp = 0;
+    // 上一个节拍是否发送了语音，用于在语音段起始置marker位
+    private boolean talkspurt;
+    // 待播放的放音项，任意线程入队(可插队首)，媒体节拍按序逐帧发送
+    private final ConcurrentLinkedDeque<PlayoutItem> playoutQueue = new ConcurrentLinkedDeque<>();
+    private PlayoutItem currentPlayout;
+    // 主叫开始说话时打断放音
+    private volatile boolean bargeInEnabled;
+    // G.711放音打断检测，在包到达时按码字能量判定，不等待抖动缓冲；仅在事件循环线程访问
+    private final EnergyVad bargeInVad;
+    private volatile BargeInListener bargeInListener;
     private final long ssrc = (long) (Math.random() * Long.MAX_VALUE); // 随机SSRC
 
-    private static final int SILENCE_THRESHOLD = 150; // 静音阈值
-    private static final int SILENCE_DURATION_MS = 1000; // 静音持续时间阈值（毫秒）
-    private static final int BUFFER_SIZE = 160; // 每个RTP包的音频数据大小
-
-    private ByteArrayOutputStream audioBuffer;
-    private long lastActiveTime;
-    private boolean isReceiving;
+    // 接收方向的流式音频消费者，语音帧按批交付
+    private final List<AudioFrameConsumer> frameConsumers = new CopyOnWriteArrayList<>();
+    // 整段语音回调，媒体会话启动后按协商的采样率创建定长缓冲
     private Consumer<byte[]> audioDataCallback;
-    private final Object receiveLock = new Object();
+    private UtteranceOverflowListener utteranceOverflowListener;
+    private AsyncAudioFrameConsumer utteranceCollector;
+    private volatile int streamBatchMs;
+    // 交付批缓冲，仅在事件循环线程访问
+    private short[] streamBatch;
+    private int streamBatchFill;
+    // 语音活动检测及起始前的预录音频，仅在事件循环线程访问
+    private VoiceActivityDetector vad;
+    private PcmPreRoll preRoll;
+    // 丢包补偿，媒体会话启动时按编码采样率创建；未开启时为null
+    private volatile PacketLossConcealer plc;
+    // 接收侧抖动缓冲，按序列号重排后由媒体节拍出帧
+    private JitterBuffer jitterBuffer;
+    private final MediaTickHandler tickHandler = this::onTick;
+    // RTCP收发与通话质量统计，媒体会话启动时按协商的时钟频率创建
+    private volatile RtcpSession rtcpSession;
 
-    public void initializeRtpSession(String localAddress, int localPort, String remoteAddress, int remotePort) {
-        try {
-            log.info("RTP会话初始化开始 - 本地: {}:{}, 远程: {}:{}", localAddress, localPort, remoteAddress, remotePort);
-            String bindAddress = getLocalBindAddress(localAddress); // 获取本地可用IP地址
-            log.info("使用本地绑定地址: {}", bindAddress);
-            this.rtpSocket = new DatagramSocket(localPort, InetAddress.getByName(bindAddress)); // 创建RTP
-            this.rtcpSocket = new DatagramSocket(localPort + 1, InetAddress.getByName(bindAddress)); // 创建RTCP
-            this.remoteAddress = InetAddress.getByName(remoteAddress);
-            this.remoteRtpPort = remotePort;
-            // 设置socket选项
-            rtpSocket.setReuseAddress(true);
-            rtcpSocket.setReuseAddress(true);
-            log.info("RTP会话初始化成功 - 本地绑定: {}:{}, 远程: {}:{}", bindAddress, localPort, remoteAddress, remotePort);
-        } catch (Exception e) {
-            log.error("RTP会话初始化失败", e);
-            throw new RuntimeException("RTP会话初始化失败", e);
+    RtpMediaManager(String callId, MediaSessionRegistry registry, MediaEventLoop eventLoop, FramePool framePool,
+                    MediaPortAllocator portAllocator, PromptCache promptCache, MediaConfig mediaConfig) {
+        this.callId = callId;
+        this.registry = registry;
+        this.eventLoop = eventLoop;
+        this.framePool = framePool;
+        this.portAllocator = portAllocator;
+        this.promptCache = promptCache;
+        this.mediaConfig = mediaConfig;
+        this.jitterBuffer = newJitterBuffer();
+        this.streamBatchMs = mediaConfig.getStreamBatchMs();
+        this.bargeInEnabled = mediaConfig.isBargeIn();
+        this.vad = new EnergyVad(PTIME_MS, mediaConfig.getVadOnsetMs(), mediaConfig.getVadEndOfSpeechMs(),
+                mediaConfig.getVadOnsetDb(), mediaConfig.getVadOffsetDb());
+        this.bargeInVad = new EnergyVad(PTIME_MS, mediaConfig.getBargeInOnsetMs(), mediaConfig.getVadEndOfSpeechMs(),
+                mediaConfig.getVadOnsetDb(), mediaConfig.getVadOffsetDb());
+    }
+
+    private JitterBuffer newJitterBuffer() {
+        return new JitterBuffer(mediaConfig.getJitterCapacity(), MAX_PAYLOAD_SIZE, codec.getRtpClockRate(),
+                mediaConfig.getJitterMinDelayMs(), mediaConfig.getJitterMaxDelayMs(), mediaConfig.getJitterFactor());
+    }
+
+    /**
+     * 应用SDP协商结果，须在媒体会话启动前调用
+     */
+    public void applyNegotiation(NegotiatedMedia negotiated) {
+        if (isActive.get()) {
+            log.warn("媒体会话已启动，忽略协商结果 callId: {}", callId);
+            return;
+        }
+        boolean clockChanged = negotiated.getCodec().getRtpClockRate() != codec.getRtpClockRate();
+        // 有状态编码(G.722)每路通话使用独立的编解码实例
+        this.codec = negotiated.getCodec().newSession();
+        this.payloadType = negotiated.getPayloadType();
+        this.samplesPerFrame = codec.getSampleRate() * PTIME_MS / 1000;
+        this.timestampStep = codec.getRtpClockRate() * PTIME_MS / 1000;
+        this.telephoneEventPayloadType = negotiated.getTelephoneEventPayloadType();
+        if (clockChanged) {
+            this.jitterBuffer = newJitterBuffer();
+            this.dtmfDecoder = new Rfc4733Decoder(codec.getRtpClockRate());
+            this.dtmfSender = new Rfc4733Sender(codec.getRtpClockRate());
         }
+        this.srtp = negotiated.isSrtp() ? new SrtpSession(negotiated.getLocalCrypto(), negotiated.getRemoteCrypto()) : null;
+        log.info("媒体编码已协商 callId: {}, 编码: {}, PT: {}, telephone-event PT: {}, SRTP: {}", callId,
+                codec.getEncodingName(), payloadType, telephoneEventPayloadType,
+                srtp == null ? "否" : negotiated.getLocalCrypto().getSuite());
+    }
+
+    public AudioCodec getCodec() {
+        return codec;
+    }
+
+    public String getCallId() {
+        return callId;
+    }
+
+    public boolean isActive() {
+        return isActive.get();
+    }
+
+    public MediaEventLoop getEventLoop() {
+        return eventLoop;
     }
 
     /**
-     * 获取合适的本地绑定地址
-     * 如果提供的地址可用，则使用提供的地址
-     * 否则使用本地回环地址或者第一个可用的非回环地址
+     * 在本通话当前所在的事件循环上执行；任务入队后通话迁移到了其他循环时转交新循环执行
      */
-    private String getLocalBindAddress(String preferredAddress) {
-        try {
-            // 1. 获取本机所有网络接口
-            java.util.Enumeration<java.net.NetworkInterface> interfaces = java.net.NetworkInterface
-                    .getNetworkInterfaces();
-            while (interfaces.hasMoreElements()) {
-                java.net.NetworkInterface iface = interfaces.nextElement();
-                // 跳过禁用的接口和回环接口
-                if (!iface.isUp() || iface.isLoopback()) {
-                    continue;
-                }
-                // 获取接口的IP地址
-                java.util.Enumeration<java.net.InetAddress> addresses = iface.getInetAddresses();
-                while (addresses.hasMoreElements()) {
-                    java.net.InetAddress addr = addresses.nextElement();
-                    // 只使用IPv4地址
-                    if (addr instanceof java.net.Inet4Address) {
-                        String ipAddress = addr.getHostAddress();
-                        // 优先选择内网地址
-                        if (isPrivateAddress(ipAddress)) {
-                            log.info("找到可用的内网地址: {}", ipAddress);
-                            return ipAddress;
-                        }
-                    }
-                }
+    private void execute(Runnable task) {
+        MediaEventLoop loop = eventLoop;
+        loop.execute(() -> {
+            if (eventLoop == loop) {
+                task.run();
+            } else {
+                execute(task);
             }
-            // 2. 如果没有找到内网地址，尝试使用0.0.0.0
-            log.info("未找到内网地址,使用0.0.0.0");
-            return "0.0.0.0";
+        });
+    }
 
-        } catch (Exception e) {
-            log.warn("获取本地绑定地址失败,使用0.0.0.0", e);
-            return "0.0.0.0";
+    /**
+     * 把进行中的媒体会话迁移到另一个事件循环：在原循环上注销通道并退出节拍，再在目标循环上重新注册；
+     * 迁移期间到达的包留在socket缓冲区中，不丢失
+     *
+     * @return 在目标循环上完成注册后完成
+     */
+    CompletableFuture<Void> moveTo(MediaEventLoop target) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        execute(() -> {
+            MediaEventLoop source = eventLoop;
+            if (source == target || !isActive.get()) {
+                future.complete(null);
+                return;
+            }
+            source.removeTickHandler(tickHandler);
+            source.deregister(rtpChannel);
+            source.deregister(rtcpChannel);
+            source.detachSession();
+            target.attachSession();
+            eventLoop = target;
+            target.register(rtpChannel, this::onRtpPacket);
+            target.register(rtcpChannel, this::onRtcpPacket);
+            target.addTickHandler(tickHandler);
+            target.execute(() -> future.complete(null));
+            log.info("媒体会话迁移 callId: {}, 事件循环: {} -> {}", callId, source.getIndex(), target.getIndex());
+        });
+        return future;
+    }
+
+    /**
+     * 设置通话的DTMF处理器，RFC 4733和SIP INFO收到的按键都投递到这里
+     */
+    public void setDtmfListener(DtmfListener dtmfListener) {
+        this.dtmfListener = dtmfListener;
+    }
+
+    /**
+     * 替换语音活动检测实现，须在媒体会话启动前调用；G.711通话的放音打断使用独立的到达时检测，不受影响
+     */
+    public void setVoiceActivityDetector(VoiceActivityDetector vad) {
+        this.vad = vad;
+    }
+
+    /**
+     * 调整本通话的语音结束判定时长，在事件循环线程上生效
+     */
+    public void setEndOfSpeechMs(int endOfSpeechMs) {
+        VoiceActivityDetector detector = vad;
+        execute(() -> detector.setEndOfSpeechMs(endOfSpeechMs));
+    }
+
+    /**
+     * 整段语音回调：语音结束后交付整段PCM，时延较大，新接入应使用{@link #addAudioFrameConsumer}。
+     * 单段语音上限为media.max-utterance-ms，超出时按media.utterance-overflow-policy处理
+     */
+    public synchronized void setAudioDataCallback(Consumer<byte[]> audioDataCallback) {
+        this.audioDataCallback = audioDataCallback;
+        if (isActive.get()) {
+            installUtteranceCollector();
         }
     }
 
     /**
-     * 判断是否是内网地址
+     * 整段语音超过缓冲上限时的事件回调
      */
-    private boolean isPrivateAddress(String ipAddress) {
-        try {
-            String[] parts = ipAddress.split("\\.");
-            int firstOctet = Integer.parseInt(parts[0]);
-            int secondOctet = Integer.parseInt(parts[1]);
-            // 10.0.0.0/8
-            if (firstOctet == 10) {
-                return true;
+    public synchronized void setUtteranceOverflowListener(UtteranceOverflowListener listener) {
+        this.utteranceOverflowListener = listener;
+        if (isActive.get()) {
+            installUtteranceCollector();
+        }
+    }
+
+    private synchronized void installUtteranceCollector() {
+        if (utteranceCollector != null) {
+            frameConsumers.remove(utteranceCollector);
+            utteranceCollector = null;
+        }
+        if (audioDataCallback != null) {
+            // 回调可能很慢(如上传ASR)，经交接环在工作线程上累积和回调
+            utteranceCollector = newAsyncConsumer(new UtteranceCollector(audioDataCallback, codec.getSampleRate(),
+                    mediaConfig.getMaxUtteranceMs(), mediaConfig.getUtteranceOverflowPolicy(), utteranceOverflowListener));
+            frameConsumers.add(utteranceCollector);
+        }
+    }
+
+    private AsyncAudioFrameConsumer newAsyncConsumer(AudioFrameConsumer consumer) {
+        return new AsyncAudioFrameConsumer(consumer, registry.getConsumerExecutor(), mediaConfig.getHandoffCapacity(),
+                codec.getSampleRate() * mediaConfig.getHandoffChunkMs() / 1000, mediaConfig.getHandoffBackpressure(),
+                mediaConfig.getHandoffBlockTimeoutMs());
+    }
+
+    /**
+     * 添加流式音频消费者，语音帧随到随交付并附带语音起止标记。
+     * 消费者在媒体事件循环线程上回调，只适合不阻塞的处理；可能阻塞的消费者应使用{@link #addAsyncAudioFrameConsumer}
+     */
+    public void addAudioFrameConsumer(AudioFrameConsumer consumer) {
+        frameConsumers.add(consumer);
+    }
+
+    /**
+     * 添加异步流式音频消费者：媒体循环只把音频复制进无锁交接环，消费者在工作线程上按序回调，
+     * 消费者变慢时按media.handoff-backpressure处理，不影响RTP收包
+     */
+    public AsyncAudioFrameConsumer addAsyncAudioFrameConsumer(AudioFrameConsumer consumer) {
+        AsyncAudioFrameConsumer async = newAsyncConsumer(consumer);
+        frameConsumers.add(async);
+        return async;
+    }
+
+    public void removeAudioFrameConsumer(AudioFrameConsumer consumer) {
+        for (AudioFrameConsumer registered : frameConsumers) {
+            if (registered == consumer || registered instanceof AsyncAudioFrameConsumer
+                    && ((AsyncAudioFrameConsumer) registered).getDelegate() == consumer) {
+                frameConsumers.remove(registered);
             }
-            // 172.16.0.0/12
-            if (firstOctet == 172 && secondOctet >= 16 && secondOctet <= 31) {
-                return true;
+        }
+    }
+
+    /**
+     * 各异步音频消费者的交接环统计(积压、丢弃、消费者滞后)
+     */
+    public List<HandoffStats> getHandoffStats() {
+        List<HandoffStats> stats = new ArrayList<>();
+        for (AudioFrameConsumer consumer : frameConsumers) {
+            if (consumer instanceof AsyncAudioFrameConsumer) {
+                stats.add(((AsyncAudioFrameConsumer) consumer).getStats());
             }
-            // 192.168.0.0/16
-            if (firstOctet == 192 && secondOctet == 168) {
-                return true;
+        }
+        return stats;
+    }
+
+    /**
+     * 调整本通话流式交付的批长度(毫秒)，不足一帧时按帧交付
+     */
+    public void setStreamBatchMs(int batchMs) {
+        this.streamBatchMs = batchMs;
+        execute(() -> {
+            if (streamBatch != null) {
+                flushStreamBatch();
+                streamBatch = newStreamBatch();
             }
-            return false;
+        });
+    }
+
+    private short[] newStreamBatch() {
+        int batchMs = Math.max(PTIME_MS, streamBatchMs);
+        return new short[codec.getSampleRate() * batchMs / 1000];
+    }
+
+    /**
+     * 接收侧抖动缓冲统计(时延、抖动、丢包)
+     */
+    public JitterBufferStats getJitterBufferStats() {
+        return jitterBuffer.snapshot();
+    }
+
+    /**
+     * 从端口分配器租用一对RTP/RTCP端口，重复调用返回同一端口
+     *
+     * @return 本地RTP端口
+     */
+    public synchronized int allocatePorts() {
+        if (isReleased.get()) {
+            throw new IllegalStateException("媒体会话已释放 callId: " + callId);
+        }
+        if (portPair == null) {
+            portPair = portAllocator.allocate();
+            rtpChannel = portPair.getRtpChannel();
+            rtcpChannel = portPair.getRtcpChannel();
+            log.info("分配媒体端口 callId: {}, RTP: {}, RTCP: {}", callId, portPair.getRtpPort(), portPair.getRtcpPort());
+        }
+        return portPair.getRtpPort();
+    }
+
+    public synchronized void initializeRtpSession(String localAddress, int localPort, String remoteAddress, int remotePort) {
+        try {
+            log.info("RTP会话初始化开始 callId: {} - 本地: {}:{}, 远程: {}:{}", callId, localAddress, localPort, remoteAddress, remotePort);
+            String bindAddress = portAllocator.getLocalBindAddress(); // 获取本地可用IP地址
+            if (localPort <= 0) {
+                localPort = allocatePorts();
+            }
+            if (portPair != null && portPair.getRtpPort() == localPort) {
+                bindAddress = portPair.getBindAddress();
+            } else {
+                // 调用方指定了分配范围之外的端口，单独绑定
+                InetAddress bindInetAddress = InetAddress.getByName(bindAddress);
+                this.rtpChannel = openChannel(new InetSocketAddress(bindInetAddress, localPort)); // 创建RTP
+                this.rtcpChannel = openChannel(new InetSocketAddress(bindInetAddress, localPort + 1)); // 创建RTCP
+            }
+            this.remoteRtpAddress = new InetSocketAddress(InetAddress.getByName(remoteAddress), remotePort);
+            this.remoteRtcpAddress = new InetSocketAddress(remoteRtpAddress.getAddress(), remotePort + 1);
+            log.info("RTP会话初始化成功 callId: {} - 本地绑定: {}:{}, 远程: {}:{}", callId, bindAddress, localPort, remoteAddress, remotePort);
         } catch (Exception e) {
-            return false;
+            log.error("RTP会话初始化失败 callId: {}", callId, e);
+            releaseChannels();
+            throw new RuntimeException("RTP会话初始化失败", e);
+        }
+    }
+
+    private DatagramChannel openChannel(InetSocketAddress bindAddress) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            // 设置socket选项
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, mediaConfig.getSocketReceiveBufferSize());
+            channel.bind(bindAddress);
+            channel.configureBlocking(false);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
         }
     }
 
     public void startMediaSession() {
+        if (rtpChannel == null) {
+            log.error("RTP会话未初始化 callId: {}", callId);
+            return;
+        }
         if (isActive.compareAndSet(false, true)) {
             try {
-                startReceiveThread();
-                log.info("媒体会话已启动");
+                streamBatch = newStreamBatch();
+                preRoll = new PcmPreRoll(codec.getSampleRate() * mediaConfig.getVadPreRollMs() / 1000);
+                if (mediaConfig.isRtpLatching() && remoteRtpAddress != null) {
+                    rtpLatch = new RtpLatch(remoteRtpAddress, mediaConfig.getRtpLatchPackets());
+                }
+                if (mediaConfig.getPlcMaxMs() > 0) {
+                    plc = new PacketLossConcealer(codec.getSampleRate(), mediaConfig.getPlcMaxMs());
+                }
+                if (mediaConfig.isRecordingEnabled()) {
+                    recorder = registry.getRecordingWriter().open(callId, codec, PTIME_MS);
+                }
+                installUtteranceCollector();
+                sendFrame = framePool.acquire();
+                RtcpSession rtcp = new RtcpSession(ssrc, Long.toHexString(ssrc) + "@" + portAllocator.getLocalBindAddress(),
+                        codec.getRtpClockRate(), SESSION_BANDWIDTH);
+                rtcp.start(System.nanoTime());
+                rtcpSession = rtcp;
+                eventLoop.register(rtpChannel, this::onRtpPacket);
+                eventLoop.register(rtcpChannel, this::onRtcpPacket);
+                eventLoop.addTickHandler(tickHandler);
+                log.info("媒体会话已启动 callId: {}, 事件循环: {}", callId, eventLoop.getIndex());
             } catch (Exception e) {
-                log.error("启动媒体会话失败", e);
+                log.error("启动媒体会话失败 callId: {}", callId, e);
                 stopMediaSession();
             }
         }
     }
 
-    private void startReceiveThread() {
-        Thread receiveThread = new Thread(() -> {
-            byte[] buffer = new byte[1500]; // MTU大小，确保能接收完整的RTP包
-            audioBuffer = new ByteArrayOutputStream();
-            isReceiving = true;
-            lastActiveTime = System.currentTimeMillis();
-            while (isReceiving) {
-                try {
-                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                    rtpSocket.receive(packet);
-                    // 1. 提取RTP头部信息
-                    byte[] rtpData = packet.getData();
-                    int rtpVersion = (rtpData[0] >> 6) & 0x03;
-                    int payloadType = rtpData[1] & 0xFF;
-                    int seqNumber = ((rtpData[2] & 0xFF) << 8) | (rtpData[3] & 0xFF);
-
-                    // 2. 检查是否是PCMA(G.711 A-law)包
-                    if (payloadType != PAYLOAD_TYPE_PCMA) {
-                        log.warn("收到非PCMA格式的RTP包，PayloadType: {}", payloadType);
-                        continue;
-                    }
+    /**
+     * 处理收到的RTP包，在事件循环线程上执行；稳态下不分配内存
+     */
+    private void onRtpPacket(ByteBuffer packet, SocketAddress source) {
+        if (!isActive.get()) {
+            return;
+        }
+        int length = packet.remaining();
+        if (length < RTP_HEADER_SIZE || (packet.get(0) & 0xC0) != 0x80) {
+            return; // 非RTP v2
+        }
+        SrtpSession srtp = this.srtp;
+        if (srtp != null) {
+            length = srtp.unprotectRtp(packet, length); // 就地解密，认证失败或重放的包丢弃
+            if (length < 0) {
+                return;
+            }
+        }
+        // 1. 提取RTP头部信息
+        int b0 = packet.get(0);
+        int payloadType = packet.get(1) & 0x7F;
+        int seqNumber = packet.getShort(2) & 0xFFFF;
+        int rtpTimestamp = packet.getInt(4);
+        long packetSsrc = packet.getInt(8) & 0xFFFFFFFFL;
+        int headerLength = RTP_HEADER_SIZE + (b0 & 0x0F) * 4; // CSRC列表
+        if ((b0 & 0x10) != 0) { // 头部扩展
+            if (length < headerLength + 4) {
+                return;
+            }
+            headerLength += 4 + (packet.getShort(headerLength + 2) & 0xFFFF) * 4;
+        }
+        int payloadEnd = length;
+        if ((b0 & 0x20) != 0) { // 填充
+            payloadEnd -= packet.get(length - 1) & 0xFF;
+        }
+        if (payloadEnd <= headerLength) {
+            return;
+        }
 
-                    // 3. 提取音频数据（跳过12字节RTP头）
-                    byte[] alawData = new byte[packet.getLength() - RTP_HEADER_SIZE];
-                    System.arraycopy(packet.getData(), RTP_HEADER_SIZE, alawData, 0, alawData.length);
-
-                    // 4. 将G.711 A-law解码为PCM
-                    byte[] pcmData = ALawToLinearDecoder.decode(alawData);
-
-                    // 5. 检查是否是静音
-                    if (!isSilence(pcmData)) {
-                        lastActiveTime = System.currentTimeMillis();
-                        synchronized (receiveLock) {
-                            audioBuffer.write(pcmData);
-                        }
-                    } else if (System.currentTimeMillis() - lastActiveTime > SILENCE_DURATION_MS) {
-                        // 如果静音持续超过阈值，认为说话结束
-                        if (audioBuffer.size() > 0) {
-                            byte[] completeAudio;
-                            synchronized (receiveLock) {
-                                completeAudio = audioBuffer.toByteArray();
-                                audioBuffer.reset();
-                            }
-                            if (audioDataCallback != null) {
-                                audioDataCallback.accept(completeAudio);
-                                log.info("语音片段接收完成，PCM数据大小: {} 字节", completeAudio.length);
-                            }
-                        }
-                    }
+        // 2. 接收统计，telephone-event与语音共用序列号空间
+        if (payloadType != telephoneEventPayloadType && payloadType != this.payloadType) {
+            log.debug("收到非{}格式的RTP包，PayloadType: {}", codec.getEncodingName(), payloadType);
+            return;
+        }
+        RtpLatch latch = rtpLatch;
+        if (latch != null) {
+            int verdict = latch.onPacket(source, packetSsrc, seqNumber);
+            if (verdict == RtpLatch.REJECT) {
+                return;
+            }
+            if (verdict == RtpLatch.LATCHED) {
+                onRemoteLatched(latch);
+            }
+        }
+        long now = System.nanoTime();
+        rtcpSession.onRtpReceived(seqNumber, rtpTimestamp, packetSsrc, now);
 
-                } catch (IOException e) {
-                    if (isReceiving) {
-                        log.error("接收RTP包失败", e);
-                    }
-                }
+        // 3. 同编码中继：改写头部后从对端会话发出，不经抖动缓冲与解码
+        RtpMediaManager peer = relayPeer;
+        if (peer != null && relayPacket(peer, packet, headerLength, payloadEnd, payloadType, seqNumber, rtpTimestamp,
+                packetSsrc, now)) {
+            return;
+        }
+
+        // 4. telephone-event按键事件，不进入抖动缓冲，首包即上报；其序列号与语音共用，在抖动缓冲中占位跳过，避免计为丢包并触发丢包补偿
+        if (payloadType == telephoneEventPayloadType) {
+            jitterBuffer.skip(seqNumber, packetSsrc);
+            int event = dtmfDecoder.onPacket(packet, headerLength, payloadEnd - headerLength, rtpTimestamp);
+            if (event != Rfc4733Decoder.NONE) {
+                deliverDtmf(DtmfDigits.toDigit(event), dtmfDecoder.getDurationMs(), DtmfEvent.Source.RFC4733);
             }
-        });
-        receiveThread.setName("RTP-Receive-Thread");
-        receiveThread.start();
+            return;
+        }
+
+        // 5. 放音打断按到达顺序检测，不等待抖动缓冲的目标时延
+        if (bargeInEnabled && isArrivalBargeIn()) {
+            long energy = FrameEnergy.meanSquareG711(packet, headerLength, payloadEnd - headerLength,
+                    codec.getPayloadType());
+            if (bargeInVad.onFrame(energy) == VoiceActivityDetector.ONSET) {
+                interruptPlayout(true);
+            }
+        }
+
+        // 6. 负载按序列号进入抖动缓冲，再取出已到期的帧
+        jitterBuffer.put(packet, headerLength, payloadEnd - headerLength, seqNumber, rtpTimestamp, packetSsrc, now);
+        drainJitterBuffer(now);
     }
 
-    private boolean isSilence(byte[] pcmData) {
-        if (pcmData == null || pcmData.length == 0) {
-            return true;
+    /**
+     * 把入向包中继给对端
+     *
+     * @return 已处理(转发或丢弃)时返回true；对端未协商telephone-event时按键包返回false，仍按本地按键处理
+     */
+    private boolean relayPacket(RtpMediaManager peer, ByteBuffer packet, int headerLength, int payloadEnd, int pt,
+                                int seq, int rtpTimestamp, long packetSsrc, long now) {
+        int outPt;
+        if (pt == telephoneEventPayloadType) {
+            if (peer.telephoneEventPayloadType < 0) {
+                return false;
+            }
+            outPt = peer.telephoneEventPayloadType;
+        } else {
+            outPt = peer.payloadType;
+            CallRecorder rec = recorder;
+            if (rec != null) {
+                rec.onFrame(RecordingFormat.INBOUND, packet, headerLength, payloadEnd - headerLength, now);
+            }
         }
-        // 对于16位PCM数据，每两个字节组成一个采样点
-        double sum = 0;
-        int sampleCount = pcmData.length / 2;
-        for (int i = 0; i < pcmData.length; i += 2) {
-            // 将两个字节组合成一个16位整数
-            short sample = (short) ((pcmData[i + 1] << 8) | (pcmData[i] & 0xFF));
-            sum += sample * sample;
+        RtpRelay r = relay;
+        if (r.map(seq, rtpTimestamp, packetSsrc, peer.sequenceNumber, peer.timestamp)) {
+            boolean marker = (packet.get(1) & 0x80) != 0 || r.isResync();
+            peer.forwardRelayed(packet, headerLength, payloadEnd - headerLength, outPt, marker, r.getSequence(),
+                    r.getTimestamp());
         }
-        // 计算平均能量
-        double rms = Math.sqrt(sum / sampleCount);
-        return rms < SILENCE_THRESHOLD; // 使用RMS能量作为静音阈值
+        return true;
     }
 
-    public void stopMediaSession() {
-        if (isActive.compareAndSet(true, false)) {
-            try {
-                if (receiveThread != null) {
-                    receiveThread.interrupt();
-                    receiveThread.join(1000);
+    /**
+     * 发送中继转发来的一包：负载复制到本会话的发送帧，以本会话的SSRC、SRTP上下文发出
+     */
+    private void forwardRelayed(ByteBuffer src, int payloadPos, int payloadLength, int pt, boolean marker, int seq,
+                                int packetTimestamp) {
+        ByteBuffer packet = sendFrame;
+        if (packet == null || remoteRtpAddress == null
+                || RTP_HEADER_SIZE + payloadLength + SrtpSession.MAX_OVERHEAD > packet.capacity()) {
+            return;
+        }
+        int position = src.position();
+        int limit = src.limit();
+        src.limit(payloadPos + payloadLength).position(payloadPos);
+        packet.position(RTP_HEADER_SIZE);
+        packet.put(src);
+        packet.position(0);
+        src.limit(limit).position(position);
+        sequenceNumber = seq;
+        sendPacket(packet, pt, marker, packetTimestamp, payloadLength);
+    }
+
+    /**
+     * 媒体节拍：即使没有新包到达也按时钟推进抖动缓冲
+     */
+    private void onTick(long nowNanos) {
+        if (isActive.get()) {
+            drainJitterBuffer(nowNanos);
+            sendNextFrame();
+            sendRtcpReport(nowNanos);
+        }
+    }
+
+    /**
+     * 到达报告间隔时发送SR/RR，复用发送帧缓冲区
+     */
+    private void sendRtcpReport(long nowNanos) {
+        RtcpSession rtcp = rtcpSession;
+        ByteBuffer packet = sendFrame;
+        if (rtcp == null || packet == null || remoteRtcpAddress == null || !rtcp.isDue(nowNanos)) {
+            return;
+        }
+        // 本节拍已推进时间戳，回退一帧即为当前时刻对应的RTP时间戳
+        int length = rtcp.writeReport(packet, 0, timestamp - timestampStep, nowNanos);
+        sendRtcp(packet, length);
+    }
+
+    private void sendRtcp(ByteBuffer packet, int length) {
+        SrtpSession srtp = this.srtp;
+        if (srtp != null) {
+            length = srtp.protectRtcp(packet, length);
+        }
+        packet.limit(length).position(0);
+        try {
+            rtcpChannel.send(packet, remoteRtcpAddress);
+        } catch (IOException e) {
+            log.debug("发送RTCP包失败 callId: {}: {}", callId, e.getMessage());
+        }
+        packet.clear();
+    }
+
+    /**
+     * 每个媒体节拍发送一帧出向语音；没有语音时不发包，但时间戳照常按帧推进，保持连续的流时钟。
+     * 发送按键事件期间以事件包代替语音，放音源暂停
+     */
+    private void sendNextFrame() {
+        ByteBuffer packet = sendFrame;
+        if (packet == null || remoteRtpAddress == null) {
+            return;
+        }
+        if (relayPeer != null) {
+            // 中继期间出向为对端转发来的包，本会话的放音暂停，时间轴照常推进
+            timestamp += timestampStep;
+            return;
+        }
+        if (telephoneEventPayloadType >= 0) {
+            int eventLength = dtmfSender.next(packet, RTP_HEADER_SIZE, timestamp, timestampStep);
+            if (eventLength > 0) {
+                sendPacket(packet, telephoneEventPayloadType, dtmfSender.isFirstPacket(),
+                        dtmfSender.getEventTimestamp(), eventLength);
+                talkspurt = false; // 事件结束后恢复的语音为新的语音段
+                timestamp += timestampStep;
+                return;
+            }
+        }
+        int payloadLength = 0;
+        while (true) {
+            if (currentPlayout == null) {
+                currentPlayout = playoutQueue.poll();
+                if (currentPlayout == null) {
+                    break;
                 }
-                // 关闭socket
-                if (rtpSocket != null && !rtpSocket.isClosed()) {
-                    rtpSocket.close();
+            }
+            PlayoutResult.Status status;
+            if (currentPlayout.isCancelled()) {
+                status = PlayoutResult.Status.CANCELLED;
+            } else {
+                try {
+                    payloadLength = currentPlayout.getSource().nextFrame(packet, RTP_HEADER_SIZE, codec, samplesPerFrame);
+                    status = payloadLength == PlayoutSource.END ? PlayoutResult.Status.COMPLETED : null;
+                } catch (Exception | InternalError e) {
+                    // InternalError: 映射的提示音文件被截断后读取触发SIGBUS
+                    log.error("放音源出错 callId: {}, 放音: {}", callId, currentPlayout.getSource().getName(), e);
+                    status = PlayoutResult.Status.FAILED;
                 }
-                if (rtcpSocket != null && !rtcpSocket.isClosed()) {
-                    rtcpSocket.close();
+            }
+            if (status == null) {
+                if (payloadLength > 0) {
+                    currentPlayout.onFrameSent();
                 }
-                log.info("媒体会话已停止");
-            } catch (Exception e) {
-                log.error("停止媒体会话失败", e);
+                break;
+            }
+            // 当前放音项结束，同一节拍内接续下一个，保证无缝
+            finishPlayout(currentPlayout, status);
+            currentPlayout = null;
+            payloadLength = 0;
+        }
+        ConferenceParticipant conf = conference;
+        if (conf != null) {
+            // 放音混入会议，本节拍实际发送的是会议输出
+            if (payloadLength > 0) {
+                conf.offerLocal(packet, RTP_HEADER_SIZE, payloadLength);
             }
+            payloadLength = conf.pollOutput(packet, RTP_HEADER_SIZE);
         }
+        if (payloadLength > 0) {
+            sendPacket(packet, payloadType, !talkspurt, timestamp, payloadLength);
+        }
+        talkspurt = payloadLength > 0;
+        timestamp += timestampStep;
     }
 
-    // 修改：播放音频文件方法
-    public void playAudioFile(String audioFilePath) {
+    /**
+     * 填写RTP头并发送，负载已写在头部之后
+     */
+    private void sendPacket(ByteBuffer packet, int pt, boolean marker, int packetTimestamp, int payloadLength) {
+        packet.put(0, (byte) 0x80); // RTP版本 2
+        packet.put(1, (byte) (marker ? pt | 0x80 : pt));
+        packet.putShort(2, (short) sequenceNumber);
+        packet.putInt(4, packetTimestamp);
+        packet.putInt(8, (int) ssrc);
+        int length = RTP_HEADER_SIZE + payloadLength;
+        CallRecorder rec = recorder;
+        if (rec != null && pt == payloadType) {
+            rec.onFrame(RecordingFormat.OUTBOUND, packet, RTP_HEADER_SIZE, payloadLength, System.nanoTime());
+        }
+        SrtpSession srtp = this.srtp;
+        if (srtp != null) {
+            length = srtp.protectRtp(packet, length); // 就地加密并追加认证标签
+        }
+        packet.limit(length).position(0);
         try {
-            log.info("开始播放音频文件: {}", audioFilePath);
-            // 1. 按照协商格式配置音频参数
-            AudioFormat targetFormat = new AudioFormat(8000.0f, 16, 1, true, false);
-            // 2. 加载并转换音频文件
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(new File(audioFilePath));
-            AudioFormat sourceFormat = audioInputStream.getFormat();
-            if (!sourceFormat.matches(targetFormat)) {
-                audioInputStream = AudioSystem.getAudioInputStream(targetFormat, audioInputStream);
-            }
-            // 3. 配置RTP参数
-            byte[] buffer = new byte[160 * 2]; // 20ms @ 8kHz * 16bit = 320 bytes
-            int bytesRead;
-            long startTime = System.nanoTime();
-            long packetCount = 0;
-            long packetInterval = 20_000_000L; // 20ms in nanoseconds
-            // 4. 发送循环
-            while ((bytesRead = audioInputStream.read(buffer)) != -1 && isActive.get()) {
-                if (bytesRead == 320) { // 确保读取了完整的一帧
-                    // 转换为G.711 A-law
-                    byte[] alawData = LinearToALawEncoder.encode(buffer);
-                    // 构建RTP包
-                    byte[] rtpPacket = new byte[alawData.length + RTP_HEADER_SIZE];
-                    // 设置RTP头
-                    rtpPacket[0] = (byte) 0x80; // RTP版本 2
-                    rtpPacket[1] = (byte) PAYLOAD_TYPE_PCMA; // PT=8 for PCMA
-                    // 序列号
-                    rtpPacket[2] = (byte) (sequenceNumber >> 8);
-                    rtpPacket[3] = (byte) sequenceNumber;
-                    // 时间戳 (每包增加160个采样点)
-                    long currentTimestamp = timestamp + (packetCount * 160);
-                    rtpPacket[4] = (byte) (currentTimestamp >> 24);
-                    rtpPacket[5] = (byte) (currentTimestamp >> 16);
-                    rtpPacket[6] = (byte) (currentTimestamp >> 8);
-                    rtpPacket[7] = (byte) currentTimestamp;
-                    // SSRC
-                    rtpPacket[8] = (byte) (ssrc >> 24);
-                    rtpPacket[9] = (byte) (ssrc >> 16);
-                    rtpPacket[10] = (byte) (ssrc >> 8);
-                    rtpPacket[11] = (byte) ssrc;
-                    // 复制音频数据
-                    System.arraycopy(alawData, 0, rtpPacket, RTP_HEADER_SIZE, alawData.length);
-                    // 发送RTP包
-                    DatagramPacket packet = new DatagramPacket(rtpPacket, rtpPacket.length, remoteAddress,
-                            remoteRtpPort);
-                    rtpSocket.send(packet);
-                    // 更新计数器
-                    sequenceNumber = (sequenceNumber + 1) & 0xFFFF;
-                    packetCount++;
-                    // 精确控制发送时间
-                    long expectedTime = startTime + (packetCount * packetInterval);
-                    long currentTime = System.nanoTime();
-                    long sleepTime = (expectedTime - currentTime) / 1_000_000L;
-                    if (sleepTime > 0) {
-                        Thread.sleep(sleepTime);
-                    }
+            rtpChannel.send(packet, remoteRtpAddress);
+        } catch (IOException e) {
+            log.debug("发送RTP包失败 callId: {}: {}", callId, e.getMessage());
+        }
+        packet.clear();
+        sequenceNumber = (sequenceNumber + 1) & 0xFFFF;
+        rtcpSession.onRtpSent(payloadLength);
+    }
+
+    private void drainJitterBuffer(long nowNanos) {
+        int result;
+        PacketLossConcealer concealer = plc;
+        while ((result = jitterBuffer.poll(nowNanos)) != JitterBuffer.EMPTY) {
+            if (result == JitterBuffer.MISSING) {
+                if (concealer != null) {
+                    // 合成缺失帧，保持PCM流连续
+                    int samples = concealer.conceal(decodeFrame, 0, samplesPerFrame);
+                    processDecodedFrame(decodeFrame, samples, FrameEnergy.meanSquare(decodeFrame, 0, samples));
                 }
+                continue;
             }
-            log.info("音频文件播放完成: {}", audioFilePath);
-        } catch (Exception e) {
-            log.error("播放音频文件失败: {}", audioFilePath, e);
+            ByteBuffer payload = jitterBuffer.currentPayload();
+            CallRecorder rec = recorder;
+            if (rec != null) {
+                rec.onFrame(RecordingFormat.INBOUND, payload, 0, result, nowNanos);
+            }
+            int samples = codec.decode(payload, 0, result, decodeFrame, 0);
+            long energy;
+            if (concealer != null && concealer.isConcealing()) {
+                // 恢复帧的开头与合成信号交叉淡化，能量按修改后的PCM计算
+                concealer.onFrame(decodeFrame, 0, samples);
+                energy = FrameEnergy.meanSquare(decodeFrame, 0, samples);
+            } else {
+                energy = frameEnergy(payload, result, samples);
+                if (concealer != null) {
+                    concealer.onFrame(decodeFrame, 0, samples);
+                }
+            }
+            processDecodedFrame(decodeFrame, samples, energy);
         }
     }
 
-    // 新增：PCM线性音频转G.711 A-law编码器
-    private static class LinearToALawEncoder {
-        private static final int[] LINEAR_TO_ALAW_TABLE = new int[65536];
-        private static final int QUANT_MASK = 0xF;
-        private static final int SEG_SHIFT = 4;
-        private static final int SEG_MASK = 0x70;
-        private static final int SIGN_BIT = 0x80;
+    /**
+     * G.711按码字查表即可得到帧能量，放音打断在包到达时判定；其他编码须按序解码，在抖动缓冲之后由VAD起始触发
+     */
+    private boolean isArrivalBargeIn() {
+        int pt = codec.getPayloadType();
+        return pt == G711ALawCodec.PAYLOAD_TYPE || pt == G711ULawCodec.PAYLOAD_TYPE;
+    }
 
-        static {
-            for (int i = -32768; i <= 32767; i++) {
-                LINEAR_TO_ALAW_TABLE[i & 0xFFFF] = linearToALaw(i);
-            }
+    /**
+     * 帧能量：G.711直接按码字查表，其他编码按解码后的PCM计算
+     */
+    private long frameEnergy(ByteBuffer payload, int length, int samples) {
+        int pt = codec.getPayloadType();
+        if (pt == G711ALawCodec.PAYLOAD_TYPE || pt == G711ULawCodec.PAYLOAD_TYPE) {
+            return FrameEnergy.meanSquareG711(payload, 0, length, pt);
         }
+        return FrameEnergy.meanSquare(decodeFrame, 0, samples);
+    }
 
-        private static byte linearToALaw(int pcm) {
-            int sign = (pcm & 0x8000) >> 8;
-            if (sign != 0) {
-                pcm = -pcm;
+    /**
+     * 处理一帧按序解码后的PCM：VAD判定语音段，语音起始时先交付预录音频，语音段内的帧按批交付给消费者
+     */
+    private void processDecodedFrame(short[] pcm, int samples, long energy) {
+        ConferenceParticipant conf = conference;
+        if (conf != null) {
+            conf.offerVoice(pcm, 0, samples);
+        }
+        int event = vad.onFrame(energy);
+        if (event == VoiceActivityDetector.ONSET) {
+            for (int i = 0; i < frameConsumers.size(); i++) {
+                try {
+                    frameConsumers.get(i).onSpeechStart(callId);
+                } catch (Exception e) {
+                    log.error("语音起始回调失败 callId: {}", callId, e);
+                }
             }
-            if (pcm > 32635) {
-                pcm = 32635;
+            int n;
+            while ((n = preRoll.read(decodeScratch, 0, decodeScratch.length)) > 0) {
+                streamAudio(decodeScratch, 0, n);
             }
-
-            int exp = 7;
-            for (int expMask = 0x4000; (pcm & expMask) == 0 && exp > 0; exp--, expMask >>= 1) {
+            if (bargeInEnabled && !isArrivalBargeIn()) {
+                interruptPlayout(true);
             }
+        }
+        if (vad.isSpeech() || event == VoiceActivityDetector.OFFSET) {
+            streamAudio(pcm, 0, samples);
+        } else {
+            preRoll.push(pcm, 0, samples);
+        }
+        if (event == VoiceActivityDetector.OFFSET) {
+            flushStreamBatch();
+            for (int i = 0; i < frameConsumers.size(); i++) {
+                try {
+                    frameConsumers.get(i).onSpeechEnd(callId);
+                } catch (Exception e) {
+                    log.error("语音结束回调失败 callId: {}", callId, e);
+                }
+            }
+        }
+    }
 
-            int mantis = (pcm >> (exp + 3)) & QUANT_MASK;
-            int alaw = (exp << SEG_SHIFT) | mantis;
-            if (sign != 0) {
-                alaw |= SIGN_BIT;
+    /**
+     * 语音样本装入交付批，批满即交付；批为空且样本足够一批时直接交付，不复制
+     */
+    private void streamAudio(short[] pcm, int off, int samples) {
+        short[] batch = streamBatch;
+        while (samples > 0) {
+            if (streamBatchFill == 0 && samples >= batch.length) {
+                deliverAudio(pcm, off, batch.length);
+                off += batch.length;
+                samples -= batch.length;
+                continue;
             }
+            int n = Math.min(samples, batch.length - streamBatchFill);
+            System.arraycopy(pcm, off, batch, streamBatchFill, n);
+            streamBatchFill += n;
+            off += n;
+            samples -= n;
+            if (streamBatchFill == batch.length) {
+                flushStreamBatch();
+            }
+        }
+    }
 
-            return (byte) (alaw ^ 0x55);
+    private void flushStreamBatch() {
+        if (streamBatchFill > 0) {
+            deliverAudio(streamBatch, 0, streamBatchFill);
+            streamBatchFill = 0;
         }
+    }
 
-        public static byte[] encode(byte[] pcmData) {
-            byte[] alawData = new byte[pcmData.length / 2];
-            for (int i = 0; i < alawData.length; i++) {
-                short sample = (short) ((pcmData[2 * i + 1] & 0xFF) << 8 | (pcmData[2 * i] & 0xFF));
-                alawData[i] = (byte) LINEAR_TO_ALAW_TABLE[sample & 0xFFFF];
+    private void deliverAudio(short[] pcm, int off, int samples) {
+        for (int i = 0; i < frameConsumers.size(); i++) {
+            try {
+                frameConsumers.get(i).onAudio(callId, pcm, off, samples);
+            } catch (Exception e) {
+                log.error("音频帧交付失败 callId: {}", callId, e);
             }
-            return alawData;
         }
     }
 
-    // 新增：G.711 A-law解码器
-    private static class ALawToLinearDecoder {
-        private static final int[] ALAW_TO_LINEAR_TABLE = new int[256];
+    /**
+     * 收到SIP INFO携带的按键
+     */
+    public void onSipInfoDtmf(char digit, int durationMs) {
+        deliverDtmf(digit, durationMs, DtmfEvent.Source.SIP_INFO);
+    }
 
-        static {
-            for (int i = 0; i < 256; i++) {
-                ALAW_TO_LINEAR_TABLE[i] = aLawToLinear((byte) i);
-            }
+    private void deliverDtmf(char digit, int durationMs, DtmfEvent.Source source) {
+        log.info("收到DTMF按键 callId: {}, 按键: {}, 来源: {}", callId, digit, source);
+        DtmfListener listener = dtmfListener;
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.onDtmf(new DtmfEvent(callId, digit, durationMs, source));
+        } catch (Exception e) {
+            log.error("DTMF处理失败 callId: {}", callId, e);
+        }
+    }
+
+    /**
+     * 对称RTP：发送目标切换为实际收到RTP的源地址；RTCP未从对端RTCP包学到地址时按RTP端口+1推算
+     */
+    private void onRemoteLatched(RtpLatch latch) {
+        InetSocketAddress target = latch.getTarget();
+        if (target.equals(remoteRtpAddress)) {
+            return;
         }
+        log.info("对端媒体地址已锁定 callId: {}, SDP/原地址: {}, 实际地址: {}, SSRC: {}, 切换次数: {}", callId,
+                remoteRtpAddress, target, Long.toHexString(latch.getSsrc()), latch.getRelatchCount());
+        remoteRtpAddress = target;
+        if (!rtcpLatched) {
+            remoteRtcpAddress = new InetSocketAddress(target.getAddress(), target.getPort() + 1);
+        }
+    }
 
-        public static byte[] decode(byte[] alawData) {
-            byte[] pcmData = new byte[alawData.length * 2];
-            for (int i = 0; i < alawData.length; i++) {
-                int sample = ALAW_TO_LINEAR_TABLE[alawData[i] & 0xFF];
-                pcmData[i * 2] = (byte) sample;
-                pcmData[i * 2 + 1] = (byte) (sample >> 8);
+    /**
+     * 处理收到的RTCP包，在事件循环线程上执行
+     */
+    private void onRtcpPacket(ByteBuffer packet, SocketAddress source) {
+        RtcpSession rtcp = rtcpSession;
+        if (isActive.get() && rtcp != null) {
+            SrtpSession srtp = this.srtp;
+            if (srtp != null) {
+                int length = srtp.unprotectRtcp(packet, packet.remaining());
+                if (length < 0) {
+                    return;
+                }
+                packet.limit(length);
             }
-            return pcmData;
+            latchRtcp(packet, source);
+            rtcp.onPacket(packet, System.nanoTime());
+        }
+    }
+
+    /**
+     * 对称RTCP：发送方SSRC与已锁定的RTP流一致时，RTCP发往该包的源地址
+     */
+    private void latchRtcp(ByteBuffer packet, SocketAddress source) {
+        RtpLatch latch = rtpLatch;
+        if (latch == null || !latch.isLatched() || packet.remaining() < 8 || source.equals(remoteRtcpAddress)
+                || !(source instanceof InetSocketAddress)) {
+            return;
+        }
+        long senderSsrc = packet.getInt(4) & 0xFFFFFFFFL;
+        if (senderSsrc == latch.getSsrc()) {
+            log.info("对端RTCP地址已锁定 callId: {}, 原地址: {}, 实际地址: {}", callId, remoteRtcpAddress, source);
+            remoteRtcpAddress = (InetSocketAddress) source;
+            rtcpLatched = true;
+        }
+    }
+
+    /**
+     * 通话媒体质量统计：丢包、抖动、往返时延及E-model估算的MOS；媒体会话未启动时返回null
+     */
+    public CallQualityStats getQualityStats() {
+        RtcpSession rtcp = rtcpSession;
+        if (rtcp == null) {
+            return null;
+        }
+        CallQualityStats stats = rtcp.snapshot();
+        stats.setCallId(callId);
+        stats.setCodec(codec.getEncodingName());
+        stats.setJitterBufferDelayMs(jitterBuffer.snapshot().getTargetDelayMs());
+        PacketLossConcealer concealer = plc;
+        if (concealer != null) {
+            stats.setConcealedFrames(concealer.getConcealedFrames());
+            stats.setConcealmentEvents(concealer.getBursts());
         }
+        EModel.apply(stats, PTIME_MS, concealer != null);
+        return stats;
+    }
 
-        private static int aLawToLinear(byte alaw) {
-            alaw ^= 0x55;
-            int sign = alaw & 0x80;
-            int exponent = (alaw & 0x70) >> 4;
-            int mantissa = alaw & 0x0f;
-            int sample = mantissa << (exponent + 3);
-            if (exponent > 0) {
-                sample += (1 << (exponent + 3 - 1));
+    /**
+     * 开始录制本通话收发双向的原始负载，已在录音时忽略
+     */
+    public void startRecording() {
+        execute(() -> {
+            if (recorder == null && isActive.get()) {
+                recorder = registry.getRecordingWriter().open(callId, codec, PTIME_MS);
+                log.info("开始录音 callId: {}", callId);
             }
-            if (sign == 0) {
-                sample = -sample;
+        });
+    }
+
+    /**
+     * 结束录音，挂机时自动结束
+     *
+     * @return 写盘(及WAV导出)完成后的结果，未在录音时为null
+     */
+    public CompletableFuture<RecordingResult> stopRecording() {
+        CompletableFuture<RecordingResult> future = new CompletableFuture<>();
+        execute(() -> {
+            CallRecorder current = recorder;
+            recorder = null;
+            if (current == null) {
+                future.complete(null);
+                return;
             }
-            return sample;
-        }
+            current.close().whenComplete((result, e) -> {
+                if (e != null) {
+                    future.completeExceptionally(e);
+                } else {
+                    future.complete(result);
+                }
+            });
+        });
+        return future;
     }
 
     /**
-     * 播放PCM音频数据
-     * 
-     * @param pcmData PCM格式的音频数据 (16bit, 8kHz, 单声道)
+     * 加入会议，已在其他会议中时先退出原会议
+     *
+     * @return 会议已关闭时返回false，调用方应重新取得会议
+     * @throws IllegalStateException 会议人数已满
      */
-    public void playAudioData(byte[] pcmData) {
-        try {
-            if (!isActive.get() || rtpSocket == null) {
-                log.error("RTP会话未初始化或已停止");
+    public boolean joinConference(ConferenceBridge bridge, ConferenceRole role) {
+        if (!isActive.get()) {
+            return false;
+        }
+        ConferenceParticipant participant = bridge.join(callId, codec, role);
+        if (participant == null) {
+            return false;
+        }
+        execute(() -> {
+            if (!isActive.get()) {
+                participant.leave(); // 加入期间通话已结束
                 return;
             }
+            ConferenceParticipant previous = conference;
+            conference = participant;
+            if (previous != null) {
+                previous.leave();
+            }
+        });
+        return true;
+    }
 
-            log.info("开始发送音频数据, 数据长度: {} bytes", pcmData.length);
+    /**
+     * 退出会议，恢复单独放音
+     */
+    public void leaveConference() {
+        execute(() -> {
+            ConferenceParticipant current = conference;
+            conference = null;
+            if (current != null) {
+                current.leave();
+            }
+        });
+    }
 
-            // 1. 将PCM数据分割成20ms的帧
-            int frameSize = 320; // 20ms @ 8kHz * 16bit = 320 bytes
-            int frameCount = pcmData.length / frameSize;
+    public ConferenceParticipant getConference() {
+        return conference;
+    }
 
-            // 2. 发送参数初始化
-            long startTime = System.nanoTime();
-            long packetInterval = 20_000_000L; // 20ms in nanoseconds
+    /**
+     * 与同编码的对端组成直接转发的中继：先把对端迁移到本会话的事件循环，再在循环线程上配对。
+     * 配对标记在调用时即记下，配对完成前结束任一条腿的中继都会取消配对
+     *
+     * @return 配对完成时为true；配对被取消或任一条腿已结束时为false
+     */
+    CompletableFuture<Boolean> pairRelay(RtpMediaManager peer) {
+        Object pairing = new Object();
+        relayPairing = pairing;
+        peer.relayPairing = pairing;
+        return peer.moveTo(eventLoop).thenCompose(v -> {
+            CompletableFuture<Boolean> paired = new CompletableFuture<>();
+            execute(() -> {
+                if (relayPairing != pairing || peer.relayPairing != pairing) {
+                    log.info("中继配对已取消 callId: {}, 对端: {}", callId, peer.callId);
+                    paired.complete(false);
+                    return;
+                }
+                relayPairing = null;
+                peer.relayPairing = null;
+                if (eventLoop != peer.eventLoop || !isActive.get() || !peer.isActive()) {
+                    log.warn("中继配对失败 callId: {}, 对端: {}", callId, peer.callId);
+                    paired.complete(false);
+                    return;
+                }
+                startForwarding(peer);
+                peer.startForwarding(this);
+                log.info("媒体中继已建立 callId: {} <-> {}, 方式: {}, 编码: {}, 事件循环: {}", callId, peer.callId,
+                        RelayMode.FORWARD, codec.getEncodingName(), eventLoop.getIndex());
+                paired.complete(true);
+            });
+            return paired;
+        });
+    }
 
-            // 3. 逐帧发送
-            for (int i = 0; i < frameCount && isActive.get(); i++) {
-                // 提取一帧PCM数据
-                byte[] framePcm = new byte[frameSize];
-                System.arraycopy(pcmData, i * frameSize, framePcm, 0, frameSize);
+    private void startForwarding(RtpMediaManager peer) {
+        relayPeer = peer;
+        relay = new RtpRelay();
+        relayPeerCallId = peer.callId;
+        relayMode = RelayMode.FORWARD;
+    }
 
-                // 转换为G.711 A-law
-                byte[] alawData = LinearToALawEncoder.encode(framePcm);
+    /**
+     * 经两方会议转码的中继
+     *
+     * @return 会议已关闭时返回false
+     */
+    boolean joinTranscodingRelay(ConferenceBridge bridge, String peerCallId) {
+        if (!joinConference(bridge, ConferenceRole.SPEAKER)) {
+            return false;
+        }
+        // 排在此前入队的结束中继任务之后
+        execute(() -> {
+            relayPeerCallId = peerCallId;
+            relayMode = RelayMode.TRANSCODE;
+        });
+        return true;
+    }
 
-                // 构建RTP包
-                byte[] rtpPacket = new byte[alawData.length + RTP_HEADER_SIZE];
+    /**
+     * 结束本腿的中继，恢复本会话自己的放音；对端需另行结束
+     */
+    public void stopRelay() {
+        relayPairing = null;
+        execute(() -> {
+            RelayMode mode = relayMode;
+            if (mode == null) {
+                return;
+            }
+            if (mode == RelayMode.FORWARD) {
+                log.info("媒体中继已结束 callId: {}, 对端: {}, 转发: {}, 丢弃乱序: {}", callId, relayPeerCallId,
+                        relay.getForwarded(), relay.getDropped());
+                relayPeer = null;
+                relay = null;
+                talkspurt = false; // 恢复的放音为新语音段
+            } else if (conference != null) {
+                conference.leave();
+                conference = null;
+            }
+            relayPeerCallId = null;
+            relayMode = null;
+        });
+    }
 
-                // 设置RTP头
-                rtpPacket[0] = (byte) 0x80; // RTP版本 2
-                rtpPacket[1] = (byte) PAYLOAD_TYPE_PCMA; // PT=8 for PCMA
+    public RelayMode getRelayMode() {
+        return relayMode;
+    }
 
-                // 序列号
-                rtpPacket[2] = (byte) (sequenceNumber >> 8);
-                rtpPacket[3] = (byte) sequenceNumber;
+    public String getRelayPeerCallId() {
+        return relayPeerCallId;
+    }
 
-                // 时间戳 (每包增加160个采样点)
-                long currentTimestamp = timestamp + (i * 160);
-                rtpPacket[4] = (byte) (currentTimestamp >> 24);
-                rtpPacket[5] = (byte) (currentTimestamp >> 16);
-                rtpPacket[6] = (byte) (currentTimestamp >> 8);
-                rtpPacket[7] = (byte) currentTimestamp;
+    /**
+     * 停止媒体会话，资源在事件循环线程上异步回收，重复调用返回同一结果
+     *
+     * @return 资源回收完毕(端口已归还、已从事件循环解绑)时完成
+     */
+    public CompletableFuture<Void> stopMediaSession() {
+        registry.onSessionStopped(callId, this);
+        boolean wasActive = isActive.compareAndSet(true, false);
+        if (!isReleased.compareAndSet(false, true)) {
+            return released;
+        }
+        // 发送帧、通道和放音源由事件循环线程使用，统一在循环线程上回收
+        execute(() -> releaseResources(wasActive));
+        return released;
+    }
 
-                // SSRC
-                rtpPacket[8] = (byte) (ssrc >> 24);
-                rtpPacket[9] = (byte) (ssrc >> 16);
-                rtpPacket[10] = (byte) (ssrc >> 8);
-                rtpPacket[11] = (byte) ssrc;
+    private void releaseResources(boolean wasActive) {
+        try {
+            eventLoop.removeTickHandler(tickHandler);
+            if (recorder != null) {
+                recorder.close();
+                recorder = null;
+            }
+            if (conference != null) {
+                conference.leave();
+                conference = null;
+            }
+            String peerCallId = relayPeerCallId;
+            if (peerCallId != null) {
+                stopRelay();
+                RtpMediaManager peer = registry.getSession(peerCallId);
+                if (peer != null) {
+                    peer.stopRelay();
+                }
+            }
+            if (wasActive) {
+                sendRtcpBye();
+            }
+            if (sendFrame != null) {
+                framePool.release(sendFrame);
+                sendFrame = null;
+            }
+            clearPlayout();
+            dtmfSender.clear();
+            releaseChannels();
+            eventLoop.detachSession();
+            if (wasActive) {
+                CallQualityStats quality = getQualityStats();
+                registry.recordQuality(quality);
+                log.info("媒体会话已停止 callId: {}, 收包: {}, 丢包: {}, 补偿: {}帧/{}次, 抖动: {}ms, RTT: {}ms, MOS: {}/{}", callId,
+                        quality.getPacketsReceived(), quality.getCumulativeLost(), quality.getConcealedFrames(),
+                        quality.getConcealmentEvents(), String.format("%.1f", quality.getJitterMs()),
+                        String.format("%.1f", quality.getRttMs()), String.format("%.2f", quality.getMos()),
+                        String.format("%.2f", quality.getRemoteMos()));
+                for (HandoffStats handoff : getHandoffStats()) {
+                    if (handoff.getDroppedSamples() > 0 || handoff.getDroppedUtterances() > 0) {
+                        log.warn("音频消费者跟不上，已丢弃 callId: {}, 消费者: {}, 样本: {}, 语音段: {}, 最大滞后: {}ms", callId,
+                                handoff.getConsumer(), handoff.getDroppedSamples(), handoff.getDroppedUtterances(),
+                                String.format("%.1f", handoff.getMaxLagMs()));
+                    }
+                }
+                if (srtp != null && (srtp.getAuthFailures() > 0 || srtp.getReplayedPackets() > 0)) {
+                    log.warn("SRTP丢弃入向包 callId: {}, 认证失败: {}, 重放: {}", callId, srtp.getAuthFailures(),
+                            srtp.getReplayedPackets());
+                }
+            }
+        } catch (Exception e) {
+            log.error("停止媒体会话失败 callId: {}", callId, e);
+        } finally {
+            released.complete(null);
+        }
+    }
 
-                // 复制音频数据
-                System.arraycopy(alawData, 0, rtpPacket, RTP_HEADER_SIZE, alawData.length);
+    private void sendRtcpBye() {
+        RtcpSession rtcp = rtcpSession;
+        if (rtcp != null && sendFrame != null && remoteRtcpAddress != null && rtcpChannel != null) {
+            sendRtcp(sendFrame, rtcp.writeBye(sendFrame, 0, System.nanoTime()));
+        }
+    }
 
-                // 发送RTP包
-                DatagramPacket packet = new DatagramPacket(
-                        rtpPacket,
-                        rtpPacket.length,
-                        remoteAddress,
-                        remoteRtpPort);
-                rtpSocket.send(packet);
+    /**
+     * 停止当前放音并丢弃排队的放音，下一个媒体节拍起不再发送；时间戳照常推进，之后的放音以新语音段(marker)开始
+     */
+    private void interruptPlayout(boolean speech) {
+        PlayoutItem interrupted = currentPlayout;
+        if (interrupted == null && playoutQueue.isEmpty()) {
+            return;
+        }
+        int playedMs = 0;
+        int durationMs = -1;
+        String source = null;
+        if (interrupted != null) {
+            playedMs = interrupted.getPlayedMs(PTIME_MS);
+            durationMs = interrupted.getSource().getDurationMs();
+            source = interrupted.getSource().getName();
+            finishPlayout(interrupted, speech ? PlayoutResult.Status.INTERRUPTED : PlayoutResult.Status.CANCELLED);
+            currentPlayout = null;
+        }
+        int discarded = 0;
+        PlayoutItem queued;
+        while ((queued = playoutQueue.poll()) != null) {
+            finishPlayout(queued, PlayoutResult.Status.CANCELLED);
+            discarded++;
+        }
+        log.info("放音被打断 callId: {}, 放音: {}, 位置: {}/{}ms, 丢弃排队: {}, 主叫说话: {}", callId, source, playedMs,
+                durationMs, discarded, speech);
+        BargeInListener listener = bargeInListener;
+        if (listener != null) {
+            try {
+                listener.onBargeIn(new BargeInEvent(callId, source, playedMs, durationMs, discarded, speech));
+            } catch (Exception e) {
+                log.error("放音打断回调失败 callId: {}", callId, e);
+            }
+        }
+    }
 
-                // 更新计数器
-                sequenceNumber = (sequenceNumber + 1) & 0xFFFF;
+    private void clearPlayout() {
+        if (currentPlayout != null) {
+            finishPlayout(currentPlayout, PlayoutResult.Status.CANCELLED);
+            currentPlayout = null;
+        }
+        PlayoutItem item;
+        while ((item = playoutQueue.poll()) != null) {
+            finishPlayout(item, PlayoutResult.Status.CANCELLED);
+        }
+    }
 
-                // 精确控制发送时间
-                long expectedTime = startTime + ((i + 1) * packetInterval);
-                long currentTime = System.nanoTime();
-                long sleepTime = (expectedTime - currentTime) / 1_000_000L;
+    /**
+     * 关闭放音源，并在回调线程池上通知放音结果，调用方的后续处理不占用媒体循环
+     */
+    private void finishPlayout(PlayoutItem item, PlayoutResult.Status status) {
+        item.finish(status, PTIME_MS, registry.getConsumerExecutor());
+    }
 
-                if (sleepTime > 0) {
-                    Thread.sleep(sleepTime);
-                }
+    /**
+     * 租用的端口对从事件循环注销后归还分配器复用；单独绑定的通道直接关闭(同时取消其在Selector上的注册)
+     */
+    private synchronized void releaseChannels() {
+        if (portPair != null) {
+            // 分配器关闭时端口对的通道可能已被关闭置空
+            deregister(portPair.getRtpChannel());
+            deregister(portPair.getRtcpChannel());
+            if (rtpChannel != portPair.getRtpChannel()) {
+                closeQuietly(rtpChannel);
+                closeQuietly(rtcpChannel);
             }
+            portAllocator.release(portPair);
+            portPair = null;
+        } else {
+            closeQuietly(rtpChannel);
+            closeQuietly(rtcpChannel);
+        }
+        rtpChannel = null;
+        rtcpChannel = null;
+    }
 
-            // 更新时间戳，为下一次发送准备
-            timestamp += (frameCount * 160);
+    private void deregister(DatagramChannel channel) {
+        if (channel != null) {
+            eventLoop.deregister(channel);
+        }
+    }
 
-            log.info("音频数据发送完成, 发送 {} 帧", frameCount);
+    private void closeQuietly(DatagramChannel channel) {
+        if (channel != null && channel.isOpen()) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("关闭媒体通道失败 callId: {}", callId, e);
+            }
+        }
+    }
 
+    /**
+     * 播放音频文件，从提示音缓存取出按当前编码切好的负载帧，加入放音队列后立即返回
+     *
+     * @return 放音结束(播完、被打断、取消或失败)时完成
+     */
+    public CompletableFuture<PlayoutResult> playAudioFile(String audioFilePath) {
+        return playAudioFile(audioFilePath, PlayoutPriority.NORMAL);
+    }
+
+    public CompletableFuture<PlayoutResult> playAudioFile(String audioFilePath, PlayoutPriority priority) {
+        try {
+            log.info("开始播放音频文件: {}", audioFilePath);
+            Prompt prompt = promptCache.get(audioFilePath, codec, PTIME_MS);
+            return play(new PromptPlayoutSource(prompt), priority);
         } catch (Exception e) {
-            log.error("发送音频数据失败", e);
+            log.error("播放音频文件失败: {}", audioFilePath, e);
+            return CompletableFuture.completedFuture(new PlayoutResult(audioFilePath, PlayoutResult.Status.FAILED, 0));
+        }
+    }
+
+    /**
+     * 播放PCM音频数据，加入放音队列后立即返回，由媒体节拍按20ms逐帧发送
+     *
+     * @param pcmData PCM格式的音频数据 (16bit, 单声道, 与编码采样率一致)
+     */
+    public CompletableFuture<PlayoutResult> playAudioData(byte[] pcmData) {
+        return playAudioData(pcmData, PlayoutPriority.NORMAL);
+    }
+
+    public CompletableFuture<PlayoutResult> playAudioData(byte[] pcmData, PlayoutPriority priority) {
+        if (!isActive.get() || rtpChannel == null) {
+            log.error("RTP会话未初始化或已停止");
+            return CompletableFuture.completedFuture(new PlayoutResult("pcm", PlayoutResult.Status.FAILED, 0));
+        }
+        log.info("开始发送音频数据, 数据长度: {} bytes", pcmData.length);
+        return play(new PcmPlayoutSource(pcmData), priority);
+    }
+
+    /**
+     * 开始流式放音，调用方向返回的放音源陆续写入PCM分块(如TTS)并在写完后调用finish
+     * 播放时长不受限于已到达的数据，与前后放音项之间序号和时间戳连续
+     */
+    public StreamingPcmSource playStream(String name, PlayoutPriority priority) {
+        return playStream(name, codec.getSampleRate(), priority);
+    }
+
+    /**
+     * 开始流式放音，写入数据的采样率与通话编码不同时(如24kHz TTS)在写入时重采样
+     *
+     * @param sampleRate 写入数据的采样率
+     */
+    public StreamingPcmSource playStream(String name, int sampleRate, PlayoutPriority priority) {
+        int prebufferBytes = mediaConfig.getPlayoutStreamPrebufferMs() * codec.getSampleRate() / 1000 * 2;
+        StreamingPcmSource source = new StreamingPcmSource(name, prebufferBytes, sampleRate, codec.getSampleRate());
+        play(source, priority);
+        return source;
+    }
+
+    /**
+     * 加入放音队列后立即返回；可取消返回的future以跳过该项(已开始播放的在下一个媒体节拍停止)
+     *
+     * @param priority NORMAL排队尾；NEXT排队首；IMMEDIATE停止当前放音、清空队列后立即播放
+     */
+    public CompletableFuture<PlayoutResult> play(PlayoutSource source, PlayoutPriority priority) {
+        PlayoutItem item = new PlayoutItem(source);
+        switch (priority) {
+            case NEXT:
+                playoutQueue.offerFirst(item);
+                break;
+            case IMMEDIATE:
+                // 在事件循环上先清空再入队，保证与当前放音的发送互斥
+                execute(() -> {
+                    interruptPlayout(false);
+                    playoutQueue.offerFirst(item);
+                    if (isReleased.get()) {
+                        clearPlayout();
+                    }
+                });
+                return item.getFuture();
+            default:
+                playoutQueue.offer(item);
+                break;
+        }
+        if (isReleased.get()) {
+            // 会话已结束，回收可能错过清理的放音项
+            execute(this::clearPlayout);
+        }
+        return item.getFuture();
+    }
+
+    public CompletableFuture<PlayoutResult> play(PlayoutSource source) {
+        return play(source, PlayoutPriority.NORMAL);
+    }
+
+    /**
+     * 停止当前及排队的放音，在下一个媒体节拍前生效
+     */
+    public void stopPlayout() {
+        execute(() -> interruptPlayout(false));
+    }
+
+    /**
+     * 开启或关闭本通话的打断：放音期间检测到主叫说话时立即停止放音
+     */
+    public void setBargeInEnabled(boolean bargeInEnabled) {
+        this.bargeInEnabled = bargeInEnabled;
+    }
+
+    public void setBargeInListener(BargeInListener bargeInListener) {
+        this.bargeInListener = bargeInListener;
+    }
+
+    /**
+     * 以RFC 4733事件发送按键，入队后立即返回，由媒体节拍发送
+     *
+     * @param digit      0-9、*、#、A-D
+     * @param durationMs 按键时长(毫秒)
+     * @return 对端未协商telephone-event或按键非法时返回false
+     */
+    public boolean sendDtmf(char digit, int durationMs) {
+        if (telephoneEventPayloadType < 0) {
+            log.warn("对端未协商telephone-event，无法发送DTMF callId: {}", callId);
+            return false;
+        }
+        if (!dtmfSender.enqueue(digit, durationMs)) {
+            log.warn("非法DTMF按键 callId: {}, 按键: {}", callId, digit);
+            return false;
         }
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package com.kupu.sip.modules.media.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 媒体帧缓冲池
+ * 启动时一次性分配一整块堆外内存并切分为等长帧，通过无锁空闲栈借还；池耗尽时临时分配并计数，不阻塞媒体线程
+ */
+@Slf4j
+public class FramePool {
+    private static final int EMPTY = -1;
+
+    private final int frameSize;
+    private final ByteBuffer[] frames;
+    // 空闲栈：next[i]为i之下的帧序号
+    private final int[] next;
+    // 构造后只读，按引用定位帧序号
+    private final Map<ByteBuffer, Integer> indexes;
+    // 高32位为版本号(防ABA)，低32位为栈顶帧序号+1
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public FramePool(int frameSize, int frameCount) {
+        this(frameSize, frameCount, 0);
+    }
+
+    /**
+     * @param version 空闲栈的初始版本号，用于验证版本号回绕
+     */
+    FramePool(int frameSize, int frameCount, int version) {
+        this.frameSize = frameSize;
+        this.frames = new ByteBuffer[frameCount];
+        this.next = new int[frameCount];
+        this.indexes = new IdentityHashMap<>(frameCount * 2);
+        ByteBuffer slab = ByteBuffer.allocateDirect(frameSize * frameCount);
+        for (int i = 0; i < frameCount; i++) {
+            slab.limit((i + 1) * frameSize).position(i * frameSize);
+            frames[i] = slab.slice();
+            next[i] = i - 1;
+            indexes.put(frames[i], i);
+        }
+        head.set((long) version << 32 | frameCount);
+        log.info("媒体帧缓冲池已分配: {} 帧 x {} 字节", frameCount, frameSize);
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    /**
+     * 借出一帧，返回的缓冲区已clear
+     */
+    public ByteBuffer acquire() {
+        while (true) {
+            long h = head.get();
+            int top = (int) h - 1;
+            if (top == EMPTY) {
+                exhausted.incrementAndGet();
+                return ByteBuffer.allocateDirect(frameSize);
+            }
+            long newHead = ((h >>> 32) + 1) << 32 | (next[top] + 1);
+            if (head.compareAndSet(h, newHead)) {
+                ByteBuffer frame = frames[top];
+                frame.clear();
+                return frame;
+            }
+        }
+    }
+
+    /**
+     * 归还一帧；非本池分配的缓冲区直接丢弃
+     */
+    public void release(ByteBuffer frame) {
+        int index = indexOf(frame);
+        if (index == EMPTY) {
+            return;
+        }
+        while (true) {
+            long h = head.get();
+            next[index] = (int) h - 1;
+            long newHead = ((h >>> 32) + 1) << 32 | (index + 1);
+            if (head.compareAndSet(h, newHead)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 池耗尽后临时分配的次数
+     */
+    public long getExhaustedCount() {
+        return exhausted.get();
+    }
+
+    public int getCapacity() {
+        return frames.length;
+    }
+
+    private int indexOf(ByteBuffer frame) {
+        Integer index = frame == null ? null : indexes.get(frame);
+        return index == null ? EMPTY : index;
+    }
+}
@@ -0,0 +1,85 @@
+package com.kupu.sip.modules.media.buffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 有界无锁多生产者多消费者int队列(Vyukov算法)，入队出队均为O(1)且不分配内存
+ */
+public class IntRingQueue {
+    public static final int EMPTY = Integer.MIN_VALUE;
+
+    private final int mask;
+    private final int[] values;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public IntRingQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.values = new int[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 入队
+     *
+     * @return 队列已满时返回false
+     */
+    public boolean offer(int value) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    values[index] = value;
+                    sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 出队
+     *
+     * @return 队列为空时返回{@link #EMPTY}
+     */
+    public int poll() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    int value = values[index];
+                    sequences.lazySet(index, pos + mask + 1);
+                    return value;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return EMPTY;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    public int size() {
+        long size = tail.get() - head.get();
+        return size < 0 ? 0 : (int) size;
+    }
+}
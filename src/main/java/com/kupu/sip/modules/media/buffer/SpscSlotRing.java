@@ -0,0 +1,88 @@
+package com.kupu.sip.modules.media.buffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 有界无锁单生产者单消费者槽位环
+ * 槽位对象在创建时一次性分配并循环使用：生产者claim取得空闲槽位就地写入后publish，消费者peek读取后release，全程不分配内存。
+ * 同一时刻只能有一个生产者线程和一个消费者线程
+ */
+public class SpscSlotRing<T> {
+    private final int mask;
+    private final Object[] slots;
+    // 下一个待发布位置，生产者写，消费者读
+    private final AtomicLong tail = new AtomicLong();
+    // 下一个待消费位置，消费者写，生产者读
+    private final AtomicLong head = new AtomicLong();
+    // 生产者本地缓存的head，减少跨核读取
+    private long cachedHead;
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public SpscSlotRing(int capacity, Supplier<T> slotFactory) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.slots = new Object[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = slotFactory.get();
+        }
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * 生产者取得下一个空闲槽位，写入完成后须调用{@link #publish()}
+     *
+     * @return 环已满时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public T claim() {
+        long t = tail.get();
+        if (t - cachedHead >= slots.length) {
+            cachedHead = head.get();
+            if (t - cachedHead >= slots.length) {
+                return null;
+            }
+        }
+        return (T) slots[(int) t & mask];
+    }
+
+    /**
+     * 发布最近claim的槽位，对消费者可见
+     */
+    public void publish() {
+        tail.lazySet(tail.get() + 1);
+    }
+
+    /**
+     * 消费者读取最旧的已发布槽位，处理完成后须调用{@link #release()}
+     *
+     * @return 环为空时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        long h = head.get();
+        if (h >= tail.get()) {
+            return null;
+        }
+        return (T) slots[(int) h & mask];
+    }
+
+    /**
+     * 归还最近peek的槽位
+     */
+    public void release() {
+        head.lazySet(head.get() + 1);
+    }
+
+    /**
+     * 已发布未消费的槽位数，跨线程读取时为近似值
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+}
@@ -0,0 +1,62 @@
+package com.kupu.sip.modules.media.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 音频编解码器
+ * 编解码均写入调用方提供的缓冲区，实现不得在每帧上分配内存
+ */
+public interface AudioCodec {
+
+    /**
+     * RTP负载类型
+     */
+    int getPayloadType();
+
+    /**
+     * SDP rtpmap中的编码名称
+     */
+    String getEncodingName();
+
+    /**
+     * PCM采样率(Hz)
+     */
+    int getSampleRate();
+
+    /**
+     * RTP时间戳时钟频率(Hz)
+     */
+    int getRtpClockRate();
+
+    /**
+     * 解码负载为16位线性PCM
+     *
+     * @param src    负载所在缓冲区，按绝对位置读取，不改变position
+     * @param srcPos 负载起始位置
+     * @param length 负载字节数
+     * @param dst    PCM输出数组
+     * @param dstOff 输出起始下标
+     * @return 输出的采样点数
+     */
+    int decode(ByteBuffer src, int srcPos, int length, short[] dst, int dstOff);
+
+    /**
+     * 编码16位线性PCM为负载
+     *
+     * @param src     PCM输入数组
+     * @param srcOff  输入起始下标
+     * @param samples 采样点数
+     * @param dst     负载输出缓冲区，按绝对位置写入，不改变position
+     * @param dstPos  输出起始位置
+     * @return 输出的负载字节数
+     */
+    int encode(short[] src, int srcOff, int samples, ByteBuffer dst, int dstPos);
+
+    /**
+     * 为一个音频流取得编解码实例：无状态编码(G.711)返回自身，
+     * 有跨帧状态的编码(如G.722 ADPCM)返回独立的新实例，每路通话、每次提示音编码各用一个
+     */
+    default AudioCodec newSession() {
+        return this;
+    }
+}
@@ -0,0 +1,65 @@
+package com.kupu.sip.modules.media.codec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 支持的音频编码，按本端偏好排序
+ */
+public final class AudioCodecs {
+    private static final AudioCodec[] BY_PAYLOAD_TYPE = new AudioCodec[128];
+    private static final List<AudioCodec> SUPPORTED;
+
+    static {
+        List<AudioCodec> codecs = new ArrayList<>();
+        // 宽带优先，对端支持时ASR可得到16kHz音频
+        codecs.add(G722Codec.INSTANCE);
+        codecs.add(G711ALawCodec.INSTANCE);
+        codecs.add(G711ULawCodec.INSTANCE);
+        for (AudioCodec codec : codecs) {
+            BY_PAYLOAD_TYPE[codec.getPayloadType()] = codec;
+        }
+        SUPPORTED = Collections.unmodifiableList(codecs);
+    }
+
+    private AudioCodecs() {
+    }
+
+    /**
+     * 按负载类型查找编码
+     *
+     * @return 不支持时返回null
+     */
+    public static AudioCodec forPayloadType(int payloadType) {
+        return payloadType < 0 || payloadType >= BY_PAYLOAD_TYPE.length ? null : BY_PAYLOAD_TYPE[payloadType];
+    }
+
+    /**
+     * 按SDP rtpmap编码名称和时钟频率查找编码
+     * 部分终端把G.722写成G722/16000(实际采样率)，按采样率也能匹配
+     */
+    public static AudioCodec forEncodingName(String encodingName, int clockRate) {
+        for (AudioCodec codec : SUPPORTED) {
+            if (codec.getEncodingName().equalsIgnoreCase(encodingName)
+                    && (codec.getRtpClockRate() == clockRate || codec.getSampleRate() == clockRate)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 本端支持的编码，按偏好排序
+     */
+    public static List<AudioCodec> supported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * 默认编码
+     */
+    public static AudioCodec defaultCodec() {
+        return G711ALawCodec.INSTANCE;
+    }
+}
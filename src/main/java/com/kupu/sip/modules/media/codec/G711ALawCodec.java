@@ -0,0 +1,120 @@
+package com.kupu.sip.modules.media.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * G.711 A-law编解码器(PT=8)，查表实现
+ */
+public final class G711ALawCodec implements AudioCodec {
+    public static final int PAYLOAD_TYPE = 8;
+    public static final G711ALawCodec INSTANCE = new G711ALawCodec();
+
+    private static final byte[] LINEAR_TO_ALAW_TABLE = new byte[65536];
+    private static final short[] ALAW_TO_LINEAR_TABLE = new short[256];
+    private static final int QUANT_MASK = 0xF;
+    private static final int SEG_SHIFT = 4;
+    private static final int SIGN_BIT = 0x80;
+    // 13位线性值各段上界
+    private static final int[] SEG_END = {0x1F, 0x3F, 0x7F, 0xFF, 0x1FF, 0x3FF, 0x7FF, 0xFFF};
+
+    static {
+        for (int i = -32768; i <= 32767; i++) {
+            LINEAR_TO_ALAW_TABLE[i & 0xFFFF] = linearToALaw(i);
+        }
+        for (int i = 0; i < 256; i++) {
+            ALAW_TO_LINEAR_TABLE[i] = (short) aLawToLinear((byte) i);
+        }
+    }
+
+    private G711ALawCodec() {
+    }
+
+    @Override
+    public int getPayloadType() {
+        return PAYLOAD_TYPE;
+    }
+
+    @Override
+    public String getEncodingName() {
+        return "PCMA";
+    }
+
+    @Override
+    public int getSampleRate() {
+        return 8000;
+    }
+
+    @Override
+    public int getRtpClockRate() {
+        return 8000;
+    }
+
+    @Override
+    public int decode(ByteBuffer src, int srcPos, int length, short[] dst, int dstOff) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOff + i] = ALAW_TO_LINEAR_TABLE[src.get(srcPos + i) & 0xFF];
+        }
+        return length;
+    }
+
+    @Override
+    public int encode(short[] src, int srcOff, int samples, ByteBuffer dst, int dstPos) {
+        for (int i = 0; i < samples; i++) {
+            dst.put(dstPos + i, LINEAR_TO_ALAW_TABLE[src[srcOff + i] & 0xFFFF]);
+        }
+        return samples;
+    }
+
+    /**
+     * 单个A-law码字转线性采样
+     */
+    public static short decode(int alaw) {
+        return ALAW_TO_LINEAR_TABLE[alaw & 0xFF];
+    }
+
+    /**
+     * 单个线性采样转A-law码字
+     */
+    public static byte encode(int pcm) {
+        return LINEAR_TO_ALAW_TABLE[pcm & 0xFFFF];
+    }
+
+    private static byte linearToALaw(int pcm) {
+        int mask;
+        pcm >>= 3; // 16位转13位
+        if (pcm >= 0) {
+            mask = 0xD5;
+        } else {
+            mask = 0x55;
+            pcm = -pcm - 1;
+        }
+        int seg = 0;
+        while (seg < 8 && pcm > SEG_END[seg]) {
+            seg++;
+        }
+        if (seg >= 8) {
+            return (byte) (0x7F ^ mask);
+        }
+        int alaw = seg << SEG_SHIFT;
+        alaw |= seg < 2 ? (pcm >> 1) & QUANT_MASK : (pcm >> seg) & QUANT_MASK;
+        return (byte) (alaw ^ mask);
+    }
+
+    private static int aLawToLinear(byte alaw) {
+        int a = (alaw ^ 0x55) & 0xFF;
+        int t = (a & QUANT_MASK) << 4;
+        int seg = (a & 0x70) >> SEG_SHIFT;
+        switch (seg) {
+            case 0:
+                t += 8;
+                break;
+            case 1:
+                t += 0x108;
+                break;
+            default:
+                t += 0x108;
+                t <<= seg - 1;
+        }
+        return (a & SIGN_BIT) != 0 ? t : -t;
+    }
+}
@@ -0,0 +1,71 @@
+package com.kupu.sip.modules.media.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A-law与μ-law直接互转，单次查表完成，不经过线性PCM
+ */
+public final class G711Transcoder {
+    // G.711 表3/表4 的A律与μ律码字对应关系(按幅度索引，取自参考实现)
+    private static final int[] U2A = {
+            1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8,
+            9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24,
+            25, 27, 29, 31, 33, 34, 35, 36, 37, 38, 39, 40, 41, 42, 43, 44,
+            46, 48, 49, 50, 51, 52, 53, 54, 55, 56, 57, 58, 59, 60, 61, 62,
+            64, 65, 66, 67, 68, 69, 70, 71, 72, 73, 74, 75, 76, 77, 78, 79,
+            80, 82, 83, 84, 85, 86, 87, 88, 89, 90, 91, 92, 93, 94, 95, 96,
+            97, 98, 99, 100, 101, 102, 103, 104, 105, 106, 107, 108, 109, 110, 111, 112,
+            113, 114, 115, 116, 117, 118, 119, 120, 121, 122, 123, 124, 125, 126, 127, 128};
+    private static final int[] A2U = {
+            1, 3, 5, 7, 9, 11, 13, 15, 16, 17, 18, 19, 20, 21, 22, 23,
+            24, 25, 26, 27, 28, 29, 30, 31, 32, 32, 33, 33, 34, 34, 35, 35,
+            36, 37, 38, 39, 40, 41, 42, 43, 44, 45, 46, 47, 48, 48, 49, 49,
+            50, 51, 52, 53, 54, 55, 56, 57, 58, 59, 60, 61, 62, 63, 64, 64,
+            65, 66, 67, 68, 69, 70, 71, 72, 73, 74, 75, 76, 77, 78, 79, 80,
+            80, 81, 82, 83, 84, 85, 86, 87, 88, 89, 90, 91, 92, 93, 94, 95,
+            96, 97, 98, 99, 100, 101, 102, 103, 104, 105, 106, 107, 108, 109, 110, 111,
+            112, 113, 114, 115, 116, 117, 118, 119, 120, 121, 122, 123, 124, 125, 126, 127};
+    private static final byte[] ALAW_TO_ULAW = new byte[256];
+    private static final byte[] ULAW_TO_ALAW = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            ALAW_TO_ULAW[i] = (byte) ((i & 0x80) != 0 ? 0xFF ^ A2U[i ^ 0xD5] : 0x7F ^ A2U[i ^ 0x55]);
+            ULAW_TO_ALAW[i] = (byte) ((i & 0x80) != 0 ? 0xD5 ^ (U2A[0xFF ^ i] - 1) : 0x55 ^ (U2A[0x7F ^ i] - 1));
+        }
+    }
+
+    private G711Transcoder() {
+    }
+
+    public static byte alawToUlaw(int alaw) {
+        return ALAW_TO_ULAW[alaw & 0xFF];
+    }
+
+    public static byte ulawToAlaw(int ulaw) {
+        return ULAW_TO_ALAW[ulaw & 0xFF];
+    }
+
+    /**
+     * 两种G.711负载互转，源与目标可以是同一区域
+     *
+     * @param fromPayloadType 源负载类型
+     * @param toPayloadType   目标负载类型
+     * @return 是否支持该转换
+     */
+    public static boolean transcode(int fromPayloadType, ByteBuffer src, int srcPos, int length,
+                                    int toPayloadType, ByteBuffer dst, int dstPos) {
+        byte[] table;
+        if (fromPayloadType == G711ALawCodec.PAYLOAD_TYPE && toPayloadType == G711ULawCodec.PAYLOAD_TYPE) {
+            table = ALAW_TO_ULAW;
+        } else if (fromPayloadType == G711ULawCodec.PAYLOAD_TYPE && toPayloadType == G711ALawCodec.PAYLOAD_TYPE) {
+            table = ULAW_TO_ALAW;
+        } else {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            dst.put(dstPos + i, table[src.get(srcPos + i) & 0xFF]);
+        }
+        return true;
+    }
+}
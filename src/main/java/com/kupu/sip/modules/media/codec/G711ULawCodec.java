@@ -0,0 +1,115 @@
+package com.kupu.sip.modules.media.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * G.711 μ-law编解码器(PT=0)，查表实现：256项解码表，65536项编码表
+ */
+public final class G711ULawCodec implements AudioCodec {
+    public static final int PAYLOAD_TYPE = 0;
+    public static final G711ULawCodec INSTANCE = new G711ULawCodec();
+
+    private static final byte[] LINEAR_TO_ULAW_TABLE = new byte[65536];
+    private static final short[] ULAW_TO_LINEAR_TABLE = new short[256];
+    private static final int QUANT_MASK = 0xF;
+    private static final int SEG_MASK = 0x70;
+    private static final int SEG_SHIFT = 4;
+    private static final int SIGN_BIT = 0x80;
+    private static final int BIAS = 0x84;
+    private static final int CLIP = 8159;
+    // 14位线性值(含偏置)各段上界
+    private static final int[] SEG_END = {0x3F, 0x7F, 0xFF, 0x1FF, 0x3FF, 0x7FF, 0xFFF, 0x1FFF};
+
+    static {
+        for (int i = -32768; i <= 32767; i++) {
+            LINEAR_TO_ULAW_TABLE[i & 0xFFFF] = linearToULaw(i);
+        }
+        for (int i = 0; i < 256; i++) {
+            ULAW_TO_LINEAR_TABLE[i] = (short) uLawToLinear((byte) i);
+        }
+    }
+
+    private G711ULawCodec() {
+    }
+
+    @Override
+    public int getPayloadType() {
+        return PAYLOAD_TYPE;
+    }
+
+    @Override
+    public String getEncodingName() {
+        return "PCMU";
+    }
+
+    @Override
+    public int getSampleRate() {
+        return 8000;
+    }
+
+    @Override
+    public int getRtpClockRate() {
+        return 8000;
+    }
+
+    @Override
+    public int decode(ByteBuffer src, int srcPos, int length, short[] dst, int dstOff) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOff + i] = ULAW_TO_LINEAR_TABLE[src.get(srcPos + i) & 0xFF];
+        }
+        return length;
+    }
+
+    @Override
+    public int encode(short[] src, int srcOff, int samples, ByteBuffer dst, int dstPos) {
+        for (int i = 0; i < samples; i++) {
+            dst.put(dstPos + i, LINEAR_TO_ULAW_TABLE[src[srcOff + i] & 0xFFFF]);
+        }
+        return samples;
+    }
+
+    /**
+     * 单个μ-law码字转线性采样
+     */
+    public static short decode(int ulaw) {
+        return ULAW_TO_LINEAR_TABLE[ulaw & 0xFF];
+    }
+
+    /**
+     * 单个线性采样转μ-law码字
+     */
+    public static byte encode(int pcm) {
+        return LINEAR_TO_ULAW_TABLE[pcm & 0xFFFF];
+    }
+
+    private static byte linearToULaw(int pcm) {
+        int mask;
+        pcm >>= 2; // 16位转14位
+        if (pcm < 0) {
+            pcm = -pcm;
+            mask = 0x7F;
+        } else {
+            mask = 0xFF;
+        }
+        if (pcm > CLIP) {
+            pcm = CLIP;
+        }
+        pcm += BIAS >> 2;
+        int seg = 0;
+        while (seg < 8 && pcm > SEG_END[seg]) {
+            seg++;
+        }
+        if (seg >= 8) {
+            return (byte) (0x7F ^ mask);
+        }
+        int ulaw = (seg << SEG_SHIFT) | ((pcm >> (seg + 1)) & QUANT_MASK);
+        return (byte) (ulaw ^ mask);
+    }
+
+    private static int uLawToLinear(byte ulaw) {
+        int u = ~ulaw & 0xFF;
+        int t = ((u & QUANT_MASK) << 3) + BIAS;
+        t <<= (u & SEG_MASK) >> SEG_SHIFT;
+        return (u & SIGN_BIT) != 0 ? BIAS - t : t - BIAS;
+    }
+}
@@ -0,0 +1,125 @@
+package com.kupu.sip.modules.media.codec;
+
+/**
+ * G.722子带ADPCM的自适应预测器与量化步长状态，编码器与解码器共用(G.722 Block 3/4)
+ * 全部为16位定点整数运算，与参考实现逐位一致
+ */
+final class G722Band {
+    static final int[] ILB = {2048, 2093, 2139, 2186, 2233, 2282, 2332, 2383, 2435, 2489, 2543, 2599, 2656,
+            2714, 2774, 2834, 2896, 2960, 3025, 3091, 3158, 3228, 3298, 3371, 3444, 3520, 3597, 3676, 3756, 3838,
+            3922, 4008};
+
+    // 预测值 s = sp + sz
+    int s;
+    private int sp;
+    private int sz;
+    private final int[] r = new int[3];
+    private final int[] a = new int[3];
+    private final int[] ap = new int[3];
+    private final int[] p = new int[3];
+    private final int[] d = new int[7];
+    private final int[] b = new int[7];
+    private final int[] bp = new int[7];
+    private final int[] sg = new int[7];
+    // 对数量化步长
+    int nb;
+    // 线性量化步长
+    int det;
+
+    G722Band(int det) {
+        this.det = det;
+    }
+
+    /**
+     * Block 3 LOGSCL/SCALE：按本次码字更新量化步长
+     *
+     * @param weight 对数步长增量(WL/WH表)
+     * @param limit  对数步长上限
+     * @param shift  低频带8，高频带10
+     */
+    void scale(int weight, int limit, int shift) {
+        int wd = ((nb * 127) >> 7) + weight;
+        nb = wd < 0 ? 0 : wd > limit ? limit : wd;
+        int wd1 = (nb >> 6) & 31;
+        int wd2 = shift - (nb >> 11);
+        int wd3 = wd2 < 0 ? ILB[wd1] << -wd2 : ILB[wd1] >> wd2;
+        det = wd3 << 2;
+    }
+
+    /**
+     * Block 4：以量化差值更新零极点预测器并算出下一个预测值
+     */
+    void update(int dq) {
+        // RECONS / PARREC
+        d[0] = dq;
+        r[0] = saturate(s + dq);
+        p[0] = saturate(sz + dq);
+
+        // UPPOL2
+        for (int i = 0; i < 3; i++) {
+            sg[i] = p[i] >> 15;
+        }
+        int wd1 = saturate(a[1] << 2);
+        int wd2 = sg[0] == sg[1] ? -wd1 : wd1;
+        if (wd2 > 32767) {
+            wd2 = 32767;
+        }
+        int wd3 = (wd2 >> 7) + (sg[0] == sg[2] ? 128 : -128);
+        wd3 += (a[2] * 32512) >> 15;
+        ap[2] = wd3 > 12288 ? 12288 : wd3 < -12288 ? -12288 : wd3;
+
+        // UPPOL1
+        wd1 = sg[0] == sg[1] ? 192 : -192;
+        wd2 = (a[1] * 32640) >> 15;
+        ap[1] = saturate(wd1 + wd2);
+        wd3 = saturate(15360 - ap[2]);
+        if (ap[1] > wd3) {
+            ap[1] = wd3;
+        } else if (ap[1] < -wd3) {
+            ap[1] = -wd3;
+        }
+
+        // UPZERO
+        wd1 = dq == 0 ? 0 : 128;
+        sg[0] = dq >> 15;
+        for (int i = 1; i < 7; i++) {
+            sg[i] = d[i] >> 15;
+            wd2 = sg[i] == sg[0] ? wd1 : -wd1;
+            wd3 = (b[i] * 32640) >> 15;
+            bp[i] = saturate(wd2 + wd3);
+        }
+
+        // DELAYA
+        for (int i = 6; i > 0; i--) {
+            d[i] = d[i - 1];
+            b[i] = bp[i];
+        }
+        for (int i = 2; i > 0; i--) {
+            r[i] = r[i - 1];
+            p[i] = p[i - 1];
+            a[i] = ap[i];
+        }
+
+        // FILTEP
+        wd1 = saturate(r[1] + r[1]);
+        wd1 = (a[1] * wd1) >> 15;
+        wd2 = saturate(r[2] + r[2]);
+        wd2 = (a[2] * wd2) >> 15;
+        sp = saturate(wd1 + wd2);
+
+        // FILTEZ
+        int sum = 0;
+        for (int i = 6; i > 0; i--) {
+            wd1 = saturate(d[i] + d[i]);
+            sum += (b[i] * wd1) >> 15;
+        }
+        sz = saturate(sum);
+
+        // PREDIC
+        s = saturate(sp + sz);
+    }
+
+    static int saturate(int value) {
+        return value > 32767 ? 32767 : value < -32768 ? -32768 : value;
+    }
+}
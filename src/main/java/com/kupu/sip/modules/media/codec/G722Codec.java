@@ -0,0 +1,54 @@
+package com.kupu.sip.modules.media.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * G.722宽带编解码器(PT=9, 64kbit/s)
+ * PCM采样率16kHz，但按RFC 3551历史约定RTP时钟和SDP rtpmap均为8000(G722/8000)，时间戳每20ms推进160。
+ * ADPCM带有跨帧状态：{@link #INSTANCE}仅用于协商和查找，编解码使用{@link #newSession()}得到的独立实例
+ */
+public final class G722Codec implements AudioCodec {
+    public static final int PAYLOAD_TYPE = 9;
+    public static final G722Codec INSTANCE = new G722Codec();
+
+    private final G722Encoder encoder = new G722Encoder();
+    private final G722Decoder decoder = new G722Decoder();
+
+    private G722Codec() {
+    }
+
+    @Override
+    public int getPayloadType() {
+        return PAYLOAD_TYPE;
+    }
+
+    @Override
+    public String getEncodingName() {
+        return "G722";
+    }
+
+    @Override
+    public int getSampleRate() {
+        return 16000;
+    }
+
+    @Override
+    public int getRtpClockRate() {
+        return 8000;
+    }
+
+    @Override
+    public int decode(ByteBuffer src, int srcPos, int length, short[] dst, int dstOff) {
+        return decoder.decode(src, srcPos, length, dst, dstOff);
+    }
+
+    @Override
+    public int encode(short[] src, int srcOff, int samples, ByteBuffer dst, int dstPos) {
+        return encoder.encode(src, srcOff, samples, dst, dstPos);
+    }
+
+    @Override
+    public AudioCodec newSession() {
+        return new G722Codec();
+    }
+}
@@ -0,0 +1,63 @@
+package com.kupu.sip.modules.media.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * G.722 64kbit/s解码器(每字节输出两个16kHz采样)，整数运算，状态跨帧保留，每个音频流一个实例
+ */
+final class G722Decoder {
+    private static final int[] QM6 = {-136, -136, -136, -136, -24808, -21904, -19008, -16704, -14984, -13512,
+            -12280, -11192, -10232, -9360, -8576, -7856, -7192, -6576, -6000, -5456, -4944, -4464, -4008, -3576,
+            -3168, -2776, -2400, -2032, -1688, -1360, -1040, -728, 24808, 21904, 19008, 16704, 14984, 13512, 12280,
+            11192, 10232, 9360, 8576, 7856, 7192, 6576, 6000, 5456, 4944, 4464, 4008, 3576, 3168, 2776, 2400, 2032,
+            1688, 1360, 1040, 728, 432, 136, -432, -136};
+
+    private final G722Band low = new G722Band(32);
+    private final G722Band high = new G722Band(8);
+    // 接收QMF延迟线
+    private final int[] x = new int[24];
+
+    /**
+     * @return 输出采样数(字节数*2)
+     */
+    int decode(ByteBuffer src, int srcPos, int length, short[] dst, int dstOff) {
+        int[] x = this.x;
+        int[] qmf = G722Encoder.QMF_COEFFS;
+        for (int n = 0; n < length; n++) {
+            int code = src.get(srcPos + n) & 0xFF;
+            int iLow = code & 0x3F;
+            int iHigh = code >> 6;
+
+            // 低频带：INVQBL、RECONS、LIMIT
+            int rLow = low.s + ((low.det * QM6[iLow]) >> 15);
+            rLow = rLow > 16383 ? 16383 : rLow < -16384 ? -16384 : rLow;
+            // INVQAL、LOGSCL、SCALEL
+            int ril = iLow >> 2;
+            int dLow = (low.det * G722Encoder.QM4[ril]) >> 15;
+            low.scale(G722Encoder.WL[G722Encoder.RL42[ril]], 18432, 8);
+            low.update(dLow);
+
+            // 高频带：INVQAH、RECONS、LIMIT
+            int dHigh = (high.det * G722Encoder.QM2[iHigh]) >> 15;
+            int rHigh = dHigh + high.s;
+            rHigh = rHigh > 16383 ? 16383 : rHigh < -16384 ? -16384 : rHigh;
+            // LOGSCH、SCALEH
+            high.scale(G722Encoder.WH[G722Encoder.RH2[iHigh]], 22528, 10);
+            high.update(dHigh);
+
+            // 接收QMF合成两个采样
+            System.arraycopy(x, 2, x, 0, 22);
+            x[22] = rLow + rHigh;
+            x[23] = rLow - rHigh;
+            int out1 = 0;
+            int out2 = 0;
+            for (int i = 0; i < 12; i++) {
+                out2 += x[2 * i] * qmf[i];
+                out1 += x[2 * i + 1] * qmf[11 - i];
+            }
+            dst[dstOff + 2 * n] = (short) G722Band.saturate(out1 >> 11);
+            dst[dstOff + 2 * n + 1] = (short) G722Band.saturate(out2 >> 11);
+        }
+        return length * 2;
+    }
+}
@@ -0,0 +1,94 @@
+package com.kupu.sip.modules.media.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * G.722 64kbit/s编码器(16kHz PCM，每两个采样输出一个字节)
+ * 发送QMF把输入分为高低两个子带，低带6位、高带2位ADPCM；全部为整数运算。状态跨帧保留，每个音频流一个实例
+ */
+final class G722Encoder {
+    static final int[] QMF_COEFFS = {3, -11, 12, 32, -210, 951, 3876, -805, 362, -156, 53, -11};
+    private static final int[] Q6 = {0, 35, 72, 110, 150, 190, 233, 276, 323, 370, 422, 473, 530, 587, 650, 714,
+            786, 858, 940, 1023, 1121, 1219, 1339, 1458, 1612, 1765, 1980, 2195, 2557, 2919, 0, 0};
+    private static final int[] ILN = {0, 63, 62, 31, 30, 29, 28, 27, 26, 25, 24, 23, 22, 21, 20, 19, 18, 17, 16, 15,
+            14, 13, 12, 11, 10, 9, 8, 7, 6, 5, 4, 0};
+    private static final int[] ILP = {0, 61, 60, 59, 58, 57, 56, 55, 54, 53, 52, 51, 50, 49, 48, 47, 46, 45, 44, 43,
+            42, 41, 40, 39, 38, 37, 36, 35, 34, 33, 32, 0};
+    static final int[] WL = {-60, -30, 58, 172, 334, 538, 1198, 3042};
+    static final int[] RL42 = {0, 7, 6, 5, 4, 3, 2, 1, 7, 6, 5, 4, 3, 2, 1, 0};
+    static final int[] QM4 = {0, -20456, -12896, -8968, -6288, -4240, -2584, -1200, 20456, 12896, 8968, 6288, 4240,
+            2584, 1200, 0};
+    static final int[] QM2 = {-7408, -1616, 7408, 1616};
+    private static final int[] IHN = {0, 1, 0};
+    private static final int[] IHP = {0, 3, 2};
+    static final int[] WH = {0, -214, 798};
+    static final int[] RH2 = {2, 1, 2, 1};
+
+    private final G722Band low = new G722Band(32);
+    private final G722Band high = new G722Band(8);
+    // 发送QMF延迟线
+    private final int[] x = new int[24];
+
+    /**
+     * @return 输出字节数(采样数/2，奇数个采样时末采样被忽略)
+     */
+    int encode(short[] src, int srcOff, int samples, ByteBuffer dst, int dstPos) {
+        int bytes = samples >> 1;
+        int[] x = this.x;
+        for (int n = 0; n < bytes; n++) {
+            System.arraycopy(x, 2, x, 0, 22);
+            x[22] = src[srcOff + 2 * n];
+            x[23] = src[srcOff + 2 * n + 1];
+            int sumEven = 0;
+            int sumOdd = 0;
+            for (int i = 0; i < 12; i++) {
+                sumOdd += x[2 * i] * QMF_COEFFS[i];
+                sumEven += x[2 * i + 1] * QMF_COEFFS[11 - i];
+            }
+            int xLow = (sumEven + sumOdd) >> 14;
+            int xHigh = (sumEven - sumOdd) >> 14;
+
+            // 低频带：SUBTRA、QUANTL
+            int el = G722Band.saturate(xLow - low.s);
+            int wd = el >= 0 ? el : -(el + 1);
+            int i = quantizeLow(wd, low.det);
+            int iLow = el < 0 ? ILN[i] : ILP[i];
+            // INVQAL、LOGSCL、SCALEL
+            int ril = iLow >> 2;
+            int dLow = (low.det * QM4[ril]) >> 15;
+            low.scale(WL[RL42[ril]], 18432, 8);
+            low.update(dLow);
+
+            // 高频带：SUBTRA、QUANTH
+            int eh = G722Band.saturate(xHigh - high.s);
+            wd = eh >= 0 ? eh : -(eh + 1);
+            int mih = wd >= (564 * high.det) >> 12 ? 2 : 1;
+            int iHigh = eh < 0 ? IHN[mih] : IHP[mih];
+            // INVQAH、LOGSCH、SCALEH
+            int dHigh = (high.det * QM2[iHigh]) >> 15;
+            high.scale(WH[RH2[iHigh]], 22528, 10);
+            high.update(dHigh);
+
+            dst.put(dstPos + n, (byte) (iHigh << 6 | iLow));
+        }
+        return bytes;
+    }
+
+    /**
+     * 量化区间判定：取第一个满足 wd < Q6[i] * det / 4096 的i(1..29)，都不满足时为30
+     * 门限随i单调，二分查找代替逐级比较
+     */
+    private static int quantizeLow(int wd, int det) {
+        int lo = 1;
+        int hi = 30;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (wd < (Q6[mid] * det) >> 12) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+}
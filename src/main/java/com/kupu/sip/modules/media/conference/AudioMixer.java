@@ -0,0 +1,38 @@
+package com.kupu.sip.modules.media.conference;
+
+/**
+ * 混音内核：在int累加器上求和，写回16位时饱和。
+ * 各方法都是从0开始的单一顺序数组循环，没有分支与跨元素依赖，JIT可自动向量化
+ */
+public final class AudioMixer {
+
+    private AudioMixer() {
+    }
+
+    /**
+     * acc[i] += src[i]
+     */
+    public static void add(int[] acc, short[] src, int samples) {
+        for (int i = 0; i < samples; i++) {
+            acc[i] += src[i];
+        }
+    }
+
+    /**
+     * 累加和饱和到16位
+     */
+    public static void saturate(int[] acc, short[] dst, int samples) {
+        for (int i = 0; i < samples; i++) {
+            dst[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, acc[i]));
+        }
+    }
+
+    /**
+     * 累加和减去成员自身的输入后饱和到16位，即该成员听到的"mix minus self"
+     */
+    public static void subtractSaturate(int[] acc, short[] self, short[] dst, int samples) {
+        for (int i = 0; i < samples; i++) {
+            dst[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, acc[i] - self[i]));
+        }
+    }
+}
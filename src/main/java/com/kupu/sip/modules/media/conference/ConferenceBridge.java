@@ -0,0 +1,149 @@
+package com.kupu.sip.modules.media.conference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.reactor.MediaEventLoop;
+import com.kupu.sip.modules.media.reactor.MediaTickHandler;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 会议桥
+ * 一个会议绑定一个事件循环，由该循环的媒体节拍驱动混音；成员通话可以在任意循环上，经成员的无锁环交换音频。
+ * 会议与通话一样计入所在循环的负载；第一个成员加入时开始混音，最后一个成员退出后会议关闭，不能再加入。
+ * 创建后第一个成员未能加入时由创建方调用{@link #closeIfEmpty()}关闭
+ */
+@Slf4j
+public class ConferenceBridge implements MediaTickHandler {
+    private final String conferenceId;
+    private final MediaEventLoop eventLoop;
+    private final ConferenceMixer mixer;
+    private final int maxParticipants;
+    private final Consumer<ConferenceBridge> onClosed;
+    // 成员数与关闭标记，加入/退出时加锁
+    private int members;
+    private boolean closed;
+
+    /**
+     * @param eventLoop 由{@link com.kupu.sip.modules.media.reactor.MediaReactor#nextLoop()}取得，会议关闭时解绑
+     * @param onClosed  会议关闭时回调
+     */
+    public ConferenceBridge(String conferenceId, MediaEventLoop eventLoop, int sampleRate, int gateRms,
+                            int maxParticipants, Consumer<ConferenceBridge> onClosed) {
+        this.conferenceId = conferenceId;
+        this.eventLoop = eventLoop;
+        this.mixer = new ConferenceMixer(sampleRate, gateRms);
+        this.maxParticipants = maxParticipants;
+        this.onClosed = onClosed;
+    }
+
+    public String getConferenceId() {
+        return conferenceId;
+    }
+
+    /**
+     * 加入会议，下一节拍起参与混音
+     *
+     * @param codec 成员通话协商的编码
+     * @return 会议已关闭时返回null
+     * @throws IllegalStateException 会议人数已满
+     */
+    public ConferenceParticipant join(String callId, AudioCodec codec, ConferenceRole role) {
+        boolean first;
+        synchronized (this) {
+            if (closed) {
+                return null;
+            }
+            if (members >= maxParticipants) {
+                throw new IllegalStateException("会议人数已满: " + conferenceId);
+            }
+            first = members++ == 0;
+        }
+        ConferenceParticipant participant = new ConferenceParticipant(callId, this, codec, role, mixer.getSampleRate());
+        eventLoop.execute(() -> {
+            mixer.add(participant);
+            log.info("加入会议 conferenceId: {}, callId: {}, 角色: {}, 编码: {}, 共用编码: {}", conferenceId, callId, role,
+                    codec.getEncodingName(), participant.shared);
+        });
+        if (first) {
+            eventLoop.addTickHandler(this);
+        }
+        return participant;
+    }
+
+    /**
+     * 成员退出，重复调用忽略
+     */
+    void leave(ConferenceParticipant participant) {
+        boolean last;
+        synchronized (this) {
+            if (participant.left) {
+                return;
+            }
+            participant.left = true;
+            last = --members == 0;
+            closed = last;
+        }
+        eventLoop.execute(() -> {
+            mixer.remove(participant);
+            log.info("退出会议 conferenceId: {}, callId: {}, 丢帧: {}", conferenceId, participant.getCallId(),
+                    participant.getDroppedFrames());
+            if (last) {
+                eventLoop.removeTickHandler(this);
+                eventLoop.detachSession();
+                log.info("会议已关闭 conferenceId: {}, 节拍: {}, 共用编码: {}, 独立编码: {}", conferenceId,
+                        mixer.getTicks(), mixer.getSharedEncodes(), mixer.getPrivateEncodes());
+            }
+        });
+        if (last) {
+            onClosed.accept(this);
+        }
+    }
+
+    /**
+     * 没有成员时关闭会议并解绑事件循环，用于创建后第一个成员未能加入(如通话恰好结束)的情况
+     *
+     * @return 本次调用关闭了会议时返回true
+     */
+    public boolean closeIfEmpty() {
+        synchronized (this) {
+            if (closed || members > 0) {
+                return false;
+            }
+            closed = true;
+        }
+        // 从未有成员加入，未注册节拍
+        eventLoop.detachSession();
+        log.info("会议未有成员加入，已关闭 conferenceId: {}", conferenceId);
+        onClosed.accept(this);
+        return true;
+    }
+
+    @Override
+    public void onTick(long nowNanos) {
+        mixer.mix();
+    }
+
+    public ConferenceStats getStats() {
+        ConferenceStats stats = new ConferenceStats();
+        stats.setConferenceId(conferenceId);
+        stats.setEventLoop(eventLoop.getIndex());
+        stats.setSampleRate(mixer.getSampleRate());
+        List<String> callIds = new ArrayList<>();
+        long dropped = 0;
+        for (ConferenceParticipant participant : mixer.getParticipants()) {
+            callIds.add(participant.getCallId());
+            dropped += participant.getDroppedFrames();
+        }
+        stats.setParticipants(callIds);
+        stats.setTalking(mixer.getTalking());
+        stats.setTicks(mixer.getTicks());
+        stats.setSharedEncodes(mixer.getSharedEncodes());
+        stats.setPrivateEncodes(mixer.getPrivateEncodes());
+        stats.setDroppedFrames(dropped);
+        return stats;
+    }
+}
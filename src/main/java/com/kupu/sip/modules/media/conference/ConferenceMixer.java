@@ -0,0 +1,193 @@
+package com.kupu.sip.modules.media.conference;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.conference.ConferenceParticipant.PayloadSlot;
+import com.kupu.sip.modules.media.conference.ConferenceParticipant.PcmSlot;
+
+/**
+ * 会议混音器，仅在会议所在的事件循环线程上使用
+ * 每个节拍把发言成员的入向语音与所有成员的本地放音累加到int数组，饱和得到全混音：
+ * 发言成员听到"mix minus self"(全混音减去自己的语音)，各自编码；未发言的成员听到的都是全混音，
+ * 同一无状态编码只编码一次后复制负载。能量低于噪声门的语音不参与混音，既避免多路底噪叠加，也让安静的成员走共用编码
+ */
+public final class ConferenceMixer {
+    private static final int PTIME_MS = 20;
+
+    private final int sampleRate;
+    private final int frameSamples;
+    private final long gateMeanSquare;
+    private final int[] acc;
+    private final short[] mix;
+    private volatile ConferenceParticipant[] participants = new ConferenceParticipant[0];
+    private OutputGroup[] groups = new OutputGroup[0];
+
+    private long ticks;
+    private long sharedEncodes;
+    private long privateEncodes;
+    private int talking;
+
+    /**
+     * @param sampleRate 混音采样率
+     * @param gateRms    噪声门(RMS)，低于该值的语音帧不参与混音
+     */
+    public ConferenceMixer(int sampleRate, int gateRms) {
+        this.sampleRate = sampleRate;
+        this.frameSamples = sampleRate * PTIME_MS / 1000;
+        this.gateMeanSquare = (long) gateRms * gateRms;
+        this.acc = new int[frameSamples];
+        this.mix = new short[frameSamples];
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    void add(ConferenceParticipant participant) {
+        ConferenceParticipant[] next = Arrays.copyOf(participants, participants.length + 1);
+        next[next.length - 1] = participant;
+        participants = next;
+        regroup();
+    }
+
+    void remove(ConferenceParticipant participant) {
+        List<ConferenceParticipant> next = new ArrayList<>(Arrays.asList(participants));
+        next.remove(participant);
+        participants = next.toArray(new ConferenceParticipant[0]);
+        regroup();
+    }
+
+    /**
+     * 按编码实例为可共用编码的成员分组
+     */
+    private void regroup() {
+        List<OutputGroup> next = new ArrayList<>();
+        for (ConferenceParticipant p : participants) {
+            p.group = -1;
+            if (!p.shared) {
+                continue;
+            }
+            for (int i = 0; i < next.size() && p.group < 0; i++) {
+                if (next.get(i).codec == p.getEncoder()) {
+                    p.group = i;
+                }
+            }
+            if (p.group < 0) {
+                p.group = next.size();
+                next.add(new OutputGroup(p.getEncoder()));
+            }
+        }
+        groups = next.toArray(new OutputGroup[0]);
+    }
+
+    /**
+     * 混音一个节拍：每个成员取一帧输入，输出一帧编码后的负载
+     */
+    public void mix() {
+        ConferenceParticipant[] ps = participants;
+        if (ps.length == 0) {
+            return;
+        }
+        int n = frameSamples;
+        int[] acc = this.acc;
+        Arrays.fill(acc, 0);
+        int talkingCount = 0;
+        for (ConferenceParticipant p : ps) {
+            p.talking = false;
+            PcmSlot voice = p.take(p.voice);
+            if (voice != null) {
+                if (p.getRole() == ConferenceRole.SPEAKER) {
+                    if (voice.meanSquare >= gateMeanSquare) {
+                        p.hangover = ConferenceParticipant.HANGOVER_FRAMES;
+                        p.talking = true;
+                    } else if (p.hangover > 0) {
+                        p.hangover--;
+                        p.talking = true;
+                    }
+                }
+                if (p.talking) {
+                    // 语音帧保留到输出阶段用于减去自己
+                    AudioMixer.add(acc, voice.pcm, n);
+                    talkingCount++;
+                } else {
+                    p.release(p.voice);
+                }
+            }
+            PcmSlot local = p.take(p.local);
+            if (local != null) {
+                AudioMixer.add(acc, local.pcm, n);
+                p.release(p.local);
+            }
+        }
+        AudioMixer.saturate(acc, mix, n);
+        long tick = ++ticks;
+        for (ConferenceParticipant p : ps) {
+            PayloadSlot out = p.output.claim();
+            if (out == null) {
+                p.mixerDrops++; // 成员通话未及时取走
+            } else if (p.talking) {
+                AudioMixer.subtractSaturate(acc, p.voice.peek().pcm, p.mixMinus, n);
+                out.length = p.encode(p.mixMinus, out);
+                privateEncodes++;
+                p.output.publish();
+            } else if (p.group >= 0) {
+                OutputGroup group = groups[p.group];
+                if (group.tick != tick) {
+                    group.length = group.codec.encode(mix, 0, n, group.buffer, 0);
+                    group.tick = tick;
+                    sharedEncodes++;
+                }
+                System.arraycopy(group.payload, 0, out.payload, 0, group.length);
+                out.length = group.length;
+                p.output.publish();
+            } else {
+                out.length = p.encode(mix, out);
+                privateEncodes++;
+                p.output.publish();
+            }
+            if (p.talking) {
+                p.release(p.voice);
+            }
+        }
+        talking = talkingCount;
+    }
+
+    ConferenceParticipant[] getParticipants() {
+        return participants;
+    }
+
+    long getTicks() {
+        return ticks;
+    }
+
+    long getSharedEncodes() {
+        return sharedEncodes;
+    }
+
+    long getPrivateEncodes() {
+        return privateEncodes;
+    }
+
+    int getTalking() {
+        return talking;
+    }
+
+    /**
+     * 共用同一无状态编码的成员组，每节拍至多编码一次
+     */
+    private static final class OutputGroup {
+        final AudioCodec codec;
+        final byte[] payload = new byte[ConferenceParticipant.MAX_PAYLOAD_SIZE];
+        final ByteBuffer buffer = ByteBuffer.wrap(payload);
+        int length;
+        long tick = -1;
+
+        OutputGroup(AudioCodec codec) {
+            this.codec = codec;
+        }
+    }
+}
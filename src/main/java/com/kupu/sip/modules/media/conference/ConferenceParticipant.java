@@ -0,0 +1,240 @@
+package com.kupu.sip.modules.media.conference;
+
+import java.nio.ByteBuffer;
+
+import com.kupu.sip.modules.media.buffer.SpscSlotRing;
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.resample.PolyphaseResampler;
+import com.kupu.sip.modules.media.vad.FrameEnergy;
+
+/**
+ * 会议成员
+ * 成员通话与会议可能在不同的事件循环上：成员通话的循环把解码后的入向语音和本地放音按会议帧长(已重采样到会议采样率)
+ * 写入两个单生产者单消费者环，会议循环每节拍各取一帧参与混音，再把编码好的出向负载写入输出环，由成员通话的循环在发送时取走。
+ * 环中积压超过{@link #MAX_LAG_FRAMES}帧时丢弃最旧的帧，跨循环引入的时延不超过该值
+ */
+public class ConferenceParticipant {
+    static final int RING_CAPACITY = 8;
+    static final int MAX_LAG_FRAMES = 3;
+    // 发言成员能量低于噪声门后继续参与混音的帧数，避免切掉语句尾音
+    static final int HANGOVER_FRAMES = 10;
+    private static final int PTIME_MS = 20;
+    static final int MAX_PAYLOAD_SIZE = 480;
+
+    private final String callId;
+    private final ConferenceBridge bridge;
+    private volatile ConferenceRole role;
+    // 编码实例仅在会议循环上使用，与通话自身的编解码实例分开
+    private final AudioCodec encoder;
+    // 本地放音负载解码为PCM，仅在成员通话的循环上使用
+    private final AudioCodec localDecoder;
+    private final int frameSamples;
+    // 无状态编码且采样率与会议一致时，未发言期间与同编码成员共用一次编码
+    final boolean shared;
+
+    final SpscSlotRing<PcmSlot> voice;
+    final SpscSlotRing<PcmSlot> local;
+    final SpscSlotRing<PayloadSlot> output;
+
+    // 成员通话循环侧
+    private final PolyphaseResampler voiceResampler;
+    private final PolyphaseResampler localResampler;
+    private final short[] resampled;
+    private final short[] localPcm;
+
+    // 会议循环侧
+    private final PolyphaseResampler outputResampler;
+    private final short[] codecPcm;
+    final short[] mixMinus;
+    int group = -1;
+    boolean talking;
+    int hangover;
+
+    // 由会议的成员变更锁保护
+    boolean left;
+    // 成员通话循环与会议循环各自累加的丢帧数
+    private long callLoopDrops;
+    long mixerDrops;
+
+    ConferenceParticipant(String callId, ConferenceBridge bridge, AudioCodec codec, ConferenceRole role, int sampleRate) {
+        this.callId = callId;
+        this.bridge = bridge;
+        this.role = role;
+        this.encoder = codec.newSession();
+        this.localDecoder = codec.newSession();
+        this.frameSamples = sampleRate * PTIME_MS / 1000;
+        int codecRate = codec.getSampleRate();
+        int codecSamples = codecRate * PTIME_MS / 1000;
+        this.shared = codec.newSession() == codec && codecRate == sampleRate;
+        this.voice = new SpscSlotRing<>(RING_CAPACITY, () -> new PcmSlot(frameSamples));
+        this.local = new SpscSlotRing<>(RING_CAPACITY, () -> new PcmSlot(frameSamples));
+        this.output = new SpscSlotRing<>(RING_CAPACITY, PayloadSlot::new);
+        if (codecRate != sampleRate) {
+            this.voiceResampler = new PolyphaseResampler(codecRate, sampleRate);
+            this.localResampler = new PolyphaseResampler(codecRate, sampleRate);
+            this.outputResampler = new PolyphaseResampler(sampleRate, codecRate);
+        } else {
+            this.voiceResampler = null;
+            this.localResampler = null;
+            this.outputResampler = null;
+        }
+        // 入向帧长不限于20ms(对端ptime可能更长)
+        this.resampled = new short[voiceResampler == null ? 0 : voiceResampler.maxOutputSamples(codecSamples * 3)];
+        this.localPcm = new short[codecSamples * 3];
+        this.codecPcm = new short[outputResampler == null ? 0 : outputResampler.maxOutputSamples(frameSamples)];
+        this.mixMinus = new short[frameSamples];
+    }
+
+    public String getCallId() {
+        return callId;
+    }
+
+    public ConferenceBridge getBridge() {
+        return bridge;
+    }
+
+    public ConferenceRole getRole() {
+        return role;
+    }
+
+    /**
+     * 切换角色，下一节拍生效
+     */
+    public void setRole(ConferenceRole role) {
+        this.role = role;
+    }
+
+    /**
+     * 退出会议
+     */
+    public void leave() {
+        bridge.leave(this);
+    }
+
+    // ---------------- 成员通话循环侧 ----------------
+
+    /**
+     * 写入一帧解码后的入向语音(含丢包补偿帧)，采样率为通话编码的采样率
+     */
+    public void offerVoice(short[] pcm, int off, int samples) {
+        if (voiceResampler != null) {
+            samples = voiceResampler.process(pcm, off, Math.min(samples, localPcm.length), resampled, 0);
+            pcm = resampled;
+            off = 0;
+        }
+        enqueue(voice, pcm, off, samples);
+    }
+
+    /**
+     * 写入本通话本节拍的放音负载，解码后混入会议，本成员与其他成员都能听到
+     */
+    public void offerLocal(ByteBuffer payload, int pos, int length) {
+        int samples = localDecoder.decode(payload, pos, length, localPcm, 0);
+        short[] pcm = localPcm;
+        if (localResampler != null) {
+            samples = localResampler.process(localPcm, 0, samples, resampled, 0);
+            pcm = resampled;
+        }
+        enqueue(local, pcm, 0, samples);
+    }
+
+    /**
+     * 取出下一帧出向负载写入RTP发送帧
+     *
+     * @return 负载字节数，暂无输出时为0
+     */
+    public int pollOutput(ByteBuffer packet, int payloadPos) {
+        SpscSlotRing<PayloadSlot> ring = output;
+        while (ring.size() > MAX_LAG_FRAMES) {
+            ring.release();
+            callLoopDrops++;
+        }
+        PayloadSlot slot = ring.peek();
+        if (slot == null) {
+            return 0;
+        }
+        int length = slot.length;
+        packet.position(payloadPos);
+        packet.put(slot.payload, 0, length);
+        packet.position(0);
+        ring.release();
+        return length;
+    }
+
+    /**
+     * 按会议帧长装入环，不足一帧的部分留在已claim的槽位中等待后续样本
+     */
+    private void enqueue(SpscSlotRing<PcmSlot> ring, short[] pcm, int off, int samples) {
+        while (samples > 0) {
+            PcmSlot slot = ring.claim();
+            if (slot == null) {
+                callLoopDrops++;
+                return;
+            }
+            int n = Math.min(samples, frameSamples - slot.samples);
+            System.arraycopy(pcm, off, slot.pcm, slot.samples, n);
+            slot.samples += n;
+            off += n;
+            samples -= n;
+            if (slot.samples == frameSamples) {
+                slot.meanSquare = FrameEnergy.meanSquare(slot.pcm, 0, frameSamples);
+                ring.publish();
+            }
+        }
+    }
+
+    // ---------------- 会议循环侧 ----------------
+
+    /**
+     * 取本节拍的一帧输入，积压过多时先丢弃最旧的帧
+     */
+    PcmSlot take(SpscSlotRing<PcmSlot> ring) {
+        while (ring.size() > MAX_LAG_FRAMES) {
+            ring.peek().samples = 0;
+            ring.release();
+            mixerDrops++;
+        }
+        return ring.peek();
+    }
+
+    void release(SpscSlotRing<PcmSlot> ring) {
+        ring.peek().samples = 0;
+        ring.release();
+    }
+
+    /**
+     * 以本成员自己的编码实例编码一帧会议采样率的PCM
+     */
+    int encode(short[] pcm, PayloadSlot slot) {
+        int samples = frameSamples;
+        if (outputResampler != null) {
+            samples = outputResampler.process(pcm, 0, frameSamples, codecPcm, 0);
+            pcm = codecPcm;
+        }
+        return encoder.encode(pcm, 0, samples, slot.buffer, 0);
+    }
+
+    AudioCodec getEncoder() {
+        return encoder;
+    }
+
+    long getDroppedFrames() {
+        return callLoopDrops + mixerDrops;
+    }
+
+    static final class PcmSlot {
+        final short[] pcm;
+        int samples;
+        long meanSquare;
+
+        PcmSlot(int frameSamples) {
+            this.pcm = new short[frameSamples];
+        }
+    }
+
+    static final class PayloadSlot {
+        final byte[] payload = new byte[MAX_PAYLOAD_SIZE];
+        final ByteBuffer buffer = ByteBuffer.wrap(payload);
+        int length;
+    }
+}
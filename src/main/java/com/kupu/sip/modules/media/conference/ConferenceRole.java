@@ -0,0 +1,11 @@
+package com.kupu.sip.modules.media.conference;
+
+/**
+ * 会议成员角色
+ */
+public enum ConferenceRole {
+    // 发言并收听其他成员
+    SPEAKER,
+    // 只收听不发言，用于坐席监听
+    LISTENER
+}
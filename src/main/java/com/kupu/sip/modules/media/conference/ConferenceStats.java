@@ -0,0 +1,25 @@
+package com.kupu.sip.modules.media.conference;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * 会议混音统计，跨线程读取时为近似值
+ */
+@Data
+public class ConferenceStats {
+    private String conferenceId;
+    private int eventLoop;
+    private int sampleRate;
+    private List<String> participants;
+    // 当前参与混音(发言中)的成员数
+    private int talking;
+    private long ticks;
+    // 未发言成员共用的混音编码次数，每个编码每节拍至多一次
+    private long sharedEncodes;
+    // 发言成员各自"mix minus self"及需独立编码成员的编码次数
+    private long privateEncodes;
+    // 入向积压或出向未及时取走而丢弃的帧
+    private long droppedFrames;
+}
@@ -0,0 +1,175 @@
+package com.kupu.sip.modules.media.controller;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kupu.sip.modules.media.MediaSessionRegistry;
+import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.conference.ConferenceRole;
+import com.kupu.sip.modules.media.conference.ConferenceStats;
+import com.kupu.sip.modules.media.prompt.PromptCache;
+import com.kupu.sip.modules.media.prompt.PromptCacheStats;
+import com.kupu.sip.modules.media.reactor.MediaClockStats;
+import com.kupu.sip.modules.media.reactor.MediaReactor;
+import com.kupu.sip.modules.media.record.RecordingResult;
+import com.kupu.sip.modules.media.record.RecordingStats;
+import com.kupu.sip.modules.media.relay.RelayMode;
+import com.kupu.sip.modules.media.rtcp.CallQualityStats;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/media")
+@RequiredArgsConstructor
+public class MediaController {
+
+    private final MediaReactor mediaReactor;
+    private final PromptCache promptCache;
+    private final MediaSessionRegistry mediaSessionRegistry;
+
+    /**
+     * 媒体时钟发送偏差直方图，按事件循环及汇总
+     */
+    @GetMapping("/clock")
+    public Map<String, Object> clockStats() {
+        List<MediaClockStats> loops = mediaReactor.getClockStats();
+        MediaClockStats total = new MediaClockStats();
+        total.setLoopIndex(-1);
+        for (MediaClockStats stats : loops) {
+            total.merge(stats);
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("loops", loops);
+        result.put("total", total);
+        result.put("p50Micros", total.percentileMicros(0.5));
+        result.put("p99Micros", total.percentileMicros(0.99));
+        return result;
+    }
+
+    /**
+     * 提示音缓存统计
+     */
+    @GetMapping("/prompts")
+    public PromptCacheStats promptStats() {
+        return promptCache.getStats();
+    }
+
+    /**
+     * 通话质量：进行中的通话及最近结束的通话
+     */
+    @GetMapping("/quality")
+    public Map<String, Object> quality() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("active", mediaSessionRegistry.getActiveQualityStats());
+        result.put("recent", mediaSessionRegistry.getRecentQualityStats());
+        return result;
+    }
+
+    /**
+     * 单个通话的质量统计
+     */
+    @GetMapping("/quality/{callId:.+}")
+    public ResponseEntity<CallQualityStats> quality(@PathVariable String callId) {
+        CallQualityStats stats = mediaSessionRegistry.getQualityStats(callId);
+        return stats == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(stats);
+    }
+
+    /**
+     * 录音写盘统计
+     */
+    @GetMapping("/recording")
+    public RecordingStats recordingStats() {
+        return mediaSessionRegistry.getRecordingWriter().getStats();
+    }
+
+    /**
+     * 开始录制指定通话
+     */
+    @PostMapping("/recording/{callId:.+}/start")
+    public ResponseEntity<Void> startRecording(@PathVariable String callId) {
+        RtpMediaManager session = mediaSessionRegistry.getSession(callId);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        session.startRecording();
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * 结束指定通话的录音，写盘及导出完成后返回
+     */
+    @PostMapping("/recording/{callId:.+}/stop")
+    public CompletableFuture<ResponseEntity<RecordingResult>> stopRecording(@PathVariable String callId) {
+        RtpMediaManager session = mediaSessionRegistry.getSession(callId);
+        if (session == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+        return session.stopRecording().thenApply(result -> result == null
+                ? ResponseEntity.notFound().<RecordingResult>build() : ResponseEntity.ok(result));
+    }
+
+    /**
+     * 进行中会议的混音统计
+     */
+    @GetMapping("/conference")
+    public List<ConferenceStats> conferences() {
+        return mediaSessionRegistry.getConferenceStats();
+    }
+
+    /**
+     * 通话加入会议，会议不存在时创建；坐席监听使用LISTENER角色
+     */
+    @PostMapping("/conference/{conferenceId}/join/{callId:.+}")
+    public ResponseEntity<String> joinConference(@PathVariable String conferenceId, @PathVariable String callId,
+                                                 @RequestParam(defaultValue = "SPEAKER") ConferenceRole role) {
+        try {
+            if (!mediaSessionRegistry.joinConference(conferenceId, callId, role)) {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * 通话退出会议，恢复单独放音
+     */
+    @PostMapping("/conference/leave/{callId:.+}")
+    public ResponseEntity<Void> leaveConference(@PathVariable String callId) {
+        return mediaSessionRegistry.leaveConference(callId)
+                ? ResponseEntity.accepted().build() : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 与另一条通话腿组成媒体中继，中继建立后返回采用的中继方式
+     */
+    @PostMapping("/relay/{callId:.+}/start")
+    public CompletableFuture<ResponseEntity<RelayMode>> startRelay(@PathVariable String callId,
+            @RequestParam String peer) {
+        return mediaSessionRegistry.startRelay(callId, peer).thenApply(mode -> mode == null
+                ? ResponseEntity.notFound().<RelayMode>build() : ResponseEntity.ok(mode));
+    }
+
+    /**
+     * 结束通话所在的媒体中继
+     */
+    @PostMapping("/relay/{callId:.+}/stop")
+    public ResponseEntity<Void> stopRelay(@PathVariable String callId) {
+        return mediaSessionRegistry.stopRelay(callId)
+                ? ResponseEntity.accepted().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.kupu.sip.modules.media.dtmf;
+
+/**
+ * RFC 4733 事件码与按键字符互转
+ */
+public final class DtmfDigits {
+    private static final char[] DIGITS = "0123456789*#ABCD".toCharArray();
+
+    private DtmfDigits() {
+    }
+
+    /**
+     * @return 按键字符，非DTMF事件返回0
+     */
+    public static char toDigit(int event) {
+        return event >= 0 && event < DIGITS.length ? DIGITS[event] : 0;
+    }
+
+    /**
+     * @return 事件码，非法字符返回-1
+     */
+    public static int toEvent(char digit) {
+        char upper = Character.toUpperCase(digit);
+        for (int i = 0; i < DIGITS.length; i++) {
+            if (DIGITS[i] == upper) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
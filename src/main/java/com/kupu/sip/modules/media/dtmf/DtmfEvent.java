@@ -0,0 +1,22 @@
+package com.kupu.sip.modules.media.dtmf;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 收到的DTMF按键
+ */
+@Data
+@AllArgsConstructor
+public class DtmfEvent {
+    private String callId;
+    private char digit;
+    // 按键时长(毫秒)，RTP事件在起始包即上报，此时为已收到的时长
+    private int durationMs;
+    private Source source;
+
+    public enum Source {
+        RFC4733,  // RTP telephone-event
+        SIP_INFO  // SIP INFO application/dtmf-relay
+    }
+}
@@ -0,0 +1,11 @@
+package com.kupu.sip.modules.media.dtmf;
+
+/**
+ * 通话的DTMF处理器
+ * RTP事件在媒体事件循环线程上回调，实现须快速返回，耗时处理应转交其他线程
+ */
+@FunctionalInterface
+public interface DtmfListener {
+
+    void onDtmf(DtmfEvent event);
+}
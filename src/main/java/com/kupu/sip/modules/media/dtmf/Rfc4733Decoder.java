@@ -0,0 +1,68 @@
+package com.kupu.sip.modules.media.dtmf;
+
+import java.nio.ByteBuffer;
+
+/**
+ * RFC 4733 telephone-event 接收
+ * 同一事件的所有包(含持续更新包和三次重发的结束包)共用RTP时间戳，按时间戳去重，
+ * 事件的第一个到达包即上报按键，不等待结束位。仅在事件循环线程调用
+ */
+public class Rfc4733Decoder {
+    public static final int NONE = -1;
+
+    private final int clockRate;
+    private boolean hasEvent;
+    private int eventTimestamp;
+    private int durationTs;
+    private boolean ended;
+
+    public Rfc4733Decoder(int clockRate) {
+        this.clockRate = clockRate;
+    }
+
+    /**
+     * 处理一个telephone-event负载
+     *
+     * @return 新事件的事件码；重复包、旧事件包或非法包返回{@link #NONE}
+     */
+    public int onPacket(ByteBuffer packet, int pos, int length, int rtpTimestamp) {
+        if (length < 4) {
+            return NONE;
+        }
+        int event = packet.get(pos) & 0xFF;
+        boolean end = (packet.get(pos + 1) & 0x80) != 0;
+        int duration = packet.getShort(pos + 2) & 0xFFFF;
+        if (hasEvent && rtpTimestamp == eventTimestamp) {
+            // 同一事件的更新或重发
+            if (duration > durationTs) {
+                durationTs = duration;
+            }
+            ended |= end;
+            return NONE;
+        }
+        if (hasEvent && rtpTimestamp - eventTimestamp < 0) {
+            return NONE; // 乱序到达的旧事件
+        }
+        hasEvent = true;
+        eventTimestamp = rtpTimestamp;
+        durationTs = duration;
+        ended = end;
+        return DtmfDigits.toDigit(event) == 0 ? NONE : event;
+    }
+
+    /**
+     * 当前事件已收到的时长(毫秒)
+     */
+    public int getDurationMs() {
+        return (int) ((long) durationTs * 1000 / clockRate);
+    }
+
+    public boolean isEnded() {
+        return ended;
+    }
+
+    public void reset() {
+        hasEvent = false;
+        ended = false;
+    }
+}
@@ -0,0 +1,100 @@
+package com.kupu.sip.modules.media.dtmf;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * RFC 4733 telephone-event 发送
+ * 任意线程入队按键，事件循环每个媒体节拍取一个包：事件期间每帧发送一次持续更新，
+ * 结束包重发三次，两个按键之间留出间隔。事件期间该通话的语音放音暂停
+ */
+public class Rfc4733Sender {
+    private static final int END_RETRANSMITS = 3;
+    private static final int VOLUME = 10; // -10 dBm0
+    private static final int GAP_TICKS = 2;
+    private static final int MAX_DURATION_TS = 0xFFFF;
+
+    private final Queue<int[]> pending = new ConcurrentLinkedQueue<>();
+    private final int clockRate;
+    // 以下状态仅在事件循环线程访问
+    private int event = -1;
+    private int eventTimestamp;
+    private int durationTs;
+    private int elapsedTs;
+    private int endPackets;
+    private boolean first;
+    private int gapTicks;
+
+    public Rfc4733Sender(int clockRate) {
+        this.clockRate = clockRate;
+    }
+
+    /**
+     * 按键入队
+     *
+     * @return 非法按键返回false
+     */
+    public boolean enqueue(char digit, int durationMs) {
+        int code = DtmfDigits.toEvent(digit);
+        if (code < 0) {
+            return false;
+        }
+        pending.offer(new int[]{code, durationMs});
+        return true;
+    }
+
+    /**
+     * 写入本节拍的事件负载
+     *
+     * @param currentTimestamp 当前流时间戳，新事件以此为事件时间戳
+     * @param stepTs           每节拍的时间戳增量
+     * @return 负载字节数，本节拍无事件时返回0
+     */
+    public int next(ByteBuffer packet, int pos, int currentTimestamp, int stepTs) {
+        if (event < 0) {
+            if (gapTicks > 0) {
+                gapTicks--;
+                return 0;
+            }
+            int[] next = pending.poll();
+            if (next == null) {
+                return 0;
+            }
+            event = next[0];
+            durationTs = Math.min(MAX_DURATION_TS, Math.max(stepTs, next[1] * clockRate / 1000));
+            eventTimestamp = currentTimestamp;
+            elapsedTs = 0;
+            endPackets = 0;
+            first = true;
+        } else {
+            first = false;
+        }
+        elapsedTs += stepTs;
+        boolean end = elapsedTs >= durationTs;
+        packet.put(pos, (byte) event);
+        packet.put(pos + 1, (byte) ((end ? 0x80 : 0) | VOLUME));
+        packet.putShort(pos + 2, (short) Math.min(elapsedTs, durationTs));
+        if (end && ++endPackets >= END_RETRANSMITS) {
+            event = -1;
+            gapTicks = GAP_TICKS;
+        }
+        return 4;
+    }
+
+    /**
+     * 最近一次写入的是否为事件的第一个包(需置marker位)
+     */
+    public boolean isFirstPacket() {
+        return first;
+    }
+
+    public int getEventTimestamp() {
+        return eventTimestamp;
+    }
+
+    public void clear() {
+        pending.clear();
+        event = -1;
+    }
+}
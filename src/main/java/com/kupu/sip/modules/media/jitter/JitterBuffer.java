@@ -0,0 +1,410 @@
+package com.kupu.sip.modules.media.jitter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 自适应抖动缓冲
+ * 按RTP序列号(处理16位回绕)重排，丢弃重复包与迟到包；播放点由RTP时间戳映射到本地时钟，
+ * 目标时延随RFC 3550到达间隔抖动自适应调整。所有方法只在所属事件循环线程调用，统计可跨线程读取
+ */
+public class JitterBuffer {
+    // 当前没有到期的帧
+    public static final int EMPTY = -1;
+    // 到期帧缺失(丢包)，调用方可做丢包补偿
+    public static final int MISSING = -2;
+
+    // 序列号跳变超过缓冲容量的该倍数时视为流重启
+    private static final int RESYNC_FACTOR = 4;
+    // 传输时延基线的重新评估窗口(包数)
+    private static final int TRANSIT_WINDOW = 200;
+
+    private final int capacity;
+    private final int mask;
+    private final int maxPayload;
+    private final int clockRate;
+    private final int minDelayTs;
+    private final int maxDelayTs;
+    private final int jitterFactor;
+
+    private final ByteBuffer[] payloads;
+    private final int[] lengths;
+    private final int[] extSeqs;
+    private final int[] timestamps;
+    private final boolean[] present;
+    // 占位的非音频包(如telephone-event)，播放到时直接跳过
+    private final boolean[] skipped;
+
+    private boolean started;
+    private long ssrc;
+    private long startNanos;
+    private int highestExt;
+    private int highestTs;
+    // 最高序列号是否为跳过的非音频包，此时其后的首个音频包与highestTs并不相邻
+    private boolean highestSkipped;
+    private int nextPlay;
+    private int lastPlayedExt;
+    private int lastPlayedTs;
+    private int frameTs;
+    private int currentSlot = -1;
+
+    // 传输时延基线(本地时钟 - RTP时间戳)，取窗口内最小值
+    private int offset;
+    private int windowMinTransit;
+    private int windowCount;
+    // RFC 3550 A.8 定点抖动(放大16倍)
+    private int jitterQ4;
+    private int lastTransit;
+    private boolean haveTransit;
+    private int targetDelayTs;
+
+    private volatile long received;
+    private volatile long played;
+    private volatile long lost;
+    private volatile long late;
+    private volatile long duplicate;
+    private volatile long overflow;
+    private volatile long reordered;
+    private volatile long resets;
+    private volatile long skips;
+    private volatile int maxDepthTs;
+
+    /**
+     * @param capacity     缓冲包数，须为2的幂
+     * @param maxPayload   单包最大负载字节数
+     * @param clockRate    RTP时钟频率
+     * @param minDelayMs   最小目标时延
+     * @param maxDelayMs   最大目标时延
+     * @param jitterFactor 目标时延 = 帧长 + jitterFactor * 抖动
+     */
+    public JitterBuffer(int capacity, int maxPayload, int clockRate, int minDelayMs, int maxDelayMs, int jitterFactor) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("抖动缓冲容量必须为2的幂: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.maxPayload = maxPayload;
+        this.clockRate = clockRate;
+        this.minDelayTs = minDelayMs * clockRate / 1000;
+        this.maxDelayTs = maxDelayMs * clockRate / 1000;
+        this.jitterFactor = jitterFactor;
+        this.payloads = new ByteBuffer[capacity];
+        ByteBuffer slab = ByteBuffer.allocate(capacity * maxPayload);
+        for (int i = 0; i < capacity; i++) {
+            slab.limit((i + 1) * maxPayload).position(i * maxPayload);
+            payloads[i] = slab.slice();
+        }
+        this.lengths = new int[capacity];
+        this.extSeqs = new int[capacity];
+        this.timestamps = new int[capacity];
+        this.present = new boolean[capacity];
+        this.skipped = new boolean[capacity];
+        this.frameTs = clockRate / 50; // 默认20ms
+        this.targetDelayTs = minDelayTs;
+    }
+
+    /**
+     * 写入一个RTP包的负载
+     *
+     * @param src       负载所在缓冲区(按绝对位置读取)
+     * @param pos       负载起始位置
+     * @param length    负载长度
+     * @param seq       16位序列号
+     * @param timestamp RTP时间戳
+     * @param ssrc      同步源
+     * @param nowNanos  到达时间(System.nanoTime)
+     * @return 是否被缓冲
+     */
+    public boolean put(ByteBuffer src, int pos, int length, int seq, int timestamp, long ssrc, long nowNanos) {
+        if (!started) {
+            startNanos = nowNanos;
+        }
+        int localTs = localTs(nowNanos);
+        if (!started || ssrc != this.ssrc) {
+            reset(seq, timestamp, ssrc, localTs);
+        }
+        int delta = (short) (seq - (highestExt & 0xFFFF));
+        if (delta > capacity * RESYNC_FACTOR || delta < -capacity * RESYNC_FACTOR) {
+            // 序列号大幅跳变，按新流处理
+            reset(seq, timestamp, ssrc, localTs);
+            delta = 0;
+        }
+        int ext = highestExt + delta;
+        if (ext < nextPlay) {
+            late++;
+            return false;
+        }
+        if (ext - nextPlay >= capacity) {
+            // 超出缓冲窗口，推进播放点让出空间
+            int newNext = ext - capacity + 1;
+            for (int e = nextPlay; e < newNext; e++) {
+                int slot = e & mask;
+                if (present[slot] && extSeqs[slot] == e) {
+                    present[slot] = false;
+                    if (!skipped[slot]) {
+                        overflow++;
+                    }
+                } else {
+                    lost++;
+                }
+            }
+            lastPlayedTs += (newNext - nextPlay) * frameTs;
+            lastPlayedExt = newNext - 1;
+            nextPlay = newNext;
+        }
+        int slot = ext & mask;
+        if (present[slot] && extSeqs[slot] == ext) {
+            duplicate++;
+            return false;
+        }
+        int copy = Math.min(length, maxPayload);
+        ByteBuffer dst = payloads[slot];
+        for (int i = 0; i < copy; i++) {
+            dst.put(i, src.get(pos + i));
+        }
+        lengths[slot] = copy;
+        extSeqs[slot] = ext;
+        timestamps[slot] = timestamp;
+        present[slot] = true;
+        skipped[slot] = false;
+        if (ext > highestExt) {
+            // 只从两个相邻的音频包学习帧长；中间夹着按键事件时时间戳差是整个按键时长
+            if (ext == highestExt + 1 && !highestSkipped && timestamp - highestTs > 0
+                    && timestamp - highestTs <= clockRate / 5) {
+                frameTs = timestamp - highestTs;
+            }
+            highestExt = ext;
+            highestTs = timestamp;
+            highestSkipped = false;
+        } else if (ext != highestExt) {
+            reordered++;
+        }
+        received++;
+        updateTransit(localTs - timestamp);
+        int depth = highestTs - expectedTs(nextPlay) + frameTs;
+        if (depth > maxDepthTs) {
+            maxDepthTs = depth;
+        }
+        return true;
+    }
+
+    /**
+     * 标记同一序列号空间中不携带音频的包(如telephone-event)，播放到该序列号时直接跳过，不计丢包也不做丢包补偿。
+     * 不参与抖动估计与帧长学习；语音流开始前的此类包忽略
+     *
+     * @param seq  16位序列号
+     * @param ssrc 同步源
+     */
+    public void skip(int seq, long ssrc) {
+        if (!started || ssrc != this.ssrc) {
+            return;
+        }
+        int delta = (short) (seq - (highestExt & 0xFFFF));
+        int ext = highestExt + delta;
+        if (ext < nextPlay || ext - nextPlay >= capacity) {
+            return; // 已过播放点或超出缓冲窗口，由put按常规处理
+        }
+        int slot = ext & mask;
+        if (present[slot] && extSeqs[slot] == ext) {
+            return;
+        }
+        lengths[slot] = 0;
+        extSeqs[slot] = ext;
+        present[slot] = true;
+        skipped[slot] = true;
+        if (ext > highestExt) {
+            highestExt = ext; // 时间戳为按键事件起点，不更新highestTs
+            highestSkipped = true;
+        }
+        skips++;
+    }
+
+    /**
+     * 取出下一个到期的帧
+     *
+     * @param nowNanos 当前时间(System.nanoTime)
+     * @return 帧负载长度(通过{@link #currentPayload()}读取)，或{@link #EMPTY}/{@link #MISSING}
+     */
+    public int poll(long nowNanos) {
+        if (!started || highestExt < nextPlay) {
+            return EMPTY;
+        }
+        int slot = nextPlay & mask;
+        while (present[slot] && skipped[slot] && extSeqs[slot] == nextPlay) {
+            // 跳过非音频包占用的序列号，后续帧的预期时间戳照常按帧外推
+            present[slot] = false;
+            nextPlay++;
+            if (highestExt < nextPlay) {
+                return EMPTY;
+            }
+            slot = nextPlay & mask;
+        }
+        boolean hit = present[slot] && extSeqs[slot] == nextPlay;
+        int ts = hit ? timestamps[slot] : expectedTs(nextPlay);
+        int due = ts + offset + targetDelayTs;
+        if (localTs(nowNanos) - due < 0) {
+            return EMPTY;
+        }
+        lastPlayedExt = nextPlay;
+        lastPlayedTs = ts;
+        nextPlay++;
+        if (hit) {
+            present[slot] = false;
+            currentSlot = slot;
+            played++;
+            return lengths[slot];
+        }
+        currentSlot = -1;
+        lost++;
+        return MISSING;
+    }
+
+    /**
+     * 最近一次{@link #poll}输出帧的负载，position为0；下一次poll前有效
+     */
+    public ByteBuffer currentPayload() {
+        return currentSlot < 0 ? null : payloads[currentSlot];
+    }
+
+    /**
+     * 最近一次poll输出帧(或缺失帧)的RTP时间戳
+     */
+    public int currentTimestamp() {
+        return lastPlayedTs;
+    }
+
+    /**
+     * 最近学习到的单帧时间戳增量
+     */
+    public int getFrameTs() {
+        return frameTs;
+    }
+
+    public int getClockRate() {
+        return clockRate;
+    }
+
+    /**
+     * 清空缓冲，下一个包按新流处理
+     */
+    public void clear() {
+        for (int i = 0; i < capacity; i++) {
+            present[i] = false;
+        }
+        started = false;
+        currentSlot = -1;
+    }
+
+    /**
+     * 当前到达间隔抖动(毫秒)
+     */
+    public double getJitterMs() {
+        return (jitterQ4 / 16.0) * 1000 / clockRate;
+    }
+
+    public int getTargetDelayMs() {
+        return targetDelayTs * 1000 / clockRate;
+    }
+
+    /**
+     * 当前缓冲深度(毫秒)
+     */
+    public int getDepthMs() {
+        if (!started || highestExt < nextPlay) {
+            return 0;
+        }
+        return (highestTs - expectedTs(nextPlay) + frameTs) * 1000 / clockRate;
+    }
+
+    public JitterBufferStats snapshot() {
+        JitterBufferStats stats = new JitterBufferStats();
+        stats.setReceived(received);
+        stats.setPlayed(played);
+        stats.setLost(lost);
+        stats.setLate(late);
+        stats.setDuplicate(duplicate);
+        stats.setOverflow(overflow);
+        stats.setReordered(reordered);
+        stats.setResets(resets);
+        stats.setSkipped(skips);
+        stats.setJitterMs(getJitterMs());
+        stats.setTargetDelayMs(getTargetDelayMs());
+        stats.setDepthMs(getDepthMs());
+        stats.setMaxDepthMs(maxDepthTs * 1000 / clockRate);
+        return stats;
+    }
+
+    private void reset(int seq, int timestamp, long ssrc, int localTs) {
+        if (started) {
+            resets++;
+            for (int i = 0; i < capacity; i++) {
+                present[i] = false;
+            }
+        }
+        started = true;
+        this.ssrc = ssrc;
+        highestExt = seq;
+        highestTs = timestamp;
+        highestSkipped = false;
+        nextPlay = seq;
+        lastPlayedExt = seq - 1;
+        lastPlayedTs = timestamp - frameTs;
+        offset = localTs - timestamp;
+        windowMinTransit = offset;
+        windowCount = 0;
+        haveTransit = false;
+        currentSlot = -1;
+    }
+
+    /**
+     * 未到达帧的预期时间戳，按最近输出帧外推
+     */
+    private int expectedTs(int ext) {
+        int slot = ext & mask;
+        if (present[slot] && !skipped[slot] && extSeqs[slot] == ext) {
+            return timestamps[slot];
+        }
+        return lastPlayedTs + (ext - lastPlayedExt) * frameTs;
+    }
+
+    private void updateTransit(int transit) {
+        // RFC 3550 A.8: J += (|D| - J) / 16
+        if (haveTransit) {
+            int d = transit - lastTransit;
+            if (d < 0) {
+                d = -d;
+            }
+            jitterQ4 += d - ((jitterQ4 + 8) >> 4);
+        }
+        lastTransit = transit;
+        haveTransit = true;
+        // 比基线更早到达的包立即下调基线；窗口结束时按窗口最小值上调，以跟随时钟漂移和路由变化
+        if (transit - offset < 0) {
+            offset = transit;
+        }
+        if (windowCount == 0 || transit - windowMinTransit < 0) {
+            windowMinTransit = transit;
+        }
+        if (++windowCount >= TRANSIT_WINDOW) {
+            if (windowMinTransit - offset > 0) {
+                offset = windowMinTransit;
+            }
+            windowCount = 0;
+        }
+        // 目标时延：抖动增大时立即加深，减小时缓慢收敛
+        int desired = frameTs + jitterFactor * (jitterQ4 >> 4);
+        if (desired < minDelayTs) {
+            desired = minDelayTs;
+        } else if (desired > maxDelayTs) {
+            desired = maxDelayTs;
+        }
+        if (desired > targetDelayTs) {
+            targetDelayTs = desired;
+        } else if (desired < targetDelayTs) {
+            targetDelayTs -= Math.max(1, (targetDelayTs - desired) >> 6);
+        }
+    }
+
+    private int localTs(long nowNanos) {
+        return (int) ((nowNanos - startNanos) * clockRate / 1_000_000_000L);
+    }
+}
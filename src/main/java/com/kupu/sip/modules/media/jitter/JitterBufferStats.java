@@ -0,0 +1,44 @@
+package com.kupu.sip.modules.media.jitter;
+
+import lombok.Data;
+
+/**
+ * 抖动缓冲统计快照
+ */
+@Data
+public class JitterBufferStats {
+    // 已接收(入队)的包数
+    private long received;
+    // 已按序输出的包数
+    private long played;
+    // 播放时缺失的包数(丢包)
+    private long lost;
+    // 晚于播放点到达而丢弃的包数
+    private long late;
+    // 重复包数
+    private long duplicate;
+    // 缓冲溢出丢弃的包数
+    private long overflow;
+    // 乱序到达的包数
+    private long reordered;
+    // 流重置次数(SSRC变化或序列号跳变)
+    private long resets;
+    // 跳过的非音频包(如按键事件)占用的序列号数，不计入丢包
+    private long skipped;
+    // RFC 3550 到达间隔抖动(毫秒)
+    private double jitterMs;
+    // 当前目标缓冲时延(毫秒)
+    private int targetDelayMs;
+    // 当前缓冲深度(毫秒)
+    private int depthMs;
+    // 观察到的最大缓冲深度(毫秒)
+    private int maxDepthMs;
+
+    /**
+     * 丢包率(0~1)；迟到的包在其播放点已计为丢失
+     */
+    public double getLossRate() {
+        long expected = played + lost;
+        return expected == 0 ? 0 : (double) lost / expected;
+    }
+}
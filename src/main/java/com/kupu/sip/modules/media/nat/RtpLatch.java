@@ -0,0 +1,116 @@
+package com.kupu.sip.modules.media.nat;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * 对称RTP锁定(latching)
+ * 对端位于NAT之后时，SDP中的地址往往是私网地址；按实际收到的RTP包源地址发送才能穿透NAT。
+ * 来自同一源地址、SSRC一致且序列号连续的若干个有效包之后锁定该地址；锁定后来自当前地址的包直接放行(一次地址比较)，
+ * 其他来源的零散包丢弃，只有新来源连续发送达到门限(流重启、NAT映射变化)时才切换，避免被伪造或迷途的包劫持。
+ * 只在事件循环线程使用
+ */
+public class RtpLatch {
+    // 丢弃该包
+    public static final int REJECT = 0;
+    // 放行
+    public static final int ACCEPT = 1;
+    // 放行，且发送目标已切换为该包的源地址
+    public static final int LATCHED = 2;
+
+    private final int requiredPackets;
+    private InetSocketAddress target;
+    private boolean latched;
+    private long ssrc = -1;
+    // 正在观察的新来源
+    private InetSocketAddress candidate;
+    private long candidateSsrc;
+    private int candidateSeq;
+    private int candidatePackets;
+    private long relatchCount;
+    private long rejectedPackets;
+
+    /**
+     * @param signalled       SDP中声明的对端地址，锁定前作为发送目标
+     * @param requiredPackets 锁定所需的连续有效包数
+     */
+    public RtpLatch(InetSocketAddress signalled, int requiredPackets) {
+        this.target = signalled;
+        this.requiredPackets = Math.max(1, requiredPackets);
+    }
+
+    /**
+     * 判定一个负载类型已校验的RTP包
+     *
+     * @return {@link #REJECT}、{@link #ACCEPT}或{@link #LATCHED}
+     */
+    public int onPacket(SocketAddress source, long packetSsrc, int seq) {
+        if (latched && source.equals(target)) {
+            // 同一地址上的SSRC变化(对端重启了流)直接跟随
+            ssrc = packetSsrc;
+            candidatePackets = 0;
+            return ACCEPT;
+        }
+        if (!(source instanceof InetSocketAddress)) {
+            return REJECT;
+        }
+        InetSocketAddress address = (InetSocketAddress) source;
+        if (candidatePackets > 0 && packetSsrc == candidateSsrc && seq == ((candidateSeq + 1) & 0xFFFF)
+                && address.equals(candidate)) {
+            candidatePackets++;
+        } else {
+            candidate = address;
+            candidateSsrc = packetSsrc;
+            candidatePackets = 1;
+        }
+        candidateSeq = seq;
+        if (candidatePackets < requiredPackets) {
+            if (latched) {
+                rejectedPackets++;
+                return REJECT;
+            }
+            return ACCEPT; // 尚未锁定时保持原有行为，不丢包
+        }
+        if (latched) {
+            relatchCount++;
+        }
+        target = address;
+        ssrc = packetSsrc;
+        latched = true;
+        candidate = null;
+        candidatePackets = 0;
+        return LATCHED;
+    }
+
+    /**
+     * 当前发送目标：锁定前为SDP地址，锁定后为实际源地址
+     */
+    public InetSocketAddress getTarget() {
+        return target;
+    }
+
+    public boolean isLatched() {
+        return latched;
+    }
+
+    /**
+     * 已锁定流的SSRC，未锁定时为-1
+     */
+    public long getSsrc() {
+        return ssrc;
+    }
+
+    /**
+     * 锁定后又切换到新来源的次数
+     */
+    public long getRelatchCount() {
+        return relatchCount;
+    }
+
+    /**
+     * 锁定后被丢弃的其他来源的包数
+     */
+    public long getRejectedPackets() {
+        return rejectedPackets;
+    }
+}
@@ -0,0 +1,23 @@
+package com.kupu.sip.modules.media.playout;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 放音被打断
+ */
+@Data
+@AllArgsConstructor
+public class BargeInEvent {
+    private String callId;
+    // 被打断的放音源
+    private String source;
+    // 已发送到的位置(毫秒)
+    private int playedMs;
+    // 放音总时长(毫秒)，未知时为-1
+    private int durationMs;
+    // 一并丢弃的排队放音数
+    private int discarded;
+    // true为主叫说话触发，false为调用方主动停止
+    private boolean speech;
+}
@@ -0,0 +1,10 @@
+package com.kupu.sip.modules.media.playout;
+
+/**
+ * 放音打断回调，在媒体事件循环线程上执行，实现须快速返回
+ */
+@FunctionalInterface
+public interface BargeInListener {
+
+    void onBargeIn(BargeInEvent event);
+}
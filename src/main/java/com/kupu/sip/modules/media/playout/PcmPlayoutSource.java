@@ -0,0 +1,38 @@
+package com.kupu.sip.modules.media.playout;
+
+import java.nio.ByteBuffer;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+
+/**
+ * 内存中的PCM放音源(16bit小端, 单声道, 与编码采样率一致)
+ * 每帧编码一次，末尾不足一帧的部分补静音
+ */
+public class PcmPlayoutSource implements PlayoutSource {
+    private final byte[] pcm;
+    private int position;
+    private short[] frame;
+
+    public PcmPlayoutSource(byte[] pcm) {
+        this.pcm = pcm;
+    }
+
+    @Override
+    public int nextFrame(ByteBuffer packet, int payloadPos, AudioCodec codec, int samplesPerFrame) {
+        if (position + 1 >= pcm.length) {
+            return END;
+        }
+        if (frame == null || frame.length < samplesPerFrame) {
+            frame = new short[samplesPerFrame];
+        }
+        int available = Math.min(samplesPerFrame, (pcm.length - position) / 2);
+        for (int i = 0; i < available; i++) {
+            frame[i] = (short) ((pcm[position + 2 * i + 1] & 0xFF) << 8 | (pcm[position + 2 * i] & 0xFF));
+        }
+        for (int i = available; i < samplesPerFrame; i++) {
+            frame[i] = 0;
+        }
+        position += available * 2;
+        return codec.encode(frame, 0, samplesPerFrame, packet, payloadPos);
+    }
+}
@@ -0,0 +1,57 @@
+package com.kupu.sip.modules.media.playout;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 放音队列中的一项：放音源及其完成通知
+ * 发送进度只在媒体事件循环线程更新；完成通知转到回调线程池执行，调用方的后续处理不会占用媒体循环
+ */
+public class PlayoutItem {
+    private final PlayoutSource source;
+    private final CompletableFuture<PlayoutResult> future = new CompletableFuture<>();
+    private int playedFrames;
+
+    public PlayoutItem(PlayoutSource source) {
+        this.source = source;
+    }
+
+    public PlayoutSource getSource() {
+        return source;
+    }
+
+    public CompletableFuture<PlayoutResult> getFuture() {
+        return future;
+    }
+
+    public void onFrameSent() {
+        playedFrames++;
+    }
+
+    public int getPlayedMs(int ptimeMs) {
+        return playedFrames * ptimeMs;
+    }
+
+    /**
+     * 调用方已取消
+     */
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    /**
+     * 关闭放音源并通知结果
+     */
+    public void finish(PlayoutResult.Status status, int ptimeMs, Executor callbackExecutor) {
+        source.close();
+        if (future.isDone()) {
+            return;
+        }
+        PlayoutResult result = new PlayoutResult(source.getName(), status, getPlayedMs(ptimeMs));
+        try {
+            callbackExecutor.execute(() -> future.complete(result));
+        } catch (Exception e) {
+            future.complete(result);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.kupu.sip.modules.media.playout;
+
+/**
+ * 放音入队优先级
+ */
+public enum PlayoutPriority {
+    // 排在队尾
+    NORMAL,
+    // 排在队首，当前放音结束后立即播放
+    NEXT,
+    // 停止当前放音、清空队列后立即播放
+    IMMEDIATE
+}
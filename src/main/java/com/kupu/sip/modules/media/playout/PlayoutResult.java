@@ -0,0 +1,23 @@
+package com.kupu.sip.modules.media.playout;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 一个放音项的结束结果
+ */
+@Data
+@AllArgsConstructor
+public class PlayoutResult {
+    private String source;
+    private Status status;
+    // 已发送的时长(毫秒)
+    private int playedMs;
+
+    public enum Status {
+        COMPLETED,   // 播放完毕
+        INTERRUPTED, // 主叫说话打断
+        CANCELLED,   // 被清空、取消或通话结束
+        FAILED       // 放音源出错
+    }
+}
@@ -0,0 +1,45 @@
+package com.kupu.sip.modules.media.playout;
+
+import java.nio.ByteBuffer;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+
+/**
+ * 出向放音源
+ * 由事件循环在每个媒体节拍调用一次，把下一帧编码后的负载直接写入RTP发送帧
+ */
+public interface PlayoutSource {
+    // 放音结束
+    int END = -1;
+
+    /**
+     * 写入下一帧负载
+     *
+     * @param packet          RTP发送帧(按绝对位置写入)
+     * @param payloadPos      负载起始位置
+     * @param codec           当前通话协商的编码
+     * @param samplesPerFrame 每帧采样数
+     * @return 负载字节数；0表示本帧暂无数据(不发送)；{@link #END}表示放音结束
+     */
+    int nextFrame(ByteBuffer packet, int payloadPos, AudioCodec codec, int samplesPerFrame);
+
+    /**
+     * 放音总时长(毫秒)，未知时返回-1
+     */
+    default int getDurationMs() {
+        return -1;
+    }
+
+    /**
+     * 放音源名称，用于日志和打断事件
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * 放音结束或被丢弃时释放资源
+     */
+    default void close() {
+    }
+}
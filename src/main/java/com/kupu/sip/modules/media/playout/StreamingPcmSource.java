@@ -0,0 +1,179 @@
+package com.kupu.sip.modules.media.playout;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.resample.PolyphaseResampler;
+
+/**
+ * 流式PCM放音源(16bit小端, 单声道)，如分块返回的TTS
+ * 生产者在任意线程按到达顺序写入数据块(同一时刻只有一个生产者)，写完调用{@link #finish()}；媒体节拍逐帧取出编码。
+ * 输入采样率与编码不同时在写入时重采样，滤波器状态跨分块保留。
+ * 开始播放前先缓冲一小段以吸收到达抖动，之后数据不足一帧时本节拍不发送，等待后续数据
+ */
+public class StreamingPcmSource implements PlayoutSource {
+    private final String name;
+    private final int prebufferBytes;
+    // 输入与编码采样率一致时为null；仅在生产者线程使用
+    private final PolyphaseResampler resampler;
+    // 上一块末尾未成对的低字节，-1表示无；仅在生产者线程使用
+    private int pendingByte = -1;
+    private final Queue<byte[]> chunks = new ConcurrentLinkedQueue<>();
+    private volatile boolean finished;
+    private volatile boolean aborted;
+    // 已写入未播放的字节数
+    private final AtomicLong buffered = new AtomicLong();
+    // 以下状态仅在事件循环线程访问
+    private byte[] current;
+    private int position;
+    private boolean started;
+    private short[] frame;
+
+    /**
+     * @param prebufferBytes 开始播放前至少缓冲的字节数(编码采样率下)
+     */
+    public StreamingPcmSource(String name, int prebufferBytes) {
+        this(name, prebufferBytes, 0, 0);
+    }
+
+    /**
+     * @param inputRate  写入数据的采样率
+     * @param outputRate 通话编码的采样率
+     */
+    public StreamingPcmSource(String name, int prebufferBytes, int inputRate, int outputRate) {
+        this.name = name;
+        this.prebufferBytes = prebufferBytes;
+        this.resampler = inputRate == outputRate ? null : new PolyphaseResampler(inputRate, outputRate);
+    }
+
+    /**
+     * 追加一块PCM数据，数据会被复制；分块可以在任意字节处切分，奇数长度末尾的字节与下一块的首字节拼成一个采样
+     */
+    public void write(byte[] pcm, int off, int len) {
+        if (finished || len <= 0) {
+            return;
+        }
+        if (resampler != null) {
+            short[] samples = new short[resampler.maxOutputSamples(len / 2 + 1)];
+            offer(samples, resampler.process(pcm, off, len, samples, 0));
+            return;
+        }
+        int head = pendingByte >= 0 ? 1 : 0;
+        int total = head + len;
+        byte[] chunk = new byte[total & ~1];
+        if (head > 0) {
+            chunk[0] = (byte) pendingByte;
+        }
+        System.arraycopy(pcm, off, chunk, head, chunk.length - head);
+        pendingByte = (total & 1) != 0 ? pcm[off + len - 1] & 0xFF : -1;
+        if (chunk.length > 0) {
+            chunks.offer(chunk);
+            buffered.addAndGet(chunk.length);
+        }
+    }
+
+    /**
+     * 追加一块PCM采样
+     */
+    public void write(short[] pcm, int off, int len) {
+        if (finished || len <= 0) {
+            return;
+        }
+        if (resampler != null) {
+            short[] samples = new short[resampler.maxOutputSamples(len)];
+            offer(samples, resampler.process(pcm, off, len, samples, 0));
+            return;
+        }
+        short[] samples = new short[len];
+        System.arraycopy(pcm, off, samples, 0, len);
+        offer(samples, len);
+    }
+
+    private void offer(short[] samples, int count) {
+        if (count <= 0) {
+            return;
+        }
+        byte[] chunk = new byte[count * 2];
+        for (int i = 0; i < count; i++) {
+            chunk[2 * i] = (byte) samples[i];
+            chunk[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        chunks.offer(chunk);
+        buffered.addAndGet(chunk.length);
+    }
+
+    /**
+     * 数据已全部写入，播完剩余数据后结束
+     */
+    public void finish() {
+        finished = true;
+    }
+
+    /**
+     * 放弃剩余数据，下一个媒体节拍结束播放
+     */
+    public void abort() {
+        aborted = true;
+        finished = true;
+    }
+
+    @Override
+    public int nextFrame(ByteBuffer packet, int payloadPos, AudioCodec codec, int samplesPerFrame) {
+        if (aborted) {
+            return END;
+        }
+        int frameBytes = samplesPerFrame * 2;
+        boolean done = finished;
+        long available = buffered.get();
+        if (!started) {
+            if (available < Math.max(frameBytes, prebufferBytes) && !done) {
+                return 0;
+            }
+            started = true;
+        }
+        if (available < frameBytes && !done) {
+            return 0; // 欠载，等待后续数据
+        }
+        if (available <= 1) {
+            return END;
+        }
+        if (frame == null || frame.length < samplesPerFrame) {
+            frame = new short[samplesPerFrame];
+        }
+        int samples = 0;
+        while (samples < samplesPerFrame) {
+            if (current == null || position >= current.length) {
+                current = chunks.poll();
+                position = 0;
+                if (current == null) {
+                    break;
+                }
+                continue;
+            }
+            frame[samples++] = (short) ((current[position + 1] & 0xFF) << 8 | (current[position] & 0xFF));
+            position += 2;
+        }
+        buffered.addAndGet(-samples * 2L);
+        for (int i = samples; i < samplesPerFrame; i++) {
+            frame[i] = 0; // 末尾不足一帧补静音
+        }
+        return codec.encode(frame, 0, samplesPerFrame, packet, payloadPos);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        // 放音被打断或取消后，生产者后续写入直接丢弃
+        aborted = true;
+        finished = true;
+        chunks.clear();
+        current = null;
+    }
+}
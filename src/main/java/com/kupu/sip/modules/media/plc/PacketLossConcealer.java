@@ -0,0 +1,206 @@
+package com.kupu.sip.modules.media.plc;
+
+/**
+ * 丢包补偿(参照G.711附录I的基音重复法)
+ * 丢包开始时在最近的历史音频中搜索基音周期，以最后一个周期循环重复合成缺失帧；10ms后扩展为2、3个周期以减轻机械感，
+ * 之后每10ms衰减20%，淡出后输出静音。每次循环接缝处按偏差做线性修正保证波形连续；
+ * 丢包结束后的第一个正常帧与合成信号的延续交叉淡化，避免拼接处的爆音。
+ * 参数按8kHz定义并随采样率缩放，缓冲区在构造时分配，处理过程不分配内存；只在事件循环线程使用
+ */
+public class PacketLossConcealer {
+    private static final int Q15 = 1 << 15;
+
+    private final int rate; // 采样率/8000
+    private final int minPitch;
+    private final int maxPitch;
+    private final int corrLength;
+    private final int attenuationStart; // 不衰减的时长(样本)
+    private final int attenuationStep; // 每样本的Q15增益衰减量
+    private final int maxConceal; // 超过后输出静音(样本)
+    // 最近的历史音频，末尾为最新样本
+    private final short[] history;
+    // 丢包开始时截取的最后3个基音周期(靠末尾存放)
+    private final short[] pitchBuffer;
+
+    private int pitch;
+    private int periods;
+    private int position;
+    private int gain;
+    private int concealed; // 本次丢包已合成的样本数
+    private int splice; // 接缝修正量
+    private int spliceLeft;
+    private int lastOutput;
+
+    private long concealedFrames;
+    private long bursts;
+
+    public PacketLossConcealer(int sampleRate, int maxConcealMs) {
+        this.rate = Math.max(1, sampleRate / 8000);
+        this.minPitch = 40 * rate; // 200Hz
+        this.maxPitch = 120 * rate; // 66Hz
+        this.corrLength = 160 * rate; // 20ms
+        this.attenuationStart = 80 * rate; // 10ms
+        this.attenuationStep = Q15 / 5 / (80 * rate); // 每10ms衰减20%
+        this.maxConceal = maxConcealMs * 8 * rate;
+        this.history = new short[Math.max(corrLength + maxPitch, 3 * maxPitch)];
+        this.pitchBuffer = new short[3 * maxPitch];
+    }
+
+    /**
+     * 是否正处于丢包补偿中
+     */
+    public boolean isConcealing() {
+        return concealed > 0;
+    }
+
+    /**
+     * 收到正常帧：若刚从丢包中恢复，先与合成信号的延续交叉淡化(原地修改)，再记入历史
+     */
+    public void onFrame(short[] pcm, int off, int samples) {
+        if (concealed > 0) {
+            // 重叠长度：1/4周期，丢包每多10ms再加4ms，不超过本帧
+            int overlap = Math.min(samples, pitch / 4 + Math.max(0, concealed / attenuationStart - 1) * 32 * rate);
+            for (int i = 0; i < overlap; i++) {
+                int synthetic = nextSynthetic();
+                int w = (i + 1) * Q15 / (overlap + 1);
+                pcm[off + i] = (short) ((pcm[off + i] * w + synthetic * (Q15 - w)) >> 15);
+            }
+            concealed = 0;
+        }
+        remember(pcm, off, samples);
+    }
+
+    /**
+     * 合成一帧缺失的音频
+     *
+     * @return 合成的样本数
+     */
+    public int conceal(short[] out, int off, int samples) {
+        if (concealed == 0) {
+            start();
+        }
+        for (int i = 0; i < samples; i++) {
+            out[off + i] = (short) nextSynthetic();
+        }
+        remember(out, off, samples);
+        concealedFrames++;
+        return samples;
+    }
+
+    /**
+     * 累计合成的帧数
+     */
+    public long getConcealedFrames() {
+        return concealedFrames;
+    }
+
+    /**
+     * 累计丢包补偿次数(连续丢包计一次)
+     */
+    public long getBursts() {
+        return bursts;
+    }
+
+    private void start() {
+        bursts++;
+        pitch = findPitch();
+        int end = history.length;
+        // 对齐到缓冲末尾，周期段[length - periods * pitch, length)随周期数向前扩展
+        System.arraycopy(history, end - 3 * pitch, pitchBuffer, pitchBuffer.length - 3 * pitch, 3 * pitch);
+        periods = 1;
+        position = 0;
+        gain = Q15;
+        lastOutput = history[end - 1];
+        beginSplice(pitchBuffer.length - pitch);
+    }
+
+    /**
+     * 依次输出当前周期段中的样本，在接缝处修正偏差、按时长增加周期数并衰减
+     */
+    private int nextSynthetic() {
+        if (concealed >= maxConceal || gain <= 0) {
+            concealed++;
+            lastOutput = 0;
+            return 0;
+        }
+        if (concealed == attenuationStart || concealed == 2 * attenuationStart) {
+            // 扩展到2、3个周期，继续在同一相位上播放
+            periods++;
+            position += pitch;
+        }
+        int length = periods * pitch;
+        int start = pitchBuffer.length - length;
+        if (position >= length) {
+            position = 0;
+            beginSplice(start);
+        }
+        int value = pitchBuffer[start + position] * gain >> 15;
+        if (spliceLeft > 0) {
+            value += splice * spliceLeft / (pitch / 4 + 1);
+            spliceLeft--;
+        }
+        position++;
+        concealed++;
+        if (concealed > attenuationStart) {
+            gain = Math.max(0, gain - attenuationStep);
+        }
+        value = value > Short.MAX_VALUE ? Short.MAX_VALUE : value < Short.MIN_VALUE ? Short.MIN_VALUE : value;
+        lastOutput = value;
+        return value;
+    }
+
+    /**
+     * 跳回周期段开头时，记录上一个输出与新位置前一样本的偏差，在1/4周期内线性消除
+     */
+    private void beginSplice(int segmentStart) {
+        int previous = segmentStart > 0 ? pitchBuffer[segmentStart - 1] * gain >> 15 : lastOutput;
+        splice = lastOutput - previous;
+        spliceLeft = pitch / 4 + 1;
+    }
+
+    /**
+     * 在最近的历史音频中找归一化互相关最大的基音周期，先按2倍抽取粗搜再在邻域精搜
+     */
+    private int findPitch() {
+        int end = history.length;
+        int best = minPitch;
+        double bestScore = -1;
+        for (int lag = minPitch; lag <= maxPitch; lag += 2) {
+            double score = correlation(end, lag, 2);
+            if (score > bestScore) {
+                bestScore = score;
+                best = lag;
+            }
+        }
+        int coarse = best;
+        bestScore = -1;
+        for (int lag = Math.max(minPitch, coarse - 1); lag <= Math.min(maxPitch, coarse + 1); lag++) {
+            double score = correlation(end, lag, 1);
+            if (score > bestScore) {
+                bestScore = score;
+                best = lag;
+            }
+        }
+        return best;
+    }
+
+    private double correlation(int end, int lag, int step) {
+        long corr = 0;
+        long energy = 1;
+        for (int i = end - corrLength; i < end; i += step) {
+            int delayed = history[i - lag];
+            corr += history[i] * delayed;
+            energy += delayed * delayed;
+        }
+        return corr <= 0 ? 0 : corr / Math.sqrt(energy);
+    }
+
+    private void remember(short[] pcm, int off, int samples) {
+        if (samples >= history.length) {
+            System.arraycopy(pcm, off + samples - history.length, history, 0, history.length);
+            return;
+        }
+        System.arraycopy(history, samples, history, 0, history.length - samples);
+        System.arraycopy(pcm, off, history, history.length - samples, samples);
+    }
+}
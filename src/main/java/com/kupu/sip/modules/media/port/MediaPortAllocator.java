@@ -0,0 +1,270 @@
+package com.kupu.sip.modules.media.port;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import com.kupu.sip.common.configs.MediaConfig;
+import com.kupu.sip.modules.media.buffer.IntRingQueue;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 媒体端口分配器
+ * 在配置的端口范围内按偶数RTP/奇数RTCP成对分配，空闲端口对保存在无锁FIFO队列中，借还均为O(1)。
+ * 归还的端口对先隔离一段时间再重新分配，避免上一通话的迟到包串入新通话；隔离期内保留已绑定的通道供下次复用
+ */
+@Slf4j
+@Component
+public class MediaPortAllocator {
+    private static final int FREE = 0;
+    private static final int LEASED = 1;
+    private static final String ANY_ADDRESS = "0.0.0.0";
+    // 单次分配时跳过被其他进程占用端口的最大尝试次数
+    private static final int MAX_BIND_ATTEMPTS = 16;
+
+    private final MediaConfig mediaConfig;
+    private final MediaPortPair[] pairs;
+    private final AtomicIntegerArray states;
+    private final IntRingQueue freePairs;
+    private final long quarantineNanos;
+    // 网卡枚举代价较高，结果缓存
+    private volatile String localBindAddress;
+
+    public MediaPortAllocator(MediaConfig mediaConfig) {
+        this.mediaConfig = mediaConfig;
+        int minPort = (mediaConfig.getPortMin() + 1) & ~1; // RTP端口取偶数
+        int maxPort = mediaConfig.getPortMax();
+        int count = (maxPort - minPort + 1) / 2;
+        if (minPort <= 0 || maxPort > 65535 || count <= 0) {
+            throw new IllegalArgumentException("媒体端口范围无效: " + mediaConfig.getPortMin() + "-" + maxPort);
+        }
+        this.pairs = new MediaPortPair[count];
+        this.states = new AtomicIntegerArray(count);
+        this.freePairs = new IntRingQueue(count);
+        for (int i = 0; i < count; i++) {
+            pairs[i] = new MediaPortPair(i, minPort + 2 * i);
+            freePairs.offer(i);
+        }
+        this.quarantineNanos = TimeUnit.MILLISECONDS.toNanos(mediaConfig.getPortQuarantineMs());
+        log.info("媒体端口分配器已初始化: {}-{}, 共 {} 对", minPort, minPort + 2 * count - 1, count);
+    }
+
+    /**
+     * 分配一对已绑定的RTP/RTCP端口
+     *
+     * @return 端口对，通道为非阻塞模式
+     * @throws IllegalStateException 没有可用端口
+     */
+    public MediaPortPair allocate() {
+        String bindAddress = getLocalBindAddress();
+        for (int attempt = 0; attempt < MAX_BIND_ATTEMPTS; attempt++) {
+            int index = freePairs.poll();
+            if (index == IntRingQueue.EMPTY) {
+                break;
+            }
+            MediaPortPair pair = pairs[index];
+            if (pair.releasedAt != 0 && System.nanoTime() - pair.releasedAt < quarantineNanos) {
+                // 队列按归还顺序排列，队首仍在隔离期说明所有空闲端口都在隔离期
+                freePairs.offer(index);
+                break;
+            }
+            states.set(index, LEASED);
+            try {
+                bindPair(pair, bindAddress);
+                return pair;
+            } catch (IOException e) {
+                log.warn("媒体端口 {}/{} 绑定失败，尝试下一对: {}", pair.getRtpPort(), pair.getRtcpPort(), e.getMessage());
+                closePair(pair);
+                pair.releasedAt = System.nanoTime();
+                states.set(index, FREE);
+                freePairs.offer(index);
+            }
+        }
+        throw new IllegalStateException("媒体端口已耗尽，空闲: " + freePairs.size());
+    }
+
+    /**
+     * 归还端口对；重复归还会被忽略
+     * 调用前应已将通道从事件循环注销，复用时残留在内核缓冲区的数据报会被丢弃
+     */
+    public void release(MediaPortPair pair) {
+        if (pair == null || !states.compareAndSet(pair.index, LEASED, FREE)) {
+            return;
+        }
+        if (!mediaConfig.isPortSocketReuse()) {
+            closePair(pair);
+        }
+        pair.releasedAt = System.nanoTime();
+        freePairs.offer(pair.index);
+    }
+
+    public int getCapacity() {
+        return pairs.length;
+    }
+
+    /**
+     * 当前空闲(含隔离期)的端口对数量
+     */
+    public int getAvailable() {
+        return freePairs.size();
+    }
+
+    /**
+     * 获取合适的本地绑定地址
+     * 优先使用第一个内网IPv4地址，否则使用0.0.0.0；首次调用后缓存
+     */
+    public String getLocalBindAddress() {
+        String address = localBindAddress;
+        if (address == null) {
+            address = resolveLocalBindAddress();
+            localBindAddress = address;
+        }
+        return address;
+    }
+
+    /**
+     * 网卡变化后重新解析本地绑定地址
+     */
+    public void refreshLocalBindAddress() {
+        localBindAddress = resolveLocalBindAddress();
+    }
+
+    /**
+     * 关闭空闲端口对的通道；仍被租用的端口对由持有的会话归还后处理，不在这里关闭
+     */
+    @PreDestroy
+    public void closeAll() {
+        for (MediaPortPair pair : pairs) {
+            if (states.get(pair.index) != LEASED) {
+                closePair(pair);
+            }
+        }
+    }
+
+    private void bindPair(MediaPortPair pair, String bindAddress) throws IOException {
+        if (pair.rtpChannel != null && pair.rtpChannel.isOpen() && pair.rtcpChannel != null
+                && pair.rtcpChannel.isOpen() && bindAddress.equals(pair.bindAddress)) {
+            drain(pair.rtpChannel);
+            drain(pair.rtcpChannel);
+            return;
+        }
+        closePair(pair);
+        InetAddress inetAddress = InetAddress.getByName(bindAddress);
+        pair.rtpChannel = openChannel(new InetSocketAddress(inetAddress, pair.getRtpPort()));
+        pair.rtcpChannel = openChannel(new InetSocketAddress(inetAddress, pair.getRtcpPort()));
+        pair.bindAddress = bindAddress;
+    }
+
+    private DatagramChannel openChannel(InetSocketAddress bindAddress) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, mediaConfig.getSocketReceiveBufferSize());
+            channel.bind(bindAddress);
+            channel.configureBlocking(false);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 丢弃复用通道中上一通话残留的数据报
+     */
+    private void drain(DatagramChannel channel) throws IOException {
+        if (channel.isBlocking()) {
+            channel.configureBlocking(false);
+        }
+        ByteBuffer scratch = ByteBuffer.allocate(2048);
+        SocketAddress source;
+        do {
+            scratch.clear();
+            source = channel.receive(scratch);
+        } while (source != null);
+    }
+
+    private void closePair(MediaPortPair pair) {
+        closeQuietly(pair.rtpChannel);
+        closeQuietly(pair.rtcpChannel);
+        pair.rtpChannel = null;
+        pair.rtcpChannel = null;
+        pair.bindAddress = null;
+    }
+
+    private void closeQuietly(DatagramChannel channel) {
+        if (channel != null && channel.isOpen()) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("关闭媒体通道失败", e);
+            }
+        }
+    }
+
+    private String resolveLocalBindAddress() {
+        try {
+            // 1. 获取本机所有网络接口
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            while (interfaces.hasMoreElements()) {
+                NetworkInterface iface = interfaces.nextElement();
+                // 跳过禁用的接口和回环接口
+                if (!iface.isUp() || iface.isLoopback()) {
+                    continue;
+                }
+                Enumeration<InetAddress> addresses = iface.getInetAddresses();
+                while (addresses.hasMoreElements()) {
+                    InetAddress addr = addresses.nextElement();
+                    // 只使用IPv4内网地址
+                    if (addr instanceof Inet4Address && isPrivateAddress(addr.getHostAddress())) {
+                        log.info("找到可用的内网地址: {}", addr.getHostAddress());
+                        return addr.getHostAddress();
+                    }
+                }
+            }
+            // 2. 如果没有找到内网地址，使用0.0.0.0
+            log.info("未找到内网地址,使用0.0.0.0");
+            return ANY_ADDRESS;
+        } catch (Exception e) {
+            log.warn("获取本地绑定地址失败,使用0.0.0.0", e);
+            return ANY_ADDRESS;
+        }
+    }
+
+    /**
+     * 判断是否是内网地址
+     */
+    private static boolean isPrivateAddress(String ipAddress) {
+        try {
+            String[] parts = ipAddress.split("\\.");
+            int firstOctet = Integer.parseInt(parts[0]);
+            int secondOctet = Integer.parseInt(parts[1]);
+            // 10.0.0.0/8
+            if (firstOctet == 10) {
+                return true;
+            }
+            // 172.16.0.0/12
+            if (firstOctet == 172 && secondOctet >= 16 && secondOctet <= 31) {
+                return true;
+            }
+            // 192.168.0.0/16
+            return firstOctet == 192 && secondOctet == 168;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
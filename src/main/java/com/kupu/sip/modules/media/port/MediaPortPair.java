@@ -0,0 +1,42 @@
+package com.kupu.sip.modules.media.port;
+
+import java.nio.channels.DatagramChannel;
+
+/**
+ * 分配给一路通话的RTP/RTCP端口对
+ * RTP使用偶数端口，RTCP使用紧随其后的奇数端口；通道在归还后可被下一次分配复用
+ */
+public class MediaPortPair {
+    final int index;
+    final int rtpPort;
+    // 以下字段只由持有租约的线程访问，借还通过无锁队列发布
+    String bindAddress;
+    DatagramChannel rtpChannel;
+    DatagramChannel rtcpChannel;
+    long releasedAt;
+
+    MediaPortPair(int index, int rtpPort) {
+        this.index = index;
+        this.rtpPort = rtpPort;
+    }
+
+    public int getRtpPort() {
+        return rtpPort;
+    }
+
+    public int getRtcpPort() {
+        return rtpPort + 1;
+    }
+
+    public String getBindAddress() {
+        return bindAddress;
+    }
+
+    public DatagramChannel getRtpChannel() {
+        return rtpChannel;
+    }
+
+    public DatagramChannel getRtcpChannel() {
+        return rtcpChannel;
+    }
+}
@@ -0,0 +1,129 @@
+package com.kupu.sip.modules.media.prompt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * 已按编码和打包时长切分好的提示音，构造后只读，可被任意多路通话同时播放。
+ * 负载可能在堆内(WAV转码结果)，也可能是裸G.711文件的内存映射
+ */
+public class Prompt {
+    private final String path;
+    private final int payloadType;
+    private final int ptimeMs;
+    // 只读，播放时各自duplicate后读取
+    private final ByteBuffer payloads;
+    private final boolean mapped;
+    private final int frameLength;
+    private final int frameCount;
+    private final long lastModified;
+    private final long fileLength;
+    // 上次检查文件是否变化的时间(System.nanoTime)
+    private volatile long checkedAt;
+    // 映射文件的标识(设备号与inode)，用于区分原地改写与原子重命名替换；非映射或平台不支持时为null
+    private final Object fileKey;
+    // 播放中复查映射文件长度的时间与结果，所有播放该提示音的通话共用
+    private volatile long mappedCheckedAt;
+    private volatile boolean truncated;
+
+    Prompt(String path, int payloadType, int ptimeMs, ByteBuffer payloads, boolean mapped, int frameLength,
+           long lastModified, long fileLength, long checkedAt) {
+        this(path, payloadType, ptimeMs, payloads, mapped, frameLength, lastModified, fileLength, checkedAt, null);
+    }
+
+    Prompt(String path, int payloadType, int ptimeMs, ByteBuffer payloads, boolean mapped, int frameLength,
+           long lastModified, long fileLength, long checkedAt, Object fileKey) {
+        this.path = path;
+        this.payloadType = payloadType;
+        this.ptimeMs = ptimeMs;
+        this.payloads = payloads.asReadOnlyBuffer();
+        this.mapped = mapped;
+        this.frameLength = frameLength;
+        this.frameCount = frameLength == 0 ? 0 : (payloads.capacity() + frameLength - 1) / frameLength;
+        this.lastModified = lastModified;
+        this.fileLength = fileLength;
+        this.checkedAt = checkedAt;
+        this.fileKey = fileKey;
+        this.mappedCheckedAt = checkedAt;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getPayloadType() {
+        return payloadType;
+    }
+
+    public int getPtimeMs() {
+        return ptimeMs;
+    }
+
+    /**
+     * 所有帧负载首尾相接存放，第i帧位于 i * frameLength，末帧可能不足一帧
+     */
+    ByteBuffer getPayloads() {
+        return payloads;
+    }
+
+    /**
+     * 负载是否为文件内存映射
+     */
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    public int getFrameLength() {
+        return frameLength;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public int getSizeBytes() {
+        return payloads.capacity();
+    }
+
+    long getLastModified() {
+        return lastModified;
+    }
+
+    long getFileLength() {
+        return fileLength;
+    }
+
+    long getCheckedAt() {
+        return checkedAt;
+    }
+
+    void setCheckedAt(long checkedAt) {
+        this.checkedAt = checkedAt;
+    }
+
+    /**
+     * 映射的文件是否已被原地截断到不足映射长度，读取截断部分会触发SIGBUS
+     * 每个打包时长至多复查一次文件属性；文件被原子重命名替换时原映射仍指向旧文件，继续有效
+     */
+    boolean isTruncated(long nowNanos) {
+        if (truncated) {
+            return true;
+        }
+        if (nowNanos - mappedCheckedAt < ptimeMs * 1_000_000L) {
+            return false;
+        }
+        mappedCheckedAt = nowNanos;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+            if ((fileKey == null || fileKey.equals(attributes.fileKey())) && attributes.size() < payloads.capacity()) {
+                truncated = true;
+            }
+        } catch (IOException e) {
+            // 文件已被删除或替换，原映射仍然有效
+        }
+        return truncated;
+    }
+}
@@ -0,0 +1,424 @@
+package com.kupu.sip.modules.media.prompt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.springframework.stereotype.Component;
+
+import com.kupu.sip.common.configs.MediaConfig;
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.codec.AudioCodecs;
+import com.kupu.sip.modules.media.codec.G711ALawCodec;
+import com.kupu.sip.modules.media.codec.G711Transcoder;
+import com.kupu.sip.modules.media.codec.G711ULawCodec;
+import com.kupu.sip.modules.media.resample.PolyphaseResampler;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 提示音缓存
+ * 按(文件, 负载类型, 打包时长)缓存编码切帧后的负载，放音时只需拷贝；按总字节数做LRU淘汰，
+ * 文件修改时间或大小变化时重新加载(检查间隔可配置)。启动时可预加载常用提示音。
+ * 无文件头的裸G.711文件(.alaw/.pcma、.ulaw/.pcmu)只做一次内存映射，负载直接从映射切片，不占用堆也不计入LRU；
+ * 通话协商的是另一种G.711时，查表转码一次后按普通提示音缓存。
+ * 映射由正在播放的通话共享，更新提示音须先写临时文件再原子重命名(mv)覆盖，不能原地改写或截断：
+ * 修改时间检查只对之后的新放音生效；正在播放的通话按打包时长复查映射文件，发现被原地截断时按失败结束放音，
+ * 但复查之间的截断仍可能在读取时触发SIGBUS
+ */
+@Slf4j
+@Component
+public class PromptCache {
+    public static final int DEFAULT_PTIME_MS = 20;
+
+    private final MediaConfig mediaConfig;
+    private final long maxBytes;
+    private final long checkIntervalNanos;
+    // 访问顺序的LinkedHashMap实现LRU，所有访问在this上同步
+    private final LinkedHashMap<String, Prompt> prompts = new LinkedHashMap<>(64, 0.75f, true);
+    private long sizeBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    // 内存映射的裸G.711提示音
+    private final Map<String, Prompt> mappedPrompts = new ConcurrentHashMap<>();
+
+    public PromptCache(MediaConfig mediaConfig) {
+        this.mediaConfig = mediaConfig;
+        this.maxBytes = mediaConfig.getPromptCacheMaxBytes();
+        this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(mediaConfig.getPromptCheckIntervalMs());
+    }
+
+    @PostConstruct
+    public void preload() {
+        List<String> paths = mediaConfig.getPromptPreload();
+        if (paths == null || paths.isEmpty()) {
+            return;
+        }
+        for (String path : paths) {
+            for (AudioCodec codec : AudioCodecs.supported()) {
+                try {
+                    Prompt prompt = get(path, codec, DEFAULT_PTIME_MS);
+                    log.info("预加载提示音: {}, {}, {} 帧", path, codec.getEncodingName(), prompt.getFrameCount());
+                } catch (Exception e) {
+                    log.warn("预加载提示音失败: {}, {}", path, codec.getEncodingName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取提示音，未缓存或文件已变化时加载
+     *
+     * @param path    音频文件路径
+     * @param codec   通话协商的编码
+     * @param ptimeMs 打包时长(毫秒)
+     */
+    public Prompt get(String path, AudioCodec codec, int ptimeMs) throws IOException, UnsupportedAudioFileException {
+        int rawPayloadType = rawPayloadType(path);
+        if (rawPayloadType >= 0) {
+            return getMapped(path, rawPayloadType, codec, ptimeMs);
+        }
+        String key = key(path, codec.getPayloadType(), ptimeMs);
+        long now = System.nanoTime();
+        Prompt prompt;
+        synchronized (this) {
+            prompt = prompts.get(key);
+        }
+        if (prompt != null) {
+            if (now - prompt.getCheckedAt() < checkIntervalNanos || isUnchanged(prompt)) {
+                prompt.setCheckedAt(now);
+                synchronized (this) {
+                    hits++;
+                }
+                return prompt;
+            }
+            synchronized (this) {
+                if (prompts.get(key) == prompt) {
+                    remove(key);
+                    invalidations++;
+                }
+            }
+            log.info("提示音文件已变化，重新加载: {}", path);
+        }
+        prompt = load(path, codec, ptimeMs, now);
+        put(key, prompt);
+        return prompt;
+    }
+
+    /**
+     * 移除指定文件的所有缓存
+     */
+    public synchronized void invalidate(String path) {
+        mappedPrompts.values().removeIf(prompt -> prompt.getPath().equals(path));
+        Iterator<Map.Entry<String, Prompt>> it = prompts.entrySet().iterator();
+        while (it.hasNext()) {
+            Prompt prompt = it.next().getValue();
+            if (prompt.getPath().equals(path)) {
+                sizeBytes -= prompt.getSizeBytes();
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    public synchronized PromptCacheStats getStats() {
+        PromptCacheStats stats = new PromptCacheStats();
+        stats.setEntries(prompts.size());
+        stats.setSizeBytes(sizeBytes);
+        stats.setMaxBytes(maxBytes);
+        stats.setHits(hits);
+        stats.setMisses(misses);
+        stats.setEvictions(evictions);
+        stats.setInvalidations(invalidations);
+        long mappedBytes = 0;
+        for (Prompt prompt : mappedPrompts.values()) {
+            mappedBytes += prompt.getSizeBytes();
+        }
+        stats.setMappedEntries(mappedPrompts.size());
+        stats.setMappedBytes(mappedBytes);
+        return stats;
+    }
+
+    public synchronized List<String> getCachedPaths() {
+        List<String> paths = new ArrayList<>(prompts.size());
+        for (Prompt prompt : prompts.values()) {
+            paths.add(prompt.getPath());
+        }
+        return paths;
+    }
+
+    /**
+     * 裸G.711文件按扩展名识别编码，其他文件返回-1
+     */
+    static int rawPayloadType(String path) {
+        String lower = path.toLowerCase();
+        if (lower.endsWith(".alaw") || lower.endsWith(".pcma")) {
+            return G711ALawCodec.PAYLOAD_TYPE;
+        }
+        if (lower.endsWith(".ulaw") || lower.endsWith(".pcmu")) {
+            return G711ULawCodec.PAYLOAD_TYPE;
+        }
+        return -1;
+    }
+
+    private Prompt getMapped(String path, int rawPayloadType, AudioCodec codec, int ptimeMs)
+            throws IOException, UnsupportedAudioFileException {
+        String key = key(path, rawPayloadType, ptimeMs);
+        long now = System.nanoTime();
+        Prompt prompt = mappedPrompts.get(key);
+        if (codec.getPayloadType() != rawPayloadType) {
+            return getTranscoded(path, rawPayloadType, codec, ptimeMs, now);
+        }
+        if (prompt != null && (now - prompt.getCheckedAt() < checkIntervalNanos || isUnchanged(prompt))) {
+            prompt.setCheckedAt(now);
+            synchronized (this) {
+                hits++;
+            }
+            return prompt;
+        }
+        File file = new File(path);
+        long lastModified = file.lastModified();
+        Object fileKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // 映射在通道关闭后依然有效，由GC回收
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int frameLength = codec.getSampleRate() * ptimeMs / 1000; // G.711每采样一字节
+            prompt = new Prompt(path, rawPayloadType, ptimeMs, mapped, true, frameLength, lastModified,
+                    channel.size(), now, fileKey);
+        }
+        mappedPrompts.put(key, prompt);
+        synchronized (this) {
+            misses++;
+        }
+        log.info("提示音已映射: {}, {} 字节", path, prompt.getSizeBytes());
+        return prompt;
+    }
+
+    /**
+     * 裸G.711提示音转为通话协商的编码，结果按普通提示音缓存
+     * 另一种G.711直接查表转码；其他编码(如G.722)先解码为PCM，重采样后重新编码
+     */
+    private Prompt getTranscoded(String path, int rawPayloadType, AudioCodec codec, int ptimeMs, long now)
+            throws IOException, UnsupportedAudioFileException {
+        String key = key(path, codec.getPayloadType(), ptimeMs);
+        Prompt prompt;
+        synchronized (this) {
+            prompt = prompts.get(key);
+        }
+        if (prompt != null && (now - prompt.getCheckedAt() < checkIntervalNanos || isUnchanged(prompt))) {
+            prompt.setCheckedAt(now);
+            synchronized (this) {
+                hits++;
+            }
+            return prompt;
+        }
+        File file = new File(path);
+        long lastModified = file.lastModified();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        ByteBuffer payloads = ByteBuffer.wrap(bytes);
+        int frameLength = codec.getSampleRate() * ptimeMs / 1000;
+        if (!G711Transcoder.transcode(rawPayloadType, payloads, 0, bytes.length, codec.getPayloadType(), payloads, 0)) {
+            PromptEncoder encoder = new PromptEncoder(codec, ptimeMs, 8000, bytes.length);
+            short[] pcm = new short[bytes.length];
+            AudioCodec raw = AudioCodecs.forPayloadType(rawPayloadType);
+            encoder.write(pcm, raw.decode(payloads, 0, bytes.length, pcm, 0));
+            bytes = encoder.finish();
+            payloads = ByteBuffer.wrap(bytes);
+            frameLength = encoder.getFrameLength();
+        }
+        prompt = new Prompt(path, codec.getPayloadType(), ptimeMs, payloads, false, frameLength, lastModified,
+                bytes.length, now);
+        put(key, prompt);
+        log.info("提示音已转码: {}, {}, {} 字节", path, codec.getEncodingName(), bytes.length);
+        return prompt;
+    }
+
+    private synchronized void put(String key, Prompt prompt) {
+        misses++;
+        if (prompt.getSizeBytes() > maxBytes) {
+            log.warn("提示音超过缓存上限，不缓存: {}, {} 字节", prompt.getPath(), prompt.getSizeBytes());
+            return;
+        }
+        Prompt old = prompts.put(key, prompt);
+        if (old != null) {
+            sizeBytes -= old.getSizeBytes();
+        }
+        sizeBytes += prompt.getSizeBytes();
+        evict();
+    }
+
+    private void remove(String key) {
+        Prompt prompt = prompts.remove(key);
+        if (prompt != null) {
+            sizeBytes -= prompt.getSizeBytes();
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Prompt>> it = prompts.entrySet().iterator();
+        while (sizeBytes > maxBytes && it.hasNext()) {
+            Prompt prompt = it.next().getValue();
+            it.remove();
+            sizeBytes -= prompt.getSizeBytes();
+            evictions++;
+            log.info("提示音缓存淘汰: {}", prompt.getPath());
+        }
+    }
+
+    private static boolean isUnchanged(Prompt prompt) {
+        File file = new File(prompt.getPath());
+        return file.lastModified() == prompt.getLastModified() && file.length() == prompt.getFileLength();
+    }
+
+    private static String key(String path, int payloadType, int ptimeMs) {
+        return path + '#' + payloadType + '#' + ptimeMs;
+    }
+
+    /**
+     * 读取音频文件，转换为编码采样率的16位单声道PCM后逐帧编码，末帧补静音
+     * 编码、位宽和字节序交给AudioSystem转换，多声道取平均，采样率由内置多相重采样器转换
+     * (AudioSystem对24kHz等TTS常见采样率的转换经常不支持且开销大)
+     */
+    private static Prompt load(String path, AudioCodec codec, int ptimeMs, long now)
+            throws IOException, UnsupportedAudioFileException {
+        File file = new File(path);
+        long lastModified = file.lastModified();
+        long fileLength = file.length();
+        AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(file);
+        AudioFormat sourceFormat = audioInputStream.getFormat();
+        int channels = Math.max(1, sourceFormat.getChannels());
+        int sourceRate = Math.round(sourceFormat.getSampleRate());
+        AudioFormat pcmFormat = new AudioFormat(sourceFormat.getSampleRate(), 16, channels, true, false);
+        if (!sourceFormat.matches(pcmFormat)) {
+            audioInputStream = AudioSystem.getAudioInputStream(pcmFormat, audioInputStream);
+        }
+        int chunkSamples = Math.max(1, sourceRate * ptimeMs / 1000);
+        byte[] raw = new byte[chunkSamples * channels * 2];
+        short[] mono = new short[chunkSamples];
+        PromptEncoder encoder = new PromptEncoder(codec, ptimeMs, sourceRate, (int) Math.min(fileLength, Integer.MAX_VALUE / 2));
+        try (AudioInputStream in = audioInputStream) {
+            int filled;
+            while ((filled = readFully(in, raw)) > 0) {
+                int samples = filled / (2 * channels);
+                for (int i = 0; i < samples; i++) {
+                    int sum = 0;
+                    for (int c = 0; c < channels; c++) {
+                        int pos = (i * channels + c) * 2;
+                        sum += (short) ((raw[pos + 1] & 0xFF) << 8 | (raw[pos] & 0xFF));
+                    }
+                    mono[i] = (short) (sum / channels);
+                }
+                encoder.write(mono, samples);
+                if (filled < raw.length) {
+                    break;
+                }
+            }
+        }
+        byte[] bytes = encoder.finish();
+        log.info("提示音已加载: {}, {}Hz -> {}, ptime {}ms, {} 字节", path, sourceRate, codec.getEncodingName(), ptimeMs,
+                bytes.length);
+        return new Prompt(path, codec.getPayloadType(), ptimeMs, ByteBuffer.wrap(bytes), false,
+                encoder.getFrameLength(), lastModified, fileLength, now);
+    }
+
+    /**
+     * 单声道PCM重采样到编码采样率后按打包时长切帧编码，末帧补静音
+     * 有状态编码(G.722)使用独立的编码实例，不影响通话中的编码状态
+     */
+    private static final class PromptEncoder {
+        private final AudioCodec codec;
+        private final PolyphaseResampler resampler;
+        private final short[] pcm;
+        private final ByteBuffer frame;
+        private short[] resampled = new short[0];
+        private ByteBuffer payloads;
+        private int buffered;
+        private int frameLength;
+
+        PromptEncoder(AudioCodec codec, int ptimeMs, int sourceRate, int capacityHint) {
+            this.codec = codec.newSession();
+            this.resampler = new PolyphaseResampler(sourceRate, codec.getSampleRate());
+            int samplesPerFrame = codec.getSampleRate() * ptimeMs / 1000;
+            this.pcm = new short[samplesPerFrame];
+            this.frame = ByteBuffer.allocate(samplesPerFrame * 2);
+            this.payloads = ByteBuffer.allocate(Math.max(samplesPerFrame * 2, capacityHint));
+        }
+
+        void write(short[] mono, int samples) {
+            int max = resampler.maxOutputSamples(samples);
+            if (resampled.length < max) {
+                resampled = new short[max];
+            }
+            int produced = resampler.process(mono, 0, samples, resampled, 0);
+            for (int i = 0; i < produced; i++) {
+                pcm[buffered++] = resampled[i];
+                if (buffered == pcm.length) {
+                    encodeFrame();
+                }
+            }
+        }
+
+        byte[] finish() {
+            if (buffered > 0) {
+                for (int i = buffered; i < pcm.length; i++) {
+                    pcm[i] = 0;
+                }
+                encodeFrame();
+            }
+            byte[] bytes = new byte[payloads.position()];
+            payloads.flip();
+            payloads.get(bytes);
+            return bytes;
+        }
+
+        int getFrameLength() {
+            return frameLength;
+        }
+
+        private void encodeFrame() {
+            frameLength = codec.encode(pcm, 0, pcm.length, frame, 0);
+            if (payloads.remaining() < frameLength) {
+                ByteBuffer grown = ByteBuffer.allocate(payloads.capacity() * 2);
+                payloads.flip();
+                grown.put(payloads);
+                payloads = grown;
+            }
+            frame.limit(frameLength).position(0);
+            payloads.put(frame);
+            frame.clear();
+            buffered = 0;
+        }
+    }
+
+    private static int readFully(AudioInputStream in, byte[] buffer) throws IOException {
+        int filled = 0;
+        while (filled < buffer.length) {
+            int read = in.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                break;
+            }
+            filled += read;
+        }
+        return filled;
+    }
+}
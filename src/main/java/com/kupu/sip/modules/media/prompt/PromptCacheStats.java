@@ -0,0 +1,19 @@
+package com.kupu.sip.modules.media.prompt;
+
+import lombok.Data;
+
+/**
+ * 提示音缓存统计
+ */
+@Data
+public class PromptCacheStats {
+    private int entries;
+    private long sizeBytes;
+    private long maxBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private int mappedEntries;
+    private long mappedBytes;
+}
@@ -0,0 +1,59 @@
+package com.kupu.sip.modules.media.prompt;
+
+import java.nio.ByteBuffer;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.playout.PlayoutSource;
+
+/**
+ * 播放缓存的提示音，每帧只做一次负载拷贝(内存映射时直接从页缓存拷入发送帧)，不再解码或编码。
+ * 映射的文件在播放中被原地截断时抛出{@link IllegalStateException}，由放音队列按失败结束当前放音项
+ */
+public class PromptPlayoutSource implements PlayoutSource {
+    private final Prompt prompt;
+    // 每次播放独立的读视图，共享底层负载
+    private final ByteBuffer payloads;
+    private int frame;
+
+    public PromptPlayoutSource(Prompt prompt) {
+        this.prompt = prompt;
+        this.payloads = prompt.getPayloads().duplicate();
+    }
+
+    @Override
+    public int nextFrame(ByteBuffer packet, int payloadPos, AudioCodec codec, int samplesPerFrame) {
+        if (frame >= prompt.getFrameCount()) {
+            return END;
+        }
+        if (prompt.isMapped() && prompt.isTruncated(System.nanoTime())) {
+            frame = prompt.getFrameCount();
+            throw new IllegalStateException("提示音文件播放中被截断: " + prompt.getPath());
+        }
+        int offset = frame * prompt.getFrameLength();
+        int length = Math.min(prompt.getFrameLength(), payloads.capacity() - offset);
+        payloads.limit(offset + length).position(offset);
+        packet.position(payloadPos);
+        try {
+            packet.put(payloads);
+        } catch (InternalError e) {
+            // 两次复查之间文件被截断，越过新的文件末尾读取触发SIGBUS，JVM抛出InternalError。
+            // 编译后的代码中该错误可能在稍后才抛出而不经过这里，下一帧的复查会结束放音
+            frame = prompt.getFrameCount();
+            throw new IllegalStateException("提示音文件播放中被修改: " + prompt.getPath(), e);
+        } finally {
+            packet.position(0);
+        }
+        frame++;
+        return length;
+    }
+
+    @Override
+    public int getDurationMs() {
+        return prompt.getFrameCount() * prompt.getPtimeMs();
+    }
+
+    @Override
+    public String getName() {
+        return prompt.getPath();
+    }
+}
@@ -0,0 +1,19 @@
+package com.kupu.sip.modules.media.reactor;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * 媒体通道数据包处理器，在所属事件循环线程上回调
+ */
+public interface MediaChannelHandler {
+
+    /**
+     * 收到一个UDP数据包
+     *
+     * @param packet 数据包内容，position为0，limit为包长度；仅在回调期间有效，不可持有
+     * @param source 发送方地址
+     */
+    void onPacket(ByteBuffer packet, SocketAddress source);
+
+}
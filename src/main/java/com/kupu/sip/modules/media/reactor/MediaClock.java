@@ -0,0 +1,108 @@
+package com.kupu.sip.modules.media.reactor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 媒体时钟
+ * 按固定周期产生节拍，第n个节拍的计划时间恒为 起点 + n * 周期，调度误差不会累积；
+ * 落后超过一个周期时跳过错过的节拍并计数。每个节拍的实际触发时间相对计划时间的偏差记入直方图。
+ * 节拍推进只在所属事件循环线程调用，统计可跨线程读取
+ */
+public class MediaClock {
+    // 偏差直方图桶上界(微秒)，最后一个桶收纳其余所有样本
+    static final long[] BUCKET_BOUNDS_MICROS = {50, 100, 250, 500, 1000, 2000, 5000, 10000, 20000};
+
+    private final long periodNanos;
+    private long startNanos;
+    private long tickIndex;
+    private long nextTickNanos;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MICROS.length + 1);
+    private volatile long ticks;
+    private volatile long skippedTicks;
+    private volatile long totalDeviationNanos;
+    private volatile long maxDeviationNanos;
+
+    public MediaClock(long periodNanos) {
+        this.periodNanos = periodNanos;
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /**
+     * 从指定时间开始计时，第一个节拍在一个周期之后
+     */
+    public void start(long nowNanos) {
+        startNanos = nowNanos;
+        tickIndex = 1;
+        nextTickNanos = startNanos + periodNanos;
+    }
+
+    /**
+     * 距下一个节拍的纳秒数，已到期时为0或负数
+     */
+    public long nanosUntilTick(long nowNanos) {
+        return nextTickNanos - nowNanos;
+    }
+
+    /**
+     * 当前节拍的计划时间
+     */
+    public long scheduledNanos() {
+        return nextTickNanos;
+    }
+
+    /**
+     * 节拍到期时推进到下一个节拍并记录偏差
+     *
+     * @return 是否有节拍到期
+     */
+    public boolean advance(long nowNanos) {
+        long deviation = nowNanos - nextTickNanos;
+        if (deviation < 0) {
+            return false;
+        }
+        record(deviation);
+        tickIndex++;
+        if (deviation >= periodNanos) {
+            // 错过的节拍不补发，从下一个未来的计划点继续
+            long missed = deviation / periodNanos;
+            tickIndex += missed;
+            skippedTicks += missed;
+        }
+        nextTickNanos = startNanos + tickIndex * periodNanos;
+        return true;
+    }
+
+    public MediaClockStats snapshot() {
+        MediaClockStats stats = new MediaClockStats();
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        long n = ticks;
+        stats.setTicks(n);
+        stats.setSkippedTicks(skippedTicks);
+        stats.setMeanDeviationMicros(n == 0 ? 0 : totalDeviationNanos / n / 1000);
+        stats.setMaxDeviationMicros(maxDeviationNanos / 1000);
+        stats.setBucketBoundsMicros(BUCKET_BOUNDS_MICROS.clone());
+        stats.setBucketCounts(counts);
+        return stats;
+    }
+
+    private void record(long deviationNanos) {
+        long micros = deviationNanos / 1000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MICROS.length && micros >= BUCKET_BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+        buckets.lazySet(bucket, buckets.get(bucket) + 1);
+        ticks++;
+        totalDeviationNanos += deviationNanos;
+        if (deviationNanos > maxDeviationNanos) {
+            maxDeviationNanos = deviationNanos;
+        }
+    }
+}
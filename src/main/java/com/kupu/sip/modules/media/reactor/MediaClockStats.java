@@ -0,0 +1,61 @@
+package com.kupu.sip.modules.media.reactor;
+
+import lombok.Data;
+
+/**
+ * 媒体时钟统计：节拍数、跳过的节拍数与发送时刻偏差直方图
+ */
+@Data
+public class MediaClockStats {
+    private int loopIndex;
+    private long ticks;
+    private long skippedTicks;
+    private long meanDeviationMicros;
+    private long maxDeviationMicros;
+    // bucketCounts[i]为偏差小于bucketBoundsMicros[i]的样本数(不含前一个桶)，最后一个桶为超出所有上界的样本
+    private long[] bucketBoundsMicros;
+    private long[] bucketCounts;
+
+    /**
+     * 按直方图估算偏差分位数(取所在桶上界，微秒)；落在最后一个桶时返回最大偏差
+     *
+     * @param quantile 0~1
+     */
+    public long percentileMicros(double quantile) {
+        long total = 0;
+        for (long count : bucketCounts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < bucketBoundsMicros.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return bucketBoundsMicros[i];
+            }
+        }
+        return maxDeviationMicros;
+    }
+
+    /**
+     * 合并另一个时钟的统计，用于汇总所有事件循环
+     */
+    public void merge(MediaClockStats other) {
+        long n = ticks + other.ticks;
+        meanDeviationMicros = n == 0 ? 0 : (meanDeviationMicros * ticks + other.meanDeviationMicros * other.ticks) / n;
+        ticks = n;
+        skippedTicks += other.skippedTicks;
+        maxDeviationMicros = Math.max(maxDeviationMicros, other.maxDeviationMicros);
+        if (bucketCounts == null) {
+            bucketBoundsMicros = other.bucketBoundsMicros.clone();
+            bucketCounts = other.bucketCounts.clone();
+        } else {
+            for (int i = 0; i < bucketCounts.length; i++) {
+                bucketCounts[i] += other.bucketCounts[i];
+            }
+        }
+    }
+}
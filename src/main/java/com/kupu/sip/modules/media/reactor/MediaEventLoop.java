@@ -0,0 +1,265 @@
+package com.kupu.sip.modules.media.reactor;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 媒体事件循环
+ * 一个线程 + 一个Selector，复用服务多路通话的RTP/RTCP通道；通道的注册与注销都在循环线程内执行。
+ * 循环同时由{@link MediaClock}提供20ms周期的媒体节拍，驱动各通话的抖动缓冲出帧和出向RTP发送；
+ * 临近节拍时改为短暂自旋，弥补Selector毫秒级超时的精度不足
+ */
+@Slf4j
+public class MediaEventLoop implements Runnable {
+    private static final int MAX_PACKET_SIZE = 2048;
+    public static final long TICK_INTERVAL_NANOS = 20_000_000L;
+
+    private final int index;
+    private final int maxReadsPerChannel;
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // 接收缓冲区由循环线程独占，所有通道共用
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    // 节拍处理器，仅在循环线程访问
+    private final List<MediaTickHandler> tickHandlers = new ArrayList<>();
+    private final MediaClock clock = new MediaClock(TICK_INTERVAL_NANOS);
+    // 距节拍不足该时长时自旋等待
+    private final long spinNanos;
+    private volatile boolean running = true;
+
+    public MediaEventLoop(int index, int maxReadsPerChannel, long spinNanos) throws IOException {
+        this.index = index;
+        this.maxReadsPerChannel = maxReadsPerChannel;
+        this.spinNanos = spinNanos;
+        this.selector = Selector.open();
+        this.thread = new Thread(this, "media-loop-" + index);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * 当前绑定到该循环的通话数
+     */
+    public int getSessionCount() {
+        return sessionCount.get();
+    }
+
+    /**
+     * 媒体时钟统计(节拍偏差直方图)
+     */
+    public MediaClockStats getClockStats() {
+        MediaClockStats stats = clock.snapshot();
+        stats.setLoopIndex(index);
+        return stats;
+    }
+
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * 在循环线程上执行任务
+     */
+    public void execute(Runnable task) {
+        if (inEventLoop()) {
+            task.run();
+            return;
+        }
+        tasks.offer(task);
+        selector.wakeup();
+    }
+
+    /**
+     * 通话绑定到该循环
+     */
+    public void attachSession() {
+        sessionCount.incrementAndGet();
+    }
+
+    /**
+     * 通话从该循环解绑
+     */
+    public void detachSession() {
+        sessionCount.decrementAndGet();
+    }
+
+    /**
+     * 注册非阻塞数据报通道
+     *
+     * @param channel 已绑定的通道
+     * @param handler 数据包处理器
+     * @return 注册完成后的SelectionKey
+     */
+    public CompletableFuture<SelectionKey> register(DatagramChannel channel, MediaChannelHandler handler) {
+        CompletableFuture<SelectionKey> future = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey stale = channel.keyFor(selector);
+                if (stale != null && !stale.isValid()) {
+                    // 同一通道重新注册前先让Selector清理已取消的key
+                    selector.selectNow();
+                }
+                future.complete(channel.register(selector, SelectionKey.OP_READ, handler));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 注销通道，不关闭通道本身
+     */
+    public void deregister(DatagramChannel channel) {
+        execute(() -> {
+            SelectionKey key = channel.keyFor(selector);
+            if (key != null) {
+                key.cancel();
+            }
+        });
+    }
+
+    /**
+     * 加入媒体节拍
+     */
+    public void addTickHandler(MediaTickHandler handler) {
+        execute(() -> tickHandlers.add(handler));
+    }
+
+    /**
+     * 退出媒体节拍
+     */
+    public void removeTickHandler(MediaTickHandler handler) {
+        execute(() -> tickHandlers.remove(handler));
+    }
+
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        log.info("媒体事件循环启动: {}", thread.getName());
+        clock.start(System.nanoTime());
+        while (running) {
+            try {
+                long waitNanos = clock.nanosUntilTick(System.nanoTime()) - spinNanos;
+                if (waitNanos >= 1_000_000L) {
+                    selector.select(waitNanos / 1_000_000L);
+                } else {
+                    selector.selectNow();
+                }
+                runTasks();
+                processSelectedKeys();
+                runTicks();
+            } catch (Throwable t) {
+                log.error("媒体事件循环异常: {}", thread.getName(), t);
+            }
+        }
+        runTasks();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.warn("关闭Selector失败: {}", thread.getName(), e);
+        }
+        log.info("媒体事件循环退出: {}", thread.getName());
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("媒体事件循环任务执行失败", t);
+            }
+        }
+    }
+
+    private void runTicks() {
+        long now = System.nanoTime();
+        if (!clock.advance(now)) {
+            return;
+        }
+        for (int i = 0; i < tickHandlers.size(); i++) {
+            try {
+                tickHandlers.get(i).onTick(now);
+            } catch (Throwable t) {
+                log.error("媒体节拍处理失败", t);
+            }
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    readChannel(key);
+                }
+            } catch (CancelledKeyException e) {
+                // 通道已在其他线程关闭，忽略
+            }
+        }
+    }
+
+    private void readChannel(SelectionKey key) {
+        DatagramChannel channel = (DatagramChannel) key.channel();
+        MediaChannelHandler handler = (MediaChannelHandler) key.attachment();
+        for (int i = 0; i < maxReadsPerChannel; i++) {
+            receiveBuffer.clear();
+            SocketAddress source;
+            try {
+                source = channel.receive(receiveBuffer);
+            } catch (ClosedChannelException e) {
+                key.cancel();
+                return;
+            } catch (IOException e) {
+                log.warn("接收媒体数据包失败: {}", e.getMessage());
+                return;
+            }
+            if (source == null) {
+                return; // 已读空
+            }
+            receiveBuffer.flip();
+            try {
+                handler.onPacket(receiveBuffer, source);
+            } catch (Throwable t) {
+                log.error("媒体数据包处理失败", t);
+            }
+        }
+    }
+}
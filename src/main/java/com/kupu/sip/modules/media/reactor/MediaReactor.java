@@ -0,0 +1,86 @@
+package com.kupu.sip.modules.media.reactor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import com.kupu.sip.common.configs.MediaConfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 媒体反应器
+ * 固定数量(默认每核一个)的媒体事件循环，新通话分配到当前负载最低的循环上
+ */
+@Slf4j
+@Component
+public class MediaReactor {
+    private final MediaConfig mediaConfig;
+    private MediaEventLoop[] loops;
+    private int cursor;
+
+    public MediaReactor(MediaConfig mediaConfig) {
+        this.mediaConfig = mediaConfig;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        int count = mediaConfig.getEventLoops() > 0 ? mediaConfig.getEventLoops()
+                : Runtime.getRuntime().availableProcessors();
+        loops = new MediaEventLoop[count];
+        for (int i = 0; i < count; i++) {
+            loops[i] = new MediaEventLoop(i, mediaConfig.getMaxReadsPerChannel(),
+                    mediaConfig.getClockSpinMicros() * 1000L);
+            loops[i].start();
+        }
+        log.info("媒体反应器已启动，事件循环数: {}", count);
+    }
+
+    /**
+     * 为新通话选择事件循环：取会话数最少的循环，相同时轮询
+     */
+    public synchronized MediaEventLoop nextLoop() {
+        MediaEventLoop selected = null;
+        int n = loops.length;
+        for (int i = 0; i < n; i++) {
+            MediaEventLoop loop = loops[(cursor + i) % n];
+            if (selected == null || loop.getSessionCount() < selected.getSessionCount()) {
+                selected = loop;
+            }
+        }
+        cursor = (selected.getIndex() + 1) % n;
+        selected.attachSession();
+        return selected;
+    }
+
+    public int getLoopCount() {
+        return loops.length;
+    }
+
+    /**
+     * 各事件循环的媒体时钟统计
+     */
+    public List<MediaClockStats> getClockStats() {
+        List<MediaClockStats> stats = new ArrayList<>(loops.length);
+        for (MediaEventLoop loop : loops) {
+            stats.add(loop.getClockStats());
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (loops == null) {
+            return;
+        }
+        for (MediaEventLoop loop : loops) {
+            loop.shutdown();
+        }
+        log.info("媒体反应器已关闭");
+    }
+}
@@ -0,0 +1,13 @@
+package com.kupu.sip.modules.media.reactor;
+
+/**
+ * 媒体时钟节拍处理器，在所属事件循环线程上按固定周期回调
+ */
+public interface MediaTickHandler {
+
+    /**
+     * @param nowNanos 本次节拍时间(System.nanoTime)
+     */
+    void onTick(long nowNanos);
+
+}
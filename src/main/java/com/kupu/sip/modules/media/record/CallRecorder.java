@@ -0,0 +1,159 @@
+package com.kupu.sip.modules.media.record;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 单路通话的录音：媒体循环把收发的原始负载连同帧序号追加到写盘块，块满或换段时交给写盘线程。
+ * 追加只做内存拷贝；写盘积压导致块池耗尽时丢帧计数，从不等待磁盘
+ */
+public class CallRecorder {
+    private final RecordingWriter writer;
+    private final String callId;
+    private final Path directory;
+    private final String fileName;
+    private final int payloadType;
+    private final int clockRate;
+    private final String encodingName;
+    private final int ptimeMs;
+    private final long frameNanos;
+    private final long framesPerSegment;
+    private final long startNanos;
+    private final long startMillis;
+    private final CompletableFuture<RecordingResult> result = new CompletableFuture<>();
+
+    // 以下字段只在事件循环线程访问
+    private RecordingChunk chunk;
+    private int segment = -1;
+    private boolean headerPending;
+    private long droppedFrames;
+    private boolean closed;
+
+    // 以下字段只在写盘线程访问
+    FileChannel channel;
+    int openSegment = -1;
+    final List<Path> segmentFiles = new ArrayList<>();
+    long writtenBytes;
+    boolean failed;
+
+    CallRecorder(RecordingWriter writer, String callId, Path directory, int payloadType, int clockRate,
+                 String encodingName, int ptimeMs, long framesPerSegment) {
+        this.writer = writer;
+        this.callId = callId;
+        this.directory = directory;
+        this.fileName = directory.getFileName().toString();
+        this.payloadType = payloadType;
+        this.clockRate = clockRate;
+        this.encodingName = encodingName;
+        this.ptimeMs = ptimeMs;
+        this.frameNanos = ptimeMs * 1_000_000L;
+        this.framesPerSegment = Math.max(1, framesPerSegment);
+        this.startNanos = System.nanoTime();
+        this.startMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 追加一帧原始负载，在事件循环线程调用
+     *
+     * @param direction {@link RecordingFormat#INBOUND}或{@link RecordingFormat#OUTBOUND}
+     */
+    public void onFrame(int direction, ByteBuffer src, int pos, int length, long nowNanos) {
+        if (closed) {
+            return;
+        }
+        long tick = Math.max(0, (nowNanos - startNanos) / frameNanos);
+        int frameSegment = (int) (tick / framesPerSegment);
+        if (frameSegment != segment) {
+            submit(false);
+            segment = frameSegment;
+            headerPending = true;
+        }
+        int needed = RecordingFormat.RECORD_HEADER_SIZE + length
+                + (headerPending ? RecordingFormat.headerSize(encodingName) : 0);
+        if (chunk != null && chunk.buffer.remaining() < needed) {
+            submit(false);
+        }
+        if (chunk == null) {
+            chunk = writer.acquireChunk();
+            if (chunk == null || chunk.buffer.remaining() < needed) {
+                chunk = null;
+                droppedFrames++;
+                writer.onFrameDropped();
+                return;
+            }
+            chunk.recorder = this;
+            chunk.segment = segment;
+        }
+        ByteBuffer dst = chunk.buffer;
+        if (headerPending) {
+            RecordingFormat.writeHeader(dst, payloadType, ptimeMs, clockRate, encodingName, startMillis);
+            headerPending = false;
+        }
+        dst.putInt((int) tick);
+        dst.put((byte) direction);
+        dst.put((byte) 0);
+        dst.putShort((short) length);
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            dst.putLong(src.getLong(pos + i));
+        }
+        for (; i < length; i++) {
+            dst.put(src.get(pos + i));
+        }
+    }
+
+    /**
+     * 结束录音，剩余数据交给写盘线程；在事件循环线程调用
+     *
+     * @return 写盘(及导出)完成后的结果
+     */
+    public CompletableFuture<RecordingResult> close() {
+        if (!closed) {
+            closed = true;
+            if (chunk == null) {
+                // 块池耗尽时也要送达结束标记
+                chunk = new RecordingChunk(ByteBuffer.allocate(0), false);
+                chunk.recorder = this;
+                chunk.segment = segment;
+            }
+            submit(true);
+        }
+        return result;
+    }
+
+    private void submit(boolean last) {
+        if (chunk == null) {
+            return;
+        }
+        chunk.last = last;
+        writer.submit(chunk);
+        chunk = null;
+    }
+
+    public String getCallId() {
+        return callId;
+    }
+
+    public CompletableFuture<RecordingResult> getResult() {
+        return result;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    String segmentFileName(int index) {
+        return String.format("%s-%04d%s", fileName, index + 1, RecordingFormat.FILE_SUFFIX);
+    }
+
+    /**
+     * 事件循环交出最后一块之后由写盘线程读取
+     */
+    long getDroppedFrames() {
+        return droppedFrames;
+    }
+}
@@ -0,0 +1,28 @@
+package com.kupu.sip.modules.media.record;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 录音写盘块：媒体循环填满后交给写盘线程，写完回到块池复用
+ */
+final class RecordingChunk {
+    final ByteBuffer buffer;
+    // 是否属于块池；录音结束时临时创建的空标记块不回收
+    final boolean pooled;
+    CallRecorder recorder;
+    int segment;
+    // 该录音的最后一块，写完后关闭文件
+    boolean last;
+
+    RecordingChunk(ByteBuffer buffer, boolean pooled) {
+        this.buffer = buffer;
+        this.pooled = pooled;
+    }
+
+    void reset() {
+        buffer.clear();
+        recorder = null;
+        segment = 0;
+        last = false;
+    }
+}
@@ -0,0 +1,86 @@
+package com.kupu.sip.modules.media.record;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 录音分段文件格式
+ * 段头：魔数"KREC"、版本、编码的静态负载类型、打包时长(毫秒)、RTP时钟频率、编码名、录音起始时刻(epoch毫秒)；
+ * 之后为逐帧记录：帧序号(自录音开始按打包时长计)、方向、负载长度及原始负载字节，不做转码
+ */
+public final class RecordingFormat {
+    public static final int MAGIC = 0x4B524543; // "KREC"
+    public static final int VERSION = 1;
+    // 入向(对端语音)，导出时为左声道
+    public static final int INBOUND = 0;
+    // 出向(本端放音)，导出时为右声道
+    public static final int OUTBOUND = 1;
+    // 帧记录头：帧序号(4) 方向(1) 保留(1) 负载长度(2)
+    public static final int RECORD_HEADER_SIZE = 8;
+    public static final String FILE_SUFFIX = ".rec";
+
+    private RecordingFormat() {
+    }
+
+    /**
+     * 段头长度
+     */
+    public static int headerSize(String encodingName) {
+        return 4 + 1 + 1 + 1 + 4 + 1 + encodingName.length() + 8;
+    }
+
+    /**
+     * 在dst当前位置写入段头
+     */
+    public static void writeHeader(ByteBuffer dst, int payloadType, int ptimeMs, int clockRate, String encodingName,
+                                   long startMillis) {
+        dst.putInt(MAGIC);
+        dst.put((byte) VERSION);
+        dst.put((byte) payloadType);
+        dst.put((byte) ptimeMs);
+        dst.putInt(clockRate);
+        dst.put((byte) encodingName.length());
+        for (int i = 0; i < encodingName.length(); i++) {
+            dst.put((byte) encodingName.charAt(i));
+        }
+        dst.putLong(startMillis);
+    }
+
+    /**
+     * 段头，读取时使用
+     */
+    public static final class Header {
+        public final int payloadType;
+        public final int ptimeMs;
+        public final int clockRate;
+        public final String encodingName;
+        public final long startMillis;
+
+        private Header(int payloadType, int ptimeMs, int clockRate, String encodingName, long startMillis) {
+            this.payloadType = payloadType;
+            this.ptimeMs = ptimeMs;
+            this.clockRate = clockRate;
+            this.encodingName = encodingName;
+            this.startMillis = startMillis;
+        }
+
+        /**
+         * 从src当前位置读取段头
+         *
+         * @throws IllegalArgumentException 不是录音分段文件
+         */
+        public static Header read(ByteBuffer src) {
+            if (src.remaining() < 12 || src.getInt() != MAGIC || src.get() != VERSION) {
+                throw new IllegalArgumentException("不是录音分段文件");
+            }
+            int payloadType = src.get() & 0xFF;
+            int ptimeMs = src.get() & 0xFF;
+            int clockRate = src.getInt();
+            byte[] name = new byte[src.get() & 0xFF];
+            src.get(name);
+            long startMillis = src.getLong();
+            return new Header(payloadType, ptimeMs, clockRate, new String(name, StandardCharsets.US_ASCII),
+                    startMillis);
+        }
+    }
+}
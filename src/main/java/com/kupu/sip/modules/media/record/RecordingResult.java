@@ -0,0 +1,24 @@
+package com.kupu.sip.modules.media.record;
+
+import java.nio.file.Path;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 一路通话录音的结果
+ */
+@Data
+@AllArgsConstructor
+public class RecordingResult {
+    private String callId;
+    // 分段文件所在目录
+    private Path directory;
+    private int segments;
+    // 写入分段文件的总字节数
+    private long bytes;
+    // 因写盘积压丢弃的帧数
+    private long droppedFrames;
+    // 导出的立体声WAV，未导出或导出失败时为null
+    private Path wav;
+}
@@ -0,0 +1,22 @@
+package com.kupu.sip.modules.media.record;
+
+import lombok.Data;
+
+/**
+ * 录音写盘统计
+ */
+@Data
+public class RecordingStats {
+    private int activeRecordings;
+    // 等待写盘的块数
+    private int queuedChunks;
+    // 已分配的写盘块数及上限
+    private int allocatedChunks;
+    private int maxChunks;
+    private long writtenBytes;
+    // FileChannel写调用次数，一次聚集写可包含多块
+    private long writes;
+    private long droppedFrames;
+    private long exportedFiles;
+    private long failedRecordings;
+}
@@ -0,0 +1,310 @@
+package com.kupu.sip.modules.media.record;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.kupu.sip.common.configs.MediaConfig;
+import com.kupu.sip.modules.media.codec.AudioCodec;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 录音写盘线程
+ * 所有通话共用一个写盘线程：媒体循环把写满的块放入无锁队列，写盘线程空闲时短暂休眠让块积累，
+ * 每轮取出一批后按通话分组，同一分段的连续块以一次聚集写(FileChannel.write(ByteBuffer[]))顺序追加到该通话的分段文件。
+ * 写盘块来自有上限的堆外块池，磁盘跟不上时由媒体循环丢帧计数，不会阻塞媒体循环。挂机后的立体声WAV导出在独立线程执行
+ */
+@Slf4j
+public class RecordingWriter {
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long SHUTDOWN_DRAIN_MILLIS = 2000;
+
+    private final Path root;
+    private final int chunkSize;
+    private final int maxChunks;
+    private final int segmentSeconds;
+    private final boolean wavExport;
+    private final ConcurrentLinkedQueue<RecordingChunk> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<RecordingChunk> freeChunks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger allocatedChunks = new AtomicInteger();
+    private final AtomicInteger activeRecordings = new AtomicInteger();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong exportedFiles = new AtomicLong();
+    private final AtomicLong failedRecordings = new AtomicLong();
+    private volatile boolean running;
+    private Thread thread;
+    private ExecutorService exportExecutor;
+    // 聚集写数组，只在写盘线程使用
+    private ByteBuffer[] gather = new ByteBuffer[16];
+
+    public RecordingWriter(MediaConfig mediaConfig) {
+        this.root = Paths.get(mediaConfig.getRecordingDir());
+        this.chunkSize = Math.max(4, mediaConfig.getRecordingChunkKb()) * 1024;
+        this.maxChunks = Math.max(1, (int) (mediaConfig.getRecordingBufferMb() * 1024L * 1024L / chunkSize));
+        this.segmentSeconds = Math.max(1, mediaConfig.getRecordingSegmentSeconds());
+        this.wavExport = mediaConfig.isRecordingWavExport();
+    }
+
+    /**
+     * 开始一路通话的录音，文件在首块写盘时才创建
+     *
+     * @param codec   通话协商的编码
+     * @param ptimeMs 打包时长
+     */
+    public CallRecorder open(String callId, AudioCodec codec, int ptimeMs) {
+        ensureStarted();
+        String name = callId.replaceAll("[^A-Za-z0-9._-]", "_");
+        activeRecordings.incrementAndGet();
+        return new CallRecorder(this, callId, root.resolve(name), codec.getPayloadType(), codec.getRtpClockRate(),
+                codec.getEncodingName(), ptimeMs, segmentSeconds * 1000L / ptimeMs);
+    }
+
+    /**
+     * 借一个写盘块，块池达到上限时返回null
+     */
+    RecordingChunk acquireChunk() {
+        RecordingChunk chunk = freeChunks.poll();
+        if (chunk != null) {
+            return chunk;
+        }
+        if (allocatedChunks.incrementAndGet() > maxChunks) {
+            allocatedChunks.decrementAndGet();
+            return null;
+        }
+        return new RecordingChunk(ByteBuffer.allocateDirect(chunkSize), true);
+    }
+
+    void submit(RecordingChunk chunk) {
+        queue.offer(chunk);
+    }
+
+    void onFrameDropped() {
+        droppedFrames.incrementAndGet();
+    }
+
+    private synchronized void ensureStarted() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        exportExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNamePrefix("recording-export-").setDaemon(true).build());
+        thread = new Thread(this::run, "recording-writer");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("录音写盘线程已启动，目录: {}, 块大小: {}KB, 块上限: {}", root.toAbsolutePath(), chunkSize / 1024, maxChunks);
+    }
+
+    private void run() {
+        List<RecordingChunk> batch = new ArrayList<>();
+        Map<CallRecorder, List<RecordingChunk>> byRecorder = new LinkedHashMap<>();
+        long deadline = 0;
+        while (true) {
+            RecordingChunk chunk;
+            while (batch.size() < MAX_BATCH && (chunk = queue.poll()) != null) {
+                batch.add(chunk);
+            }
+            if (batch.isEmpty()) {
+                if (!running) {
+                    // 停止时等待仍在进行的录音交出最后一块
+                    if (deadline == 0) {
+                        deadline = System.currentTimeMillis() + SHUTDOWN_DRAIN_MILLIS;
+                    }
+                    if (activeRecordings.get() <= 0 || System.currentTimeMillis() > deadline) {
+                        break;
+                    }
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                writeBatch(batch, byRecorder);
+            } catch (Exception e) {
+                log.error("录音写盘异常", e);
+            }
+            batch.clear();
+            byRecorder.clear();
+        }
+        log.info("录音写盘线程已退出，累计写入: {} 字节", writtenBytes.get());
+    }
+
+    private void writeBatch(List<RecordingChunk> batch, Map<CallRecorder, List<RecordingChunk>> byRecorder) {
+        for (RecordingChunk chunk : batch) {
+            byRecorder.computeIfAbsent(chunk.recorder, r -> new ArrayList<>()).add(chunk);
+        }
+        for (Map.Entry<CallRecorder, List<RecordingChunk>> entry : byRecorder.entrySet()) {
+            CallRecorder recorder = entry.getKey();
+            List<RecordingChunk> chunks = entry.getValue();
+            int n = chunks.size();
+            int i = 0;
+            while (i < n) {
+                int segment = chunks.get(i).segment;
+                int j = i + 1;
+                while (j < n && chunks.get(j).segment == segment) {
+                    j++;
+                }
+                write(recorder, chunks, i, j, segment);
+                i = j;
+            }
+            boolean last = chunks.get(n - 1).last;
+            for (RecordingChunk chunk : chunks) {
+                recycle(chunk);
+            }
+            if (last) {
+                finish(recorder);
+            }
+        }
+    }
+
+    /**
+     * 同一分段的连续块一次聚集写入
+     */
+    private void write(CallRecorder recorder, List<RecordingChunk> chunks, int from, int to, int segment) {
+        if (recorder.failed || segment < 0) {
+            return;
+        }
+        if (gather.length < to - from) {
+            gather = new ByteBuffer[Math.max(to - from, gather.length * 2)];
+        }
+        int count = 0;
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            ByteBuffer buffer = chunks.get(i).buffer;
+            buffer.flip();
+            if (buffer.hasRemaining()) {
+                total += buffer.remaining();
+                gather[count++] = buffer;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        try {
+            if (recorder.openSegment != segment) {
+                closeSegment(recorder);
+                Files.createDirectories(recorder.getDirectory());
+                Path file = recorder.getDirectory().resolve(recorder.segmentFileName(segment));
+                recorder.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                recorder.openSegment = segment;
+                recorder.segmentFiles.add(file);
+            }
+            long remaining = total;
+            while (remaining > 0) {
+                remaining -= recorder.channel.write(gather, 0, count);
+                writes.incrementAndGet();
+            }
+            recorder.writtenBytes += total;
+            writtenBytes.addAndGet(total);
+        } catch (IOException e) {
+            log.error("录音写盘失败，停止该通话录音 callId: {}", recorder.getCallId(), e);
+            recorder.failed = true;
+            failedRecordings.incrementAndGet();
+            closeSegment(recorder);
+        } finally {
+            for (int i = 0; i < count; i++) {
+                gather[i] = null;
+            }
+        }
+    }
+
+    private void closeSegment(CallRecorder recorder) {
+        FileChannel channel = recorder.channel;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("关闭录音文件失败 callId: {}: {}", recorder.getCallId(), e.getMessage());
+            }
+            recorder.channel = null;
+        }
+    }
+
+    private void finish(CallRecorder recorder) {
+        closeSegment(recorder);
+        activeRecordings.decrementAndGet();
+        List<Path> segments = new ArrayList<>(recorder.segmentFiles);
+        if (!wavExport || segments.isEmpty() || recorder.failed) {
+            complete(recorder, segments.size(), null);
+            return;
+        }
+        exportExecutor.execute(() -> {
+            Path wav = recorder.getDirectory().resolve(recorder.getDirectory().getFileName() + ".wav");
+            try {
+                WavExporter.export(segments, wav);
+                exportedFiles.incrementAndGet();
+            } catch (Exception e) {
+                log.warn("录音导出WAV失败 callId: {}", recorder.getCallId(), e);
+                wav = null;
+            }
+            complete(recorder, segments.size(), wav);
+        });
+    }
+
+    private void complete(CallRecorder recorder, int segments, Path wav) {
+        RecordingResult result = new RecordingResult(recorder.getCallId(), recorder.getDirectory(), segments,
+                recorder.writtenBytes, recorder.getDroppedFrames(), wav);
+        log.info("录音已结束 callId: {}, 分段: {}, 字节: {}, 丢帧: {}, WAV: {}", result.getCallId(), segments,
+                result.getBytes(), result.getDroppedFrames(), wav);
+        recorder.getResult().complete(result);
+    }
+
+    private void recycle(RecordingChunk chunk) {
+        if (chunk.pooled) {
+            chunk.reset();
+            freeChunks.offer(chunk);
+        }
+    }
+
+    public RecordingStats getStats() {
+        RecordingStats stats = new RecordingStats();
+        stats.setActiveRecordings(activeRecordings.get());
+        stats.setQueuedChunks(queue.size());
+        stats.setAllocatedChunks(allocatedChunks.get());
+        stats.setMaxChunks(maxChunks);
+        stats.setWrittenBytes(writtenBytes.get());
+        stats.setWrites(writes.get());
+        stats.setDroppedFrames(droppedFrames.get());
+        stats.setExportedFiles(exportedFiles.get());
+        stats.setFailedRecordings(failedRecordings.get());
+        return stats;
+    }
+
+    /**
+     * 停止写盘线程：先写完队列中及进行中录音的剩余数据，再等待导出完成
+     */
+    public synchronized void shutdown() {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        try {
+            thread.join(SHUTDOWN_DRAIN_MILLIS + 1000);
+            exportExecutor.shutdown();
+            exportExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+}
@@ -0,0 +1,230 @@
+package com.kupu.sip.modules.media.record;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.codec.AudioCodecs;
+import com.kupu.sip.modules.media.codec.G711ALawCodec;
+import com.kupu.sip.modules.media.codec.G711ULawCodec;
+
+/**
+ * 录音分段导出为立体声WAV：左声道入向、右声道出向，按帧序号对齐，缺帧处补静音。
+ * G.711录音直接按码字交织(WAVE_FORMAT_MULAW/ALAW)，不做转码；其他编码解码为16位PCM
+ */
+public final class WavExporter {
+    private static final short FORMAT_PCM = 1;
+    private static final short FORMAT_ALAW = 6;
+    private static final short FORMAT_MULAW = 7;
+    // 一个方向超前这么多帧时，另一方向缺的帧按静音输出
+    private static final int LOOKAHEAD_FRAMES = 10;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private WavExporter() {
+    }
+
+    /**
+     * @param segments 按顺序排列的分段文件
+     * @param wav      输出文件
+     * @return 导出的时长(毫秒)
+     */
+    public static long export(List<Path> segments, Path wav) throws IOException {
+        try (FileChannel out = FileChannel.open(wav, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Interleaver interleaver = null;
+            for (Path segment : segments) {
+                ByteBuffer data = readFully(segment);
+                RecordingFormat.Header header = RecordingFormat.Header.read(data);
+                if (interleaver == null) {
+                    AudioCodec codec = AudioCodecs.forEncodingName(header.encodingName, header.clockRate);
+                    if (codec == null) {
+                        throw new IOException("录音编码不支持导出: " + header.encodingName);
+                    }
+                    interleaver = new Interleaver(codec, header.ptimeMs, out);
+                }
+                while (data.remaining() >= RecordingFormat.RECORD_HEADER_SIZE) {
+                    long tick = data.getInt() & 0xFFFFFFFFL;
+                    int direction = data.get() & 0x01;
+                    data.get();
+                    int length = data.getShort() & 0xFFFF;
+                    if (data.remaining() < length) {
+                        break; // 异常结束的分段
+                    }
+                    byte[] payload = new byte[length];
+                    data.get(payload);
+                    interleaver.add(direction, tick, payload);
+                }
+            }
+            if (interleaver == null) {
+                throw new IOException("没有录音数据");
+            }
+            return interleaver.finish();
+        }
+    }
+
+    private static ByteBuffer readFully(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // 读满为止
+            }
+            data.flip();
+            return data;
+        }
+    }
+
+    private static final class Frame {
+        final long slot;
+        final byte[] payload;
+
+        Frame(long slot, byte[] payload) {
+            this.slot = slot;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * 两个方向的帧按槽位对齐后交织写出
+     */
+    private static final class Interleaver {
+        private final FileChannel out;
+        private final boolean companded;
+        private final byte silence;
+        private final AudioCodec[] decoders;
+        private final int samplesPerFrame;
+        private final int sampleRate;
+        private final short[][] pcm;
+        private final ByteBuffer buffer = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        // 两个方向各自待合并的帧，按时隙排序
+        private final ArrayDeque<Frame> pendingInbound = new ArrayDeque<>();
+        private final ArrayDeque<Frame> pendingOutbound = new ArrayDeque<>();
+        private final long[] nextSlot = new long[2];
+        private long latestTick;
+        private long emitSlot;
+        private long dataBytes;
+
+        Interleaver(AudioCodec codec, int ptimeMs, FileChannel out) throws IOException {
+            this.out = out;
+            int pt = codec.getPayloadType();
+            this.companded = pt == G711ULawCodec.PAYLOAD_TYPE || pt == G711ALawCodec.PAYLOAD_TYPE;
+            this.silence = pt == G711ULawCodec.PAYLOAD_TYPE ? (byte) 0xFF : (byte) 0xD5;
+            this.decoders = new AudioCodec[]{codec.newSession(), codec.newSession()};
+            this.sampleRate = codec.getSampleRate();
+            this.samplesPerFrame = sampleRate * ptimeMs / 1000;
+            this.pcm = new short[2][Math.max(samplesPerFrame * 2, 4096)];
+            out.position(headerSize());
+        }
+
+        void add(int direction, long tick, byte[] payload) throws IOException {
+            long slot = Math.max(tick, nextSlot[direction]);
+            nextSlot[direction] = slot + 1;
+            latestTick = Math.max(latestTick, tick);
+            if (slot >= emitSlot) {
+                pending(direction).add(new Frame(slot, payload));
+            }
+            while ((nextSlot[0] > emitSlot && nextSlot[1] > emitSlot) || latestTick - emitSlot > LOOKAHEAD_FRAMES) {
+                emit();
+            }
+        }
+
+        long finish() throws IOException {
+            while (!pendingInbound.isEmpty() || !pendingOutbound.isEmpty()) {
+                emit();
+            }
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(headerSize()).order(ByteOrder.LITTLE_ENDIAN);
+            int bytesPerSample = companded ? 1 : 2;
+            header.put(new byte[]{'R', 'I', 'F', 'F'}).putInt((int) (headerSize() - 8 + dataBytes))
+                    .put(new byte[]{'W', 'A', 'V', 'E', 'f', 'm', 't', ' '});
+            if (companded) {
+                header.putInt(18).putShort(silence == (byte) 0xFF ? FORMAT_MULAW : FORMAT_ALAW);
+            } else {
+                header.putInt(16).putShort(FORMAT_PCM);
+            }
+            header.putShort((short) 2).putInt(sampleRate).putInt(sampleRate * 2 * bytesPerSample)
+                    .putShort((short) (2 * bytesPerSample)).putShort((short) (8 * bytesPerSample));
+            if (companded) {
+                // 非PCM格式需要cbSize与fact块
+                header.putShort((short) 0).put(new byte[]{'f', 'a', 'c', 't'}).putInt(4).putInt((int) (dataBytes / 2));
+            }
+            header.put(new byte[]{'d', 'a', 't', 'a'}).putInt((int) dataBytes);
+            header.flip();
+            out.position(0);
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            return emitSlot * samplesPerFrame * 1000L / sampleRate;
+        }
+
+        private int headerSize() {
+            return companded ? 58 : 44;
+        }
+
+        /**
+         * 输出emitSlot对应的一帧立体声
+         */
+        private void emit() throws IOException {
+            Frame left = poll(0);
+            Frame right = poll(1);
+            if (companded) {
+                int n = samplesPerFrame;
+                ensureRoom(n * 2);
+                for (int i = 0; i < n; i++) {
+                    buffer.put(left != null && i < left.payload.length ? left.payload[i] : silence);
+                    buffer.put(right != null && i < right.payload.length ? right.payload[i] : silence);
+                }
+                dataBytes += n * 2L;
+            } else {
+                int l = decode(0, left);
+                int r = decode(1, right);
+                int n = samplesPerFrame;
+                ensureRoom(n * 4);
+                for (int i = 0; i < n; i++) {
+                    buffer.putShort(i < l ? pcm[0][i] : 0);
+                    buffer.putShort(i < r ? pcm[1][i] : 0);
+                }
+                dataBytes += n * 4L;
+            }
+            emitSlot++;
+        }
+
+        private ArrayDeque<Frame> pending(int direction) {
+            return direction == RecordingFormat.INBOUND ? pendingInbound : pendingOutbound;
+        }
+
+        private Frame poll(int direction) {
+            ArrayDeque<Frame> queue = pending(direction);
+            while (!queue.isEmpty() && queue.peekFirst().slot < emitSlot) {
+                queue.pollFirst();
+            }
+            return !queue.isEmpty() && queue.peekFirst().slot == emitSlot ? queue.pollFirst() : null;
+        }
+
+        private int decode(int direction, Frame frame) {
+            if (frame == null) {
+                return 0;
+            }
+            return decoders[direction].decode(ByteBuffer.wrap(frame.payload), 0, frame.payload.length, pcm[direction], 0);
+        }
+
+        private void ensureRoom(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.kupu.sip.modules.media.relay;
+
+/**
+ * 媒体中继方式
+ */
+public enum RelayMode {
+    // 两条腿编码一致：只改写RTP头后转发，不解码
+    FORWARD,
+    // 编码不同：经两方会议解码、重采样后按各自编码重新编码
+    TRANSCODE
+}
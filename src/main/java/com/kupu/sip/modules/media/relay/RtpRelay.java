@@ -0,0 +1,78 @@
+package com.kupu.sip.modules.media.relay;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+
+/**
+ * 中继一个方向的RTP头改写，只在两条腿共同所在的事件循环线程上使用
+ * 序列号与时间戳按首包建立的偏移平移，接续出向会话自己的序列号空间和时间轴，保留入向丢包造成的间隔；
+ * SSRC与负载类型由出向会话发送时填写。入向流换了SSRC(对端重启)时按新流重新建立偏移并置marker。
+ * 不做抖动缓冲：晚于已转发最新包的乱序包直接丢弃，保证出向序列号单调，SRTP发送方的ROC推算不会出错
+ */
+public final class RtpRelay {
+    private boolean started;
+    private long ssrc;
+    private int seqOffset;
+    private int timestampOffset;
+    private int sequence;
+    private int timestamp;
+    private boolean resync;
+    private long forwarded;
+    private long dropped;
+
+    /**
+     * 两条腿的编码名称与时钟频率都相同时可以不解码直接转发
+     */
+    public static boolean canForward(AudioCodec a, AudioCodec b) {
+        return a.getEncodingName().equalsIgnoreCase(b.getEncodingName()) && a.getRtpClockRate() == b.getRtpClockRate();
+    }
+
+    /**
+     * 映射一个入向包的序列号与时间戳，结果由{@link #getSequence()}、{@link #getTimestamp()}取得
+     *
+     * @param nextSequence    出向会话下一个序列号
+     * @param streamTimestamp 出向会话当前的RTP时间戳
+     * @return 迟到的乱序包返回false，应丢弃
+     */
+    public boolean map(int seq, int ts, long ssrc, int nextSequence, int streamTimestamp) {
+        if (!started || ssrc != this.ssrc) {
+            this.ssrc = ssrc;
+            seqOffset = nextSequence - seq;
+            timestampOffset = streamTimestamp - ts;
+            started = true;
+            resync = true;
+        } else {
+            if ((short) (seq + seqOffset - sequence) <= 0) {
+                dropped++;
+                return false;
+            }
+            resync = false;
+        }
+        sequence = (seq + seqOffset) & 0xFFFF;
+        timestamp = ts + timestampOffset;
+        forwarded++;
+        return true;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public int getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 本包是否为新建立偏移后的首包，转发时应置marker
+     */
+    public boolean isResync() {
+        return resync;
+    }
+
+    public long getForwarded() {
+        return forwarded;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,201 @@
+package com.kupu.sip.modules.media.resample;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 流式多相重采样器(16bit单声道PCM)
+ * 采样率比约分为L/M(先L倍插值再M倍抽取)，只计算实际输出的那一相，每个输出采样一次点积；
+ * 低通原型为Kaiser窗sinc，截止取输入输出中较低奈奎斯特频率的90%。
+ * 处理写入调用方提供的数组，滤波器历史在分块之间保留，处理过程不分配内存；系数表按(输入, 输出, 质量)全局共享。
+ * 非线程安全，每个音频流使用独立实例
+ */
+public final class PolyphaseResampler {
+    // 每侧的sinc过零点数，越大阻带越深、过渡带越窄
+    public static final int DEFAULT_ZERO_CROSSINGS = 16;
+    private static final double ROLLOFF = 0.9;
+    private static final double KAISER_BETA = 8.6;
+
+    private static final Map<String, float[]> COEFFICIENTS = new ConcurrentHashMap<>();
+
+    private final int inputRate;
+    private final int outputRate;
+    private final int up;
+    private final int down;
+    private final int taps;
+    // 按相位连续存放，每相taps个，已反序以便与延迟线顺序相乘
+    private final float[] coefficients;
+    // 双写环形延迟线，[position, position + taps)始终为最近taps个输入(旧到新)
+    private final float[] delay;
+    private int position;
+    private int phase;
+    // 字节输入时跨分块遗留的低字节，-1表示无
+    private int pendingByte = -1;
+
+    public PolyphaseResampler(int inputRate, int outputRate) {
+        this(inputRate, outputRate, DEFAULT_ZERO_CROSSINGS);
+    }
+
+    public PolyphaseResampler(int inputRate, int outputRate, int zeroCrossings) {
+        if (inputRate <= 0 || outputRate <= 0 || zeroCrossings <= 0) {
+            throw new IllegalArgumentException("非法的重采样参数: " + inputRate + " -> " + outputRate);
+        }
+        int gcd = gcd(inputRate, outputRate);
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        this.up = outputRate / gcd;
+        this.down = inputRate / gcd;
+        if (up == down) {
+            this.taps = 0;
+            this.coefficients = null;
+            this.delay = null;
+        } else {
+            this.taps = (int) Math.ceil(2.0 * zeroCrossings * Math.max(up, down) / up);
+            this.coefficients = COEFFICIENTS.computeIfAbsent(up + "/" + down + "/" + zeroCrossings,
+                    k -> design(up, down, taps));
+            this.delay = new float[taps * 2];
+        }
+    }
+
+    /**
+     * 输入inputLength个采样时最多产生的输出采样数，用于预分配输出数组
+     */
+    public int maxOutputSamples(int inputLength) {
+        return (int) (((long) inputLength * up + down - 1) / down);
+    }
+
+    /**
+     * 重采样一块输入
+     *
+     * @return 写入out的采样数，不超过{@link #maxOutputSamples(int)}
+     */
+    public int process(short[] in, int inOff, int inLength, short[] out, int outOff) {
+        if (coefficients == null) {
+            System.arraycopy(in, inOff, out, outOff, inLength);
+            return inLength;
+        }
+        int written = 0;
+        for (int i = 0; i < inLength; i++) {
+            written += push(in[inOff + i], out, outOff + written);
+        }
+        return written;
+    }
+
+    /**
+     * 重采样一块16bit小端字节输入，奇数长度的末字节保留到下一块
+     *
+     * @return 写入out的采样数，不超过maxOutputSamples(length / 2 + 1)
+     */
+    public int process(byte[] in, int off, int length, short[] out, int outOff) {
+        int written = 0;
+        int i = off;
+        int end = off + length;
+        if (pendingByte >= 0 && i < end) {
+            written += push((short) (in[i++] << 8 | pendingByte), out, outOff);
+            pendingByte = -1;
+        }
+        for (; i + 1 < end; i += 2) {
+            written += push((short) (in[i + 1] << 8 | (in[i] & 0xFF)), out, outOff + written);
+        }
+        if (i < end) {
+            pendingByte = in[i] & 0xFF;
+        }
+        return written;
+    }
+
+    /**
+     * 清空滤波器历史，开始新的音频流
+     */
+    public void reset() {
+        if (delay != null) {
+            Arrays.fill(delay, 0f);
+        }
+        position = 0;
+        phase = 0;
+        pendingByte = -1;
+    }
+
+    public int getInputRate() {
+        return inputRate;
+    }
+
+    public int getOutputRate() {
+        return outputRate;
+    }
+
+    private int push(short sample, short[] out, int outOff) {
+        if (coefficients == null) {
+            out[outOff] = sample;
+            return 1;
+        }
+        float[] d = delay;
+        int n = taps;
+        d[position] = sample;
+        d[position + n] = sample;
+        if (++position == n) {
+            position = 0;
+        }
+        int written = 0;
+        while (phase < up) {
+            float[] c = coefficients;
+            int base = phase * n;
+            int p = position;
+            float acc = 0f;
+            for (int j = 0; j < n; j++) {
+                acc += c[base + j] * d[p + j];
+            }
+            int value = Math.round(acc);
+            out[outOff + written++] = (short) (value > Short.MAX_VALUE ? Short.MAX_VALUE
+                    : value < Short.MIN_VALUE ? Short.MIN_VALUE : value);
+            phase += down;
+        }
+        phase -= up;
+        return written;
+    }
+
+    /**
+     * 设计低通原型并拆分为up相，每相系数反序存放
+     */
+    private static float[] design(int up, int down, int taps) {
+        int length = taps * up;
+        double center = (length - 1) / 2.0;
+        double cutoff = ROLLOFF * 0.5 / Math.max(up, down);
+        double i0Beta = besselI0(KAISER_BETA);
+        float[] result = new float[length];
+        for (int n = 0; n < length; n++) {
+            double t = n - center;
+            double x = 2 * cutoff * t;
+            double sinc = x == 0 ? 1.0 : Math.sin(Math.PI * x) / (Math.PI * x);
+            double r = 2 * t / (length - 1);
+            double window = besselI0(KAISER_BETA * Math.sqrt(Math.max(0, 1 - r * r))) / i0Beta;
+            double h = 2 * cutoff * sinc * window * up;
+            // 原型第n个系数属于第(n % up)相的第(n / up)个抽头，与延迟线(旧到新)对应时反序
+            result[(n % up) * taps + (taps - 1 - n / up)] = (float) h;
+        }
+        return result;
+    }
+
+    private static double besselI0(double x) {
+        double sum = 1.0;
+        double term = 1.0;
+        double half = x / 2;
+        for (int k = 1; k < 50; k++) {
+            term *= (half / k) * (half / k);
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,55 @@
+package com.kupu.sip.modules.media.rtcp;
+
+import lombok.Data;
+
+/**
+ * 单路通话的媒体质量统计
+ * 本端接收方向由本地统计得出，对端接收方向来自对端RTCP接收报告
+ */
+@Data
+public class CallQualityStats {
+    private String callId;
+    private String codec;
+    private long localSsrc;
+    private long remoteSsrc;
+
+    // 本端发送
+    private long packetsSent;
+    private long octetsSent;
+
+    // 本端接收
+    private long packetsReceived;
+    private long packetsExpected;
+    private long cumulativeLost;
+    // 最近一个报告区间的丢包比例(0~1)
+    private double fractionLost;
+    private double jitterMs;
+    // 抖动缓冲目标时延(毫秒)
+    private int jitterBufferDelayMs;
+    // 丢包补偿合成的帧数与次数(连续丢包计一次)
+    private long concealedFrames;
+    private long concealmentEvents;
+
+    // 对端接收(来自对端RTCP报告)
+    private long remoteCumulativeLost;
+    private double remoteFractionLost;
+    private double remoteJitterMs;
+
+    // 往返时延(毫秒)，未测得时为-1
+    private double rttMs = -1;
+    private long reportsSent;
+    private long reportsReceived;
+
+    // E-model 估算
+    private double rFactor;
+    private double mos;
+    private double remoteRFactor;
+    private double remoteMos;
+
+    /**
+     * 本端接收累计丢包率(0~1)
+     */
+    public double getLossRate() {
+        return packetsExpected <= 0 || cumulativeLost <= 0 ? 0 : (double) cumulativeLost / packetsExpected;
+    }
+}
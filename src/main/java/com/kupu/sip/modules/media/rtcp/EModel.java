@@ -0,0 +1,70 @@
+package com.kupu.sip.modules.media.rtcp;
+
+/**
+ * ITU-T G.107 E-model 简化计算
+ * 只考虑时延损伤Id与设备/丢包损伤Ie-eff，其余参数取默认值(R0 - Is = 93.2)
+ */
+public final class EModel {
+    private static final double R_DEFAULT = 93.2;
+
+    private EModel() {
+    }
+
+    /**
+     * 设备损伤因子Ie(G.113)，G.711为0。
+     * 支持的编码都按窄带G.711评估：G.722的宽带优势需用G.107.1宽带E-model(R值上限129)才能体现，
+     * 在窄带标度下没有对应的G.113取值
+     */
+    public static double equipmentImpairment() {
+        return 0;
+    }
+
+    /**
+     * 丢包稳健因子Bpl(G.113)：G.711无丢包补偿4.3，附录I丢包补偿25.1
+     */
+    public static double packetLossRobustness(boolean concealment) {
+        return concealment ? 25.1 : 4.3;
+    }
+
+    /**
+     * @param oneWayDelayMs 端到端单向时延(毫秒)
+     * @param lossRate      丢包率(0~1)
+     */
+    public static double rFactor(double oneWayDelayMs, double lossRate, double ie, double bpl) {
+        double d = oneWayDelayMs;
+        double id = 0.024 * d + (d > 177.3 ? 0.11 * (d - 177.3) : 0);
+        double ppl = Math.max(0, Math.min(1, lossRate)) * 100;
+        double ieEff = ie + (95 - ie) * ppl / (ppl + bpl);
+        return Math.max(0, Math.min(100, R_DEFAULT - id - ieEff));
+    }
+
+    public static double mos(double r) {
+        if (r <= 0) {
+            return 1;
+        }
+        if (r >= 100) {
+            return 4.5;
+        }
+        return 1 + 0.035 * r + 7e-6 * r * (r - 60) * (100 - r);
+    }
+
+    /**
+     * 按统计值估算两个方向的R值与MOS
+     *
+     * @param ptimeMs     打包时长，计入单向时延
+     * @param concealment 本端接收是否做丢包补偿；对端是否补偿未知，按无补偿估算
+     */
+    public static void apply(CallQualityStats stats, int ptimeMs, boolean concealment) {
+        double ie = equipmentImpairment();
+        double bpl = packetLossRobustness(concealment);
+        double remoteBpl = packetLossRobustness(false);
+        double network = stats.getRttMs() >= 0 ? stats.getRttMs() / 2 : 0;
+        double inboundDelay = network + ptimeMs + stats.getJitterBufferDelayMs();
+        stats.setRFactor(rFactor(inboundDelay, stats.getLossRate(), ie, bpl));
+        stats.setMos(mos(stats.getRFactor()));
+        // 对端缓冲时延未知，按其上报抖动的两倍估计
+        double outboundDelay = network + ptimeMs + 2 * stats.getRemoteJitterMs();
+        stats.setRemoteRFactor(rFactor(outboundDelay, stats.getRemoteFractionLost(), ie, remoteBpl));
+        stats.setRemoteMos(mos(stats.getRemoteRFactor()));
+    }
+}
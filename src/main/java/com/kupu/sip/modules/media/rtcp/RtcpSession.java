@@ -0,0 +1,267 @@
+package com.kupu.sip.modules.media.rtcp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 单路通话的RTCP收发
+ * 按RFC 3550第6.3节的间隔发送SR/RR + SDES(CNAME)复合包，解析对端SR/RR得到对端接收质量和往返时延。
+ * 报告直接写入调用方提供的缓冲区，除统计快照外不分配内存；仅在事件循环线程调用
+ */
+public class RtcpSession {
+    public static final int PT_SR = 200;
+    public static final int PT_RR = 201;
+    public static final int PT_SDES = 202;
+    public static final int PT_BYE = 203;
+
+    private static final long NTP_EPOCH_OFFSET_SECONDS = 2208988800L;
+    private static final long MIN_INTERVAL_NANOS = 5_000_000_000L;
+    private static final double COMPENSATION = Math.E - 1.5;
+    // RTCP带宽占会话带宽的比例
+    private static final double RTCP_BANDWIDTH_FRACTION = 0.05;
+    private static final int SDES_CNAME = 1;
+
+    private final long ssrc;
+    private final byte[] cname;
+    private final int clockRate;
+    // 会话带宽(字节/秒)，用于计算报告间隔
+    private final double sessionBandwidth;
+    private final RtpReceptionStats reception;
+    // 以单调时钟换算NTP时间，避免系统时间调整影响往返时延计算
+    private final long wallclockBaseMillis = System.currentTimeMillis();
+    private final long nanoBase = System.nanoTime();
+
+    private long packetsSent;
+    private long octetsSent;
+    private boolean sentSinceReport;
+
+    private long nextReportNanos;
+    private boolean initial = true;
+    private double avgRtcpSize = 100;
+
+    // 最近一次收到的对端SR
+    private int lastSrNtpMiddle;
+    private long lastSrReceivedNanos;
+    private long remoteSsrc;
+
+    // 对端对本端流的接收报告
+    private int remoteFractionLost;
+    private long remoteCumulativeLost;
+    private int remoteJitter;
+    private double rttMs = -1;
+    private long reportsSent;
+    private long reportsReceived;
+
+    public RtcpSession(long ssrc, String cname, int clockRate, double sessionBandwidth) {
+        this.ssrc = ssrc;
+        byte[] bytes = cname.getBytes(StandardCharsets.US_ASCII);
+        this.cname = bytes.length > 255 ? Arrays.copyOf(bytes, 255) : bytes;
+        this.clockRate = clockRate;
+        this.sessionBandwidth = sessionBandwidth;
+        this.reception = new RtpReceptionStats(clockRate);
+    }
+
+    public void start(long nowNanos) {
+        nextReportNanos = nowNanos + interval();
+    }
+
+    public void onRtpSent(int payloadLength) {
+        packetsSent++;
+        octetsSent += payloadLength;
+        sentSinceReport = true;
+    }
+
+    public void onRtpReceived(int seq, int rtpTimestamp, long packetSsrc, long nowNanos) {
+        reception.onPacket(seq, rtpTimestamp, packetSsrc, nowNanos);
+    }
+
+    public boolean isDue(long nowNanos) {
+        return nowNanos - nextReportNanos >= 0;
+    }
+
+    /**
+     * 写入SR(本区间发送过RTP)或RR，以及SDES CNAME，并安排下一次报告
+     *
+     * @param rtpTimestamp 与当前时刻对应的本端RTP时间戳
+     * @return 复合包长度
+     */
+    public int writeReport(ByteBuffer buf, int pos, int rtpTimestamp, long nowNanos) {
+        int start = pos;
+        boolean sender = sentSinceReport;
+        int blocks = reception.isStarted() ? 1 : 0;
+        int words = (sender ? 6 : 1) + blocks * 6;
+        buf.put(pos, (byte) (0x80 | blocks));
+        buf.put(pos + 1, (byte) (sender ? PT_SR : PT_RR));
+        buf.putShort(pos + 2, (short) words);
+        buf.putInt(pos + 4, (int) ssrc);
+        pos += 8;
+        if (sender) {
+            long ntp = ntpTimestamp(nowNanos);
+            buf.putLong(pos, ntp);
+            buf.putInt(pos + 8, rtpTimestamp);
+            buf.putInt(pos + 12, (int) packetsSent);
+            buf.putInt(pos + 16, (int) octetsSent);
+            pos += 20;
+        }
+        if (blocks > 0) {
+            pos = writeReportBlock(buf, pos, nowNanos);
+        }
+        pos = writeSdes(buf, pos);
+
+        int length = pos - start;
+        avgRtcpSize = avgRtcpSize + (length + 28 - avgRtcpSize) / 16; // 含IP/UDP头
+        sentSinceReport = false;
+        initial = false;
+        reportsSent++;
+        nextReportNanos = nowNanos + interval();
+        return length;
+    }
+
+    /**
+     * 写入RR + SDES + BYE，通话结束时发送
+     */
+    public int writeBye(ByteBuffer buf, int pos, long nowNanos) {
+        sentSinceReport = false;
+        int length = writeReport(buf, pos, 0, nowNanos);
+        int bye = pos + length;
+        buf.put(bye, (byte) 0x81);
+        buf.put(bye + 1, (byte) PT_BYE);
+        buf.putShort(bye + 2, (short) 1);
+        buf.putInt(bye + 4, (int) ssrc);
+        return length + 8;
+    }
+
+    private int writeReportBlock(ByteBuffer buf, int pos, long nowNanos) {
+        int fraction = reception.closeInterval();
+        long lost = Math.max(-0x800000L, Math.min(0x7FFFFFL, reception.getCumulativeLost()));
+        buf.putInt(pos, (int) reception.getSsrc());
+        buf.putInt(pos + 4, (fraction << 24) | (int) (lost & 0xFFFFFF));
+        buf.putInt(pos + 8, (int) reception.getExtendedMaxSeq());
+        buf.putInt(pos + 12, reception.getJitter());
+        if (lastSrReceivedNanos != 0) {
+            long dlsr = (nowNanos - lastSrReceivedNanos) * 65536L / 1_000_000_000L;
+            buf.putInt(pos + 16, lastSrNtpMiddle);
+            buf.putInt(pos + 20, (int) dlsr);
+        } else {
+            buf.putInt(pos + 16, 0);
+            buf.putInt(pos + 20, 0);
+        }
+        return pos + 24;
+    }
+
+    private int writeSdes(ByteBuffer buf, int pos) {
+        // 块: SSRC + CNAME项 + 结束符，补齐到4字节
+        int chunk = (4 + 2 + cname.length + 1 + 3) & ~3;
+        buf.put(pos, (byte) 0x81);
+        buf.put(pos + 1, (byte) PT_SDES);
+        buf.putShort(pos + 2, (short) (chunk / 4));
+        buf.putInt(pos + 4, (int) ssrc);
+        buf.put(pos + 8, (byte) SDES_CNAME);
+        buf.put(pos + 9, (byte) cname.length);
+        for (int i = 0; i < cname.length; i++) {
+            buf.put(pos + 10 + i, cname[i]);
+        }
+        for (int i = pos + 10 + cname.length; i < pos + 4 + chunk; i++) {
+            buf.put(i, (byte) 0);
+        }
+        return pos + 4 + chunk;
+    }
+
+    /**
+     * 解析收到的RTCP复合包
+     */
+    public void onPacket(ByteBuffer packet, long nowNanos) {
+        int length = packet.remaining();
+        int pos = packet.position();
+        int end = pos + length;
+        while (pos + 4 <= end) {
+            if ((packet.get(pos) & 0xC0) != 0x80) {
+                return; // 非RTCP v2
+            }
+            int count = packet.get(pos) & 0x1F;
+            int pt = packet.get(pos + 1) & 0xFF;
+            int size = ((packet.getShort(pos + 2) & 0xFFFF) + 1) * 4;
+            if (pos + size > end) {
+                return;
+            }
+            if (pt == PT_SR && size >= 28) {
+                remoteSsrc = packet.getInt(pos + 4) & 0xFFFFFFFFL;
+                long ntp = packet.getLong(pos + 8);
+                lastSrNtpMiddle = (int) (ntp >>> 16);
+                lastSrReceivedNanos = nowNanos;
+                readReportBlocks(packet, pos + 28, count, pos + size, nowNanos);
+                reportsReceived++;
+            } else if (pt == PT_RR && size >= 8) {
+                remoteSsrc = packet.getInt(pos + 4) & 0xFFFFFFFFL;
+                readReportBlocks(packet, pos + 8, count, pos + size, nowNanos);
+                reportsReceived++;
+            }
+            pos += size;
+        }
+    }
+
+    private void readReportBlocks(ByteBuffer packet, int pos, int count, int end, long nowNanos) {
+        for (int i = 0; i < count && pos + 24 <= end; i++, pos += 24) {
+            if (packet.getInt(pos) != (int) ssrc) {
+                continue;
+            }
+            int word = packet.getInt(pos + 4);
+            remoteFractionLost = word >>> 24;
+            remoteCumulativeLost = (word << 8) >> 8; // 24位有符号数
+            remoteJitter = packet.getInt(pos + 12);
+            int lsr = packet.getInt(pos + 16);
+            int dlsr = packet.getInt(pos + 20);
+            if (lsr != 0) {
+                // 均为NTP中间32位，单位1/65536秒
+                long rtt = ((int) (ntpTimestamp(nowNanos) >>> 16) - lsr - dlsr) & 0xFFFFFFFFL;
+                if (rtt < 0x80000000L) {
+                    rttMs = rtt * 1000.0 / 65536;
+                }
+            }
+        }
+    }
+
+    /**
+     * RFC 3550 6.3.1 报告间隔：两方通话按双方均为发送者计算，并做随机化与补偿
+     */
+    private long interval() {
+        double rtcpBandwidth = sessionBandwidth * RTCP_BANDWIDTH_FRACTION;
+        double seconds = 2 * avgRtcpSize / rtcpBandwidth;
+        long minNanos = initial ? MIN_INTERVAL_NANOS / 2 : MIN_INTERVAL_NANOS;
+        long nanos = Math.max(minNanos, (long) (seconds * 1_000_000_000L));
+        double random = 0.5 + ThreadLocalRandom.current().nextDouble();
+        return (long) (nanos * random / COMPENSATION);
+    }
+
+    private long ntpTimestamp(long nowNanos) {
+        long micros = wallclockBaseMillis * 1000 + (nowNanos - nanoBase) / 1000;
+        long seconds = micros / 1_000_000 + NTP_EPOCH_OFFSET_SECONDS;
+        long fraction = ((micros % 1_000_000) << 32) / 1_000_000;
+        return (seconds << 32) | fraction;
+    }
+
+    /**
+     * 当前统计快照
+     */
+    public CallQualityStats snapshot() {
+        CallQualityStats stats = new CallQualityStats();
+        stats.setLocalSsrc(ssrc & 0xFFFFFFFFL);
+        stats.setRemoteSsrc(reception.isStarted() ? reception.getSsrc() : remoteSsrc);
+        stats.setPacketsSent(packetsSent);
+        stats.setOctetsSent(octetsSent);
+        stats.setPacketsReceived(reception.getReceived());
+        stats.setPacketsExpected(reception.getExpected());
+        stats.setCumulativeLost(reception.getCumulativeLost());
+        stats.setFractionLost(reception.getFractionLost() / 256.0);
+        stats.setJitterMs(reception.getJitterMs());
+        stats.setRemoteCumulativeLost(remoteCumulativeLost);
+        stats.setRemoteFractionLost(remoteFractionLost / 256.0);
+        stats.setRemoteJitterMs(remoteJitter * 1000.0 / clockRate);
+        stats.setRttMs(rttMs);
+        stats.setReportsSent(reportsSent);
+        stats.setReportsReceived(reportsReceived);
+        return stats;
+    }
+}
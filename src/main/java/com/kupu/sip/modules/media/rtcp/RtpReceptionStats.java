@@ -0,0 +1,134 @@
+package com.kupu.sip.modules.media.rtcp;
+
+/**
+ * 接收侧RTP序列号与到达抖动统计，算法见RFC 3550 附录A.1/A.3/A.8
+ * 每个收包只做几次整数运算，仅在事件循环线程调用
+ */
+public class RtpReceptionStats {
+    private static final int RTP_SEQ_MOD = 1 << 16;
+    private static final int MAX_DROPOUT = 3000;
+    private static final int MAX_MISORDER = 100;
+
+    private final int clockRate;
+    private boolean started;
+    private long ssrc;
+    private int maxSeq;
+    private long cycles;
+    private int baseSeq;
+    private int badSeq = -1;
+    private long received;
+    private long expectedPrior;
+    private long receivedPrior;
+    private boolean hasTransit;
+    private int lastTransit;
+    // 到达间隔抖动，RTP时间戳单位，按RFC 3550以1/16增益平滑
+    private double jitter;
+    // 最近一次报告区间的丢包比例(1/256)
+    private int fractionLost;
+
+    public RtpReceptionStats(int clockRate) {
+        this.clockRate = clockRate;
+    }
+
+    public void onPacket(int seq, int rtpTimestamp, long packetSsrc, long nowNanos) {
+        if (!started || packetSsrc != ssrc) {
+            restart(seq, packetSsrc);
+        } else {
+            int udelta = (seq - maxSeq) & 0xFFFF;
+            if (udelta < MAX_DROPOUT) {
+                if (seq < maxSeq) {
+                    cycles += RTP_SEQ_MOD; // 序列号回绕
+                }
+                maxSeq = seq;
+            } else if (udelta <= RTP_SEQ_MOD - MAX_MISORDER) {
+                // 序列号大跳变，连续两个包确认后视为对端重启了流
+                if (seq != badSeq) {
+                    badSeq = (seq + 1) & 0xFFFF;
+                    return;
+                }
+                restart(seq, packetSsrc);
+            }
+            // 其余为重复或乱序包，仅计数
+        }
+        received++;
+
+        int arrival = (int) (nowNanos / 1000L * clockRate / 1_000_000L);
+        int transit = arrival - rtpTimestamp;
+        if (hasTransit) {
+            int d = Math.abs(transit - lastTransit);
+            jitter += (d - jitter) / 16.0;
+        }
+        lastTransit = transit;
+        hasTransit = true;
+    }
+
+    private void restart(int seq, long packetSsrc) {
+        started = true;
+        ssrc = packetSsrc;
+        baseSeq = seq;
+        maxSeq = seq;
+        badSeq = -1;
+        cycles = 0;
+        received = 0;
+        expectedPrior = 0;
+        receivedPrior = 0;
+        hasTransit = false;
+        jitter = 0;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public long getSsrc() {
+        return ssrc;
+    }
+
+    public long getExtendedMaxSeq() {
+        return cycles + maxSeq;
+    }
+
+    public long getExpected() {
+        return started ? getExtendedMaxSeq() - baseSeq + 1 : 0;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    /**
+     * 累计丢包数，重复包可能使其为负
+     */
+    public long getCumulativeLost() {
+        return getExpected() - received;
+    }
+
+    /**
+     * 结束一个报告区间，计算该区间的丢包比例(1/256)
+     */
+    public int closeInterval() {
+        long expected = getExpected();
+        long expectedInterval = expected - expectedPrior;
+        long receivedInterval = received - receivedPrior;
+        expectedPrior = expected;
+        receivedPrior = received;
+        long lostInterval = expectedInterval - receivedInterval;
+        fractionLost = expectedInterval == 0 || lostInterval <= 0 ? 0 : (int) ((lostInterval << 8) / expectedInterval);
+        return fractionLost;
+    }
+
+    public int getFractionLost() {
+        return fractionLost;
+    }
+
+    /**
+     * 到达间隔抖动(RTP时间戳单位)
+     */
+    public int getJitter() {
+        return (int) jitter;
+    }
+
+    public double getJitterMs() {
+        return jitter * 1000 / clockRate;
+    }
+}
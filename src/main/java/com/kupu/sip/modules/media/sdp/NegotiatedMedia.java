@@ -0,0 +1,32 @@
+package com.kupu.sip.modules.media.sdp;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.codec.AudioCodecs;
+import com.kupu.sip.modules.media.srtp.SdesCrypto;
+
+import lombok.Data;
+
+/**
+ * SDP协商结果
+ */
+@Data
+public class NegotiatedMedia {
+    // 选定的音频编码
+    private AudioCodec codec = AudioCodecs.defaultCodec();
+    // 线路上使用的负载类型，静态编码与codec一致，对端使用动态映射时为其动态值
+    private int payloadType = codec.getPayloadType();
+    // 对端telephone-event负载类型，未协商时为-1
+    private int telephoneEventPayloadType = -1;
+    // 打包时长(毫秒)
+    private int ptimeMs = 20;
+    // 对端媒体行是否为RTP/SAVP
+    private boolean secureProfile;
+    // 对端a=crypto中首个本端支持的密钥(入向)，未使用SRTP时为null
+    private SdesCrypto remoteCrypto;
+    // 本端密钥(出向)，与remoteCrypto同时存在时启用SRTP
+    private SdesCrypto localCrypto;
+
+    public boolean isSrtp() {
+        return localCrypto != null && remoteCrypto != null;
+    }
+}
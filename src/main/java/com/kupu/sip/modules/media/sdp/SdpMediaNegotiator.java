@@ -0,0 +1,205 @@
+package com.kupu.sip.modules.media.sdp;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import javax.sdp.Attribute;
+import javax.sdp.MediaDescription;
+import javax.sdp.SdpException;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.codec.AudioCodecs;
+import com.kupu.sip.modules.media.srtp.SdesCrypto;
+import com.kupu.sip.modules.media.srtp.SrtpPolicy;
+
+/**
+ * SDP音频媒体协商：解析对端的编码列表并选出双方都支持的编码，生成本端offer/answer的媒体描述；
+ * 媒体加密使用SDES(a=crypto)交换SRTP主密钥
+ */
+public final class SdpMediaNegotiator {
+    // 本端offer中telephone-event使用的负载类型
+    public static final int TELEPHONE_EVENT_PAYLOAD_TYPE = 101;
+    private static final String TELEPHONE_EVENT = "telephone-event";
+    private static final int DYNAMIC_PAYLOAD_TYPE_MIN = 96;
+
+    private SdpMediaNegotiator() {
+    }
+
+    /**
+     * 按对端列出的顺序选择第一个本端支持的编码
+     *
+     * @param media 对端SDP中的音频媒体描述
+     * @return 协商结果
+     * @throws SdpException 没有共同支持的编码
+     */
+    @SuppressWarnings("unchecked")
+    public static NegotiatedMedia negotiate(MediaDescription media) throws SdpException {
+        Map<Integer, String> rtpmaps = new HashMap<>();
+        NegotiatedMedia negotiated = new NegotiatedMedia();
+        Vector<Attribute> attributes = media.getAttributes(false);
+        if (attributes != null) {
+            for (Attribute attribute : attributes) {
+                String name = attribute.getName();
+                String value = attribute.getValue();
+                if ("rtpmap".equalsIgnoreCase(name) && value != null) {
+                    int space = value.indexOf(' ');
+                    if (space > 0) {
+                        rtpmaps.put(parseInt(value.substring(0, space).trim()), value.substring(space + 1).trim());
+                    }
+                } else if ("ptime".equalsIgnoreCase(name) && value != null) {
+                    negotiated.setPtimeMs(parseInt(value.trim()));
+                } else if ("crypto".equalsIgnoreCase(name) && negotiated.getRemoteCrypto() == null) {
+                    negotiated.setRemoteCrypto(SdesCrypto.parse(value));
+                }
+            }
+        }
+        AudioCodec selected = null;
+        int selectedPayloadType = -1;
+        List<String> formats = media.getMedia().getMediaFormats(false);
+        for (String format : formats) {
+            int payloadType = parseInt(format.trim());
+            if (payloadType < 0) {
+                continue;
+            }
+            String rtpmap = rtpmaps.get(payloadType);
+            String encodingName = rtpmap == null ? null : rtpmap.split("/")[0];
+            if (TELEPHONE_EVENT.equalsIgnoreCase(encodingName)) {
+                if (negotiated.getTelephoneEventPayloadType() < 0) {
+                    negotiated.setTelephoneEventPayloadType(payloadType);
+                }
+                continue;
+            }
+            if (selected != null) {
+                continue;
+            }
+            AudioCodec codec;
+            if (rtpmap != null) {
+                String[] parts = rtpmap.split("/");
+                int clockRate = parts.length > 1 ? parseInt(parts[1]) : -1;
+                codec = AudioCodecs.forEncodingName(encodingName, clockRate);
+            } else {
+                codec = payloadType < DYNAMIC_PAYLOAD_TYPE_MIN ? AudioCodecs.forPayloadType(payloadType) : null;
+            }
+            if (codec != null) {
+                selected = codec;
+                selectedPayloadType = payloadType;
+            }
+        }
+        if (selected == null) {
+            throw new SdpException("没有共同支持的音频编码: " + formats);
+        }
+        if (negotiated.getPtimeMs() <= 0) {
+            negotiated.setPtimeMs(20);
+        }
+        negotiated.setCodec(selected);
+        negotiated.setPayloadType(selectedPayloadType);
+        negotiated.setSecureProfile(media.getMedia().getProtocol().toUpperCase().contains("SAVP"));
+        return negotiated;
+    }
+
+    /**
+     * 按SRTP策略处理对端offer：对端提供了本端支持的密钥且未禁用SRTP时生成同tag同套件的本端密钥
+     *
+     * @throws SdpException 策略要求加密而对端未提供可用密钥，或对端只接受加密媒体而本端不能加密
+     */
+    public static void acceptOffer(NegotiatedMedia negotiated, SrtpPolicy policy) throws SdpException {
+        SdesCrypto remote = negotiated.getRemoteCrypto();
+        if (remote != null && policy != SrtpPolicy.DISABLED) {
+            negotiated.setLocalCrypto(SdesCrypto.generate(remote.getTag(), remote.getSuite()));
+            return;
+        }
+        negotiated.setRemoteCrypto(null);
+        if (policy == SrtpPolicy.REQUIRED || negotiated.isSecureProfile()) {
+            throw new SdpException("SRTP协商失败: 策略" + policy + "，对端" + (negotiated.isSecureProfile() ? "RTP/SAVP" : "RTP/AVP"));
+        }
+    }
+
+    /**
+     * 按SRTP策略处理对端answer：按answer回显的tag找回本端offer中的密钥
+     *
+     * @param offered 本端offer中的密钥，未offer加密时为空
+     * @throws SdpException 本端要求加密而answer未选择本端提供的密钥
+     */
+    public static void acceptAnswer(NegotiatedMedia negotiated, List<SdesCrypto> offered, SrtpPolicy policy)
+            throws SdpException {
+        SdesCrypto remote = negotiated.getRemoteCrypto();
+        if (remote != null && offered != null) {
+            for (SdesCrypto local : offered) {
+                if (local.getTag() == remote.getTag() && local.getSuite() == remote.getSuite()) {
+                    negotiated.setLocalCrypto(local);
+                    return;
+                }
+            }
+        }
+        negotiated.setRemoteCrypto(null);
+        if (policy == SrtpPolicy.REQUIRED) {
+            throw new SdpException("SRTP协商失败: answer未接受本端提供的密钥");
+        }
+    }
+
+    /**
+     * 本端offer的音频媒体描述：列出所有支持的编码及telephone-event
+     */
+    public static String offerMedia(int port) {
+        return offerMedia(port, Collections.emptyList());
+    }
+
+    /**
+     * 本端offer的音频媒体描述，cryptos非空时以RTP/SAVP提供并逐条附带a=crypto
+     */
+    public static String offerMedia(int port, List<SdesCrypto> cryptos) {
+        StringBuilder formats = new StringBuilder();
+        StringBuilder rtpmaps = new StringBuilder();
+        for (AudioCodec codec : AudioCodecs.supported()) {
+            formats.append(' ').append(codec.getPayloadType());
+            appendRtpmap(rtpmaps, codec.getPayloadType(), codec.getEncodingName(), codec.getRtpClockRate());
+        }
+        formats.append(' ').append(TELEPHONE_EVENT_PAYLOAD_TYPE);
+        appendRtpmap(rtpmaps, TELEPHONE_EVENT_PAYLOAD_TYPE, TELEPHONE_EVENT, 8000);
+        rtpmaps.append("a=fmtp:").append(TELEPHONE_EVENT_PAYLOAD_TYPE).append(" 0-15\r\n");
+        for (SdesCrypto crypto : cryptos) {
+            rtpmaps.append("a=crypto:").append(crypto.toAttribute()).append("\r\n");
+        }
+        return "m=audio " + port + (cryptos.isEmpty() ? " RTP/AVP" : " RTP/SAVP") + formats + "\r\n" + rtpmaps;
+    }
+
+    /**
+     * 本端answer的音频媒体描述：只列出协商选定的编码，对端支持时附带telephone-event，启用SRTP时附带本端密钥
+     */
+    public static String answerMedia(int port, NegotiatedMedia negotiated) {
+        AudioCodec codec = negotiated.getCodec();
+        StringBuilder media = new StringBuilder("m=audio ").append(port)
+                .append(negotiated.isSecureProfile() ? " RTP/SAVP " : " RTP/AVP ") // 与offer的传输协议一致
+                .append(negotiated.getPayloadType());
+        int telephoneEvent = negotiated.getTelephoneEventPayloadType();
+        if (telephoneEvent >= 0) {
+            media.append(' ').append(telephoneEvent);
+        }
+        media.append("\r\n");
+        appendRtpmap(media, negotiated.getPayloadType(), codec.getEncodingName(), codec.getRtpClockRate());
+        if (telephoneEvent >= 0) {
+            appendRtpmap(media, telephoneEvent, TELEPHONE_EVENT, 8000);
+            media.append("a=fmtp:").append(telephoneEvent).append(" 0-15\r\n");
+        }
+        if (negotiated.isSrtp()) {
+            media.append("a=crypto:").append(negotiated.getLocalCrypto().toAttribute()).append("\r\n");
+        }
+        return media.toString();
+    }
+
+    private static void appendRtpmap(StringBuilder sb, int payloadType, String encodingName, int clockRate) {
+        sb.append("a=rtpmap:").append(payloadType).append(' ').append(encodingName).append('/').append(clockRate)
+                .append("\r\n");
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
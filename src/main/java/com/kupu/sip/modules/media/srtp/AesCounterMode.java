@@ -0,0 +1,103 @@
+package com.kupu.sip.modules.media.srtp;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * SRTP的AES计数器模式(RFC 3711 4.1.1)
+ * 计数器块 = 盐值 XOR (SSRC << 64) XOR (包索引 << 16)，低16位为块序号；密钥流由ECB一次加密整组计数器块得到。
+ * 密码实例、计数器块与密钥流缓冲区都按通话复用；可为预计的下一个包提前生成密钥流，收发包时只剩异或。实例非线程安全
+ */
+final class AesCounterMode {
+    private static final int BLOCK = 16;
+
+    private final Cipher cipher;
+    private final byte[] salt;
+    private byte[] counters = new byte[0];
+    private byte[] keystream = new byte[0];
+    private ByteBuffer keystreamView = ByteBuffer.wrap(keystream);
+    // 已生成密钥流对应的SSRC、包索引与字节数
+    private long preparedSsrc = -1;
+    private long preparedIndex = -1;
+    private int preparedBytes;
+
+    AesCounterMode(byte[] key, byte[] salt) {
+        this.salt = salt.clone();
+        try {
+            cipher = Cipher.getInstance("AES/ECB/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES初始化失败", e);
+        }
+        ensureCapacity(256);
+    }
+
+    /**
+     * 为指定包生成至少bytes字节的密钥流
+     */
+    void prepare(long ssrc, long index, int bytes) {
+        int blocks = (bytes + BLOCK - 1) / BLOCK;
+        ensureCapacity(blocks * BLOCK);
+        byte[] c = counters;
+        for (int b = 0; b < blocks; b++) {
+            int o = b * BLOCK;
+            System.arraycopy(salt, 0, c, o, salt.length);
+            c[o + 4] ^= (byte) (ssrc >>> 24);
+            c[o + 5] ^= (byte) (ssrc >>> 16);
+            c[o + 6] ^= (byte) (ssrc >>> 8);
+            c[o + 7] ^= (byte) ssrc;
+            c[o + 8] ^= (byte) (index >>> 40);
+            c[o + 9] ^= (byte) (index >>> 32);
+            c[o + 10] ^= (byte) (index >>> 24);
+            c[o + 11] ^= (byte) (index >>> 16);
+            c[o + 12] ^= (byte) (index >>> 8);
+            c[o + 13] ^= (byte) index;
+            c[o + 14] = (byte) (b >>> 8);
+            c[o + 15] = (byte) b;
+        }
+        try {
+            cipher.update(c, 0, blocks * BLOCK, keystream, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES加密失败", e);
+        }
+        preparedSsrc = ssrc;
+        preparedIndex = index;
+        preparedBytes = blocks * BLOCK;
+    }
+
+    /**
+     * 就地加解密packet中[offset, offset+length)，已为该包预先生成的密钥流直接使用
+     */
+    void apply(ByteBuffer packet, int offset, int length, long ssrc, long index) {
+        if (ssrc != preparedSsrc || index != preparedIndex || length > preparedBytes) {
+            prepare(ssrc, index, length);
+        }
+        preparedIndex = -1;
+        keystreamView.order(packet.order());
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            packet.putLong(offset + i, packet.getLong(offset + i) ^ keystreamView.getLong(i));
+        }
+        for (; i < length; i++) {
+            packet.put(offset + i, (byte) (packet.get(offset + i) ^ keystream[i]));
+        }
+    }
+
+    /**
+     * 已生成的密钥流，仅供密钥派生与测试读取
+     */
+    byte[] keystream() {
+        return keystream;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (keystream.length < bytes) {
+            counters = new byte[bytes];
+            keystream = new byte[bytes];
+            keystreamView = ByteBuffer.wrap(keystream);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.kupu.sip.modules.media.srtp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 无分配的HMAC-SHA1
+ * 内外两层密钥块的压缩结果在构造时预先算好，每个包只需压缩报文本身与外层一个块；
+ * 消息按大端整数直接从ByteBuffer读入复用的消息字数组，计算过程不产生任何对象。实例非线程安全
+ */
+final class HmacSha1 {
+    static final int DIGEST_LENGTH = 20;
+    private static final int BLOCK_SIZE = 64;
+
+    private final int[] innerState = new int[5];
+    private final int[] outerState = new int[5];
+    private final int[] h = new int[5];
+    private final int[] w = new int[80];
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private int blockFill;
+    private long byteCount;
+
+    HmacSha1(byte[] key) {
+        if (key.length > BLOCK_SIZE) {
+            throw new IllegalArgumentException("HMAC密钥过长: " + key.length);
+        }
+        byte[] pad = new byte[BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            pad[i] = (byte) ((i < key.length ? key[i] : 0) ^ 0x36);
+        }
+        precompute(pad, innerState);
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            pad[i] = (byte) ((i < key.length ? key[i] : 0) ^ 0x5C);
+        }
+        precompute(pad, outerState);
+        reset();
+    }
+
+    private void precompute(byte[] pad, int[] state) {
+        h[0] = 0x67452301;
+        h[1] = 0xEFCDAB89;
+        h[2] = 0x98BADCFE;
+        h[3] = 0x10325476;
+        h[4] = 0xC3D2E1F0;
+        System.arraycopy(pad, 0, block, 0, BLOCK_SIZE);
+        loadBlock();
+        compress();
+        System.arraycopy(h, 0, state, 0, 5);
+    }
+
+    /**
+     * 开始计算新消息的认证码
+     */
+    void reset() {
+        System.arraycopy(innerState, 0, h, 0, 5);
+        blockFill = 0;
+        byteCount = BLOCK_SIZE;
+    }
+
+    void update(ByteBuffer buffer, int offset, int length) {
+        byteCount += length;
+        while (length > 0) {
+            if (blockFill == 0 && length >= BLOCK_SIZE) {
+                for (int i = 0; i < 16; i++) {
+                    w[i] = buffer.getInt(offset + (i << 2));
+                }
+                compress();
+                offset += BLOCK_SIZE;
+                length -= BLOCK_SIZE;
+                continue;
+            }
+            int n = Math.min(BLOCK_SIZE - blockFill, length);
+            for (int i = 0; i < n; i++) {
+                block[blockFill + i] = buffer.get(offset + i);
+            }
+            blockFill += n;
+            offset += n;
+            length -= n;
+            if (blockFill == BLOCK_SIZE) {
+                loadBlock();
+                compress();
+                blockFill = 0;
+            }
+        }
+    }
+
+    /**
+     * 追加一个大端32位整数(SRTP的ROC)
+     */
+    void updateInt(int value) {
+        byteCount += 4;
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            block[blockFill++] = (byte) (value >>> shift);
+            if (blockFill == BLOCK_SIZE) {
+                loadBlock();
+                compress();
+                blockFill = 0;
+            }
+        }
+    }
+
+    /**
+     * 结束计算，20字节认证码写入out
+     */
+    void doFinal(byte[] out) {
+        long bits = byteCount << 3;
+        block[blockFill++] = (byte) 0x80;
+        if (blockFill > 56) {
+            while (blockFill < BLOCK_SIZE) {
+                block[blockFill++] = 0;
+            }
+            loadBlock();
+            compress();
+            blockFill = 0;
+        }
+        while (blockFill < 56) {
+            block[blockFill++] = 0;
+        }
+        loadBlock();
+        w[14] = (int) (bits >>> 32);
+        w[15] = (int) bits;
+        compress();
+        // 外层：密钥块之后只有20字节的内层摘要，恰好一个块
+        for (int i = 0; i < 5; i++) {
+            w[i] = h[i];
+        }
+        w[5] = 0x80000000;
+        for (int i = 6; i < 15; i++) {
+            w[i] = 0;
+        }
+        w[15] = (BLOCK_SIZE + DIGEST_LENGTH) << 3;
+        System.arraycopy(outerState, 0, h, 0, 5);
+        compress();
+        for (int i = 0; i < 5; i++) {
+            int v = h[i];
+            out[i << 2] = (byte) (v >>> 24);
+            out[(i << 2) + 1] = (byte) (v >>> 16);
+            out[(i << 2) + 2] = (byte) (v >>> 8);
+            out[(i << 2) + 3] = (byte) v;
+        }
+        reset();
+    }
+
+    private void loadBlock() {
+        for (int i = 0; i < 16; i++) {
+            int j = i << 2;
+            w[i] = (block[j] & 0xFF) << 24 | (block[j + 1] & 0xFF) << 16 | (block[j + 2] & 0xFF) << 8 | (block[j + 3] & 0xFF);
+        }
+    }
+
+    private void compress() {
+        for (int i = 16; i < 80; i++) {
+            int x = w[i - 3] ^ w[i - 8] ^ w[i - 14] ^ w[i - 16];
+            w[i] = (x << 1) | (x >>> 31);
+        }
+        int a = h[0];
+        int b = h[1];
+        int c = h[2];
+        int d = h[3];
+        int e = h[4];
+        for (int i = 0; i < 80; i++) {
+            int f;
+            int k;
+            if (i < 20) {
+                f = (b & c) | (~b & d);
+                k = 0x5A827999;
+            } else if (i < 40) {
+                f = b ^ c ^ d;
+                k = 0x6ED9EBA1;
+            } else if (i < 60) {
+                f = (b & c) | (b & d) | (c & d);
+                k = 0x8F1BBCDC;
+            } else {
+                f = b ^ c ^ d;
+                k = 0xCA62C1D6;
+            }
+            int t = ((a << 5) | (a >>> 27)) + f + e + k + w[i];
+            e = d;
+            d = c;
+            c = (b << 30) | (b >>> 2);
+            b = a;
+            a = t;
+        }
+        h[0] += a;
+        h[1] += b;
+        h[2] += c;
+        h[3] += d;
+        h[4] += e;
+    }
+}
@@ -0,0 +1,111 @@
+package com.kupu.sip.modules.media.srtp;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * SDES密钥(RFC 4568)：SDP中的一条a=crypto属性，tag、加密套件与inline主密钥/主盐值
+ */
+@Data
+@AllArgsConstructor
+public class SdesCrypto {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private int tag;
+    private SrtpCryptoSuite suite;
+    private byte[] masterKey;
+    private byte[] masterSalt;
+
+    /**
+     * 生成随机主密钥
+     */
+    public static SdesCrypto generate(int tag, SrtpCryptoSuite suite) {
+        byte[] keyAndSalt = new byte[SrtpCryptoSuite.MASTER_KEY_LENGTH + SrtpCryptoSuite.MASTER_SALT_LENGTH];
+        RANDOM.nextBytes(keyAndSalt);
+        return fromKeyAndSalt(tag, suite, keyAndSalt);
+    }
+
+    /**
+     * 本端offer的密钥列表：每个支持的套件一条，tag从1开始
+     */
+    public static List<SdesCrypto> offer() {
+        List<SdesCrypto> cryptos = new ArrayList<>();
+        for (SrtpCryptoSuite suite : SrtpCryptoSuite.values()) {
+            cryptos.add(generate(cryptos.size() + 1, suite));
+        }
+        return cryptos;
+    }
+
+    /**
+     * 解析a=crypto属性值，如 "1 AES_CM_128_HMAC_SHA1_80 inline:base64|2^31"；
+     * 套件不支持、带MKI、多个密钥或不支持的会话参数时返回null
+     */
+    public static SdesCrypto parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.trim().split("\\s+");
+        if (parts.length < 3 || !parts[2].regionMatches(true, 0, "inline:", 0, 7) || parts[2].indexOf(';') >= 0) {
+            return null;
+        }
+        SrtpCryptoSuite suite = SrtpCryptoSuite.forName(parts[1]);
+        if (suite == null) {
+            return null;
+        }
+        for (int i = 3; i < parts.length; i++) {
+            // 未加密/未认证的媒体与非零密钥派生率不支持，其余会话参数(如WSH)可忽略
+            String param = parts[i].toUpperCase();
+            if (param.startsWith("UNENCRYPTED_") || param.startsWith("UNAUTHENTICATED_")
+                    || (param.startsWith("KDR=") && !"KDR=0".equals(param))) {
+                return null;
+            }
+        }
+        String[] keyParams = parts[2].substring(7).split("\\|");
+        for (int i = 1; i < keyParams.length; i++) {
+            if (keyParams[i].indexOf(':') >= 0) {
+                return null; // MKI
+            }
+        }
+        try {
+            int tag = Integer.parseInt(parts[0]);
+            byte[] keyAndSalt = Base64.getDecoder().decode(keyParams[0]);
+            if (keyAndSalt.length != SrtpCryptoSuite.MASTER_KEY_LENGTH + SrtpCryptoSuite.MASTER_SALT_LENGTH) {
+                return null;
+            }
+            return fromKeyAndSalt(tag, suite, keyAndSalt);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static SdesCrypto fromKeyAndSalt(int tag, SrtpCryptoSuite suite, byte[] keyAndSalt) {
+        byte[] key = new byte[SrtpCryptoSuite.MASTER_KEY_LENGTH];
+        byte[] salt = new byte[SrtpCryptoSuite.MASTER_SALT_LENGTH];
+        System.arraycopy(keyAndSalt, 0, key, 0, key.length);
+        System.arraycopy(keyAndSalt, key.length, salt, 0, salt.length);
+        return new SdesCrypto(tag, suite, key, salt);
+    }
+
+    /**
+     * a=crypto属性值
+     */
+    public String toAttribute() {
+        byte[] keyAndSalt = new byte[masterKey.length + masterSalt.length];
+        System.arraycopy(masterKey, 0, keyAndSalt, 0, masterKey.length);
+        System.arraycopy(masterSalt, 0, keyAndSalt, masterKey.length, masterSalt.length);
+        return tag + " " + suite.name() + " inline:" + Base64.getEncoder().encodeToString(keyAndSalt);
+    }
+
+    /**
+     * 避免密钥出现在日志中
+     */
+    @Override
+    public String toString() {
+        return "SdesCrypto(tag=" + tag + ", suite=" + suite + ")";
+    }
+}
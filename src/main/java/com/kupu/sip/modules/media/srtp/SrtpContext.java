@@ -0,0 +1,271 @@
+package com.kupu.sip.modules.media.srtp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 单方向的SRTP/SRTCP加密上下文(RFC 3711)
+ * 由一条SDES主密钥派生出SRTP与SRTCP各自的会话密钥(密钥派生率为0，只派生一次)；发送方向维护ROC与SRTCP索引，
+ * 接收方向按附录A估计包索引，并以64位位图做重放检测，认证通过后才更新状态。
+ * 包都是就地变换：加密后在末尾追加认证标签，调用方需保证缓冲区留有余量。只在事件循环线程使用
+ */
+class SrtpContext {
+    private static final int RTP_HEADER_SIZE = 12;
+    private static final int RTCP_HEADER_SIZE = 8;
+    private static final int SRTCP_INDEX_SIZE = 4;
+
+    private final int rtpTagLength;
+    private final AesCounterMode rtpCipher;
+    private final AesCounterMode rtcpCipher;
+    private final HmacSha1 rtpMac;
+    private final HmacSha1 rtcpMac;
+    private final byte[] tag = new byte[HmacSha1.DIGEST_LENGTH];
+
+    // 发送方向
+    private int sendRoc;
+    private int lastSendSeq = -1;
+    private int srtcpSendIndex;
+
+    // 接收方向
+    private long receiveSsrc = -1;
+    private final ReplayWindow rtpWindow = new ReplayWindow();
+    private final ReplayWindow rtcpWindow = new ReplayWindow();
+    private long authFailures;
+    private long replayedPackets;
+
+    SrtpContext(SdesCrypto crypto) {
+        byte[] key = crypto.getMasterKey();
+        byte[] salt = crypto.getMasterSalt();
+        this.rtpTagLength = crypto.getSuite().getRtpTagLength();
+        this.rtpCipher = new AesCounterMode(deriveKey(key, salt, 0, 16), deriveKey(key, salt, 2, 14));
+        this.rtpMac = new HmacSha1(deriveKey(key, salt, 1, 20));
+        this.rtcpCipher = new AesCounterMode(deriveKey(key, salt, 3, 16), deriveKey(key, salt, 5, 14));
+        this.rtcpMac = new HmacSha1(deriveKey(key, salt, 4, 20));
+    }
+
+    /**
+     * 会话密钥派生(RFC 3711 4.3)：以主密钥对 (主盐值 XOR label<<48) 做AES计数器模式，取前length字节
+     */
+    static byte[] deriveKey(byte[] masterKey, byte[] masterSalt, int label, int length) {
+        byte[] x = masterSalt.clone();
+        x[7] ^= (byte) label;
+        AesCounterMode prf = new AesCounterMode(masterKey, x);
+        prf.prepare(0, 0, length);
+        byte[] out = new byte[length];
+        System.arraycopy(prf.keystream(), 0, out, 0, length);
+        return out;
+    }
+
+    /**
+     * 加密并认证一个RTP包
+     *
+     * @return 追加认证标签后的长度，头部不完整时返回-1
+     */
+    int protectRtp(ByteBuffer packet, int length) {
+        int headerLength = rtpHeaderLength(packet, length);
+        if (headerLength < 0) {
+            return -1;
+        }
+        int seq = packet.getShort(2) & 0xFFFF;
+        long ssrc = packet.getInt(8) & 0xFFFFFFFFL;
+        if (lastSendSeq >= 0 && seq < lastSendSeq && lastSendSeq - seq > 0x8000) {
+            sendRoc++;
+        }
+        lastSendSeq = seq;
+        long index = ((long) sendRoc << 16) | seq;
+        int payloadLength = length - headerLength;
+        rtpCipher.apply(packet, headerLength, payloadLength, ssrc, index);
+        rtpMac.update(packet, 0, length);
+        rtpMac.updateInt(sendRoc);
+        rtpMac.doFinal(tag);
+        for (int i = 0; i < rtpTagLength; i++) {
+            packet.put(length + i, tag[i]);
+        }
+        // 出向包序号连续，提前生成下一个包的密钥流
+        rtpCipher.prepare(ssrc, index + 1, payloadLength);
+        return length + rtpTagLength;
+    }
+
+    /**
+     * 校验并解密一个SRTP包
+     *
+     * @return 去掉认证标签后的RTP包长度；认证失败、重放或格式错误返回-1
+     */
+    int unprotectRtp(ByteBuffer packet, int length) {
+        int authLength = length - rtpTagLength;
+        int headerLength = rtpHeaderLength(packet, authLength);
+        if (headerLength < 0) {
+            return -1;
+        }
+        int seq = packet.getShort(2) & 0xFFFF;
+        long ssrc = packet.getInt(8) & 0xFFFFFFFFL;
+        // SSRC变化(对端重启了流)时按新流从ROC=0开始，认证通过后才替换状态
+        boolean newStream = ssrc != receiveSsrc;
+        long index = newStream ? seq : rtpWindow.estimateIndex(seq);
+        if (index < 0 || (!newStream && rtpWindow.isReplay(index))) {
+            replayedPackets++;
+            return -1;
+        }
+        int roc = (int) (index >>> 16);
+        rtpMac.update(packet, 0, authLength);
+        rtpMac.updateInt(roc);
+        rtpMac.doFinal(tag);
+        if (!tagMatches(packet, authLength, rtpTagLength)) {
+            authFailures++;
+            return -1;
+        }
+        if (newStream) {
+            receiveSsrc = ssrc;
+            rtpWindow.reset();
+        }
+        int payloadLength = authLength - headerLength;
+        rtpCipher.apply(packet, headerLength, payloadLength, ssrc, index);
+        if (rtpWindow.accept(index)) {
+            rtpCipher.prepare(ssrc, index + 1, payloadLength);
+        }
+        return authLength;
+    }
+
+    /**
+     * 加密并认证一个RTCP复合包：加密首个头部之后的内容，追加E标志与SRTCP索引及80位认证标签
+     *
+     * @return 变换后的长度
+     */
+    int protectRtcp(ByteBuffer packet, int length) {
+        if (length < RTCP_HEADER_SIZE) {
+            return -1;
+        }
+        long ssrc = packet.getInt(4) & 0xFFFFFFFFL;
+        int index = srtcpSendIndex;
+        srtcpSendIndex = (srtcpSendIndex + 1) & 0x7FFFFFFF;
+        rtcpCipher.apply(packet, RTCP_HEADER_SIZE, length - RTCP_HEADER_SIZE, ssrc, index);
+        packet.putInt(length, 0x80000000 | index);
+        int authLength = length + SRTCP_INDEX_SIZE;
+        rtcpMac.update(packet, 0, authLength);
+        rtcpMac.doFinal(tag);
+        for (int i = 0; i < SrtpCryptoSuite.SRTCP_TAG_LENGTH; i++) {
+            packet.put(authLength + i, tag[i]);
+        }
+        return authLength + SrtpCryptoSuite.SRTCP_TAG_LENGTH;
+    }
+
+    /**
+     * 校验并解密一个SRTCP包
+     *
+     * @return 还原后的RTCP包长度；认证失败、重放或格式错误返回-1
+     */
+    int unprotectRtcp(ByteBuffer packet, int length) {
+        int authLength = length - SrtpCryptoSuite.SRTCP_TAG_LENGTH;
+        if (authLength < RTCP_HEADER_SIZE + SRTCP_INDEX_SIZE) {
+            return -1;
+        }
+        int word = packet.getInt(authLength - SRTCP_INDEX_SIZE);
+        long index = word & 0x7FFFFFFFL;
+        if (rtcpWindow.isReplay(index)) {
+            replayedPackets++;
+            return -1;
+        }
+        rtcpMac.update(packet, 0, authLength);
+        rtcpMac.doFinal(tag);
+        if (!tagMatches(packet, authLength, SrtpCryptoSuite.SRTCP_TAG_LENGTH)) {
+            authFailures++;
+            return -1;
+        }
+        int plainLength = authLength - SRTCP_INDEX_SIZE;
+        if (word < 0) {
+            long ssrc = packet.getInt(4) & 0xFFFFFFFFL;
+            rtcpCipher.apply(packet, RTCP_HEADER_SIZE, plainLength - RTCP_HEADER_SIZE, ssrc, index);
+        }
+        rtcpWindow.accept(index);
+        return plainLength;
+    }
+
+    long getAuthFailures() {
+        return authFailures;
+    }
+
+    long getReplayedPackets() {
+        return replayedPackets;
+    }
+
+    private boolean tagMatches(ByteBuffer packet, int offset, int length) {
+        int diff = 0;
+        for (int i = 0; i < length; i++) {
+            diff |= tag[i] ^ packet.get(offset + i);
+        }
+        return diff == 0;
+    }
+
+    /**
+     * RTP头部长度(含CSRC与扩展头)，不完整时返回-1
+     */
+    private static int rtpHeaderLength(ByteBuffer packet, int length) {
+        if (length < RTP_HEADER_SIZE) {
+            return -1;
+        }
+        int first = packet.get(0);
+        int headerLength = RTP_HEADER_SIZE + ((first & 0x0F) << 2);
+        if ((first & 0x10) != 0) {
+            if (length < headerLength + 4) {
+                return -1;
+            }
+            headerLength += 4 + ((packet.getShort(headerLength + 2) & 0xFFFF) << 2);
+        }
+        return headerLength <= length ? headerLength : -1;
+    }
+
+    /**
+     * 64位位图重放窗口：最高位以下第n位表示索引(highest - n)已收到
+     */
+    static final class ReplayWindow {
+        private static final int SIZE = 64;
+        private long highest = -1;
+        private long mask;
+
+        /**
+         * 按已收到的最大索引估计16位序号对应的48位包索引(RFC 3711 附录A)
+         */
+        long estimateIndex(int seq) {
+            if (highest < 0) {
+                return seq;
+            }
+            int lastSeq = (int) (highest & 0xFFFF);
+            long roc = highest >>> 16;
+            long v;
+            if (lastSeq < 0x8000) {
+                v = seq - lastSeq > 0x8000 ? roc - 1 : roc;
+            } else {
+                v = lastSeq - 0x8000 > seq ? roc + 1 : roc;
+            }
+            return v < 0 ? -1 : (v << 16) | seq;
+        }
+
+        boolean isReplay(long index) {
+            if (highest < 0 || index > highest) {
+                return false;
+            }
+            long delta = highest - index;
+            return delta >= SIZE || (mask & (1L << delta)) != 0;
+        }
+
+        /**
+         * 记录已通过认证的索引
+         *
+         * @return 是否为新的最大索引
+         */
+        boolean accept(long index) {
+            if (highest < 0 || index > highest) {
+                long shift = highest < 0 ? SIZE : index - highest;
+                mask = shift >= SIZE ? 1 : (mask << shift) | 1;
+                highest = index;
+                return true;
+            }
+            mask |= 1L << (highest - index);
+            return false;
+        }
+
+        void reset() {
+            highest = -1;
+            mask = 0;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.kupu.sip.modules.media.srtp;
+
+/**
+ * 支持的SRTP加密套件(RFC 4568)，均为AES-128计数器模式加HMAC-SHA1认证，区别在于SRTP认证标签长度；
+ * SRTCP认证标签固定为80位
+ */
+public enum SrtpCryptoSuite {
+    AES_CM_128_HMAC_SHA1_80(10),
+    AES_CM_128_HMAC_SHA1_32(4);
+
+    public static final int MASTER_KEY_LENGTH = 16;
+    public static final int MASTER_SALT_LENGTH = 14;
+    public static final int SRTCP_TAG_LENGTH = 10;
+
+    private final int rtpTagLength;
+
+    SrtpCryptoSuite(int rtpTagLength) {
+        this.rtpTagLength = rtpTagLength;
+    }
+
+    public int getRtpTagLength() {
+        return rtpTagLength;
+    }
+
+    /**
+     * 按SDP中的套件名查找，不支持时返回null
+     */
+    public static SrtpCryptoSuite forName(String name) {
+        for (SrtpCryptoSuite suite : values()) {
+            if (suite.name().equalsIgnoreCase(name)) {
+                return suite;
+            }
+        }
+        return null;
+    }
+}
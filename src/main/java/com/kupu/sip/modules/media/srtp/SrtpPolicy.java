@@ -0,0 +1,13 @@
+package com.kupu.sip.modules.media.srtp;
+
+/**
+ * SRTP启用策略
+ */
+public enum SrtpPolicy {
+    // 不使用SRTP，只携带加密媒体(RTP/SAVP)的offer回488
+    DISABLED,
+    // 本端offer明文RTP；对端offer携带a=crypto时以SRTP应答
+    OPTIONAL,
+    // 本端offer只提供RTP/SAVP，拒绝不带a=crypto的offer/answer
+    REQUIRED
+}
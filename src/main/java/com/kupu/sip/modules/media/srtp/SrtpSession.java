@@ -0,0 +1,64 @@
+package com.kupu.sip.modules.media.srtp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 一路通话的SRTP/SRTCP变换：出向用本端密钥加密，入向用对端密钥校验解密。
+ * 每个方向的AES与HMAC实例、密钥流缓冲区在建立时一次性创建，收发包不产生对象。只在事件循环线程使用
+ */
+public class SrtpSession {
+    // 出向包追加的最大字节数(SRTCP索引与认证标签)
+    public static final int MAX_OVERHEAD = 4 + SrtpCryptoSuite.SRTCP_TAG_LENGTH;
+
+    private final SrtpContext outbound;
+    private final SrtpContext inbound;
+
+    /**
+     * @param local  本端SDP中的a=crypto，用于出向
+     * @param remote 对端SDP中的a=crypto，用于入向
+     */
+    public SrtpSession(SdesCrypto local, SdesCrypto remote) {
+        this.outbound = new SrtpContext(local);
+        this.inbound = new SrtpContext(remote);
+    }
+
+    /**
+     * 就地加密RTP包并追加认证标签
+     *
+     * @return 变换后的长度，包不合法时返回-1
+     */
+    public int protectRtp(ByteBuffer packet, int length) {
+        return outbound.protectRtp(packet, length);
+    }
+
+    /**
+     * 就地校验并解密SRTP包
+     *
+     * @return RTP包长度，认证失败或重放时返回-1
+     */
+    public int unprotectRtp(ByteBuffer packet, int length) {
+        return inbound.unprotectRtp(packet, length);
+    }
+
+    public int protectRtcp(ByteBuffer packet, int length) {
+        return outbound.protectRtcp(packet, length);
+    }
+
+    public int unprotectRtcp(ByteBuffer packet, int length) {
+        return inbound.unprotectRtcp(packet, length);
+    }
+
+    /**
+     * 认证失败丢弃的入向包数
+     */
+    public long getAuthFailures() {
+        return inbound.getAuthFailures();
+    }
+
+    /**
+     * 重放或过旧丢弃的入向包数
+     */
+    public long getReplayedPackets() {
+        return inbound.getReplayedPackets();
+    }
+}
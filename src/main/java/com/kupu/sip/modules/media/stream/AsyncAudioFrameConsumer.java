@@ -0,0 +1,246 @@
+package com.kupu.sip.modules.media.stream;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import com.kupu.sip.modules.media.buffer.SpscSlotRing;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 异步音频交接：媒体循环把音频和语音起止标记复制进单生产者单消费者无锁环后立即返回，
+ * 由工作线程池按序取出交给实际消费者，慢消费者(如HTTP上传ASR)不会阻塞RTP收包。
+ * 同一时刻最多一个工作线程在消费该环，消费者回调无需考虑并发；环满时按{@link HandoffBackpressure}处理
+ */
+@Slf4j
+public class AsyncAudioFrameConsumer implements AudioFrameConsumer {
+    private static final long BLOCK_PARK_NANOS = 20_000L;
+
+    private final AudioFrameConsumer delegate;
+    private final SpscSlotRing<AudioChunk> ring;
+    private final Executor executor;
+    private final HandoffBackpressure backpressure;
+    private final long blockTimeoutNanos;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable drainTask = this::drain;
+
+    // 生产者状态，仅在媒体事件循环线程访问
+    private AudioChunk open;
+    private boolean pendingEndBefore;
+    private boolean pendingStart;
+    private int maxDepth;
+    private long droppedSamples;
+    private long droppedUtterances;
+    private long blockedNanos;
+
+    // 消费者状态，仅在当前消费的工作线程访问
+    private long delivered;
+    private long lastLagNanos;
+    private long maxLagNanos;
+    private long consumerErrors;
+
+    /**
+     * @param chunkSamples 每个槽位可容纳的样本数
+     */
+    public AsyncAudioFrameConsumer(AudioFrameConsumer delegate, Executor executor, int capacity, int chunkSamples,
+                                   HandoffBackpressure backpressure, int blockTimeoutMs) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.backpressure = backpressure;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.ring = new SpscSlotRing<>(capacity, () -> new AudioChunk(chunkSamples));
+    }
+
+    public AudioFrameConsumer getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void onSpeechStart(String callId) {
+        publishOpen();
+        AudioChunk chunk = claim(callId);
+        if (chunk == null) {
+            pendingStart = true;
+            return;
+        }
+        chunk.start = true;
+        open = chunk;
+    }
+
+    @Override
+    public void onAudio(String callId, short[] pcm, int off, int samples) {
+        while (samples > 0) {
+            if (open == null) {
+                open = claim(callId);
+                if (open == null) {
+                    droppedSamples += samples;
+                    return;
+                }
+            }
+            AudioChunk chunk = open;
+            int n = Math.min(samples, chunk.pcm.length - chunk.samples);
+            System.arraycopy(pcm, off, chunk.pcm, chunk.samples, n);
+            chunk.samples += n;
+            off += n;
+            samples -= n;
+            if (chunk.samples == chunk.pcm.length) {
+                publishOpen();
+            }
+        }
+        // 合并模式下消费者仍有积压时保持槽位打开，后续帧继续写入同一槽位
+        if (open != null && (backpressure != HandoffBackpressure.COALESCE || ring.size() == 0)) {
+            publishOpen();
+        }
+    }
+
+    @Override
+    public void onSpeechEnd(String callId) {
+        if (open == null) {
+            open = claim(callId);
+        }
+        if (open == null) {
+            if (pendingStart) {
+                // 消费者尚未见到本段的起始，整段作废
+                pendingStart = false;
+                droppedUtterances++;
+            } else {
+                pendingEndBefore = true;
+            }
+            return;
+        }
+        open.end = true;
+        publishOpen();
+    }
+
+    /**
+     * 取得空闲槽位并带上顺延的起止标记
+     */
+    private AudioChunk claim(String callId) {
+        AudioChunk chunk = ring.claim();
+        if (chunk == null && backpressure == HandoffBackpressure.BLOCK) {
+            long start = System.nanoTime();
+            long waited = 0;
+            while (chunk == null && waited < blockTimeoutNanos) {
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                chunk = ring.claim();
+                waited = System.nanoTime() - start;
+            }
+            blockedNanos += waited;
+        }
+        if (chunk == null) {
+            return null;
+        }
+        chunk.callId = callId;
+        chunk.endBefore = pendingEndBefore;
+        chunk.start = pendingStart;
+        chunk.samples = 0;
+        chunk.end = false;
+        pendingEndBefore = false;
+        pendingStart = false;
+        return chunk;
+    }
+
+    private void publishOpen() {
+        AudioChunk chunk = open;
+        if (chunk == null) {
+            return;
+        }
+        open = null;
+        chunk.publishNanos = System.nanoTime();
+        ring.publish();
+        int depth = ring.size();
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+        if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+            log.warn("音频消费线程池已关闭，丢弃待交付音频");
+        }
+    }
+
+    private void drain() {
+        try {
+            AudioChunk chunk;
+            while ((chunk = ring.peek()) != null) {
+                long lag = System.nanoTime() - chunk.publishNanos;
+                lastLagNanos = lag;
+                if (lag > maxLagNanos) {
+                    maxLagNanos = lag;
+                }
+                try {
+                    if (chunk.endBefore) {
+                        delegate.onSpeechEnd(chunk.callId);
+                    }
+                    if (chunk.start) {
+                        delegate.onSpeechStart(chunk.callId);
+                    }
+                    if (chunk.samples > 0) {
+                        delegate.onAudio(chunk.callId, chunk.pcm, 0, chunk.samples);
+                    }
+                    if (chunk.end) {
+                        delegate.onSpeechEnd(chunk.callId);
+                    }
+                } catch (Exception e) {
+                    consumerErrors++;
+                    log.error("音频消费者处理失败 callId: {}", chunk.callId, e);
+                }
+                ring.release();
+                delivered++;
+            }
+        } finally {
+            scheduled.set(false);
+            // 退出前生产者可能刚发布了新槽位
+            if (ring.size() > 0 && scheduled.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * 交接统计，跨线程读取时为近似值
+     */
+    public HandoffStats getStats() {
+        HandoffStats stats = new HandoffStats();
+        stats.setConsumer(delegate.getClass().getSimpleName());
+        stats.setBackpressure(backpressure);
+        stats.setCapacity(ring.capacity());
+        stats.setDepth(ring.size());
+        stats.setMaxDepth(maxDepth);
+        stats.setDelivered(delivered);
+        stats.setDroppedSamples(droppedSamples);
+        stats.setDroppedUtterances(droppedUtterances);
+        stats.setBlockedMicros(blockedNanos / 1000);
+        stats.setLastLagMs(lastLagNanos / 1e6);
+        stats.setMaxLagMs(maxLagNanos / 1e6);
+        stats.setConsumerErrors(consumerErrors);
+        return stats;
+    }
+
+    /**
+     * 交接槽位：[上一段结束] [本段起始] 音频 [本段结束]
+     */
+    private static final class AudioChunk {
+        final short[] pcm;
+        String callId;
+        boolean endBefore;
+        boolean start;
+        int samples;
+        boolean end;
+        long publishNanos;
+
+        AudioChunk(int capacity) {
+            this.pcm = new short[capacity];
+        }
+    }
+}
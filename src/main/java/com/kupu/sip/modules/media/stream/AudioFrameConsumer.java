@@ -0,0 +1,26 @@
+package com.kupu.sip.modules.media.stream;
+
+/**
+ * 接收方向的流式音频消费者(如流式ASR)
+ * 只交付VAD判定的语音段：语音起始回调后依次交付预录音频和语音帧(按批)，语音结束时先交付剩余的不足一批的音频再回调结束。
+ * 所有回调都在媒体事件循环线程上执行，pcm数组在回调返回后即被复用，实现须复制数据并尽快返回，耗时处理应转交其他线程
+ */
+public interface AudioFrameConsumer {
+
+    /**
+     * 检测到语音起始
+     */
+    default void onSpeechStart(String callId) {
+    }
+
+    /**
+     * 一批按序解码的16位PCM(单声道，编码采样率)
+     */
+    void onAudio(String callId, short[] pcm, int off, int samples);
+
+    /**
+     * 语音结束，本段音频已全部交付
+     */
+    default void onSpeechEnd(String callId) {
+    }
+}
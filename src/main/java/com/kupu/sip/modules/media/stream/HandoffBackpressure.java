@@ -0,0 +1,13 @@
+package com.kupu.sip.modules.media.stream;
+
+/**
+ * 音频交接环满(消费者跟不上)时媒体循环的处理方式
+ */
+public enum HandoffBackpressure {
+    // 丢弃新到的音频，语音起止标记顺延保留
+    DROP,
+    // 消费者积压时把后续帧合并进同一槽位，槽位写满仍无空位才丢弃
+    COALESCE,
+    // 媒体循环等待空位，超过等待上限后丢弃；会推迟同一循环上其他通话的收发，仅用于不允许丢音频的场景
+    BLOCK
+}
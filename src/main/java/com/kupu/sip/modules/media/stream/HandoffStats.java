@@ -0,0 +1,29 @@
+package com.kupu.sip.modules.media.stream;
+
+import lombok.Data;
+
+/**
+ * 音频交接环统计
+ */
+@Data
+public class HandoffStats {
+    private String consumer;
+    private HandoffBackpressure backpressure;
+    private int capacity;
+    // 当前积压槽位数
+    private int depth;
+    private int maxDepth;
+    // 已交付给消费者的槽位数
+    private long delivered;
+    // 因环满丢弃的样本数
+    private long droppedSamples;
+    // 音频全部被丢弃、未交付给消费者的语音段数
+    private long droppedUtterances;
+    // BLOCK策略下媒体循环累计等待时长(微秒)
+    private long blockedMicros;
+    // 消费者滞后：槽位从发布到开始处理的时长(毫秒)
+    private double lastLagMs;
+    private double maxLagMs;
+    // 消费者回调异常次数
+    private long consumerErrors;
+}
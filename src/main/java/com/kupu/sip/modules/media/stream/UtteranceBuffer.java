@@ -0,0 +1,91 @@
+package com.kupu.sip.modules.media.stream;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 定长堆外PCM环形缓冲，按16位小端存放
+ * 容量在创建时确定，写满后按调用方式覆盖最旧样本或拒绝写入，不会增长；非线程安全，同一时刻只能由一个线程访问
+ */
+public class UtteranceBuffer {
+    private final ByteBuffer ring;
+    private final int capacity;
+    private int writePos;
+    private int size;
+
+    /**
+     * @param capacitySamples 最多缓冲的样本数
+     */
+    public UtteranceBuffer(int capacitySamples) {
+        this.capacity = Math.max(1, capacitySamples) * 2;
+        this.ring = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 容量(字节)
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 已缓冲字节数
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * 写入样本直至写满
+     *
+     * @return 实际写入的样本数
+     */
+    public int write(short[] pcm, int off, int samples) {
+        int n = Math.min(samples, (capacity - size) / 2);
+        put(pcm, off, n);
+        size += n * 2;
+        return n;
+    }
+
+    /**
+     * 写入全部样本，空间不足时覆盖最旧的样本
+     */
+    public void writeOverwrite(short[] pcm, int off, int samples) {
+        put(pcm, off, samples);
+        size = Math.min(capacity, size + samples * 2);
+    }
+
+    private void put(short[] pcm, int off, int samples) {
+        for (int i = 0; i < samples; i++) {
+            ring.putShort(writePos, pcm[off + i]);
+            writePos += 2;
+            if (writePos == capacity) {
+                writePos = 0;
+            }
+        }
+    }
+
+    /**
+     * 按时间顺序复制出已缓冲的PCM
+     */
+    public byte[] toByteArray() {
+        byte[] out = new byte[size];
+        int readPos = (writePos - size + capacity) % capacity;
+        int first = Math.min(size, capacity - readPos);
+        ByteBuffer view = ring.duplicate();
+        view.position(readPos);
+        view.get(out, 0, first);
+        view.position(0);
+        view.get(out, first, size - first);
+        return out;
+    }
+
+    public void clear() {
+        size = 0;
+        writePos = 0;
+    }
+}
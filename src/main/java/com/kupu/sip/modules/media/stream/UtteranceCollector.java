@@ -0,0 +1,95 @@
+package com.kupu.sip.modules.media.stream;
+
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 整段交付：在定长堆外缓冲中累积一段语音的PCM，语音结束时以16位小端字节数组整体回调
+ * 保留给只能处理整句音频的调用方，时延为整段语音时长加结束判定时长；单段超过缓冲上限时按溢出策略处理
+ */
+@Slf4j
+public class UtteranceCollector implements AudioFrameConsumer {
+    private final Consumer<byte[]> callback;
+    private final UtteranceBuffer buffer;
+    private final UtteranceOverflowPolicy policy;
+    private final UtteranceOverflowListener overflowListener;
+    private final int sampleRate;
+    private boolean overflowed;
+
+    /**
+     * @param sampleRate       PCM采样率
+     * @param maxUtteranceMs   单段语音缓冲上限(毫秒)
+     * @param overflowListener 溢出事件监听，可为null
+     */
+    public UtteranceCollector(Consumer<byte[]> callback, int sampleRate, int maxUtteranceMs,
+                              UtteranceOverflowPolicy policy, UtteranceOverflowListener overflowListener) {
+        this.callback = callback;
+        this.sampleRate = sampleRate;
+        this.buffer = new UtteranceBuffer(sampleRate * maxUtteranceMs / 1000);
+        this.policy = policy;
+        this.overflowListener = overflowListener;
+    }
+
+    @Override
+    public void onSpeechStart(String callId) {
+        buffer.clear();
+        overflowed = false;
+    }
+
+    @Override
+    public void onAudio(String callId, short[] pcm, int off, int samples) {
+        if (policy == UtteranceOverflowPolicy.DROP_OLDEST) {
+            if (!overflowed && buffer.size() + samples * 2 > buffer.capacity()) {
+                onOverflow(callId);
+            }
+            buffer.writeOverwrite(pcm, off, samples);
+            return;
+        }
+        while (samples > 0) {
+            int n = buffer.write(pcm, off, samples);
+            off += n;
+            samples -= n;
+            if (samples == 0) {
+                return;
+            }
+            if (!overflowed) {
+                onOverflow(callId);
+            }
+            if (policy == UtteranceOverflowPolicy.EVENT) {
+                return; // 丢弃后续音频直至语音结束
+            }
+            deliver(callId); // ENDPOINT：强制断句后继续写入新的一段
+            overflowed = false;
+        }
+    }
+
+    @Override
+    public void onSpeechEnd(String callId) {
+        deliver(callId);
+        overflowed = false;
+    }
+
+    private void onOverflow(String callId) {
+        overflowed = true;
+        int bufferedMs = (int) ((long) buffer.size() / 2 * 1000 / sampleRate);
+        log.warn("语音片段超过缓冲上限 callId: {}, 已缓冲: {}ms, 策略: {}", callId, bufferedMs, policy);
+        if (overflowListener != null) {
+            try {
+                overflowListener.onUtteranceOverflow(callId, policy, bufferedMs);
+            } catch (Exception e) {
+                log.error("语音缓冲溢出回调失败 callId: {}", callId, e);
+            }
+        }
+    }
+
+    private void deliver(String callId) {
+        if (buffer.size() == 0) {
+            return;
+        }
+        byte[] completeAudio = buffer.toByteArray();
+        buffer.clear();
+        callback.accept(completeAudio);
+        log.info("语音片段接收完成 callId: {}, PCM数据大小: {} 字节", callId, completeAudio.length);
+    }
+}
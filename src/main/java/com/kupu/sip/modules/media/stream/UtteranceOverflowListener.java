@@ -0,0 +1,10 @@
+package com.kupu.sip.modules.media.stream;
+
+/**
+ * 整段语音缓冲溢出事件，每段语音最多上报一次，在累积该段语音的线程上回调
+ */
+@FunctionalInterface
+public interface UtteranceOverflowListener {
+
+    void onUtteranceOverflow(String callId, UtteranceOverflowPolicy policy, int bufferedMs);
+}
@@ -0,0 +1,13 @@
+package com.kupu.sip.modules.media.stream;
+
+/**
+ * 整段语音超过缓冲上限时的处理方式
+ */
+public enum UtteranceOverflowPolicy {
+    // 强制断句：已缓冲的音频立即作为一段交付，后续音频开始新的一段
+    ENDPOINT,
+    // 丢弃最旧的音频，只保留最近的上限时长
+    DROP_OLDEST,
+    // 保留已缓冲音频，丢弃后续音频直至语音结束，仅上报溢出事件
+    EVENT
+}
@@ -0,0 +1,120 @@
+package com.kupu.sip.modules.media.vad;
+
+/**
+ * 基于能量与自适应噪声底的VAD
+ * 噪声底在非语音段快速跟随下降、缓慢跟随上升；语音段内按最近一个窗口(1秒)的最小能量抬升，
+ * 语句间的停顿使窗口最小值接近噪声底，持续不降的能量则说明线路噪声变大，避免嘈杂线路上语音段无法结束；
+ * 起始与结束使用不同的门限(滞回)，起始需连续若干帧超过门限，结束需持续低于门限达到设定时长
+ */
+public class EnergyVad implements VoiceActivityDetector {
+    // 低于该级别(约RMS 64)的帧不判为语音，避免数字静音中的微弱噪声触发
+    private static final int MIN_SPEECH_LEVEL = FrameEnergy.level(64 * 64);
+    // 最小能量窗口(帧)
+    private static final int MIN_WINDOW_FRAMES = 50;
+
+    private final int frameMs;
+    private final int onsetMargin;
+    private final int offsetMargin;
+    private final int onsetFrames;
+    private int hangoverFrames;
+
+    private boolean initialized;
+    private boolean speech;
+    private int noiseFloor;
+    private int onsetCount;
+    private int quietCount;
+    private int windowCount;
+    private int windowMin = Integer.MAX_VALUE;
+
+    /**
+     * @param frameMs       帧长(毫秒)
+     * @param onsetMs       进入语音需持续超过起始门限的时长
+     * @param endOfSpeechMs 语音结束判定时长
+     * @param onsetDb       起始门限：高于噪声底的dB数
+     * @param offsetDb      结束门限：高于噪声底的dB数，应小于起始门限
+     */
+    public EnergyVad(int frameMs, int onsetMs, int endOfSpeechMs, double onsetDb, double offsetDb) {
+        this.frameMs = frameMs;
+        this.onsetFrames = Math.max(1, onsetMs / frameMs);
+        this.onsetMargin = FrameEnergy.dbToLevel(onsetDb);
+        this.offsetMargin = FrameEnergy.dbToLevel(offsetDb);
+        setEndOfSpeechMs(endOfSpeechMs);
+    }
+
+    @Override
+    public void setEndOfSpeechMs(int endOfSpeechMs) {
+        this.hangoverFrames = Math.max(1, endOfSpeechMs / frameMs);
+    }
+
+    @Override
+    public int onFrame(long meanSquare) {
+        int level = FrameEnergy.level(meanSquare);
+        if (!initialized) {
+            noiseFloor = level;
+            initialized = true;
+        }
+        int event = NONE;
+        if (!speech) {
+            if (level >= MIN_SPEECH_LEVEL && level > noiseFloor + onsetMargin) {
+                if (++onsetCount >= onsetFrames) {
+                    speech = true;
+                    onsetCount = 0;
+                    quietCount = 0;
+                    event = ONSET;
+                }
+            } else {
+                onsetCount = 0;
+            }
+            if (level < noiseFloor) {
+                noiseFloor += (level - noiseFloor) >> 1;
+            } else if (onsetCount == 0 && !speech) {
+                noiseFloor += ((level - noiseFloor) >> 4) + 1;
+            }
+        } else {
+            if (level < MIN_SPEECH_LEVEL || level < noiseFloor + offsetMargin) {
+                if (++quietCount >= hangoverFrames) {
+                    speech = false;
+                    quietCount = 0;
+                    event = OFFSET;
+                }
+            } else {
+                quietCount = 0;
+            }
+            if (level < noiseFloor) {
+                noiseFloor += (level - noiseFloor) >> 1;
+            }
+        }
+        // 窗口最小能量，语音段内用于抬升噪声底
+        windowMin = Math.min(windowMin, level);
+        if (++windowCount >= MIN_WINDOW_FRAMES) {
+            if (speech && windowMin > noiseFloor) {
+                noiseFloor = windowMin;
+            }
+            windowCount = 0;
+            windowMin = Integer.MAX_VALUE;
+        }
+        return event;
+    }
+
+    @Override
+    public boolean isSpeech() {
+        return speech;
+    }
+
+    /**
+     * 当前噪声底(能量级别单位)
+     */
+    public int getNoiseFloor() {
+        return noiseFloor;
+    }
+
+    @Override
+    public void reset() {
+        initialized = false;
+        speech = false;
+        onsetCount = 0;
+        quietCount = 0;
+        windowCount = 0;
+        windowMin = Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,81 @@
+package com.kupu.sip.modules.media.vad;
+
+import java.nio.ByteBuffer;
+
+import com.kupu.sip.modules.media.codec.G711ALawCodec;
+import com.kupu.sip.modules.media.codec.G711ULawCodec;
+
+/**
+ * 帧能量计算(定点)
+ * G.711负载直接按码字查平方值表，无需先解码；能量级别取log2的定点值，供VAD做加减比较
+ */
+public final class FrameEnergy {
+    // 能量级别单位：1/16 log2，约0.19dB
+    public static final int LEVEL_SCALE = 16;
+
+    private static final int[] ALAW_SQUARE = new int[256];
+    private static final int[] ULAW_SQUARE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int a = G711ALawCodec.decode(i);
+            int u = G711ULawCodec.decode(i);
+            ALAW_SQUARE[i] = a * a;
+            ULAW_SQUARE[i] = u * u;
+        }
+    }
+
+    private FrameEnergy() {
+    }
+
+    /**
+     * 16位PCM帧的均方能量
+     */
+    public static long meanSquare(short[] pcm, int off, int samples) {
+        if (samples <= 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = off, end = off + samples; i < end; i++) {
+            int s = pcm[i];
+            sum += s * s;
+        }
+        return sum / samples;
+    }
+
+    /**
+     * G.711负载的均方能量，按查表计算
+     *
+     * @param payloadType 8为A-law，0为μ-law
+     */
+    public static long meanSquareG711(ByteBuffer payload, int pos, int length, int payloadType) {
+        if (length <= 0) {
+            return 0;
+        }
+        int[] table = payloadType == G711ULawCodec.PAYLOAD_TYPE ? ULAW_SQUARE : ALAW_SQUARE;
+        long sum = 0;
+        for (int i = pos, end = pos + length; i < end; i++) {
+            sum += table[payload.get(i) & 0xFF];
+        }
+        return sum / length;
+    }
+
+    /**
+     * 均方能量的对数级别，单位1/16 log2
+     */
+    public static int level(long meanSquare) {
+        if (meanSquare <= 0) {
+            return 0;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(meanSquare);
+        int fraction = msb >= 4 ? (int) (meanSquare >>> (msb - 4)) & 0xF : (int) (meanSquare << (4 - msb)) & 0xF;
+        return msb * LEVEL_SCALE + fraction;
+    }
+
+    /**
+     * dB换算为能量级别单位
+     */
+    public static int dbToLevel(double db) {
+        return (int) Math.round(db / 3.0103 * LEVEL_SCALE);
+    }
+}
@@ -0,0 +1,52 @@
+package com.kupu.sip.modules.media.vad;
+
+/**
+ * 语音起始前的PCM预录环
+ * 保留最近若干毫秒的非语音帧，检测到语音起始时先输出，避免首音节被截断；容量固定，写满后覆盖最旧的样本
+ */
+public class PcmPreRoll {
+    private final short[] ring;
+    private int writePos;
+    private int size;
+
+    public PcmPreRoll(int capacitySamples) {
+        this.ring = new short[Math.max(1, capacitySamples)];
+    }
+
+    public void push(short[] pcm, int off, int samples) {
+        if (samples >= ring.length) {
+            System.arraycopy(pcm, off + samples - ring.length, ring, 0, ring.length);
+            writePos = 0;
+            size = ring.length;
+            return;
+        }
+        int first = Math.min(samples, ring.length - writePos);
+        System.arraycopy(pcm, off, ring, writePos, first);
+        System.arraycopy(pcm, off + first, ring, 0, samples - first);
+        writePos = (writePos + samples) % ring.length;
+        size = Math.min(ring.length, size + samples);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 按时间顺序取出最旧的样本
+     *
+     * @return 取出的样本数
+     */
+    public int read(short[] dst, int off, int max) {
+        int n = Math.min(max, size);
+        int readPos = (writePos - size + ring.length) % ring.length;
+        int first = Math.min(n, ring.length - readPos);
+        System.arraycopy(ring, readPos, dst, off, first);
+        System.arraycopy(ring, 0, dst, off + first, n - first);
+        size -= n;
+        return n;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,30 @@
+package com.kupu.sip.modules.media.vad;
+
+/**
+ * 语音活动检测
+ * 每个媒体帧调用一次，输入为帧均方能量(见{@link FrameEnergy})，仅在事件循环线程调用，实现不得分配内存
+ */
+public interface VoiceActivityDetector {
+    int NONE = 0;
+    // 本帧起进入语音
+    int ONSET = 1;
+    // 本帧起语音结束
+    int OFFSET = 2;
+
+    /**
+     * @return {@link #NONE}、{@link #ONSET}或{@link #OFFSET}
+     */
+    int onFrame(long meanSquare);
+
+    /**
+     * 当前是否处于语音段(含结束前的挂起期)
+     */
+    boolean isSpeech();
+
+    /**
+     * 语音结束判定时长：低于结束门限持续该时长后判定语音结束
+     */
+    void setEndOfSpeechMs(int endOfSpeechMs);
+
+    void reset();
+}
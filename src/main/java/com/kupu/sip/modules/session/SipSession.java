@@ -7,9 +7,13 @@ import lombok.AllArgsConstructor;
 
 import javax.sip.Dialog;
 
+import com.kupu.sip.modules.media.MediaSessionRegistry;
 import com.kupu.sip.modules.media.RtpMediaManager;
+import com.kupu.sip.modules.media.sdp.NegotiatedMedia;
+import com.kupu.sip.modules.media.srtp.SdesCrypto;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @Builder
@@ -18,6 +22,10 @@ import java.time.LocalDateTime;
 public class SipSession {
 
     private RtpMediaManager mediaManager;
+    // SDP协商结果，未协商时使用默认编码
+    private NegotiatedMedia negotiatedMedia;
+    // 本端offer中提供的SRTP密钥，未offer加密媒体时为null
+    private List<SdesCrypto> offeredCryptos;
     private String localAddress;
     private int localPort;
     private String remoteAddress;
@@ -65,11 +73,30 @@ public class SipSession {
         this.updateTime = LocalDateTime.now();
     }
 
-    public void initializeMediaSession() {
+    /**
+     * 通过媒体会话注册表为当前通话初始化独立的媒体会话
+     *
+     * @param registry 媒体会话注册表
+     * @return 当前通话的媒体会话
+     */
+    public RtpMediaManager initializeMediaSession(MediaSessionRegistry registry) {
         if (mediaManager == null) {
-            mediaManager = new RtpMediaManager();
-            mediaManager.initializeRtpSession(localAddress, localPort, remoteAddress, remotePort);
+            RtpMediaManager media = registry.getOrCreateSession(callId);
+            try {
+                if (negotiatedMedia != null) {
+                    media.applyNegotiation(negotiatedMedia);
+                }
+                if (localPort <= 0) {
+                    localPort = media.allocatePorts(); // 未指定端口时从端口范围中分配
+                }
+                media.initializeRtpSession(localAddress, localPort, remoteAddress, remotePort);
+            } catch (RuntimeException e) {
+                registry.releaseSession(callId);
+                throw e;
+            }
+            mediaManager = media;
         }
+        return mediaManager;
     }
 
     public void startMediaSession() {
@@ -81,6 +108,7 @@ public class SipSession {
     public void stopMediaSession() {
         if (mediaManager != null) {
             mediaManager.stopMediaSession();
+            mediaManager = null;
         }
     }
 
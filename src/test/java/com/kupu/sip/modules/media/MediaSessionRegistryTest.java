@@ -0,0 +1,129 @@
+package com.kupu.sip.modules.media;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.kupu.sip.common.configs.MediaConfig;
+import com.kupu.sip.modules.media.port.MediaPortAllocator;
+import com.kupu.sip.modules.media.prompt.PromptCache;
+import com.kupu.sip.modules.media.reactor.MediaReactor;
+import com.kupu.sip.modules.media.relay.RelayMode;
+
+public class MediaSessionRegistryTest {
+    private MediaReactor reactor;
+    private MediaPortAllocator ports;
+    private MediaSessionRegistry registry;
+    private DatagramChannel remote;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MediaConfig config = new MediaConfig();
+        config.setEventLoops(2);
+        config.setPortMin(42000);
+        config.setPortMax(42099);
+        reactor = new MediaReactor(config);
+        reactor.start();
+        ports = new MediaPortAllocator(config);
+        registry = new MediaSessionRegistry(reactor, ports, new PromptCache(config), config);
+        remote = DatagramChannel.open();
+        remote.bind(new InetSocketAddress(ports.getLocalBindAddress(), 0));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        registry.releaseAll();
+        ports.closeAll();
+        reactor.shutdown();
+        remote.close();
+    }
+
+    @Test
+    public void sessionsAreIsolatedByCallId() throws Exception {
+        RtpMediaManager a = registry.getOrCreateSession("call-a");
+        RtpMediaManager b = registry.getOrCreateSession("call-b");
+        assertSame(a, registry.getOrCreateSession("call-a"));
+        assertSame(a, registry.getSession("call-a"));
+        assertNotSame(a, b);
+        assertEquals(2, registry.size());
+        assertNull(registry.getSession(null));
+        assertThrows(IllegalArgumentException.class, () -> registry.getOrCreateSession(null));
+
+        // 端口与会话状态各自独立
+        int portA = a.allocatePorts();
+        int portB = b.allocatePorts();
+        assertTrue(portA != portB);
+        assertEquals(ports.getCapacity() - 2, ports.getAvailable());
+    }
+
+    @Test
+    public void releaseRemovesSessionAndReturnsPorts() throws Exception {
+        RtpMediaManager a = start("release-a");
+        start("release-b");
+        start("release-c");
+        assertEquals(ports.getCapacity() - 3, ports.getAvailable());
+
+        registry.releaseSession("release-a").get(2, TimeUnit.SECONDS);
+        assertNull(registry.getSession("release-a"));
+        assertFalse(a.isActive());
+        assertEquals(ports.getCapacity() - 2, ports.getAvailable());
+        // 同一Call-ID再次呼入时是新的会话
+        assertNotSame(a, registry.getOrCreateSession("release-a"));
+        // 不存在的会话直接完成
+        assertTrue(registry.releaseSession("missing").isDone());
+
+        registry.releaseAll();
+        assertEquals(0, registry.size());
+        assertEquals(ports.getCapacity(), ports.getAvailable());
+    }
+
+    @Test
+    public void forwardRelayCompletesAfterPairing() throws Exception {
+        RtpMediaManager a = start("relay-a");
+        RtpMediaManager b = start("relay-b");
+
+        assertEquals(RelayMode.FORWARD, registry.startRelay("relay-a", "relay-b").get(2, TimeUnit.SECONDS));
+        // 完成时两条腿已配对并位于同一循环
+        assertEquals(RelayMode.FORWARD, a.getRelayMode());
+        assertEquals(RelayMode.FORWARD, b.getRelayMode());
+        assertEquals("relay-b", a.getRelayPeerCallId());
+        assertEquals("relay-a", b.getRelayPeerCallId());
+        assertTrue(a.getEventLoop() == b.getEventLoop());
+    }
+
+    @Test
+    public void stopRelayCancelsPendingPairing() throws Exception {
+        RtpMediaManager a = start("relay-c");
+        RtpMediaManager b = start("relay-d");
+
+        // 配对尚在等待迁移时结束中继
+        CompletableFuture<RelayMode> mode = registry.startRelay("relay-c", "relay-d");
+        assertTrue(registry.stopRelay("relay-c"));
+
+        assertNull(mode.get(2, TimeUnit.SECONDS));
+        assertNull(a.getRelayMode());
+        assertNull(b.getRelayMode());
+    }
+
+    private RtpMediaManager start(String callId) throws Exception {
+        RtpMediaManager session = registry.getOrCreateSession(callId);
+        int port = session.allocatePorts();
+        String address = ports.getLocalBindAddress();
+        session.initializeRtpSession(address, port, address, ((InetSocketAddress) remote.getLocalAddress()).getPort());
+        session.startMediaSession();
+        return session;
+    }
+}
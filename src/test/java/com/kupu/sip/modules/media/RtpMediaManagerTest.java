@@ -0,0 +1,103 @@
+package com.kupu.sip.modules.media;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.kupu.sip.common.configs.MediaConfig;
+import com.kupu.sip.modules.media.codec.G711ALawCodec;
+import com.kupu.sip.modules.media.playout.BargeInEvent;
+import com.kupu.sip.modules.media.playout.PlayoutResult;
+import com.kupu.sip.modules.media.port.MediaPortAllocator;
+import com.kupu.sip.modules.media.prompt.PromptCache;
+import com.kupu.sip.modules.media.reactor.MediaReactor;
+
+public class RtpMediaManagerTest {
+    private static final int FRAME = 160;
+    private static final long FRAME_MS = 20;
+
+    @Test
+    public void callerSpeechInterruptsPlayoutWithoutWaitingForJitterBuffer() throws Exception {
+        MediaConfig config = new MediaConfig();
+        config.setEventLoops(1);
+        config.setPortMin(41000);
+        config.setPortMax(41999);
+        // 经抖动缓冲的VAD至少要等400ms才能看到语音，更快的打断只能来自到达时检测
+        config.setJitterMinDelayMs(400);
+        MediaReactor reactor = new MediaReactor(config);
+        reactor.start();
+        MediaPortAllocator ports = new MediaPortAllocator(config);
+        MediaSessionRegistry registry = new MediaSessionRegistry(reactor, ports, new PromptCache(config), config);
+        try (DatagramChannel caller = DatagramChannel.open()) {
+            String address = ports.getLocalBindAddress();
+            caller.bind(new InetSocketAddress(address, 0));
+            RtpMediaManager session = registry.getOrCreateSession("barge-in");
+            int port = session.allocatePorts();
+            session.initializeRtpSession(address, port, address, ((InetSocketAddress) caller.getLocalAddress()).getPort());
+            session.startMediaSession();
+            List<BargeInEvent> events = new CopyOnWriteArrayList<>();
+            session.setBargeInListener(events::add);
+            CompletableFuture<PlayoutResult> current = session.playAudioData(new byte[8000 * 2 * 5]);
+            CompletableFuture<PlayoutResult> queued = session.playAudioData(new byte[8000 * 2]);
+
+            InetSocketAddress target = new InetSocketAddress(address, port);
+            ByteBuffer packet = ByteBuffer.allocate(12 + FRAME);
+            short[] pcm = new short[FRAME];
+            // 主叫先静音若干帧，建立噪声底
+            int seq = 0;
+            for (; seq < 10; seq++) {
+                send(caller, target, packet, seq, pcm);
+                Thread.sleep(FRAME_MS);
+            }
+            // 主叫开口
+            for (int i = 0; i < FRAME; i++) {
+                pcm[i] = (short) Math.round(8000 * Math.sin(2 * Math.PI * 300 * i / 8000));
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < 20 && !current.isDone(); i++, seq++) {
+                send(caller, target, packet, seq, pcm);
+                Thread.sleep(FRAME_MS);
+            }
+            PlayoutResult result = current.get(2, TimeUnit.SECONDS);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(PlayoutResult.Status.INTERRUPTED, result.getStatus());
+            assertTrue(result.getPlayedMs() > 0 && result.getPlayedMs() < 5000, "playedMs " + result.getPlayedMs());
+            assertTrue(elapsedMs < 200, "interrupted after " + elapsedMs + "ms");
+            assertEquals(PlayoutResult.Status.CANCELLED, queued.get(1, TimeUnit.SECONDS).getStatus());
+            for (int i = 0; i < 50 && events.isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, events.size());
+            assertTrue(events.get(0).isSpeech());
+            assertEquals(result.getPlayedMs(), events.get(0).getPlayedMs());
+            assertEquals(1, events.get(0).getDiscarded());
+        } finally {
+            registry.releaseAll();
+            ports.closeAll();
+            reactor.shutdown();
+        }
+    }
+
+    private static void send(DatagramChannel caller, InetSocketAddress target, ByteBuffer packet, int seq, short[] pcm)
+            throws Exception {
+        packet.clear();
+        packet.put(0, (byte) 0x80);
+        packet.put(1, (byte) G711ALawCodec.PAYLOAD_TYPE);
+        packet.putShort(2, (short) seq);
+        packet.putInt(4, seq * FRAME);
+        packet.putInt(8, 0x2468ACE);
+        G711ALawCodec.INSTANCE.encode(pcm, 0, FRAME, packet, 12);
+        packet.position(0).limit(12 + FRAME);
+        caller.send(packet, target);
+    }
+}
@@ -0,0 +1,136 @@
+package com.kupu.sip.modules.media.buffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class FramePoolTest {
+    private static final int FRAME_SIZE = 64;
+
+    @Test
+    public void exhaustedPoolFallsBackToTemporaryFrames() {
+        FramePool pool = new FramePool(FRAME_SIZE, 4);
+        Set<ByteBuffer> pooled = drain(pool);
+        assertEquals(4, pooled.size());
+        assertEquals(0, pool.getExhaustedCount());
+
+        ByteBuffer temporary = pool.acquire();
+        assertFalse(pooled.contains(temporary));
+        assertEquals(FRAME_SIZE, temporary.capacity());
+        assertEquals(1, pool.getExhaustedCount());
+
+        // 临时帧归还时丢弃，不进入空闲栈
+        pool.release(temporary);
+        for (ByteBuffer frame : pooled) {
+            pool.release(frame);
+        }
+        assertEquals(pooled, drain(pool));
+        assertEquals(1, pool.getExhaustedCount());
+    }
+
+    @Test
+    public void concurrentBorrowersNeverShareAFrame() throws Exception {
+        int threads = 8;
+        int rounds = 200_000;
+        FramePool pool = new FramePool(FRAME_SIZE, 4);
+        AtomicInteger shared = new AtomicInteger();
+        run(threads, id -> {
+            long mark = (long) id << 32;
+            for (int i = 0; i < rounds; i++) {
+                ByteBuffer frame = pool.acquire();
+                frame.putLong(0, mark | i);
+                Thread.yield();
+                if (frame.getLong(0) != (mark | i)) {
+                    shared.incrementAndGet();
+                }
+                pool.release(frame);
+            }
+        });
+        assertEquals(0, shared.get());
+        // 结束后空闲栈完整：全部帧可再借出且互不相同
+        assertEquals(4, drain(pool).size());
+    }
+
+    @Test
+    public void freeStackSurvivesVersionWraparound() throws Exception {
+        FramePool pool = new FramePool(FRAME_SIZE, 4, -8);
+        Set<ByteBuffer> pooled = drain(pool);
+        for (int i = 0; i < 16; i++) {
+            for (ByteBuffer frame : pooled) {
+                pool.release(frame);
+            }
+            assertEquals(pooled, drain(pool));
+        }
+        for (ByteBuffer frame : pooled) {
+            pool.release(frame);
+        }
+
+        // 并发借还越过版本号回绕
+        FramePool wrapping = new FramePool(FRAME_SIZE, 4, -1000);
+        AtomicInteger shared = new AtomicInteger();
+        run(4, id -> {
+            for (int i = 0; i < 50_000; i++) {
+                ByteBuffer frame = wrapping.acquire();
+                frame.putInt(0, id);
+                if (frame.getInt(0) != id) {
+                    shared.incrementAndGet();
+                }
+                wrapping.release(frame);
+            }
+        });
+        assertEquals(0, shared.get());
+        assertEquals(4, drain(wrapping).size());
+    }
+
+    /**
+     * 借出池中全部帧，断言互不相同且未触发临时分配
+     */
+    private static Set<ByteBuffer> drain(FramePool pool) {
+        Set<ByteBuffer> frames = Collections.newSetFromMap(new IdentityHashMap<>());
+        long exhausted = pool.getExhaustedCount();
+        for (int i = 0; i < pool.getCapacity(); i++) {
+            assertTrue(frames.add(pool.acquire()), "frame handed out twice");
+        }
+        assertEquals(exhausted, pool.getExhaustedCount());
+        return frames;
+    }
+
+    static void run(int threads, Worker worker) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    worker.run(id);
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            thread.start();
+            workers.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : workers) {
+            thread.join(30_000);
+        }
+        assertTrue(errors.isEmpty(), errors.toString());
+    }
+
+    interface Worker {
+        void run(int id) throws Exception;
+    }
+}
@@ -0,0 +1,63 @@
+package com.kupu.sip.modules.media.buffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+public class IntRingQueueTest {
+
+    @Test
+    public void boundedFifo() {
+        IntRingQueue queue = new IntRingQueue(3); // 取整为4
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertEquals(IntRingQueue.EMPTY, queue.poll());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void concurrentProducersAndConsumersDeliverEachValueOnce() throws Exception {
+        int producers = 4;
+        int perProducer = 100_000;
+        int total = producers * perProducer;
+        // 小容量使序号反复绕环
+        IntRingQueue queue = new IntRingQueue(4);
+        AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        AtomicInteger consumed = new AtomicInteger();
+        FramePoolTest.run(producers * 2, id -> {
+            if (id < producers) {
+                for (int i = id * perProducer; i < (id + 1) * perProducer; i++) {
+                    while (!queue.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+                return;
+            }
+            while (consumed.get() < total) {
+                int value = queue.poll();
+                if (value == IntRingQueue.EMPTY) {
+                    Thread.yield();
+                    continue;
+                }
+                seen.incrementAndGet(value);
+                consumed.incrementAndGet();
+            }
+        });
+        assertEquals(total, consumed.get());
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, seen.get(i), "value " + i);
+        }
+        assertEquals(IntRingQueue.EMPTY, queue.poll());
+    }
+}
@@ -0,0 +1,44 @@
+package com.kupu.sip.modules.media.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class G711CodecTest {
+
+    @Test
+    public void uLawMatchesReferenceValues() {
+        assertEquals((byte) 0xFF, G711ULawCodec.encode(0));
+        assertEquals(0, G711ULawCodec.decode(0xFF));
+        assertEquals(-32124, G711ULawCodec.decode(0x00));
+        assertEquals(32124, G711ULawCodec.decode(0x80));
+        assertEquals((byte) 0x80, G711ULawCodec.encode(32767));
+        assertEquals((byte) 0x00, G711ULawCodec.encode(-32768));
+    }
+
+    @Test
+    public void uLawRoundTripWithinQuantization() {
+        for (int pcm = -32768; pcm < 32768; pcm += 3) {
+            int decoded = G711ULawCodec.decode(G711ULawCodec.encode(pcm));
+            int error = Math.abs(decoded - pcm);
+            // 参考实现截断量化，误差不超过一个量化台阶
+            assertTrue(error <= Math.max(16, Math.abs(pcm) / 8), "pcm=" + pcm + " decoded=" + decoded);
+        }
+    }
+
+    @Test
+    public void transcodesToNearestAmplitude() {
+        assertEquals((byte) 0xD5, G711Transcoder.ulawToAlaw(0xFF));
+        for (int code = 0; code < 256; code++) {
+            int alaw = G711ALawCodec.decode(code);
+            int viaULaw = G711ULawCodec.decode(G711Transcoder.alawToUlaw(code));
+            assertTrue(Math.abs(alaw - viaULaw) <= Math.max(16, Math.abs(alaw) / 16), "alaw=" + code);
+            int ulaw = G711ULawCodec.decode(code);
+            int viaALaw = G711ALawCodec.decode(G711Transcoder.ulawToAlaw(code));
+            assertTrue(Math.abs(ulaw - viaALaw) <= Math.max(16, Math.abs(ulaw) / 16), "ulaw=" + code);
+            // 符号保持不变
+            assertEquals(alaw > 0, viaULaw > 0, "alaw=" + code);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.kupu.sip.modules.media.codec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+public class G722CodecTest {
+    private static final int FRAME = 320;
+
+    /**
+     * 按20ms逐帧编解码，模拟通话中的使用方式
+     */
+    private static short[] roundTrip(short[] pcm) {
+        AudioCodec encoder = G722Codec.INSTANCE.newSession();
+        AudioCodec decoder = G722Codec.INSTANCE.newSession();
+        ByteBuffer payload = ByteBuffer.allocate(FRAME / 2);
+        short[] out = new short[pcm.length];
+        for (int off = 0; off + FRAME <= pcm.length; off += FRAME) {
+            assertEquals(FRAME / 2, encoder.encode(pcm, off, FRAME, payload, 0));
+            assertEquals(FRAME, decoder.decode(payload, 0, FRAME / 2, out, off));
+        }
+        return out;
+    }
+
+    private static short[] sine(double frequency, int samples) {
+        short[] pcm = new short[samples];
+        for (int i = 0; i < samples; i++) {
+            pcm[i] = (short) Math.round(8000 * Math.sin(2 * Math.PI * frequency * i / 16000));
+        }
+        return pcm;
+    }
+
+    /**
+     * 拟合指定频率分量，返回其与残差的能量比(dB)，与编解码延迟无关
+     */
+    private static double snrDb(short[] pcm, int from, double frequency) {
+        double ss = 0, sc = 0, cc = 0, xs = 0, xc = 0, xx = 0;
+        for (int i = from; i < pcm.length; i++) {
+            double s = Math.sin(2 * Math.PI * frequency * i / 16000);
+            double c = Math.cos(2 * Math.PI * frequency * i / 16000);
+            ss += s * s;
+            cc += c * c;
+            sc += s * c;
+            xs += pcm[i] * s;
+            xc += pcm[i] * c;
+            xx += (double) pcm[i] * pcm[i];
+        }
+        double det = ss * cc - sc * sc;
+        double tone = (xs * (xs * cc - xc * sc) + xc * (xc * ss - xs * sc)) / det;
+        return 10 * Math.log10(tone / Math.max(xx - tone, 1e-9));
+    }
+
+    @Test
+    public void usesEightKilohertzRtpClock() {
+        assertEquals(9, G722Codec.INSTANCE.getPayloadType());
+        assertEquals(16000, G722Codec.INSTANCE.getSampleRate());
+        assertEquals(8000, G722Codec.INSTANCE.getRtpClockRate());
+        assertNotSame(G722Codec.INSTANCE.newSession(), G722Codec.INSTANCE.newSession());
+        assertEquals(G722Codec.INSTANCE, AudioCodecs.forEncodingName("G722", 8000));
+        // 按实际采样率书写的rtpmap也能识别
+        assertEquals(G722Codec.INSTANCE, AudioCodecs.forEncodingName("g722", 16000));
+    }
+
+    @Test
+    public void reproducesLowAndHighBandTones() {
+        // 1kHz在低子带，5kHz在高子带(窄带编码无法传输)
+        double low = snrDb(roundTrip(sine(1000, 16000)), 8000, 1000);
+        double high = snrDb(roundTrip(sine(5000, 16000)), 8000, 5000);
+        assertTrue(low > 25, "1kHz SNR " + low);
+        assertTrue(high > 10, "5kHz SNR " + high);
+    }
+
+    @Test
+    public void sessionsKeepIndependentState() {
+        short[] pcm = sine(440, 3200);
+        short[] expected = roundTrip(pcm);
+        // 交替使用另一个会话不影响本会话的结果
+        AudioCodec encoder = G722Codec.INSTANCE.newSession();
+        AudioCodec other = G722Codec.INSTANCE.newSession();
+        AudioCodec decoder = G722Codec.INSTANCE.newSession();
+        ByteBuffer payload = ByteBuffer.allocate(FRAME / 2);
+        ByteBuffer scratch = ByteBuffer.allocate(FRAME / 2);
+        short[] out = new short[pcm.length];
+        for (int off = 0; off < pcm.length; off += FRAME) {
+            other.encode(sine(3000, FRAME), 0, FRAME, scratch, 0);
+            encoder.encode(pcm, off, FRAME, payload, 0);
+            decoder.decode(payload, 0, FRAME / 2, out, off);
+        }
+        assertArrayEquals(expected, out);
+    }
+}
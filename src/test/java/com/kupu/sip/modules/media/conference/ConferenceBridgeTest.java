@@ -0,0 +1,54 @@
+package com.kupu.sip.modules.media.conference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kupu.sip.modules.media.codec.G711ULawCodec;
+import com.kupu.sip.modules.media.reactor.MediaEventLoop;
+
+public class ConferenceBridgeTest {
+
+    @Test
+    public void emptyBridgeClosesAndReleasesLoop() throws Exception {
+        MediaEventLoop loop = new MediaEventLoop(0, 16, 0);
+        try {
+            loop.attachSession(); // 与MediaReactor.nextLoop()相同
+            List<ConferenceBridge> closed = new ArrayList<>();
+            ConferenceBridge bridge = new ConferenceBridge("c1", loop, 8000, 64, 4, closed::add);
+            assertTrue(bridge.closeIfEmpty());
+            assertEquals(0, loop.getSessionCount());
+            assertEquals(1, closed.size());
+            // 关闭后不能再加入，重复关闭忽略
+            assertNull(bridge.join("a", G711ULawCodec.INSTANCE, ConferenceRole.SPEAKER));
+            assertFalse(bridge.closeIfEmpty());
+            assertEquals(0, loop.getSessionCount());
+            assertEquals(1, closed.size());
+        } finally {
+            loop.shutdown();
+        }
+    }
+
+    @Test
+    public void bridgeWithMembersIsNotClosedEarly() throws Exception {
+        MediaEventLoop loop = new MediaEventLoop(0, 16, 0);
+        try {
+            loop.attachSession();
+            List<ConferenceBridge> closed = new ArrayList<>();
+            ConferenceBridge bridge = new ConferenceBridge("c2", loop, 8000, 64, 4, closed::add);
+            ConferenceParticipant member = bridge.join("a", G711ULawCodec.INSTANCE, ConferenceRole.SPEAKER);
+            assertFalse(bridge.closeIfEmpty());
+            assertEquals(1, loop.getSessionCount());
+            member.leave();
+            assertEquals(1, closed.size());
+        } finally {
+            loop.shutdown();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.kupu.sip.modules.media.conference;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import com.kupu.sip.modules.media.codec.G711ULawCodec;
+
+/**
+ * 会议混音开销基准，不随单元测试执行：
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.kupu.sip.modules.media.conference.ConferenceMixerBenchmark -Dexec.args="300 4 2"
+ * 参数为会议数、每个会议的G.711成员数、其中发言的成员数；单线程按节拍驱动全部会议(成员写入、混音、取出输出)，
+ * 输出每个会议每节拍的平均耗时、一个媒体循环在20ms节拍内可承载的会议数，以及稳态下每节拍分配的堆内存
+ */
+public class ConferenceMixerBenchmark {
+
+    public static void main(String[] args) {
+        int conferences = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int members = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int talkers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        ConferenceMixer[] mixers = new ConferenceMixer[conferences];
+        ConferenceParticipant[][] participants = new ConferenceParticipant[conferences][members];
+        for (int c = 0; c < conferences; c++) {
+            mixers[c] = new ConferenceMixer(8000, 64);
+            for (int m = 0; m < members; m++) {
+                participants[c][m] = new ConferenceParticipant("bench-" + c + "-" + m, null, G711ULawCodec.INSTANCE,
+                        ConferenceRole.SPEAKER, 8000);
+                mixers[c].add(participants[c][m]);
+            }
+        }
+        short[] speech = new short[160];
+        short[] quiet = new short[160];
+        for (int i = 0; i < speech.length; i++) {
+            speech[i] = (short) Math.round(6000 * Math.sin(2 * Math.PI * 440 * i / 8000));
+            quiet[i] = (short) (i % 7 - 3);
+        }
+        ByteBuffer packet = ByteBuffer.allocateDirect(12 + 160);
+        // 预热
+        run(mixers, participants, talkers, speech, quiet, packet, 2000);
+        int ticks = 5000;
+        long allocatedBefore = allocatedBytes();
+        long nanos = run(mixers, participants, talkers, speech, quiet, packet, ticks);
+        long allocated = allocatedBytes() - allocatedBefore;
+        double perConference = nanos / 1000.0 / ticks / conferences;
+        long shared = 0;
+        long privates = 0;
+        for (ConferenceMixer mixer : mixers) {
+            shared += mixer.getSharedEncodes();
+            privates += mixer.getPrivateEncodes();
+        }
+        System.out.printf("conferences: %d, members: %d, talking: %d%n", conferences, members, talkers);
+        System.out.printf("per conference tick: %.2f us, conferences per loop at 50%% of a 20ms tick: %d%n",
+                perConference, (int) (10_000 / perConference));
+        System.out.printf("encodes shared/private: %d/%d, alloc per tick: %.1f B%n", shared, privates,
+                allocated < 0 ? Double.NaN : (double) allocated / ticks);
+    }
+
+    /**
+     * @return 总耗时(纳秒)
+     */
+    private static long run(ConferenceMixer[] mixers, ConferenceParticipant[][] participants, int talkers,
+                            short[] speech, short[] quiet, ByteBuffer packet, int ticks) {
+        long start = System.nanoTime();
+        for (int t = 0; t < ticks; t++) {
+            for (int c = 0; c < mixers.length; c++) {
+                ConferenceParticipant[] members = participants[c];
+                for (int m = 0; m < members.length; m++) {
+                    members[m].offerVoice(m < talkers ? speech : quiet, 0, 160);
+                }
+                mixers[c].mix();
+                for (ConferenceParticipant member : members) {
+                    member.pollOutput(packet, 12);
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
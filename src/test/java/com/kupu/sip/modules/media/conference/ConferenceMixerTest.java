@@ -0,0 +1,118 @@
+package com.kupu.sip.modules.media.conference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.codec.G711ULawCodec;
+import com.kupu.sip.modules.media.codec.G722Codec;
+
+public class ConferenceMixerTest {
+    private static final int FRAME = 160;
+
+    private static ConferenceParticipant join(ConferenceMixer mixer, String callId, AudioCodec codec, ConferenceRole role) {
+        ConferenceParticipant participant = new ConferenceParticipant(callId, null, codec, role, mixer.getSampleRate());
+        mixer.add(participant);
+        return participant;
+    }
+
+    private static void speak(ConferenceParticipant participant, int level) {
+        short[] pcm = new short[FRAME];
+        Arrays.fill(pcm, (short) level);
+        participant.offerVoice(pcm, 0, FRAME);
+    }
+
+    /**
+     * 取出一帧输出并按μ-law解码，返回首个采样
+     */
+    private static int heard(ConferenceParticipant participant) {
+        ByteBuffer packet = ByteBuffer.allocate(12 + FRAME);
+        assertEquals(FRAME, participant.pollOutput(packet, 12));
+        short[] pcm = new short[FRAME];
+        G711ULawCodec.INSTANCE.decode(packet, 12, FRAME, pcm, 0);
+        return pcm[0];
+    }
+
+    private static void assertNear(int expected, int actual) {
+        assertTrue(Math.abs(expected - actual) <= Math.max(32, Math.abs(expected) / 32),
+                "expected ~" + expected + " but was " + actual);
+    }
+
+    @Test
+    public void mixMinusSelfAndSharedEncodeForSilentMembers() {
+        ConferenceMixer mixer = new ConferenceMixer(8000, 64);
+        ConferenceParticipant a = join(mixer, "a", G711ULawCodec.INSTANCE, ConferenceRole.SPEAKER);
+        ConferenceParticipant b = join(mixer, "b", G711ULawCodec.INSTANCE, ConferenceRole.SPEAKER);
+        ConferenceParticipant listener = join(mixer, "c", G711ULawCodec.INSTANCE, ConferenceRole.LISTENER);
+        ConferenceParticipant silent = join(mixer, "d", G711ULawCodec.INSTANCE, ConferenceRole.SPEAKER);
+        speak(a, 1000);
+        speak(b, 2000);
+        speak(listener, 3000); // 监听者的语音不进入混音
+        speak(silent, 10); // 低于噪声门
+
+        mixer.mix();
+        assertNear(2000, heard(a));
+        assertNear(1000, heard(b));
+        assertNear(3000, heard(listener));
+        assertNear(3000, heard(silent));
+        assertEquals(2, mixer.getTalking());
+        assertEquals(2, mixer.getPrivateEncodes());
+        assertEquals(1, mixer.getSharedEncodes());
+
+        // 本地放音所有成员都能听到，包括放音的成员自己；两路满幅语音叠加后饱和
+        ByteBuffer prompt = ByteBuffer.allocate(FRAME);
+        short[] pcm = new short[FRAME];
+        Arrays.fill(pcm, (short) 500);
+        G711ULawCodec.INSTANCE.encode(pcm, 0, FRAME, prompt, 0);
+        speak(a, 30000);
+        speak(b, 30000);
+        silent.offerLocal(prompt, 0, FRAME);
+        mixer.mix();
+        assertNear(30000 + 500, heard(a));
+        assertNear(30000 + 500, heard(b));
+        assertNear(32124, heard(listener)); // μ-law最大码字
+        assertNear(32124, heard(silent));
+        assertEquals(0, listener.getDroppedFrames());
+    }
+
+    @Test
+    public void wideBandMemberIsResampledAndEncodedSeparately() {
+        ConferenceMixer mixer = new ConferenceMixer(8000, 64);
+        ConferenceParticipant narrow = join(mixer, "a", G711ULawCodec.INSTANCE, ConferenceRole.SPEAKER);
+        ConferenceParticipant wide = join(mixer, "b", G722Codec.INSTANCE.newSession(), ConferenceRole.SPEAKER);
+        assertTrue(narrow.shared);
+        assertFalse(wide.shared);
+        short[] pcm = new short[320];
+        ByteBuffer packet = ByteBuffer.allocate(12 + 320);
+        AudioCodec decoder = G722Codec.INSTANCE.newSession();
+        short[] decoded = new short[320];
+        long energy = 0;
+        for (int t = 0; t < 20; t++) {
+            for (int i = 0; i < FRAME; i++) {
+                pcm[i] = (short) Math.round(8000 * Math.sin(2 * Math.PI * 400 * (t * FRAME + i) / 8000));
+            }
+            narrow.offerVoice(pcm, 0, FRAME);
+            mixer.mix();
+            assertEquals(FRAME, narrow.pollOutput(packet, 12));
+            assertEquals(FRAME, wide.pollOutput(packet, 12)); // 16kHz 20ms G.722负载
+            assertEquals(320, decoder.decode(packet, 12, FRAME, decoded, 0));
+            if (t >= 10) {
+                for (short s : decoded) {
+                    energy += s * s;
+                }
+            }
+        }
+        // 窄带成员的语音经上采样传到宽带成员，幅度约8000(均方约3200万)
+        long meanSquare = energy / (10 * 320);
+        assertTrue(meanSquare > 20_000_000L && meanSquare < 45_000_000L, "meanSquare " + meanSquare);
+        // 窄带成员发言中走mix minus self，宽带成员始终独立编码
+        assertEquals(40, mixer.getPrivateEncodes());
+        assertEquals(0, mixer.getSharedEncodes());
+    }
+}
@@ -0,0 +1,70 @@
+package com.kupu.sip.modules.media.dtmf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+public class Rfc4733Test {
+    private final ByteBuffer payload = ByteBuffer.allocate(4);
+
+    private int receive(Rfc4733Decoder decoder, int event, boolean end, int duration, int timestamp) {
+        payload.put(0, (byte) event);
+        payload.put(1, (byte) (end ? 0x8A : 0x0A));
+        payload.putShort(2, (short) duration);
+        return decoder.onPacket(payload, 0, 4, timestamp);
+    }
+
+    @Test
+    public void reportsOnFirstPacketAndDeduplicates() {
+        Rfc4733Decoder decoder = new Rfc4733Decoder(8000);
+        assertEquals(5, receive(decoder, 5, false, 160, 1000));
+        assertEquals(Rfc4733Decoder.NONE, receive(decoder, 5, false, 320, 1000));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Rfc4733Decoder.NONE, receive(decoder, 5, true, 800, 1000));
+        }
+        assertTrue(decoder.isEnded());
+        assertEquals(100, decoder.getDurationMs());
+        // 同一按键再次按下使用新的时间戳
+        assertEquals(5, receive(decoder, 5, false, 160, 2600));
+        // 乱序到达的旧事件包
+        assertEquals(Rfc4733Decoder.NONE, receive(decoder, 5, true, 800, 1000));
+    }
+
+    @Test
+    public void reportsWhenOnlyEndPacketArrives() {
+        Rfc4733Decoder decoder = new Rfc4733Decoder(8000);
+        assertEquals(11, receive(decoder, 11, true, 800, 5000));
+        assertEquals('#', DtmfDigits.toDigit(11));
+        assertEquals(Rfc4733Decoder.NONE, receive(decoder, 11, true, 800, 5000));
+    }
+
+    @Test
+    public void senderEmitsEventWithRetransmittedEnd() {
+        Rfc4733Sender sender = new Rfc4733Sender(8000);
+        assertFalse(sender.enqueue('x', 100));
+        assertTrue(sender.enqueue('*', 100));
+        ByteBuffer packet = ByteBuffer.allocate(16);
+        int ends = 0;
+        int packets = 0;
+        for (int tick = 0; tick < 10; tick++) {
+            int length = sender.next(packet, 12, 4000 + tick * 160, 160);
+            if (length == 0) {
+                continue;
+            }
+            packets++;
+            assertEquals(tick == 0, sender.isFirstPacket());
+            assertEquals(4000, sender.getEventTimestamp());
+            assertEquals(10, packet.get(12));
+            if ((packet.get(13) & 0x80) != 0) {
+                ends++;
+                assertEquals(800, packet.getShort(14) & 0xFFFF);
+            }
+        }
+        assertEquals(3, ends);
+        assertEquals(7, packets);
+    }
+}
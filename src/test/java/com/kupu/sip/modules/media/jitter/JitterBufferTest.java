@@ -0,0 +1,110 @@
+package com.kupu.sip.modules.media.jitter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+public class JitterBufferTest {
+    private static final long FRAME_NANOS = 20_000_000L;
+    private static final long SSRC = 0x12345678L;
+
+    private final ByteBuffer payload = ByteBuffer.allocate(160);
+
+    private JitterBuffer newBuffer() {
+        return new JitterBuffer(32, 480, 8000, 40, 300, 3);
+    }
+
+    private void put(JitterBuffer jb, int seq, long now) {
+        payload.put(0, (byte) seq);
+        jb.put(payload, 0, 160, seq & 0xFFFF, seq * 160, SSRC, now);
+    }
+
+    @Test
+    public void reordersBySequence() {
+        JitterBuffer jb = newBuffer();
+        put(jb, 100, 0);
+        put(jb, 102, FRAME_NANOS);
+        put(jb, 101, FRAME_NANOS + 1);
+        put(jb, 103, 2 * FRAME_NANOS);
+        long now = 10 * FRAME_NANOS;
+        for (int seq = 100; seq <= 103; seq++) {
+            assertEquals(160, jb.poll(now));
+            assertEquals((byte) seq, jb.currentPayload().get(0));
+        }
+        assertEquals(JitterBuffer.EMPTY, jb.poll(now));
+        assertEquals(1, jb.snapshot().getReordered());
+    }
+
+    @Test
+    public void handlesSequenceWraparound() {
+        JitterBuffer jb = newBuffer();
+        put(jb, 65534, 0);
+        put(jb, 65535, FRAME_NANOS);
+        jb.put(payload, 0, 160, 0, 65536 * 160, SSRC, 2 * FRAME_NANOS);
+        jb.put(payload, 0, 160, 1, 65537 * 160, SSRC, 3 * FRAME_NANOS);
+        long now = 20 * FRAME_NANOS;
+        int played = 0;
+        while (jb.poll(now) > 0) {
+            played++;
+        }
+        assertEquals(4, played);
+        assertEquals(0, jb.snapshot().getLost());
+        assertEquals(0, jb.snapshot().getResets());
+    }
+
+    @Test
+    public void dropsDuplicatesAndLatePackets() {
+        JitterBuffer jb = newBuffer();
+        put(jb, 10, 0);
+        put(jb, 10, 1);
+        put(jb, 12, 2 * FRAME_NANOS);
+        long now = 20 * FRAME_NANOS;
+        assertEquals(160, jb.poll(now));
+        assertEquals(JitterBuffer.MISSING, jb.poll(now));
+        assertEquals(160, jb.poll(now));
+        put(jb, 11, now);
+        JitterBufferStats stats = jb.snapshot();
+        assertEquals(1, stats.getDuplicate());
+        assertEquals(1, stats.getLate());
+        assertEquals(1, stats.getLost());
+        assertEquals(2, stats.getPlayed());
+    }
+
+    @Test
+    public void holdsFramesUntilTargetDelay() {
+        JitterBuffer jb = newBuffer();
+        put(jb, 1, 0);
+        assertEquals(JitterBuffer.EMPTY, jb.poll(FRAME_NANOS));
+        assertEquals(160, jb.poll(3 * FRAME_NANOS));
+    }
+
+    @Test
+    public void skipsTelephoneEventSequenceNumbers() {
+        JitterBuffer jb = newBuffer();
+        put(jb, 1, FRAME_NANOS);
+        put(jb, 2, 2 * FRAME_NANOS);
+        assertEquals(160, jb.getFrameTs());
+        int targetDelayMs = jb.getTargetDelayMs();
+        // 100ms按键：发送方只发telephone-event，占用序列号3~7，语音时间戳照常推进
+        for (int seq = 3; seq <= 7; seq++) {
+            jb.skip(seq, SSRC);
+        }
+        put(jb, 8, 8 * FRAME_NANOS);
+        put(jb, 9, 9 * FRAME_NANOS);
+        // 按键前后两个音频包的时间戳差不是帧长
+        assertEquals(160, jb.getFrameTs());
+        assertEquals(targetDelayMs, jb.getTargetDelayMs());
+        long now = 20 * FRAME_NANOS;
+        int[] expected = {1, 2, 8, 9};
+        for (int seq : expected) {
+            assertEquals(160, jb.poll(now));
+            assertEquals((byte) seq, jb.currentPayload().get(0));
+        }
+        assertEquals(JitterBuffer.EMPTY, jb.poll(now));
+        assertEquals(0, jb.snapshot().getLost());
+        assertEquals(5, jb.snapshot().getSkipped());
+        assertEquals(0, jb.snapshot().getOverflow());
+    }
+}
@@ -0,0 +1,55 @@
+package com.kupu.sip.modules.media.nat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+
+import org.junit.jupiter.api.Test;
+
+public class RtpLatchTest {
+    private final InetSocketAddress signalled = new InetSocketAddress("192.168.1.10", 4000);
+    private final InetSocketAddress nat = new InetSocketAddress("203.0.113.5", 61000);
+    private final InetSocketAddress other = new InetSocketAddress("198.51.100.7", 5004);
+
+    @Test
+    public void latchesToActualSourceAfterConsecutivePackets() {
+        RtpLatch latch = new RtpLatch(signalled, 2);
+        assertEquals(RtpLatch.ACCEPT, latch.onPacket(nat, 0x1234, 100));
+        assertFalse(latch.isLatched());
+        assertEquals(signalled, latch.getTarget());
+        assertEquals(RtpLatch.LATCHED, latch.onPacket(nat, 0x1234, 101));
+        assertEquals(nat, latch.getTarget());
+        assertEquals(0x1234, latch.getSsrc());
+        assertEquals(RtpLatch.ACCEPT, latch.onPacket(new InetSocketAddress("203.0.113.5", 61000), 0x1234, 102));
+    }
+
+    @Test
+    public void ignoresStrayPacketsOnceLatched() {
+        RtpLatch latch = new RtpLatch(signalled, 2);
+        latch.onPacket(nat, 1, 10);
+        latch.onPacket(nat, 1, 11);
+        // 新来源的包与当前流交错到达，不切换
+        assertEquals(RtpLatch.REJECT, latch.onPacket(other, 9, 500));
+        assertEquals(RtpLatch.ACCEPT, latch.onPacket(nat, 1, 12));
+        assertEquals(RtpLatch.REJECT, latch.onPacket(other, 9, 501));
+        // 序列号不连续不计数
+        assertEquals(RtpLatch.REJECT, latch.onPacket(other, 9, 600));
+        assertEquals(nat, latch.getTarget());
+        assertEquals(3, latch.getRejectedPackets());
+    }
+
+    @Test
+    public void relatchesWhenStreamRestartsElsewhere() {
+        RtpLatch latch = new RtpLatch(signalled, 2);
+        latch.onPacket(nat, 1, 10);
+        latch.onPacket(nat, 1, 11);
+        assertEquals(RtpLatch.REJECT, latch.onPacket(other, 7, 0xFFFF));
+        assertEquals(RtpLatch.LATCHED, latch.onPacket(other, 7, 0));
+        assertEquals(other, latch.getTarget());
+        assertEquals(7, latch.getSsrc());
+        assertEquals(1, latch.getRelatchCount());
+        assertTrue(latch.isLatched());
+    }
+}
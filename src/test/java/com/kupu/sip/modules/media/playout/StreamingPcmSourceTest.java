@@ -0,0 +1,82 @@
+package com.kupu.sip.modules.media.playout;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.codec.G711ULawCodec;
+
+public class StreamingPcmSourceTest {
+    private static final int SAMPLES = 160;
+    private final AudioCodec codec = G711ULawCodec.INSTANCE;
+    private final ByteBuffer packet = ByteBuffer.allocate(512);
+
+    private int next(StreamingPcmSource source) {
+        return source.nextFrame(packet, 12, codec, SAMPLES);
+    }
+
+    @Test
+    public void waitsForPrebufferThenPlaysAcrossUnderrun() {
+        StreamingPcmSource source = new StreamingPcmSource("tts", 2 * SAMPLES * 2);
+        source.write(new short[SAMPLES], 0, SAMPLES);
+        // 未达到预缓冲，不发送
+        assertEquals(0, next(source));
+        source.write(new short[SAMPLES], 0, SAMPLES);
+        assertEquals(SAMPLES, next(source));
+        assertEquals(SAMPLES, next(source));
+        // 欠载时等待后续数据而不是结束
+        assertEquals(0, next(source));
+        source.write(new byte[SAMPLES * 2], 0, SAMPLES * 2);
+        assertEquals(SAMPLES, next(source));
+        source.finish();
+        assertEquals(PlayoutSource.END, next(source));
+    }
+
+    @Test
+    public void padsLastPartialFrameAfterFinish() {
+        StreamingPcmSource source = new StreamingPcmSource("tts", 0);
+        source.write(new short[SAMPLES + 40], 0, SAMPLES + 40);
+        source.finish();
+        assertEquals(SAMPLES, next(source));
+        assertEquals(SAMPLES, next(source));
+        assertEquals(PlayoutSource.END, next(source));
+    }
+
+    @Test
+    public void closeDiscardsLaterWrites() {
+        StreamingPcmSource source = new StreamingPcmSource("tts", 0);
+        source.close();
+        source.write(new short[SAMPLES], 0, SAMPLES);
+        assertEquals(PlayoutSource.END, next(source));
+    }
+
+    @Test
+    public void oddLengthChunksKeepSampleAlignment() {
+        short[] samples = new short[SAMPLES];
+        byte[] pcm = new byte[SAMPLES * 2];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = (short) (i * 150 - 12000);
+            pcm[2 * i] = (byte) samples[i];
+            pcm[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        StreamingPcmSource source = new StreamingPcmSource("tts", 0);
+        // 分块在采样中间切开
+        source.write(pcm, 0, 161);
+        source.write(pcm, 161, 159);
+        assertEquals(SAMPLES, next(source));
+        short[] decoded = new short[SAMPLES];
+        codec.decode(packet, 12, SAMPLES, decoded, 0);
+        // 与直接编码原始采样的结果一致
+        ByteBuffer expectedPacket = ByteBuffer.allocate(512);
+        codec.encode(samples, 0, SAMPLES, expectedPacket, 12);
+        short[] expected = new short[SAMPLES];
+        codec.decode(expectedPacket, 12, SAMPLES, expected, 0);
+        assertArrayEquals(expected, decoded);
+        source.finish();
+        assertEquals(PlayoutSource.END, next(source));
+    }
+}
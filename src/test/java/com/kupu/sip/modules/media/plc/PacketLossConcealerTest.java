@@ -0,0 +1,77 @@
+package com.kupu.sip.modules.media.plc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PacketLossConcealerTest {
+    private static final int FRAME = 160;
+
+    private static short[] frame(int index, double frequency) {
+        short[] pcm = new short[FRAME];
+        for (int i = 0; i < FRAME; i++) {
+            pcm[i] = (short) Math.round(8000 * Math.sin(2 * Math.PI * frequency * (index * FRAME + i) / 8000));
+        }
+        return pcm;
+    }
+
+    private static double energy(short[] pcm, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += (double) pcm[i] * pcm[i];
+        }
+        return sum;
+    }
+
+    @Test
+    public void repeatsPitchPeriodForSingleLostFrame() {
+        PacketLossConcealer plc = new PacketLossConcealer(8000, 60);
+        for (int i = 0; i < 5; i++) {
+            plc.onFrame(frame(i, 250), 0, FRAME);
+        }
+        short[] out = new short[FRAME];
+        assertEquals(FRAME, plc.conceal(out, 0, FRAME));
+        // 250Hz周期32样本，合成帧应接近真实的延续
+        short[] expected = frame(5, 250);
+        double error = 0;
+        for (int i = 0; i < FRAME; i++) {
+            error += Math.pow(out[i] - expected[i], 2);
+        }
+        double snr = 10 * Math.log10(energy(expected, 0, FRAME) / error);
+        assertTrue(snr > 15, "SNR " + snr);
+        assertTrue(plc.isConcealing());
+        short[] next = frame(6, 250);
+        plc.onFrame(next, 0, FRAME);
+        assertTrue(!plc.isConcealing());
+        assertEquals(1, plc.getConcealedFrames());
+        assertEquals(1, plc.getBursts());
+    }
+
+    @Test
+    public void fadesOutOnLongBurst() {
+        PacketLossConcealer plc = new PacketLossConcealer(16000, 60);
+        short[] pcm = new short[2 * FRAME];
+        for (int n = 0; n < 5; n++) {
+            for (int i = 0; i < pcm.length; i++) {
+                pcm[i] = (short) Math.round(8000 * Math.sin(2 * Math.PI * 180 * (n * pcm.length + i) / 16000));
+            }
+            plc.onFrame(pcm, 0, pcm.length);
+        }
+        short[] out = new short[pcm.length];
+        double first = 0;
+        double last = 0;
+        for (int n = 0; n < 4; n++) {
+            plc.conceal(out, 0, out.length);
+            if (n == 0) {
+                first = energy(out, 0, out.length);
+            }
+            last = energy(out, 0, out.length);
+        }
+        assertTrue(first > 0);
+        // 60ms后静音
+        assertEquals(0, last, 0);
+        assertEquals(4, plc.getConcealedFrames());
+        assertEquals(1, plc.getBursts());
+    }
+}
@@ -0,0 +1,69 @@
+package com.kupu.sip.modules.media.port;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.channels.DatagramChannel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.kupu.sip.common.configs.MediaConfig;
+
+public class MediaPortAllocatorTest {
+    private MediaPortAllocator allocator;
+
+    private MediaPortAllocator newAllocator(int quarantineMs) {
+        MediaConfig config = new MediaConfig();
+        config.setPortMin(41001);
+        config.setPortMax(41006);
+        config.setPortQuarantineMs(quarantineMs);
+        allocator = new MediaPortAllocator(config);
+        return allocator;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (allocator != null) {
+            allocator.closeAll();
+        }
+    }
+
+    @Test
+    public void allocatesEvenRtpWithOddRtcp() {
+        MediaPortAllocator ports = newAllocator(0);
+        assertEquals(2, ports.getCapacity());
+        MediaPortPair first = ports.allocate();
+        MediaPortPair second = ports.allocate();
+        assertEquals(41002, first.getRtpPort());
+        assertEquals(41003, first.getRtcpPort());
+        assertEquals(41004, second.getRtpPort());
+        assertThrows(IllegalStateException.class, ports::allocate);
+    }
+
+    @Test
+    public void quarantinesReleasedPorts() {
+        MediaPortAllocator ports = newAllocator(60_000);
+        MediaPortPair first = ports.allocate();
+        ports.release(first);
+        ports.release(first); // 重复归还被忽略
+        MediaPortPair second = ports.allocate();
+        assertNotEquals(first.getRtpPort(), second.getRtpPort());
+        assertThrows(IllegalStateException.class, ports::allocate);
+        assertEquals(1, ports.getAvailable());
+    }
+
+    @Test
+    public void reusesBoundChannels() {
+        MediaPortAllocator ports = newAllocator(0);
+        MediaPortPair first = ports.allocate();
+        DatagramChannel channel = first.getRtpChannel();
+        ports.allocate();
+        ports.release(first);
+        MediaPortPair again = ports.allocate();
+        assertSame(first, again);
+        assertSame(channel, again.getRtpChannel());
+    }
+}
@@ -0,0 +1,153 @@
+package com.kupu.sip.modules.media.prompt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kupu.sip.common.configs.MediaConfig;
+import com.kupu.sip.modules.media.codec.G711ALawCodec;
+import com.kupu.sip.modules.media.playout.PlayoutSource;
+
+public class PromptCacheTest {
+    @TempDir
+    Path dir;
+
+    private File writeWav(String name, int samples) throws Exception {
+        byte[] pcm = new byte[samples * 2];
+        AudioFormat format = new AudioFormat(8000f, 16, 1, true, false);
+        File file = dir.resolve(name).toFile();
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), format, samples),
+                AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+
+    private PromptCache newCache(long maxBytes) {
+        MediaConfig config = new MediaConfig();
+        config.setPromptCacheMaxBytes(maxBytes);
+        config.setPromptCheckIntervalMs(0);
+        return new PromptCache(config);
+    }
+
+    @Test
+    public void resamplesTtsRateStereoWav() throws Exception {
+        // 24kHz双声道、100ms
+        int frames = 2400;
+        byte[] pcm = new byte[frames * 4];
+        AudioFormat format = new AudioFormat(24000f, 16, 2, true, false);
+        File wav = dir.resolve("tts.wav").toFile();
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), format, frames),
+                AudioFileFormat.Type.WAVE, wav);
+        Prompt prompt = newCache(1 << 20).get(wav.getPath(), G711ALawCodec.INSTANCE, 20);
+        assertEquals(5, prompt.getFrameCount());
+        assertEquals(160, prompt.getFrameLength());
+    }
+
+    @Test
+    public void packetizesAndPlaysCachedFrames() throws Exception {
+        File wav = writeWav("a.wav", 500);
+        PromptCache cache = newCache(1 << 20);
+        Prompt prompt = cache.get(wav.getPath(), G711ALawCodec.INSTANCE, 20);
+        assertEquals(4, prompt.getFrameCount()); // 末帧补静音
+        assertEquals(160, prompt.getFrameLength());
+        assertSame(prompt, cache.get(wav.getPath(), G711ALawCodec.INSTANCE, 20));
+        assertEquals(1, cache.getStats().getHits());
+
+        PromptPlayoutSource source = new PromptPlayoutSource(prompt);
+        ByteBuffer packet = ByteBuffer.allocate(512);
+        int frames = 0;
+        while (source.nextFrame(packet, 12, G711ALawCodec.INSTANCE, 160) != PlayoutSource.END) {
+            assertEquals((byte) 0xD5, packet.get(12)); // A律静音
+            frames++;
+        }
+        assertEquals(4, frames);
+    }
+
+    @Test
+    public void reloadsChangedFile() throws Exception {
+        File wav = writeWav("b.wav", 320);
+        PromptCache cache = newCache(1 << 20);
+        Prompt first = cache.get(wav.getPath(), G711ALawCodec.INSTANCE, 20);
+        writeWav("b.wav", 640);
+        Prompt second = cache.get(wav.getPath(), G711ALawCodec.INSTANCE, 20);
+        assertNotSame(first, second);
+        assertEquals(4, second.getFrameCount());
+        assertEquals(1, cache.getStats().getInvalidations());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedByBytes() throws Exception {
+        PromptCache cache = newCache(700);
+        String a = writeWav("c1.wav", 320).getPath();
+        String b = writeWav("c2.wav", 320).getPath();
+        String c = writeWav("c3.wav", 320).getPath();
+        cache.get(a, G711ALawCodec.INSTANCE, 20);
+        cache.get(b, G711ALawCodec.INSTANCE, 20);
+        cache.get(a, G711ALawCodec.INSTANCE, 20);
+        cache.get(c, G711ALawCodec.INSTANCE, 20);
+        assertEquals(2, cache.getStats().getEntries());
+        assertEquals(1, cache.getStats().getEvictions());
+        assertEquals(false, cache.getCachedPaths().contains(b));
+    }
+
+    @Test
+    public void mapsRawALawFiles() throws Exception {
+        byte[] raw = new byte[400];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = (byte) i;
+        }
+        Path file = dir.resolve("d.alaw");
+        Files.write(file, raw);
+        PromptCache cache = newCache(1 << 20);
+        Prompt prompt = cache.get(file.toString(), G711ALawCodec.INSTANCE, 20);
+        assertTrue(prompt.isMapped());
+        assertEquals(3, prompt.getFrameCount());
+
+        PromptPlayoutSource source = new PromptPlayoutSource(prompt);
+        ByteBuffer packet = ByteBuffer.allocateDirect(512);
+        assertEquals(160, source.nextFrame(packet, 12, G711ALawCodec.INSTANCE, 160));
+        assertEquals(160, source.nextFrame(packet, 12, G711ALawCodec.INSTANCE, 160));
+        assertEquals((byte) 160, packet.get(12));
+        assertEquals(80, source.nextFrame(packet, 12, G711ALawCodec.INSTANCE, 160));
+        assertEquals((byte) 320, packet.get(12));
+        assertEquals(PlayoutSource.END, source.nextFrame(packet, 12, G711ALawCodec.INSTANCE, 160));
+        assertEquals(0, cache.getStats().getSizeBytes());
+        assertEquals(400, cache.getStats().getMappedBytes());
+    }
+
+    @Test
+    public void truncatedMappedFileFailsPlayout() throws Exception {
+        Path file = dir.resolve("e.alaw");
+        Files.write(file, new byte[16000]);
+        Prompt prompt = newCache(1 << 20).get(file.toString(), G711ALawCodec.INSTANCE, 20);
+        assertTrue(prompt.isMapped());
+        PromptPlayoutSource source = new PromptPlayoutSource(prompt);
+        ByteBuffer packet = ByteBuffer.allocateDirect(512);
+        assertEquals(160, source.nextFrame(packet, 12, G711ALawCodec.INSTANCE, 160));
+        // 播放中原地截断：越过文件末尾读取映射页
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+        }
+        Thread.sleep(30); // 超过一个打包时长后复查
+        assertThrows(IllegalStateException.class, () -> source.nextFrame(packet, 12, G711ALawCodec.INSTANCE, 160));
+        assertEquals(0, packet.position());
+        assertEquals(PlayoutSource.END, source.nextFrame(packet, 12, G711ALawCodec.INSTANCE, 160));
+    }
+}
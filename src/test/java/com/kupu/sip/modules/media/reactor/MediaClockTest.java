@@ -0,0 +1,36 @@
+package com.kupu.sip.modules.media.reactor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class MediaClockTest {
+    private static final long PERIOD = 20_000_000L;
+
+    @Test
+    public void lateTicksDoNotAccumulateDrift() {
+        MediaClock clock = new MediaClock(PERIOD);
+        clock.start(0);
+        assertFalse(clock.advance(PERIOD - 1));
+        // 每个节拍都晚到3ms，下一个计划点仍在周期整数倍上
+        for (int n = 1; n <= 100; n++) {
+            assertTrue(clock.advance(n * PERIOD + 3_000_000L));
+            assertEquals((n + 1) * PERIOD, clock.scheduledNanos());
+        }
+        MediaClockStats stats = clock.snapshot();
+        assertEquals(100, stats.getTicks());
+        assertEquals(3000, stats.getMeanDeviationMicros());
+        assertEquals(5000, stats.percentileMicros(0.99));
+    }
+
+    @Test
+    public void skipsMissedTicks() {
+        MediaClock clock = new MediaClock(PERIOD);
+        clock.start(0);
+        assertTrue(clock.advance(3 * PERIOD + 1));
+        assertEquals(4 * PERIOD, clock.scheduledNanos());
+        assertEquals(2, clock.snapshot().getSkippedTicks());
+    }
+}
@@ -0,0 +1,69 @@
+package com.kupu.sip.modules.media.record;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.kupu.sip.common.configs.MediaConfig;
+import com.kupu.sip.modules.media.codec.G711ULawCodec;
+
+/**
+ * 录音写盘能力基准，不随单元测试执行：
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.kupu.sip.modules.media.record.RecordingWriterBenchmark -Dexec.args="5000 20 /data/rec-bench"
+ * 按实时节拍模拟N路双向G.711通话，输出写盘吞吐、平均写入大小、在途块峰值与丢帧数；丢帧为0即写盘线程跟得上
+ */
+public class RecordingWriterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Path dir = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("rec-bench");
+        MediaConfig config = new MediaConfig();
+        config.setRecordingDir(dir.toString());
+        config.setRecordingWavExport(false);
+        RecordingWriter writer = new RecordingWriter(config);
+        CallRecorder[] recorders = new CallRecorder[calls];
+        ByteBuffer frame = ByteBuffer.allocateDirect(160);
+        int ticks = seconds * 50;
+        // 通话在前两秒内陆续接通，避免所有通话同时写满块
+        int rampTicks = 100;
+        long start = System.nanoTime();
+        long copyNanos = 0;
+        int peakChunks = 0;
+        for (int t = 0; t < ticks; t++) {
+            long tickStart = System.nanoTime();
+            for (int i = t * calls / rampTicks; i < Math.min(calls, (t + 1) * calls / rampTicks); i++) {
+                recorders[i] = writer.open("bench-" + i, G711ULawCodec.INSTANCE, 20);
+            }
+            for (CallRecorder recorder : recorders) {
+                if (recorder != null) {
+                    recorder.onFrame(RecordingFormat.INBOUND, frame, 0, 160, tickStart);
+                    recorder.onFrame(RecordingFormat.OUTBOUND, frame, 0, 160, tickStart);
+                }
+            }
+            copyNanos += System.nanoTime() - tickStart;
+            peakChunks = Math.max(peakChunks, writer.getStats().getQueuedChunks());
+            long next = start + (t + 1) * TimeUnit.MILLISECONDS.toNanos(20);
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+        for (CallRecorder recorder : recorders) {
+            recorder.close();
+        }
+        for (CallRecorder recorder : recorders) {
+            recorder.getResult().get(60, TimeUnit.SECONDS);
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        RecordingStats stats = writer.getStats();
+        writer.shutdown();
+        System.out.printf("calls: %d, audio: %ds, dir: %s%n", calls, seconds, dir);
+        System.out.printf("written: %.1f MB, %.1f MB/s, writes: %d, avg write: %.1f KB%n",
+                stats.getWrittenBytes() / 1e6, stats.getWrittenBytes() / 1e6 / elapsed, stats.getWrites(),
+                stats.getWrittenBytes() / 1024.0 / Math.max(1, stats.getWrites()));
+        System.out.printf("peak queued chunks: %d / %d, dropped frames: %d, media-loop copy: %.2f us/frame%n",
+                peakChunks, stats.getMaxChunks(), stats.getDroppedFrames(),
+                copyNanos / 1000.0 / (ticks - rampTicks / 2.0) / calls / 2);
+    }
+}
@@ -0,0 +1,74 @@
+package com.kupu.sip.modules.media.record;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kupu.sip.common.configs.MediaConfig;
+import com.kupu.sip.modules.media.codec.G711ULawCodec;
+
+public class RecordingWriterTest {
+    private static final long FRAME_NANOS = 20_000_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void writesSegmentsAndExportsAlignedStereoWav() throws Exception {
+        MediaConfig config = new MediaConfig();
+        config.setRecordingDir(dir.toString());
+        config.setRecordingSegmentSeconds(1);
+        config.setRecordingChunkKb(4);
+        RecordingWriter writer = new RecordingWriter(config);
+        try {
+            CallRecorder recorder = writer.open("abc@10.0.0.1", G711ULawCodec.INSTANCE, 20);
+            long base = System.nanoTime();
+            ByteBuffer frame = ByteBuffer.allocateDirect(172);
+            int frames = 120;
+            for (int t = 0; t < frames; t++) {
+                long now = base + t * FRAME_NANOS + FRAME_NANOS / 2;
+                fill(frame, 0, 160, t);
+                recorder.onFrame(RecordingFormat.INBOUND, frame, 0, 160, now);
+                if (t % 2 == 0) {
+                    // 出向负载位于RTP头之后
+                    fill(frame, 12, 160, 200 - t);
+                    recorder.onFrame(RecordingFormat.OUTBOUND, frame, 12, 160, now);
+                }
+            }
+            RecordingResult result = recorder.close().get(10, TimeUnit.SECONDS);
+            assertEquals(3, result.getSegments());
+            assertEquals(0, result.getDroppedFrames());
+            assertNotNull(result.getWav());
+            assertEquals(dir.resolve("abc_10.0.0.1"), result.getDirectory());
+
+            ByteBuffer wav = ByteBuffer.wrap(Files.readAllBytes(result.getWav())).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(7, wav.getShort(20)); // WAVE_FORMAT_MULAW
+            assertEquals(2, wav.getShort(22));
+            assertEquals(8000, wav.getInt(24));
+            int dataLength = wav.getInt(54);
+            assertEquals(frames * 160 * 2, dataLength);
+            for (int t : new int[]{0, 1, 57, 119}) {
+                int offset = 58 + t * 320 + 2 * 37;
+                assertEquals((byte) t, wav.get(offset));
+                assertEquals(t % 2 == 0 ? (byte) (200 - t) : (byte) 0xFF, wav.get(offset + 1));
+            }
+            assertEquals(0, writer.getStats().getActiveRecordings());
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    private static void fill(ByteBuffer frame, int pos, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            frame.put(pos + i, (byte) value);
+        }
+    }
+}
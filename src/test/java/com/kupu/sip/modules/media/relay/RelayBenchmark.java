@@ -0,0 +1,98 @@
+package com.kupu.sip.modules.media.relay;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import com.kupu.sip.modules.media.codec.AudioCodec;
+import com.kupu.sip.modules.media.codec.G711ALawCodec;
+import com.kupu.sip.modules.media.jitter.JitterBuffer;
+import com.kupu.sip.modules.media.vad.EnergyVad;
+import com.kupu.sip.modules.media.vad.FrameEnergy;
+
+/**
+ * 中继转发与完整媒体处理的每包开销对比，不随单元测试执行：
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.kupu.sip.modules.media.relay.RelayBenchmark
+ * 完整处理为一路PCMA通话每20ms在媒体循环上的工作：入向包进抖动缓冲、出帧解码、能量与VAD判定，出向一帧PCM编码；
+ * 中继为头部映射改写与负载复制。两者都不含收发的系统调用(两种方式相同)
+ */
+public class RelayBenchmark {
+    private static final int FRAME = 160;
+
+    public static void main(String[] args) {
+        int packets = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        ByteBuffer in = ByteBuffer.allocateDirect(2048);
+        ByteBuffer out = ByteBuffer.allocateDirect(2048);
+        for (int i = 0; i < FRAME; i++) {
+            in.put(12 + i, (byte) (0x55 ^ (i * 7)));
+        }
+        // 预热
+        full(in, out, packets / 4);
+        relay(in, out, packets / 4);
+        long allocatedBefore = allocatedBytes();
+        double full = full(in, out, packets);
+        double relay = relay(in, out, packets);
+        long allocated = allocatedBytes() - allocatedBefore;
+        System.out.printf("full media path: %.3f us/packet%n", full / 1000);
+        System.out.printf("relay forward:   %.3f us/packet (%.1f%% of full)%n", relay / 1000, relay * 100 / full);
+        System.out.printf("alloc: %.3f B/packet%n", allocated < 0 ? Double.NaN : (double) allocated / (2.0 * packets));
+    }
+
+    /**
+     * @return 每包平均耗时(纳秒)
+     */
+    private static double full(ByteBuffer in, ByteBuffer out, int packets) {
+        AudioCodec codec = G711ALawCodec.INSTANCE;
+        JitterBuffer jitter = new JitterBuffer(64, 480, 8000, 20, 200, 4);
+        EnergyVad vad = new EnergyVad(20, 60, 600, 9, 6);
+        short[] pcm = new short[FRAME];
+        long sink = 0;
+        long now = 0;
+        long start = System.nanoTime();
+        for (int p = 0; p < packets; p++) {
+            now += 20_000_000L;
+            jitter.put(in, 12, FRAME, p & 0xFFFF, p * FRAME, 0x1234, now);
+            int length;
+            while ((length = jitter.poll(now)) > 0) {
+                ByteBuffer payload = jitter.currentPayload();
+                int samples = codec.decode(payload, 0, length, pcm, 0);
+                sink += vad.onFrame(FrameEnergy.meanSquareG711(payload, 0, length, G711ALawCodec.PAYLOAD_TYPE));
+                sink += codec.encode(pcm, 0, samples, out, 12);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return (double) elapsed / packets;
+    }
+
+    private static double relay(ByteBuffer in, ByteBuffer out, int packets) {
+        RtpRelay relay = new RtpRelay();
+        int sequence = 0;
+        long start = System.nanoTime();
+        for (int p = 0; p < packets; p++) {
+            if (relay.map(p & 0xFFFF, p * FRAME, 0x1234, sequence, 0)) {
+                in.limit(12 + FRAME).position(12);
+                out.position(12);
+                out.put(in);
+                out.position(0);
+                in.clear();
+                out.put(0, (byte) 0x80);
+                out.put(1, (byte) (relay.isResync() ? 0x88 : 0x08));
+                out.putShort(2, (short) relay.getSequence());
+                out.putInt(4, relay.getTimestamp());
+                out.putInt(8, 0x5678);
+                sequence = (relay.getSequence() + 1) & 0xFFFF;
+            }
+        }
+        return (double) (System.nanoTime() - start) / packets;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,57 @@
+package com.kupu.sip.modules.media.relay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.kupu.sip.modules.media.codec.G711ALawCodec;
+import com.kupu.sip.modules.media.codec.G711ULawCodec;
+import com.kupu.sip.modules.media.codec.G722Codec;
+
+public class RtpRelayTest {
+
+    @Test
+    public void continuesOutboundStreamAndKeepsLossGaps() {
+        RtpRelay relay = new RtpRelay();
+        // 出向会话已发到序列号500、时间戳80000
+        assertTrue(relay.map(65534, 1_000_000, 0xAAAA, 500, 80000));
+        assertTrue(relay.isResync());
+        assertEquals(500, relay.getSequence());
+        assertEquals(80000, relay.getTimestamp());
+        assertTrue(relay.map(65535, 1_000_160, 0xAAAA, 501, 80160));
+        assertFalse(relay.isResync());
+        assertEquals(501, relay.getSequence());
+        // 入向序列号回绕且丢了一包，间隔原样保留
+        assertTrue(relay.map(1, 1_000_480, 0xAAAA, 502, 80480));
+        assertEquals(503, relay.getSequence());
+        assertEquals(80480, relay.getTimestamp());
+    }
+
+    @Test
+    public void dropsLatePacketsAndResyncsOnNewSsrc() {
+        RtpRelay relay = new RtpRelay();
+        relay.map(100, 0, 1, 65535, 0);
+        relay.map(102, 320, 1, 0, 320);
+        assertEquals(1, relay.getSequence());
+        // 乱序迟到与重复的包丢弃，出向序列号保持单调
+        assertFalse(relay.map(101, 160, 1, 2, 320));
+        assertFalse(relay.map(102, 320, 1, 2, 320));
+        assertEquals(2, relay.getDropped());
+        // 对端重启流：从出向流的当前位置续接
+        assertTrue(relay.map(7, 999, 2, 2, 640));
+        assertTrue(relay.isResync());
+        assertEquals(2, relay.getSequence());
+        assertEquals(640, relay.getTimestamp());
+        assertEquals(3, relay.getForwarded());
+    }
+
+    @Test
+    public void forwardsOnlyBetweenMatchingCodecs() {
+        assertTrue(RtpRelay.canForward(G711ALawCodec.INSTANCE, G711ALawCodec.INSTANCE));
+        assertTrue(RtpRelay.canForward(G722Codec.INSTANCE.newSession(), G722Codec.INSTANCE.newSession()));
+        assertFalse(RtpRelay.canForward(G711ALawCodec.INSTANCE, G711ULawCodec.INSTANCE));
+        assertFalse(RtpRelay.canForward(G722Codec.INSTANCE, G711ALawCodec.INSTANCE));
+    }
+}
@@ -0,0 +1,68 @@
+package com.kupu.sip.modules.media.resample;
+
+/**
+ * 重采样质量与吞吐基准，不随单元测试执行：
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.kupu.sip.modules.media.resample.PolyphaseResamplerBenchmark
+ * 吞吐以实时倍数表示，即单线程每秒可处理的音频秒数(也即单核可同时转换的流数上限)
+ */
+public class PolyphaseResamplerBenchmark {
+    private static final int[][] PAIRS = {
+            {16000, 8000}, {24000, 8000}, {44100, 8000}, {48000, 8000},
+            {24000, 16000}, {44100, 16000}, {48000, 16000}, {8000, 16000}};
+    private static final int CHUNK_MS = 20;
+
+    public static void main(String[] args) {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        System.out.printf("%-14s %10s %10s %12s%n", "rate", "SNR(dB)", "alias(dB)", "x realtime");
+        for (int[] pair : PAIRS) {
+            int in = pair[0];
+            int out = pair[1];
+            short[] tone = PolyphaseResamplerTest.sine(in, 1000, in, 10000);
+            short[] result = run(new PolyphaseResampler(in, out), tone);
+            double snr = PolyphaseResamplerTest.snrDb(result, result.length / 4, result.length, out, 1000);
+            double alias = Double.NaN;
+            if (in > out) {
+                short[] high = PolyphaseResamplerTest.sine(in, out * 0.75, in, 10000);
+                short[] aliased = run(new PolyphaseResampler(in, out), high);
+                // 残留不足半个量化级时按半个量化级计
+                double rms = Math.max(0.5, PolyphaseResamplerTest.rms(aliased, aliased.length / 4, aliased.length));
+                alias = 20 * Math.log10(rms / (10000 / Math.sqrt(2)));
+            }
+            System.out.printf("%-14s %10.1f %10.1f %12.0f%n", in + "->" + out, snr, alias,
+                    throughput(in, out, seconds));
+        }
+    }
+
+    private static short[] run(PolyphaseResampler resampler, short[] input) {
+        short[] output = new short[resampler.maxOutputSamples(input.length)];
+        int n = resampler.process(input, 0, input.length, output, 0);
+        short[] result = new short[n];
+        System.arraycopy(output, 0, result, 0, n);
+        return result;
+    }
+
+    /**
+     * 按20ms分块处理，模拟流式TTS输入
+     */
+    private static double throughput(int in, int out, int seconds) {
+        PolyphaseResampler resampler = new PolyphaseResampler(in, out);
+        int chunk = in * CHUNK_MS / 1000;
+        short[] input = PolyphaseResamplerTest.sine(in, 440, chunk, 8000);
+        short[] output = new short[resampler.maxOutputSamples(chunk)];
+        int chunks = seconds * 1000 / CHUNK_MS;
+        // 预热
+        for (int i = 0; i < chunks; i++) {
+            resampler.process(input, 0, chunk, output, 0);
+        }
+        long start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < chunks; i++) {
+            sink += resampler.process(input, 0, chunk, output, 0);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink < 0) {
+            System.out.println(sink);
+        }
+        return seconds / (elapsed / 1e9);
+    }
+}
@@ -0,0 +1,97 @@
+package com.kupu.sip.modules.media.resample;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PolyphaseResamplerTest {
+
+    static short[] sine(int rate, double frequency, int samples, double amplitude) {
+        short[] pcm = new short[samples];
+        for (int i = 0; i < samples; i++) {
+            pcm[i] = (short) Math.round(amplitude * Math.sin(2 * Math.PI * frequency * i / rate));
+        }
+        return pcm;
+    }
+
+    /**
+     * 用正弦/余弦最小二乘拟合出指定频率的分量，返回该分量与残差的能量比(dB)
+     */
+    static double snrDb(short[] pcm, int from, int to, int rate, double frequency) {
+        double ss = 0, sc = 0, cc = 0, xs = 0, xc = 0, xx = 0;
+        for (int i = from; i < to; i++) {
+            double s = Math.sin(2 * Math.PI * frequency * i / rate);
+            double c = Math.cos(2 * Math.PI * frequency * i / rate);
+            ss += s * s;
+            cc += c * c;
+            sc += s * c;
+            xs += pcm[i] * s;
+            xc += pcm[i] * c;
+            xx += (double) pcm[i] * pcm[i];
+        }
+        double det = ss * cc - sc * sc;
+        double a = (xs * cc - xc * sc) / det;
+        double b = (xc * ss - xs * sc) / det;
+        double tone = a * xs + b * xc;
+        return 10 * Math.log10(tone / Math.max(xx - tone, 1e-9));
+    }
+
+    static double rms(short[] pcm, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += (double) pcm[i] * pcm[i];
+        }
+        return Math.sqrt(sum / (to - from));
+    }
+
+    private static short[] resample(PolyphaseResampler resampler, short[] in) {
+        short[] out = new short[resampler.maxOutputSamples(in.length)];
+        int n = resampler.process(in, 0, in.length, out, 0);
+        short[] result = new short[n];
+        System.arraycopy(out, 0, result, 0, n);
+        return result;
+    }
+
+    @Test
+    public void passesInBandToneForCommonRates() {
+        int[][] pairs = {{48000, 8000}, {24000, 8000}, {44100, 8000}, {16000, 8000}, {44100, 16000}, {8000, 16000}};
+        for (int[] pair : pairs) {
+            short[] out = resample(new PolyphaseResampler(pair[0], pair[1]), sine(pair[0], 1000, pair[0], 10000));
+            assertEquals(pair[1], out.length, 1);
+            double snr = snrDb(out, out.length / 4, out.length, pair[1], 1000);
+            assertTrue(snr > 60, pair[0] + "->" + pair[1] + " SNR " + snr);
+            assertEquals(10000, rms(out, out.length / 4, out.length) * Math.sqrt(2), 200);
+        }
+    }
+
+    @Test
+    public void rejectsToneAboveOutputNyquist() {
+        short[] out = resample(new PolyphaseResampler(48000, 8000), sine(48000, 6000, 48000, 10000));
+        // 6kHz在8kHz输出中会混叠到2kHz，要求衰减60dB以上
+        assertTrue(rms(out, out.length / 4, out.length) < 10000 / Math.sqrt(2) / 1000);
+    }
+
+    @Test
+    public void chunkedProcessingMatchesSinglePass() {
+        short[] in = sine(24000, 440, 4800, 8000);
+        short[] expected = resample(new PolyphaseResampler(24000, 8000), in);
+        PolyphaseResampler resampler = new PolyphaseResampler(24000, 8000);
+        byte[] bytes = new byte[in.length * 2];
+        for (int i = 0; i < in.length; i++) {
+            bytes[2 * i] = (byte) in[i];
+            bytes[2 * i + 1] = (byte) (in[i] >> 8);
+        }
+        short[] out = new short[expected.length + 8];
+        int written = 0;
+        // 奇数字节分块，低字节跨块保留
+        for (int off = 0; off < bytes.length; off += 333) {
+            int len = Math.min(333, bytes.length - off);
+            written += resampler.process(bytes, off, len, out, written);
+        }
+        short[] actual = new short[written];
+        System.arraycopy(out, 0, actual, 0, written);
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,76 @@
+package com.kupu.sip.modules.media.rtcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+public class RtcpSessionTest {
+    private static final long FRAME_NANOS = 20_000_000L;
+
+    @Test
+    public void countsLossAcrossSequenceWraparound() {
+        RtpReceptionStats stats = new RtpReceptionStats(8000);
+        long now = 0;
+        for (int i = 0; i < 100; i++, now += FRAME_NANOS) {
+            if (i % 10 == 3) {
+                continue; // 每10包丢1包
+            }
+            stats.onPacket((65500 + i) & 0xFFFF, i * 160, 1, now);
+        }
+        assertEquals(100, stats.getExpected());
+        assertEquals(10, stats.getCumulativeLost());
+        assertEquals(65500 + 99, stats.getExtendedMaxSeq());
+        assertEquals(25, stats.closeInterval()); // 10% * 256
+        assertEquals(0, stats.getJitter());
+    }
+
+    @Test
+    public void exchangesReportsAndMeasuresRoundTrip() {
+        RtcpSession a = new RtcpSession(0x1111, "a@test", 8000, 10000);
+        RtcpSession b = new RtcpSession(0x2222, "b@test", 8000, 10000);
+        long now = System.nanoTime();
+        for (int i = 0; i < 50; i++, now += FRAME_NANOS) {
+            a.onRtpSent(160);
+            if (i != 7) {
+                b.onRtpReceived(i, i * 160, 0x1111, now);
+            }
+            b.onRtpSent(160);
+            a.onRtpReceived(i, i * 160, 0x2222, now);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(512);
+
+        // A发送SR，B在收到后100ms回复含LSR/DLSR的SR
+        int length = a.writeReport(buf, 0, 8000, now);
+        assertEquals(RtcpSession.PT_SR, buf.get(1) & 0xFF);
+        buf.limit(length);
+        b.onPacket(buf, now + 10_000_000L);
+        buf.clear();
+        length = b.writeReport(buf, 0, 8000, now + 110_000_000L);
+        buf.limit(length);
+        a.onPacket(buf, now + 120_000_000L);
+
+        CallQualityStats stats = a.snapshot();
+        assertEquals(1, stats.getReportsReceived());
+        assertEquals(1, stats.getRemoteCumulativeLost());
+        assertTrue(Math.abs(stats.getRttMs() - 20) < 1, "rtt " + stats.getRttMs());
+        assertEquals(0x2222, stats.getRemoteSsrc());
+
+        stats.setCodec("PCMA");
+        EModel.apply(stats, 20, false);
+        assertTrue(stats.getMos() > 4.3, "mos " + stats.getMos());
+        assertTrue(stats.getRemoteMos() < stats.getMos());
+    }
+
+    @Test
+    public void mosFallsWithLossAndDelay() {
+        double clean = EModel.mos(EModel.rFactor(50, 0, 0, 4.3));
+        double lossy = EModel.mos(EModel.rFactor(50, 0.05, 0, 4.3));
+        double slow = EModel.mos(EModel.rFactor(400, 0, 0, 4.3));
+        assertTrue(clean > 4.3);
+        assertTrue(lossy < 3.5);
+        assertTrue(slow < 3.8);
+    }
+}
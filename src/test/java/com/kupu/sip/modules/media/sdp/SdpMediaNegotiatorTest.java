@@ -0,0 +1,119 @@
+package com.kupu.sip.modules.media.sdp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import javax.sdp.MediaDescription;
+import javax.sdp.SdpException;
+import javax.sdp.SdpFactory;
+import javax.sdp.SessionDescription;
+
+import org.junit.jupiter.api.Test;
+
+import com.kupu.sip.modules.media.codec.G711ULawCodec;
+import com.kupu.sip.modules.media.codec.G722Codec;
+import com.kupu.sip.modules.media.srtp.SdesCrypto;
+import com.kupu.sip.modules.media.srtp.SrtpCryptoSuite;
+import com.kupu.sip.modules.media.srtp.SrtpPolicy;
+
+public class SdpMediaNegotiatorTest {
+
+    private MediaDescription audio(String media) throws SdpException {
+        String sdp = "v=0\r\n" +
+                "o=- 1 1 IN IP4 10.0.0.1\r\n" +
+                "s=-\r\n" +
+                "c=IN IP4 10.0.0.1\r\n" +
+                "t=0 0\r\n" +
+                media;
+        SessionDescription description = SdpFactory.getInstance().createSessionDescription(sdp);
+        return (MediaDescription) description.getMediaDescriptions(false).get(0);
+    }
+
+    @Test
+    public void picksFirstSupportedCodecInPeerOrder() throws Exception {
+        NegotiatedMedia negotiated = SdpMediaNegotiator.negotiate(audio(
+                "m=audio 4000 RTP/AVP 18 0 8 96\r\n" +
+                "a=rtpmap:18 G729/8000\r\n" +
+                "a=rtpmap:96 telephone-event/8000\r\n" +
+                "a=ptime:20\r\n"));
+        assertSame(G711ULawCodec.INSTANCE, negotiated.getCodec());
+        assertEquals(0, negotiated.getPayloadType());
+        assertEquals(96, negotiated.getTelephoneEventPayloadType());
+        assertEquals(20, negotiated.getPtimeMs());
+    }
+
+    @Test
+    public void mapsDynamicPayloadTypeByEncodingName() throws Exception {
+        NegotiatedMedia negotiated = SdpMediaNegotiator.negotiate(audio(
+                "m=audio 4000 RTP/AVP 97\r\n" +
+                "a=rtpmap:97 PCMU/8000\r\n"));
+        assertSame(G711ULawCodec.INSTANCE, negotiated.getCodec());
+        assertEquals(97, negotiated.getPayloadType());
+        assertEquals(-1, negotiated.getTelephoneEventPayloadType());
+    }
+
+    @Test
+    public void rejectsOfferWithoutCommonCodec() {
+        assertThrows(SdpException.class, () -> SdpMediaNegotiator.negotiate(audio(
+                "m=audio 4000 RTP/AVP 18\r\n" +
+                "a=rtpmap:18 G729/8000\r\n")));
+    }
+
+    @Test
+    public void answerListsOnlyNegotiatedFormats() throws Exception {
+        NegotiatedMedia negotiated = SdpMediaNegotiator.negotiate(audio(
+                "m=audio 4000 RTP/AVP 0 101\r\n" +
+                "a=rtpmap:101 telephone-event/8000\r\n"));
+        String answer = SdpMediaNegotiator.answerMedia(20000, negotiated);
+        assertEquals("m=audio 20000 RTP/AVP 0 101\r\n" +
+                "a=rtpmap:0 PCMU/8000\r\n" +
+                "a=rtpmap:101 telephone-event/8000\r\n" +
+                "a=fmtp:101 0-15\r\n", answer);
+    }
+
+    @Test
+    public void negotiatesG722WithEightKilohertzClock() throws Exception {
+        NegotiatedMedia negotiated = SdpMediaNegotiator.negotiate(audio(
+                "m=audio 4000 RTP/AVP 9 8\r\n" +
+                "a=rtpmap:9 G722/8000\r\n"));
+        assertSame(G722Codec.INSTANCE, negotiated.getCodec());
+        assertEquals("m=audio 20000 RTP/AVP 9\r\n" +
+                "a=rtpmap:9 G722/8000\r\n", SdpMediaNegotiator.answerMedia(20000, negotiated));
+        assertTrue(SdpMediaNegotiator.offerMedia(20000).startsWith("m=audio 20000 RTP/AVP 9 8 0 101\r\n"
+                + "a=rtpmap:9 G722/8000\r\n"));
+    }
+
+    @Test
+    public void answersSrtpOfferWithLocalKeyAndEnforcesPolicy() throws Exception {
+        String offer = "m=audio 4000 RTP/SAVP 0\r\n" +
+                "a=crypto:1 AES_CM_256_HMAC_SHA1_80 inline:d0RmdmcmVCspeEc3QGZiNWpVLFJhQX1cfHAwJSoj|2^31\r\n" +
+                "a=crypto:2 AES_CM_128_HMAC_SHA1_32 inline:NzB4d1BINUAvLEw6UzF3WSJ+PSdFcGdUJShpX1Zj|2^20|1:32\r\n" +
+                "a=crypto:3 AES_CM_128_HMAC_SHA1_80 inline:WVNfX19zZW1jdGwgKCkgewkyMjA7fQp9CnVubGVz\r\n";
+        NegotiatedMedia negotiated = SdpMediaNegotiator.negotiate(audio(offer));
+        assertEquals(3, negotiated.getRemoteCrypto().getTag());
+        SdpMediaNegotiator.acceptOffer(negotiated, SrtpPolicy.OPTIONAL);
+        assertTrue(negotiated.isSrtp());
+        String answer = SdpMediaNegotiator.answerMedia(20000, negotiated);
+        assertTrue(answer.startsWith("m=audio 20000 RTP/SAVP 0\r\n"));
+        SdesCrypto local = SdesCrypto.parse(answer.substring(answer.indexOf("a=crypto:") + 9).trim());
+        assertEquals(3, local.getTag());
+        assertArrayEquals(negotiated.getLocalCrypto().getMasterKey(), local.getMasterKey());
+
+        assertThrows(SdpException.class, () -> SdpMediaNegotiator.acceptOffer(
+                SdpMediaNegotiator.negotiate(audio(offer)), SrtpPolicy.DISABLED));
+        assertThrows(SdpException.class, () -> SdpMediaNegotiator.acceptOffer(
+                SdpMediaNegotiator.negotiate(audio("m=audio 4000 RTP/AVP 0\r\n")), SrtpPolicy.REQUIRED));
+
+        List<SdesCrypto> offered = SdesCrypto.offer();
+        assertTrue(SdpMediaNegotiator.offerMedia(20000, offered).contains("a=crypto:2 AES_CM_128_HMAC_SHA1_32 inline:"));
+        NegotiatedMedia answered = SdpMediaNegotiator.negotiate(audio("m=audio 4000 RTP/SAVP 0\r\n"
+                + "a=crypto:" + SdesCrypto.generate(2, SrtpCryptoSuite.AES_CM_128_HMAC_SHA1_32).toAttribute() + "\r\n"));
+        SdpMediaNegotiator.acceptAnswer(answered, offered, SrtpPolicy.REQUIRED);
+        assertSame(offered.get(1), answered.getLocalCrypto());
+    }
+}
@@ -0,0 +1,69 @@
+package com.kupu.sip.modules.media.srtp;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * SRTP每包开销基准，不随单元测试执行：
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.kupu.sip.modules.media.srtp.SrtpBenchmark
+ * 输出每个包加密(protect)与解密(unprotect)的平均耗时，以及稳态下每包分配的堆内存
+ */
+public class SrtpBenchmark {
+    private static final int[] PAYLOADS = {160, 320, 480};
+
+    public static void main(String[] args) {
+        int packets = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.printf("%-26s %8s %14s %16s %14s%n", "suite", "payload", "protect(us)", "unprotect(us)", "alloc(B/pkt)");
+        for (SrtpCryptoSuite suite : SrtpCryptoSuite.values()) {
+            for (int payload : PAYLOADS) {
+                SdesCrypto crypto = SdesCrypto.generate(1, suite);
+                // 预热
+                run(crypto, payload, packets / 4, false);
+                run(crypto, payload, packets / 4, true);
+                long allocatedBefore = allocatedBytes();
+                double protect = run(crypto, payload, packets, false);
+                double both = run(crypto, payload, packets, true);
+                long allocated = allocatedBytes() - allocatedBefore;
+                System.out.printf("%-26s %8d %14.3f %16.3f %14.3f%n", suite, payload, protect / 1000,
+                        (both - protect) / 1000, allocated < 0 ? Double.NaN : (double) allocated / (2.0 * packets));
+            }
+        }
+    }
+
+    /**
+     * @return 每包平均耗时(纳秒)
+     */
+    private static double run(SdesCrypto crypto, int payload, int packets, boolean unprotect) {
+        SrtpContext sender = new SrtpContext(crypto);
+        SrtpContext receiver = new SrtpContext(crypto);
+        ByteBuffer packet = ByteBuffer.allocateDirect(2048);
+        int length = 12 + payload;
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < packets; i++) {
+            packet.put(0, (byte) 0x80).put(1, (byte) 0).putShort(2, (short) i).putInt(4, i * 160).putInt(8, 0x1234);
+            int protectedLength = sender.protectRtp(packet, length);
+            if (unprotect) {
+                sink += receiver.unprotectRtp(packet, protectedLength);
+            } else {
+                sink += protectedLength;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println(sink);
+        }
+        return (double) elapsed / packets;
+    }
+
+    /**
+     * 当前线程累计分配的堆内存，JVM不支持时返回-1
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,143 @@
+package com.kupu.sip.modules.media.srtp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+public class SrtpContextTest {
+    // RFC 3711 附录B.3
+    private static final byte[] MASTER_KEY = hex("E1F97A0D3E018BE0D64FA32C06DE4139");
+    private static final byte[] MASTER_SALT = hex("0EC675AD498AFEEBB6960B3AABE6");
+
+    @Test
+    public void matchesRfc3711TestVectors() {
+        assertArrayEquals(hex("C61E7A93744F39EE10734AFE3FF7A087"), SrtpContext.deriveKey(MASTER_KEY, MASTER_SALT, 0, 16));
+        assertArrayEquals(hex("30CBBC08863D8C85D49DB34A9AE1"), SrtpContext.deriveKey(MASTER_KEY, MASTER_SALT, 2, 14));
+        assertArrayEquals(hex("CEBE321F6FF7716B6FD4AB49AF256A156D38BAA4"),
+                SrtpContext.deriveKey(MASTER_KEY, MASTER_SALT, 1, 20));
+
+        // 附录B.2 AES计数器模式密钥流
+        AesCounterMode cm = new AesCounterMode(hex("2B7E151628AED2A6ABF7158809CF4F3C"),
+                hex("F0F1F2F3F4F5F6F7F8F9FAFBFCFD"));
+        cm.prepare(0, 0, 48);
+        assertArrayEquals(hex("E03EAD0935C95E80E166B16DD92B4EB4D23513162B02D0F72A43A2FE4A5F97AB"
+                + "41E95B3BB0A2E8DD477901E4FCA894C0"), Arrays.copyOf(cm.keystream(), 48));
+
+        // 整包：密文与认证标签由独立实现算得
+        SrtpContext context = new SrtpContext(crypto(SrtpCryptoSuite.AES_CM_128_HMAC_SHA1_80));
+        ByteBuffer packet = rtp(1, 0xDEADBEEF);
+        assertEquals(182, context.protectRtp(packet, 172));
+        byte[] out = new byte[182];
+        packet.get(out);
+        assertArrayEquals(hex("A106520A2BA7AFC7FB19EB1668B829D7"), Arrays.copyOfRange(out, 12, 28));
+        assertArrayEquals(hex("58724D7DC3732D5CBD8C"), Arrays.copyOfRange(out, 172, 182));
+    }
+
+    @Test
+    public void hmacMatchesJdk() throws Exception {
+        Random random = new Random(7);
+        byte[] key = new byte[20];
+        random.nextBytes(key);
+        HmacSha1 hmac = new HmacSha1(key);
+        Mac jdk = Mac.getInstance("HmacSHA1");
+        jdk.init(new SecretKeySpec(key, "HmacSHA1"));
+        byte[] tag = new byte[20];
+        for (int length : new int[]{0, 1, 51, 52, 55, 56, 63, 64, 65, 172, 1000}) {
+            byte[] data = new byte[length + 3];
+            random.nextBytes(data);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+            buffer.put(data);
+            hmac.update(buffer, 3, length);
+            hmac.updateInt(0x01020304);
+            hmac.doFinal(tag);
+            jdk.update(data, 3, length);
+            jdk.update(new byte[]{1, 2, 3, 4});
+            assertArrayEquals(jdk.doFinal(), tag, "长度 " + length);
+        }
+    }
+
+    @Test
+    public void roundTripAcrossRolloverAndRejectsReplayAndTampering() {
+        SdesCrypto key = crypto(SrtpCryptoSuite.AES_CM_128_HMAC_SHA1_32);
+        SrtpContext sender = new SrtpContext(key);
+        SrtpContext receiver = new SrtpContext(key);
+        ByteBuffer packet = ByteBuffer.allocateDirect(256);
+        for (int i = 0; i < 40; i++) {
+            int seq = (0xFFEC + i) & 0xFFFF; // 跨越序号回绕，ROC由0变为1
+            fill(packet, seq);
+            int length = sender.protectRtp(packet, 172);
+            assertEquals(176, length);
+            ByteBuffer copy = copy(packet, length);
+            if (i == 30) {
+                ByteBuffer tampered = copy(packet, length);
+                tampered.put(20, (byte) (tampered.get(20) ^ 1));
+                assertEquals(-1, receiver.unprotectRtp(tampered, length));
+            }
+            assertEquals(172, receiver.unprotectRtp(packet, length));
+            assertEquals((byte) seq, packet.get(12 + 100));
+            if (i == 30) {
+                assertEquals(-1, receiver.unprotectRtp(copy, length)); // 重放
+            }
+        }
+        assertEquals(1, receiver.getAuthFailures());
+        assertEquals(1, receiver.getReplayedPackets());
+
+        ByteBuffer rtcp = ByteBuffer.allocateDirect(128);
+        for (int i = 0; i < 52; i++) {
+            rtcp.put(i, (byte) i);
+        }
+        int length = sender.protectRtcp(rtcp, 52);
+        assertEquals(66, length);
+        ByteBuffer copy = copy(rtcp, length);
+        assertEquals(52, receiver.unprotectRtcp(rtcp, length));
+        for (int i = 0; i < 52; i++) {
+            assertEquals((byte) i, rtcp.get(i));
+        }
+        assertEquals(-1, receiver.unprotectRtcp(copy, length));
+    }
+
+    private static SdesCrypto crypto(SrtpCryptoSuite suite) {
+        return new SdesCrypto(1, suite, MASTER_KEY, MASTER_SALT);
+    }
+
+    private static ByteBuffer rtp(int seq, int ssrc) {
+        ByteBuffer packet = ByteBuffer.allocateDirect(256);
+        packet.put(0, (byte) 0x80).putShort(2, (short) seq).putInt(4, 160).putInt(8, ssrc);
+        for (int i = 12; i < 172; i++) {
+            packet.put(i, (byte) 0xAB);
+        }
+        return packet;
+    }
+
+    private static void fill(ByteBuffer packet, int seq) {
+        packet.clear();
+        packet.put(0, (byte) 0x80).put(1, (byte) 0).putShort(2, (short) seq).putInt(4, seq * 160).putInt(8, 0x12345678);
+        for (int i = 12; i < 172; i++) {
+            packet.put(i, (byte) seq);
+        }
+    }
+
+    private static ByteBuffer copy(ByteBuffer packet, int length) {
+        ByteBuffer copy = ByteBuffer.allocateDirect(packet.capacity());
+        for (int i = 0; i < length; i++) {
+            copy.put(i, packet.get(i));
+        }
+        return copy;
+    }
+
+    private static byte[] hex(String hex) {
+        byte[] out = new byte[hex.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,97 @@
+package com.kupu.sip.modules.media.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class AsyncAudioFrameConsumerTest {
+    private static final String CALL_ID = "call-1";
+
+    // 手动执行的线程池，模拟停滞的消费者
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final List<String> events = new ArrayList<>();
+
+    private final AudioFrameConsumer recorder = new AudioFrameConsumer() {
+        @Override
+        public void onSpeechStart(String callId) {
+            events.add("start");
+        }
+
+        @Override
+        public void onAudio(String callId, short[] pcm, int off, int samples) {
+            events.add(pcm[off] + "x" + samples);
+        }
+
+        @Override
+        public void onSpeechEnd(String callId) {
+            events.add("end");
+        }
+    };
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private void frame(AudioFrameConsumer consumer, int value) {
+        short[] pcm = new short[160];
+        pcm[0] = (short) value;
+        consumer.onAudio(CALL_ID, pcm, 0, pcm.length);
+    }
+
+    @Test
+    public void deliversInOrderWithMarkers() {
+        AsyncAudioFrameConsumer async = new AsyncAudioFrameConsumer(recorder, tasks::add, 8, 1600,
+                HandoffBackpressure.DROP, 0);
+        async.onSpeechStart(CALL_ID);
+        frame(async, 1);
+        frame(async, 2);
+        async.onSpeechEnd(CALL_ID);
+        assertEquals(1, tasks.size());
+        runTasks();
+        assertEquals("[start, 1x160, 2x160, end]", events.toString());
+        assertEquals(3, async.getStats().getDelivered());
+    }
+
+    @Test
+    public void dropKeepsMarkersWhenConsumerStalls() {
+        AsyncAudioFrameConsumer async = new AsyncAudioFrameConsumer(recorder, tasks::add, 2, 1600,
+                HandoffBackpressure.DROP, 0);
+        async.onSpeechStart(CALL_ID);
+        frame(async, 1);
+        frame(async, 2);
+        frame(async, 3);
+        async.onSpeechEnd(CALL_ID);
+        // 整段音频都被丢弃的语音段不交付
+        async.onSpeechStart(CALL_ID);
+        frame(async, 4);
+        async.onSpeechEnd(CALL_ID);
+        runTasks();
+        async.onSpeechStart(CALL_ID);
+        frame(async, 5);
+        async.onSpeechEnd(CALL_ID);
+        runTasks();
+        assertEquals("[start, 1x160, 2x160, end, start, 5x160, end]", events.toString());
+        HandoffStats stats = async.getStats();
+        assertEquals(320, stats.getDroppedSamples());
+        assertEquals(1, stats.getDroppedUtterances());
+    }
+
+    @Test
+    public void coalescesFramesWhileConsumerLags() {
+        AsyncAudioFrameConsumer async = new AsyncAudioFrameConsumer(recorder, tasks::add, 4, 800,
+                HandoffBackpressure.COALESCE, 0);
+        async.onSpeechStart(CALL_ID);
+        for (int i = 1; i <= 12; i++) {
+            frame(async, i);
+        }
+        async.onSpeechEnd(CALL_ID);
+        runTasks();
+        assertEquals("[start, 1x160, 2x800, 7x800, 12x160, end]", events.toString());
+        assertEquals(0, async.getStats().getDroppedSamples());
+    }
+}
@@ -0,0 +1,70 @@
+package com.kupu.sip.modules.media.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class UtteranceCollectorTest {
+    private static final String CALL_ID = "call-1";
+
+    private final List<byte[]> utterances = new ArrayList<>();
+    private final List<UtteranceOverflowPolicy> overflows = new ArrayList<>();
+
+    // 8kHz、上限100ms即800个样本
+    private UtteranceCollector newCollector(UtteranceOverflowPolicy policy) {
+        return new UtteranceCollector(utterances::add, 8000, 100, policy,
+                (callId, p, bufferedMs) -> overflows.add(p));
+    }
+
+    private void speak(UtteranceCollector collector, int frames) {
+        short[] frame = new short[160];
+        collector.onSpeechStart(CALL_ID);
+        for (int i = 0; i < frames; i++) {
+            for (int j = 0; j < frame.length; j++) {
+                frame[j] = (short) (i * 1000 + j);
+            }
+            collector.onAudio(CALL_ID, frame, 0, frame.length);
+        }
+        collector.onSpeechEnd(CALL_ID);
+    }
+
+    private static short sample(byte[] pcm, int index) {
+        return (short) ((pcm[index * 2] & 0xFF) | (pcm[index * 2 + 1] << 8));
+    }
+
+    @Test
+    public void endpointSplitsLongUtterance() {
+        speak(newCollector(UtteranceOverflowPolicy.ENDPOINT), 12);
+        assertEquals(3, utterances.size());
+        assertEquals(1600, utterances.get(0).length);
+        assertEquals(1600, utterances.get(1).length);
+        assertEquals(640, utterances.get(2).length);
+        assertEquals(5000, sample(utterances.get(1), 0));
+        assertEquals(2, overflows.size());
+    }
+
+    @Test
+    public void dropOldestKeepsLatestAudio() {
+        speak(newCollector(UtteranceOverflowPolicy.DROP_OLDEST), 12);
+        assertEquals(1, utterances.size());
+        assertEquals(1600, utterances.get(0).length);
+        assertEquals(7000, sample(utterances.get(0), 0));
+        assertEquals(11159, sample(utterances.get(0), 799));
+        assertEquals(1, overflows.size());
+    }
+
+    @Test
+    public void eventKeepsFirstAudioAndDropsRest() {
+        UtteranceCollector collector = newCollector(UtteranceOverflowPolicy.EVENT);
+        speak(collector, 12);
+        speak(collector, 2);
+        assertEquals(2, utterances.size());
+        assertEquals(1600, utterances.get(0).length);
+        assertEquals(4159, sample(utterances.get(0), 799));
+        assertEquals(640, utterances.get(1).length);
+        assertEquals(1, overflows.size());
+    }
+}
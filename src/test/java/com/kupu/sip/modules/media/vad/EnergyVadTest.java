@@ -0,0 +1,89 @@
+package com.kupu.sip.modules.media.vad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import com.kupu.sip.modules.media.codec.G711ALawCodec;
+
+public class EnergyVadTest {
+
+    private static long rms(int rms) {
+        return (long) rms * rms;
+    }
+
+    private EnergyVad newVad() {
+        return new EnergyVad(20, 40, 400, 9, 5);
+    }
+
+    @Test
+    public void detectsOnsetAndOffsetWithHysteresis() {
+        EnergyVad vad = newVad();
+        for (int i = 0; i < 50; i++) {
+            assertEquals(VoiceActivityDetector.NONE, vad.onFrame(rms(300)));
+        }
+        assertEquals(VoiceActivityDetector.NONE, vad.onFrame(rms(3000)));
+        assertEquals(VoiceActivityDetector.ONSET, vad.onFrame(rms(3000)));
+        // 介于结束与起始门限之间的弱音不结束语音段
+        for (int i = 0; i < 40; i++) {
+            assertEquals(VoiceActivityDetector.NONE, vad.onFrame(rms(600)));
+        }
+        assertTrue(vad.isSpeech());
+        for (int i = 0; i < 19; i++) {
+            assertEquals(VoiceActivityDetector.NONE, vad.onFrame(rms(300)));
+        }
+        assertEquals(VoiceActivityDetector.OFFSET, vad.onFrame(rms(300)));
+        assertFalse(vad.isSpeech());
+    }
+
+    @Test
+    public void adaptsToRisingNoiseFloor() {
+        EnergyVad vad = newVad();
+        for (int i = 0; i < 50; i++) {
+            vad.onFrame(rms(100));
+        }
+        // 线路噪声抬升并持续，语音段应在有限时间内结束，且之后不再反复触发
+        int offsetAt = -1;
+        for (int i = 0; i < 500 && offsetAt < 0; i++) {
+            if (vad.onFrame(rms(2000)) == VoiceActivityDetector.OFFSET) {
+                offsetAt = i;
+            }
+        }
+        assertTrue(offsetAt > 0 && offsetAt < 400, "offset at " + offsetAt);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(VoiceActivityDetector.NONE, vad.onFrame(rms(2000)));
+        }
+        vad.onFrame(rms(20000));
+        assertEquals(VoiceActivityDetector.ONSET, vad.onFrame(rms(20000)));
+    }
+
+    @Test
+    public void g711EnergyMatchesPcm() {
+        short[] pcm = new short[160];
+        ByteBuffer alaw = ByteBuffer.allocate(160);
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = G711ALawCodec.decode(G711ALawCodec.encode((int) (4000 * Math.sin(i * 0.3))));
+            alaw.put(i, G711ALawCodec.encode(pcm[i]));
+        }
+        assertEquals(FrameEnergy.meanSquare(pcm, 0, 160), FrameEnergy.meanSquareG711(alaw, 0, 160, 8));
+        assertEquals(FrameEnergy.dbToLevel(6.02), FrameEnergy.level(4 * 1024) - FrameEnergy.level(1024));
+    }
+
+    @Test
+    public void preRollKeepsLatestSamplesInOrder() {
+        PcmPreRoll preRoll = new PcmPreRoll(5);
+        short[] frame = {1, 2, 3};
+        preRoll.push(frame, 0, 3);
+        frame = new short[]{4, 5, 6};
+        preRoll.push(frame, 0, 3);
+        short[] out = new short[8];
+        assertEquals(5, preRoll.read(out, 0, out.length));
+        assertEquals(2, out[0]);
+        assertEquals(6, out[4]);
+        assertEquals(0, preRoll.size());
+    }
+}